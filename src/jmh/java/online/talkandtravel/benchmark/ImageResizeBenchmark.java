@@ -0,0 +1,118 @@
+package online.talkandtravel.benchmark;
+
+import static online.talkandtravel.util.constants.AvatarDimensionsConstants.X256;
+import static online.talkandtravel.util.constants.AvatarDimensionsConstants.X50;
+
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.imageio.ImageIO;
+import online.talkandtravel.service.impl.ImageServiceImpl;
+import online.talkandtravel.util.constants.ResizeMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Compares the {@link ResizeMode}s of {@link ImageServiceImpl#resizeImage(BufferedImage, int)} on
+ * the avatar thumbnail sizes. Decoding and encoding are left out, only the resize is measured.
+ *
+ * <p>The image parameters mirror typical uploads: phone photos, a tall screenshot and a
+ * transparent logo. Real samples are used when the {@code BENCHMARK_IMAGES_DIR} environment
+ * variable points to a directory holding {@code <image>.jpg} or {@code <image>.png} files,
+ * otherwise synthetic images of the same dimensions are generated.
+ *
+ * <p>Run with {@code mvn -Pbenchmark test-compile exec:exec}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImageResizeBenchmark {
+
+  private static final String IMAGES_DIR_ENV = "BENCHMARK_IMAGES_DIR";
+  private static final long SEED = 42;
+
+  @Param({"SMOOTH", "BALANCED", "SPEED"})
+  private ResizeMode mode;
+
+  @Param({"photo-4032x3024", "photo-1920x1080", "screenshot-1170x2532", "logo-512x512"})
+  private String image;
+
+  private ImageServiceImpl imageService;
+  private BufferedImage source;
+
+  @Setup
+  public void setUp() throws IOException {
+    imageService = new ImageServiceImpl();
+    ReflectionTestUtils.setField(imageService, "RESIZE_MODE", mode);
+    source = loadImage();
+  }
+
+  @Benchmark
+  public void avatarThumbnails(Blackhole blackhole) {
+    BufferedImage thumbnailX256 = imageService.resizeImage(source, X256);
+    blackhole.consume(thumbnailX256);
+    blackhole.consume(imageService.resizeImage(thumbnailX256, X50));
+  }
+
+  @Benchmark
+  public BufferedImage attachmentThumbnail() {
+    return imageService.resizeImage(source, X256);
+  }
+
+  private BufferedImage loadImage() throws IOException {
+    String imagesDir = System.getenv(IMAGES_DIR_ENV);
+    if (imagesDir != null) {
+      for (String extension : new String[] {".jpg", ".png"}) {
+        Path file = Path.of(imagesDir, image + extension);
+        if (Files.exists(file)) {
+          return ImageIO.read(file.toFile());
+        }
+      }
+    }
+    return generateImage();
+  }
+
+  /** Draws gradients and noise, so scaling has both smooth areas and fine detail to work on */
+  private BufferedImage generateImage() {
+    String[] dimensions = image.substring(image.indexOf('-') + 1).split("x");
+    int width = Integer.parseInt(dimensions[0]);
+    int height = Integer.parseInt(dimensions[1]);
+    boolean transparent = image.startsWith("logo");
+
+    BufferedImage generated = new BufferedImage(width, height,
+        transparent ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_3BYTE_BGR);
+    Graphics2D g2d = generated.createGraphics();
+    Random random = new Random(SEED);
+    if (!transparent) {
+      g2d.setPaint(new GradientPaint(0, 0, Color.ORANGE, width, height, Color.BLUE));
+      g2d.fillRect(0, 0, width, height);
+    }
+    for (int i = 0; i < 200; i++) {
+      g2d.setColor(new Color(random.nextInt(256), random.nextInt(256), random.nextInt(256)));
+      g2d.fillOval(random.nextInt(width), random.nextInt(height), 1 + random.nextInt(width / 4),
+          1 + random.nextInt(height / 4));
+    }
+    g2d.dispose();
+    return generated;
+  }
+}
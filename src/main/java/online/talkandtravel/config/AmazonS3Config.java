@@ -1,16 +1,24 @@
 package online.talkandtravel.config;
 
+import java.net.URI;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3AsyncClientBuilder;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.multipart.MultipartConfiguration;
 
 @Configuration
 public class AmazonS3Config {
 
+  private static final long BYTES_IN_MB = 1024 * 1024;
+
   @Value("${aws.accessKeyId}")
   private String AWS_ACCESS_KEY_ID;
 
@@ -20,15 +28,54 @@ public class AmazonS3Config {
   @Value("${aws.region}")
   private String AWS_REGION;
 
+  @Value("${aws.s3.endpoint}")
+  private String AWS_S3_ENDPOINT;
+
+  @Value("${aws.s3.maxConcurrency}")
+  private int AWS_S3_MAX_CONCURRENCY;
+
+  @Value("${aws.s3.multipartThresholdInMb}")
+  private long AWS_S3_MULTIPART_THRESHOLD_IN_MB;
+
+  @Value("${aws.s3.multipartPartSizeInMb}")
+  private long AWS_S3_MULTIPART_PART_SIZE_IN_MB;
+
   @Bean
   public S3Client s3Client() {
-    AwsBasicCredentials awsCredentials = AwsBasicCredentials.create(
-        AWS_ACCESS_KEY_ID, AWS_ACCESS_KEY);
+    S3ClientBuilder builder = S3Client.builder()
+        .region(Region.of(AWS_REGION))
+        .credentialsProvider(StaticCredentialsProvider.create(awsCredentials()));
 
-    return S3Client.builder()
+    if (!AWS_S3_ENDPOINT.isBlank()) {
+      builder.endpointOverride(URI.create(AWS_S3_ENDPOINT)).forcePathStyle(true);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Non-blocking client on the Netty transport, used to upload several objects at once. Objects
+   * over {@code aws.s3.multipartThresholdInMb} are split into parts that are uploaded in parallel.
+   */
+  @Bean
+  public S3AsyncClient s3AsyncClient() {
+    S3AsyncClientBuilder builder = S3AsyncClient.builder()
         .region(Region.of(AWS_REGION))
-        .credentialsProvider(StaticCredentialsProvider.create(awsCredentials))
-        .build();
+        .credentialsProvider(StaticCredentialsProvider.create(awsCredentials()))
+        .httpClientBuilder(NettyNioAsyncHttpClient.builder()
+            .maxConcurrency(AWS_S3_MAX_CONCURRENCY))
+        .multipartEnabled(true)
+        .multipartConfiguration(MultipartConfiguration.builder()
+            .thresholdInBytes(AWS_S3_MULTIPART_THRESHOLD_IN_MB * BYTES_IN_MB)
+            .minimumPartSizeInBytes(AWS_S3_MULTIPART_PART_SIZE_IN_MB * BYTES_IN_MB)
+            .build());
+
+    if (!AWS_S3_ENDPOINT.isBlank()) {
+      builder.endpointOverride(URI.create(AWS_S3_ENDPOINT)).forcePathStyle(true);
+    }
+    return builder.build();
   }
 
+  private AwsBasicCredentials awsCredentials() {
+    return AwsBasicCredentials.create(AWS_ACCESS_KEY_ID, AWS_ACCESS_KEY);
+  }
 }
@@ -1,7 +1,7 @@
 package online.talkandtravel.config;
 
 import static online.talkandtravel.util.constants.S3Constants.IMAGE_ATTACHMENT_ORIGINAL_FOLDER_PATTERN;
-import static online.talkandtravel.util.constants.S3Constants.IMAGE_ATTACHMENT_THUMBNAIL_X256_FOLDER_PATTERN;
+import static online.talkandtravel.util.constants.S3Constants.IMAGE_ATTACHMENT_THUMBNAIL_FOLDER_PATTERN;
 
 import org.mapstruct.InjectionStrategy;
 import org.mapstruct.NullValueCheckStrategy;
@@ -39,7 +39,7 @@ import org.mapstruct.NullValueCheckStrategy;
     nullValueCheckStrategy = NullValueCheckStrategy.ALWAYS,
     implementationPackage = "<PACKAGE_NAME>.impl")
 public class MapperConfig {
-//  public static final String THUMBNAIL_FOLDER = IMAGE_ATTACHMENT_THUMBNAIL_X256_FOLDER_PATTERN.formatted(1);
+//  public static final String THUMBNAIL_FOLDER = IMAGE_ATTACHMENT_THUMBNAIL_FOLDER_PATTERN.formatted(1, 256);
 //  public static final String ORIGINAL_FOLDER = IMAGE_ATTACHMENT_ORIGINAL_FOLDER_PATTERN.formatted(1);
 
 }
@@ -74,7 +74,8 @@ public class SecurityConfiguration {
       "/privacy-policy",
       "/public-terms-of-service",
       "/api/avatars/user/{userID}",
-      "/api/v2/user/{userID}/avatar"
+      "/api/v2/user/{userID}/avatar",
+      "/api/images/**"
   };
 
   private final JwtAuthenticationFilter jwtAuthenticationFilter;
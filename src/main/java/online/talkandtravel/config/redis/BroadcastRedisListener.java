@@ -0,0 +1,41 @@
+package online.talkandtravel.config.redis;
+
+import static online.talkandtravel.util.constants.RedisConstants.WEBSOCKET_BROADCAST_CHANNEL_PREFIX;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import online.talkandtravel.service.BroadcastService;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+/**
+ * This class handles payloads broadcast by any application instance and delivers them to the
+ * WebSocket sessions connected to this instance.
+ */
+@Component
+@Log4j2
+@RequiredArgsConstructor
+public class BroadcastRedisListener implements MessageListener {
+
+    private final BroadcastService broadcastService;
+
+    /**
+     * Invoked when a payload is published to a broadcast channel.
+     *
+     * @param message the message with the channel {@code ws-broadcast:<destination>} and the JSON
+     *                payload as body
+     * @param pattern the pattern of the channel (not used in this method)
+     */
+    @Override
+    public void onMessage(@NonNull Message message, byte[] pattern) {
+        String channel = new String(message.getChannel());
+        String destination = channel.substring(WEBSOCKET_BROADCAST_CHANNEL_PREFIX.length());
+        try {
+            broadcastService.deliverLocally(destination, message.getBody());
+        } catch (Exception e) {
+            log.error("Failed to deliver broadcast to {}: {}", destination, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package online.talkandtravel.config.redis;
+
+import static online.talkandtravel.util.constants.RedisConstants.CHAT_MEMBERSHIP_INVALIDATION_ALL_USERS;
+import static online.talkandtravel.util.constants.RedisConstants.CHAT_MEMBERSHIP_INVALIDATION_SEPARATOR;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import online.talkandtravel.service.ChatMembershipService;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+/**
+ * This class handles chat membership invalidations published by any application instance and
+ * drops the corresponding entries from the local membership cache.
+ */
+@Component
+@Log4j2
+@RequiredArgsConstructor
+public class ChatMembershipRedisListener implements MessageListener {
+
+    private final ChatMembershipService chatMembershipService;
+
+    /**
+     * Invoked when a membership invalidation is published.
+     *
+     * @param message the message with body {@code chatId:userId}, or {@code chatId:*} when all
+     *                memberships of the chat must be dropped
+     * @param pattern the pattern of the channel (not used in this method)
+     */
+    @Override
+    public void onMessage(@NonNull Message message, byte[] pattern) {
+        String payload = new String(message.getBody());
+        try {
+            String[] parts = payload.split(CHAT_MEMBERSHIP_INVALIDATION_SEPARATOR);
+            Long chatId = Long.valueOf(parts[0]);
+            Long userId = CHAT_MEMBERSHIP_INVALIDATION_ALL_USERS.equals(parts[1])
+                    ? null
+                    : Long.valueOf(parts[1]);
+            chatMembershipService.evictLocally(chatId, userId);
+        } catch (Exception e) {
+            log.error("Invalid chat membership invalidation {}: {}", payload, e.getMessage());
+        }
+    }
+}
@@ -1,50 +1,80 @@
 package online.talkandtravel.config.redis;
 
+import static online.talkandtravel.util.constants.RedisConstants.CHAT_MEMBERSHIP_INVALIDATION_CHANNEL;
+import static online.talkandtravel.util.constants.RedisConstants.TOKEN_REVOCATION_CHANNEL;
+import static online.talkandtravel.util.constants.RedisConstants.USER_DETAILS_INVALIDATION_CHANNEL;
+
 import lombok.extern.log4j.Log4j2;
 import online.talkandtravel.model.dto.auth.RegisterRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SyncTaskExecutor;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
-import org.springframework.data.redis.core.RedisKeyValueAdapter;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.ChannelTopic;
 import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.repository.configuration.EnableRedisRepositories;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 
 /**
- * Configuration class for setting up Redis integration. Enables Redis keyspace notifications for
- * expired keys and configures a listener container to handle key expiration events.
+ * Configuration class for setting up Redis integration. Configures a listener container to handle
+ * chat membership invalidations, user details invalidations and token revocations, and a separate
+ * container for WebSocket broadcasts.
  */
 @Configuration
 @Log4j2
-@EnableRedisRepositories(
-        enableKeyspaceEvents = RedisKeyValueAdapter.EnableKeyspaceEvents.ON_STARTUP)
+@EnableRedisRepositories
 public class RedisConfig {
 
-    private static final String KEY_EVENT_EXPIRED = "__keyevent@*__:expired";
-
     /**
-     * Configures a {@link RedisMessageListenerContainer} to listen for Redis key expiration events.
-     * The listener is triggered when any key expires in the Redis database, and a specific action is
-     * performed based on the expired key.
+     * Configures a {@link RedisMessageListenerContainer} to listen for invalidations published by
+     * application instances.
      *
      * @param connectionFactory the Redis connection factory
-     * @param expirationListener the listener that handles key expiration events
+     * @param chatMembershipListener the listener that handles chat membership invalidations
+     * @param userDetailsListener the listener that handles user details invalidations
+     * @param tokenRevocationListener the listener that handles token revocations
      * @return the configured {@link RedisMessageListenerContainer}
      */
     @Bean
-    RedisMessageListenerContainer keyExpirationListenerContainer(
-            RedisConnectionFactory connectionFactory, ExpiredValueRedisListener expirationListener) {
-        PatternTopic pattern = new PatternTopic(KEY_EVENT_EXPIRED);
+    RedisMessageListenerContainer invalidationListenerContainer(
+            RedisConnectionFactory connectionFactory,
+            ChatMembershipRedisListener chatMembershipListener,
+            UserDetailsRedisListener userDetailsListener,
+            TokenRevocationRedisListener tokenRevocationListener) {
         RedisMessageListenerContainer listenerContainer = new RedisMessageListenerContainer();
         listenerContainer.setConnectionFactory(connectionFactory);
 
-        // Adds the custom listener to handle key expiration events for the specified pattern
-        listenerContainer.addMessageListener(expirationListener, pattern);
+        listenerContainer.addMessageListener(chatMembershipListener,
+                new ChannelTopic(CHAT_MEMBERSHIP_INVALIDATION_CHANNEL));
+        listenerContainer.addMessageListener(userDetailsListener,
+                new ChannelTopic(USER_DETAILS_INVALIDATION_CHANNEL));
+        listenerContainer.addMessageListener(tokenRevocationListener,
+                new ChannelTopic(TOKEN_REVOCATION_CHANNEL));
 
         listenerContainer.setErrorHandler(
-                e -> log.error("Error in Redis key expiration listener container: {}", e.getMessage()));
+                e -> log.error("Error in Redis invalidation listener container: {}", e.getMessage()));
+        return listenerContainer;
+    }
+
+    /**
+     * Configures a {@link RedisMessageListenerContainer} for WebSocket broadcasts. It starts
+     * without channels, they are added and removed by
+     * {@link online.talkandtravel.config.websocket.BroadcastSubscriptionRegistry} as local sessions
+     * subscribe to destinations. Payloads are dispatched on the subscription thread, so they are
+     * delivered in the order they were published.
+     *
+     * @param connectionFactory the Redis connection factory
+     * @return the configured {@link RedisMessageListenerContainer}
+     */
+    @Bean
+    RedisMessageListenerContainer broadcastListenerContainer(
+            RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer listenerContainer = new RedisMessageListenerContainer();
+        listenerContainer.setConnectionFactory(connectionFactory);
+        listenerContainer.setTaskExecutor(new SyncTaskExecutor());
+        listenerContainer.setErrorHandler(
+                e -> log.error("Error in Redis broadcast listener container: {}", e.getMessage()));
         return listenerContainer;
     }
 
@@ -0,0 +1,45 @@
+package online.talkandtravel.config.redis;
+
+import static online.talkandtravel.util.constants.RedisConstants.TOKEN_REVOCATION_SEPARATOR;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import online.talkandtravel.service.TokenService;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+/**
+ * This class handles token revocations published by any application instance, adds the revoked
+ * token to the local revocation set and drops the cached tokens of its user.
+ */
+@Component
+@Log4j2
+@RequiredArgsConstructor
+public class TokenRevocationRedisListener implements MessageListener {
+
+    private final TokenService tokenService;
+
+    /**
+     * Invoked when a token revocation is published.
+     *
+     * @param message the message with body {@code userId|digest|expiresAt}, where the digest is
+     *                the base64 encoded SHA-256 of the token and expiresAt is in epoch millis
+     * @param pattern the pattern of the channel (not used in this method)
+     */
+    @Override
+    public void onMessage(@NonNull Message message, byte[] pattern) {
+        String payload = new String(message.getBody());
+        try {
+            int digestStart = payload.indexOf(TOKEN_REVOCATION_SEPARATOR);
+            int digestEnd = payload.lastIndexOf(TOKEN_REVOCATION_SEPARATOR);
+            Long userId = Long.valueOf(payload.substring(0, digestStart));
+            String digest = payload.substring(digestStart + 1, digestEnd);
+            long expiresAt = Long.parseLong(payload.substring(digestEnd + 1));
+            tokenService.revokeLocally(userId, digest, expiresAt);
+        } catch (Exception e) {
+            log.error("Invalid token revocation {}: {}", payload, e.getMessage());
+        }
+    }
+}
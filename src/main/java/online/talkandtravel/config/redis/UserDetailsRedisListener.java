@@ -0,0 +1,37 @@
+package online.talkandtravel.config.redis;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import online.talkandtravel.service.UserDetailsCacheService;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+/**
+ * This class handles user details invalidations published by any application instance and drops
+ * the corresponding principal from the local cache.
+ */
+@Component
+@Log4j2
+@RequiredArgsConstructor
+public class UserDetailsRedisListener implements MessageListener {
+
+    private final UserDetailsCacheService userDetailsCacheService;
+
+    /**
+     * Invoked when a user details invalidation is published.
+     *
+     * @param message the message with the user id as body
+     * @param pattern the pattern of the channel (not used in this method)
+     */
+    @Override
+    public void onMessage(@NonNull Message message, byte[] pattern) {
+        String payload = new String(message.getBody());
+        try {
+            userDetailsCacheService.evictLocally(Long.valueOf(payload));
+        } catch (Exception e) {
+            log.error("Invalid user details invalidation {}: {}", payload, e.getMessage());
+        }
+    }
+}
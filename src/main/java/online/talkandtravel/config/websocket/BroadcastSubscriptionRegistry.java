@@ -0,0 +1,130 @@
+package online.talkandtravel.config.websocket;
+
+import static online.talkandtravel.util.constants.ApiPathConstants.USER_DESTINATION_PREFIX;
+import static online.talkandtravel.util.constants.RedisConstants.WEBSOCKET_BROADCAST_CHANNEL_PREFIX;
+
+import java.security.Principal;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import online.talkandtravel.config.redis.BroadcastRedisListener;
+import online.talkandtravel.service.BroadcastService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+/**
+ * Keeps the Redis broadcast channels of this application instance in line with the destinations
+ * its WebSocket sessions are subscribed to.
+ *
+ * <p>The channel of a destination is subscribed when the first local session subscribes to it and
+ * unsubscribed when the last one unsubscribes or disconnects, so an instance receives only the
+ * chats somebody connected to it is listening to. A subscription to a user destination such as
+ * {@code /user/queue/onlineStatuses} is tracked as {@code /user/{name}/queue/onlineStatuses} of the
+ * subscribing user, the destination payloads for that user are broadcast to. Does nothing unless
+ * {@code webSocketBroadcast.shareThroughRedis} is enabled.
+ */
+@Component
+@Log4j2
+@RequiredArgsConstructor
+public class BroadcastSubscriptionRegistry {
+
+  private final RedisMessageListenerContainer broadcastListenerContainer;
+  private final BroadcastRedisListener broadcastRedisListener;
+  private final BroadcastService broadcastService;
+
+  @Value("${webSocketBroadcast.shareThroughRedis}")
+  private boolean SHARE_THROUGH_REDIS;
+
+  /** session id -> (subscription id -> destination) */
+  private final Map<String, Map<String, String>> sessionSubscriptions = new HashMap<>();
+
+  /** destination -> number of local subscriptions */
+  private final Map<String, Integer> destinationSubscriptions = new HashMap<>();
+
+  @EventListener
+  public void onSubscribe(SessionSubscribeEvent event) {
+    StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+    String destination = toBroadcastDestination(accessor.getDestination(), event.getUser());
+    if (SHARE_THROUGH_REDIS && broadcastService.isBroadcastDestination(destination)) {
+      subscribe(accessor.getSessionId(), accessor.getSubscriptionId(), destination);
+    }
+  }
+
+  @EventListener
+  public void onUnsubscribe(SessionUnsubscribeEvent event) {
+    if (SHARE_THROUGH_REDIS) {
+      StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+      unsubscribe(accessor.getSessionId(), accessor.getSubscriptionId());
+    }
+  }
+
+  @EventListener
+  public void onDisconnect(SessionDisconnectEvent event) {
+    if (SHARE_THROUGH_REDIS) {
+      disconnect(event.getSessionId());
+    }
+  }
+
+  private synchronized void subscribe(String sessionId, String subscriptionId, String destination) {
+    String previous = sessionSubscriptions
+        .computeIfAbsent(sessionId, id -> new HashMap<>())
+        .put(subscriptionId, destination);
+    if (previous != null) {
+      release(previous);
+    }
+    if (destinationSubscriptions.merge(destination, 1, Integer::sum) == 1) {
+      log.debug("Subscribe to broadcasts of {}", destination);
+      broadcastListenerContainer.addMessageListener(broadcastRedisListener, toTopic(destination));
+    }
+  }
+
+  private synchronized void unsubscribe(String sessionId, String subscriptionId) {
+    Map<String, String> subscriptions = sessionSubscriptions.get(sessionId);
+    if (subscriptions == null) {
+      return;
+    }
+    String destination = subscriptions.remove(subscriptionId);
+    if (subscriptions.isEmpty()) {
+      sessionSubscriptions.remove(sessionId);
+    }
+    if (destination != null) {
+      release(destination);
+    }
+  }
+
+  private synchronized void disconnect(String sessionId) {
+    Map<String, String> subscriptions = sessionSubscriptions.remove(sessionId);
+    if (subscriptions != null) {
+      subscriptions.values().forEach(this::release);
+    }
+  }
+
+  private void release(String destination) {
+    Integer remaining = destinationSubscriptions.computeIfPresent(destination,
+        (key, count) -> count > 1 ? count - 1 : null);
+    if (remaining == null) {
+      log.debug("Unsubscribe from broadcasts of {}", destination);
+      broadcastListenerContainer.removeMessageListener(broadcastRedisListener, toTopic(destination));
+    }
+  }
+
+  private String toBroadcastDestination(String destination, Principal user) {
+    String prefix = USER_DESTINATION_PREFIX + "/";
+    if (destination == null || user == null || !destination.startsWith(prefix)) {
+      return destination;
+    }
+    return prefix + user.getName() + destination.substring(USER_DESTINATION_PREFIX.length());
+  }
+
+  private ChannelTopic toTopic(String destination) {
+    return new ChannelTopic(WEBSOCKET_BROADCAST_CHANNEL_PREFIX + destination);
+  }
+}
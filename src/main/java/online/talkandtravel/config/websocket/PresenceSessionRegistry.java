@@ -0,0 +1,154 @@
+package online.talkandtravel.config.websocket;
+
+import static online.talkandtravel.util.AuthenticationUtils.getUserFromPrincipal;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import online.talkandtravel.service.OnlineService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+/**
+ * Derives online statuses of users from their WebSocket sessions on this application instance.
+ *
+ * <p>The number of sessions is counted per user, {@link OnlineService} is called only when a user
+ * opens the first session or closes the last one. Sessions which stop responding are closed by
+ * the broker when STOMP heartbeats are missed, so a user goes offline as soon as the connection is
+ * lost instead of when the online status expires.
+ *
+ * <p>Every {@code presence.sessionRefreshIntervalInMs} the online statuses of all connected users
+ * are extended at once, so connected clients don't have to send heartbeats.
+ *
+ * <p>The session maps are updated under the registry monitor, but {@link OnlineService} is never
+ * called while holding it. The first-connect and last-disconnect transitions are queued on the
+ * single {@code presence-updater} thread in the order they were recorded, and the refresh runs on
+ * the same thread. So Redis round trips don't block other sessions, and the updates of a user are
+ * applied in order. A refresh never marks a user online again after their disconnect was applied.
+ */
+@Component
+@Log4j2
+@RequiredArgsConstructor
+public class PresenceSessionRegistry {
+
+  private final OnlineService onlineService;
+
+  @Value("${presence.sessionRefreshIntervalInMs}")
+  private long SESSION_REFRESH_INTERVAL_IN_MS;
+
+  /** session id -> user id */
+  private final Map<String, Long> sessionUsers = new HashMap<>();
+
+  /** user id -> number of local sessions */
+  private final Map<Long, Integer> userSessions = new HashMap<>();
+
+  /** Runs every call to {@link OnlineService}, one at a time and in submission order */
+  private ScheduledExecutorService presenceUpdater;
+
+  @PostConstruct
+  public void start() {
+    presenceUpdater = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "presence-updater");
+      thread.setDaemon(true);
+      return thread;
+    });
+    presenceUpdater.scheduleWithFixedDelay(this::refreshConnectedUsers, SESSION_REFRESH_INTERVAL_IN_MS,
+        SESSION_REFRESH_INTERVAL_IN_MS, TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  public void stop() {
+    presenceUpdater.shutdownNow();
+  }
+
+  @EventListener
+  public void onConnected(SessionConnectedEvent event) {
+    Principal principal = event.getUser();
+    String sessionId = SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders());
+    if (principal != null && sessionId != null) {
+      connect(sessionId, getUserFromPrincipal(principal).getId());
+    }
+  }
+
+  @EventListener
+  public void onDisconnect(SessionDisconnectEvent event) {
+    disconnect(event.getSessionId());
+  }
+
+  private synchronized void connect(String sessionId, Long userId) {
+    if (sessionUsers.putIfAbsent(sessionId, userId) != null) {
+      return;
+    }
+    if (userSessions.merge(userId, 1, Integer::sum) == 1) {
+      log.debug("User {} connected", userId);
+      submitPresenceUpdate(userId, true);
+    }
+  }
+
+  private synchronized void disconnect(String sessionId) {
+    Long userId = sessionUsers.remove(sessionId);
+    if (userId == null) {
+      return;
+    }
+    Integer remaining = userSessions.computeIfPresent(userId,
+        (key, count) -> count > 1 ? count - 1 : null);
+    if (remaining == null) {
+      log.debug("User {} disconnected", userId);
+      submitPresenceUpdate(userId, false);
+    }
+  }
+
+  /**
+   * Queues the transition on the {@code presence-updater} thread. Called under the registry
+   * monitor, so transitions are queued in the order they happened.
+   */
+  private void submitPresenceUpdate(Long userId, boolean isConnected) {
+    try {
+      presenceUpdater.execute(() -> updatePresence(userId, isConnected));
+    } catch (RejectedExecutionException e) {
+      log.warn("Presence of user {} is not updated, the registry is stopped", userId);
+    }
+  }
+
+  private void updatePresence(Long userId, boolean isConnected) {
+    try {
+      if (isConnected) {
+        onlineService.userConnected(userId);
+      } else {
+        onlineService.userDisconnected(userId);
+      }
+    } catch (Exception e) {
+      log.error("Failed to update presence of user {}: {}", userId, e.getMessage());
+    }
+  }
+
+  /**
+   * Extends the online statuses of all users connected to this instance. Runs on the {@code
+   * presence-updater} thread, after every transition recorded before it.
+   */
+  public void refreshConnectedUsers() {
+    List<Long> userIds;
+    synchronized (this) {
+      userIds = new ArrayList<>(userSessions.keySet());
+    }
+    try {
+      onlineService.refreshOnlineStatuses(userIds);
+    } catch (Exception e) {
+      log.error("Failed to refresh online statuses of {} users: {}", userIds.size(), e.getMessage());
+    }
+  }
+}
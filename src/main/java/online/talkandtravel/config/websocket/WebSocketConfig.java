@@ -2,13 +2,19 @@ package online.talkandtravel.config.websocket;
 
 import static online.talkandtravel.util.constants.ApiPathConstants.APPLICATION_DESTINATION_PREFIX;
 import static online.talkandtravel.util.constants.ApiPathConstants.BROKER_DESTINATION_PREFIX;
+import static online.talkandtravel.util.constants.ApiPathConstants.USER_DESTINATION_PREFIX;
+import static online.talkandtravel.util.constants.ApiPathConstants.USER_QUEUE_DESTINATION_PREFIX;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
@@ -35,6 +41,16 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
  *             with destinations "/countries" and "/group-messages" for broadcasting messages to
  *             subscribed clients.
  *       </ul>
+ *   <li><strong>Cluster Fan-out:</strong> With {@code webSocketBroadcast.shareThroughRedis}
+ *       enabled, chat and online status payloads are published through Redis and every instance
+ *       delivers them to its own subscribers, see {@link
+ *       online.talkandtravel.service.BroadcastService}.
+ *   <li><strong>Heartbeats:</strong> The broker exchanges STOMP heartbeats with clients every
+ *       {@code presence.stompHeartbeatInMs}, so sessions of clients that silently went away are
+ *       closed and their users go offline, see {@link PresenceSessionRegistry}.
+ *   <li><strong>Ordering:</strong> Messages of every session are received and published in the
+ *       order they were sent, so chat messages reach the write pipeline and subscribers in send
+ *       order.
  * </ul>
  *
  */
@@ -47,8 +63,19 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
   @Value("${ALLOWED_ORIGINS}")
   private String ALLOWED_ORIGINS;
 
+  @Value("${presence.stompHeartbeatInMs}")
+  private long STOMP_HEARTBEAT_IN_MS;
+
   private final OnConnectChannelInterceptor onConnectChannelInterceptor;
 
+  private TaskScheduler messageBrokerTaskScheduler;
+
+  @Autowired
+  public void setMessageBrokerTaskScheduler(
+      @Lazy @Qualifier("messageBrokerTaskScheduler") TaskScheduler messageBrokerTaskScheduler) {
+    this.messageBrokerTaskScheduler = messageBrokerTaskScheduler;
+  }
+
   @Override
   public void configureClientInboundChannel(ChannelRegistration registration) {
     registration.interceptors(onConnectChannelInterceptor);
@@ -59,6 +86,7 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     registry.addEndpoint("/ws")
         .setAllowedOriginPatterns(ALLOWED_ORIGINS.split(","))
         .withSockJS();
+    registry.setPreserveReceiveOrder(true);
   }
 
   /**
@@ -70,7 +98,8 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
    * </p>
    * <ul>
    *   <li>Application destination prefix - /request</li>
-   *   <li>Broker Prefix - /notify</li>
+   *   <li>Broker Prefixes - /notify and /queue, the latter for destinations of a single user</li>
+   *   <li>User destination prefix - /user, resolved to the sessions of the authenticated user</li>
    * </ul>
    *
    * @param registry the {@link MessageBrokerRegistry} used to configure the message broker.
@@ -80,6 +109,10 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
   @Override
   public void configureMessageBroker(MessageBrokerRegistry registry) {
     registry.setApplicationDestinationPrefixes(APPLICATION_DESTINATION_PREFIX);
-    registry.enableSimpleBroker(BROKER_DESTINATION_PREFIX);
+    registry.setUserDestinationPrefix(USER_DESTINATION_PREFIX);
+    registry.enableSimpleBroker(BROKER_DESTINATION_PREFIX, USER_QUEUE_DESTINATION_PREFIX)
+        .setHeartbeatValue(new long[] {STOMP_HEARTBEAT_IN_MS, STOMP_HEARTBEAT_IN_MS})
+        .setTaskScheduler(messageBrokerTaskScheduler);
+    registry.setPreservePublishOrder(true);
   }
 }
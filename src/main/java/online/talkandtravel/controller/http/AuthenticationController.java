@@ -1,6 +1,5 @@
 package online.talkandtravel.controller.http;
 
-import static online.talkandtravel.util.constants.ApiPathConstants.USERS_ONLINE_STATUS_ENDPOINT;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -14,13 +13,11 @@ import online.talkandtravel.model.dto.auth.RegistrationConfirmationRequest;
 import online.talkandtravel.model.dto.auth.SocialLoginRequest;
 import online.talkandtravel.model.dto.auth.SocialRegisterRequest;
 import online.talkandtravel.model.dto.auth.UpdatePasswordRequest;
-import online.talkandtravel.model.dto.user.OnlineStatusDto;
 import online.talkandtravel.service.OnlineService;
 import online.talkandtravel.service.UserService;
 import online.talkandtravel.util.constants.ApiPathConstants;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -47,7 +44,6 @@ public class AuthenticationController {
 
   private final AuthenticationFacade authFacade;
   private final OnlineService onlineService;
-  private final SimpMessagingTemplate messagingTemplate;
   private final UserService userService;
 
   @PostMapping("/password-recovery")
@@ -97,8 +93,8 @@ public class AuthenticationController {
     return ResponseEntity.status(HttpStatus.CREATED).body(response);
   }
 
+  /** Marks the user online, the change is published with the next presence batch. */
   private void notifyAllUserIsOnline(AuthResponse authResponse) {
-    OnlineStatusDto statusDto = onlineService.updateUserOnlineStatus(authResponse.userDto().id(), true);
-    messagingTemplate.convertAndSend(USERS_ONLINE_STATUS_ENDPOINT, statusDto);
+    onlineService.updateUserOnlineStatus(authResponse.userDto().id(), true);
   }
 }
@@ -3,6 +3,7 @@ package online.talkandtravel.controller.http;
 import static online.talkandtravel.util.FilesUtils.toFileDto;
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import java.util.List;
@@ -17,6 +18,7 @@ import online.talkandtravel.model.dto.chat.NewChatDto;
 import online.talkandtravel.model.dto.chat.NewPrivateChatDto;
 import online.talkandtravel.model.dto.chat.PrivateChatDto;
 import online.talkandtravel.model.dto.chat.SetLastReadMessageRequest;
+import online.talkandtravel.model.dto.message.MessageCursorPage;
 import online.talkandtravel.model.dto.message.MessageDto;
 import online.talkandtravel.model.dto.message.SendMessageWithAttachmentRequest;
 import online.talkandtravel.model.dto.user.UserDtoBasic;
@@ -62,6 +64,10 @@ import org.springframework.web.bind.annotation.RestController;
  *       identified by its ID.
  *   <li>{@link #getChatMessagesOrderedByDate} - Retrieves paginated messages from a specific chat,
  *       ordered by date.
+ *   <li>{@link #getChatMessagesByCursor} - Retrieves messages from a specific chat before or after
+ *       a cursor, without the total count of messages.
+ *   <li>{@link #getReadMessagesByCursor} - cursor based version of {@link #getReadMessages}
+ *   <li>{@link #getUnreadMessagesByCursor} - cursor based version of {@link #getUnreadMessages}
  * </ul>
  */
 @RestController
@@ -75,6 +81,9 @@ public class ChatController {
   private final AttachmentService attachmentService;
   private final AuthenticationService authenticationService;
 
+  private static final String DEFAULT_MESSAGES_LIMIT = "20";
+  private static final int MAX_MESSAGES_LIMIT = 100;
+
   @PostMapping("/chats")
   public ChatDto createCountryChat(@RequestBody @Valid NewChatDto dto) {
     return chatService.createCountryChat(dto);
@@ -158,6 +167,45 @@ public class ChatController {
     return chatService.findUnreadMessages(chatId, pageable);
   }
 
+  /**
+   * finds messages of a chat using keyset pagination. With {@code before} returns older messages,
+   * newest first, with {@code after} returns newer messages, oldest first. Without a cursor
+   * returns the latest messages. {@code before} and {@code after} can't be combined, a request with
+   * both is rejected with 400 (Bad Request), as is a cursor that wasn't returned by this API
+   */
+  @GetMapping("/v2/chats/{chatId}/messages")
+  public MessageCursorPage getChatMessagesByCursor(
+      @PathVariable @Positive Long chatId,
+      @RequestParam(required = false) String before,
+      @RequestParam(required = false) String after,
+      @RequestParam(defaultValue = DEFAULT_MESSAGES_LIMIT) @Positive @Max(MAX_MESSAGES_LIMIT) int limit) {
+    return chatService.findMessagesByCursor(chatId, before, after, limit);
+  }
+
+  /**
+   * finds read messages, newest first, starting from the last read message (including it). An
+   * invalid {@code before} cursor is rejected with 400 (Bad Request)
+   */
+  @GetMapping("/v2/chats/{chatId}/messages/read")
+  public MessageCursorPage getReadMessagesByCursor(
+      @PathVariable @Positive Long chatId,
+      @RequestParam(required = false) String before,
+      @RequestParam(defaultValue = DEFAULT_MESSAGES_LIMIT) @Positive @Max(MAX_MESSAGES_LIMIT) int limit) {
+    return chatService.findReadMessagesByCursor(chatId, before, limit);
+  }
+
+  /**
+   * finds unread messages, oldest first, starting after the last read message. An invalid {@code
+   * after} cursor is rejected with 400 (Bad Request)
+   */
+  @GetMapping("/v2/chats/{chatId}/messages/unread")
+  public MessageCursorPage getUnreadMessagesByCursor(
+      @PathVariable @Positive Long chatId,
+      @RequestParam(required = false) String after,
+      @RequestParam(defaultValue = DEFAULT_MESSAGES_LIMIT) @Positive @Max(MAX_MESSAGES_LIMIT) int limit) {
+    return chatService.findUnreadMessagesByCursor(chatId, after, limit);
+  }
+
   @GetMapping({"/chats/user/{userId}", "/v2/user/chats"})
   public List<ChatInfoDto> findUserChats() {
     return chatService.findUserChats();
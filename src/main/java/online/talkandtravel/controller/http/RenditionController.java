@@ -0,0 +1,59 @@
+package online.talkandtravel.controller.http;
+
+import io.swagger.v3.oas.annotations.Operation;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import online.talkandtravel.model.dto.attachment.RenditionDto;
+import online.talkandtravel.service.RenditionService;
+import online.talkandtravel.util.constants.ApiPathConstants;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Controller class responsible for serving image renditions.
+ *
+ * <ul>
+ *   <li>{@code getAttachmentRendition} - Returns a resized image attachment of a chat.
+ *   <li>{@code getAvatarRendition} - Returns a resized avatar.
+ * </ul>
+ *
+ * <p>Responses carry a strong {@code ETag} and a public {@code Cache-Control}, a request with a
+ * matching {@code If-None-Match} is answered with 304 (Not Modified).
+ */
+@RestController
+@RequestMapping(ApiPathConstants.API_BASE_PATH)
+@RequiredArgsConstructor
+public class RenditionController {
+
+  private final RenditionService renditionService;
+
+  @Operation(description = "Returns an image attachment resized to the width, the rendition is "
+      + "generated on first request")
+  @GetMapping("/images/chats/{chatId}/attachments/{key}")
+  public ResponseEntity<byte[]> getAttachmentRendition(@PathVariable Long chatId,
+      @PathVariable String key, @RequestParam int width) {
+    return toResponseEntity(renditionService.getAttachmentRendition(chatId, key, width));
+  }
+
+  @Operation(description = "Returns an avatar resized to the width, the rendition is generated on "
+      + "first request")
+  @GetMapping("/images/avatars/{key}")
+  public ResponseEntity<byte[]> getAvatarRendition(@PathVariable UUID key,
+      @RequestParam int width) {
+    return toResponseEntity(renditionService.getAvatarRendition(key, width));
+  }
+
+  private ResponseEntity<byte[]> toResponseEntity(RenditionDto rendition) {
+    return ResponseEntity.ok()
+        .contentType(MediaType.parseMediaType(rendition.contentType()))
+        .eTag(rendition.eTag())
+        .cacheControl(CacheControl.maxAge(rendition.maxAge()).cachePublic())
+        .body(rendition.content());
+  }
+}
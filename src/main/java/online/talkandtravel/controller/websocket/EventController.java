@@ -6,7 +6,6 @@ import static online.talkandtravel.util.constants.ApiPathConstants.MESSAGES_SUBS
 import static online.talkandtravel.util.constants.ApiPathConstants.START_TYPING_EVENT_PATH;
 import static online.talkandtravel.util.constants.ApiPathConstants.STOP_TYPING_EVENT_PATH;
 import static online.talkandtravel.util.constants.ApiPathConstants.UPDATE_ONLINE_STATUS_EVENT_PATH;
-import static online.talkandtravel.util.constants.ApiPathConstants.USERS_ONLINE_STATUS_ENDPOINT;
 
 import jakarta.validation.Valid;
 import java.security.Principal;
@@ -15,25 +14,25 @@ import lombok.extern.log4j.Log4j2;
 import online.talkandtravel.model.dto.event.EventRequest;
 import online.talkandtravel.model.dto.event.EventResponse;
 import online.talkandtravel.model.dto.message.MessageDto;
-import online.talkandtravel.model.dto.user.OnlineStatusDto;
+import online.talkandtravel.service.BroadcastService;
 import online.talkandtravel.service.EventService;
 import online.talkandtravel.service.OnlineService;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
-import org.springframework.messaging.handler.annotation.SendTo;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.web.bind.annotation.RestController;
 
 /**
  * Controller class responsible for handling WebSocket events related to chat interactions.
  *
  * <ul>
+ *   <li>{@code updateUserOnlineStatus} - Updates the online status of the user, the change is
+ *       published to other users with the next presence batch.
  *   <li>{@code joinChat} - Processes a request to join a chat and sends an event notification to
  *       relevant subscribers.
  *   <li>{@code leaveChat} - Processes a request to leave a chat and sends an event notification to
  *       relevant subscribers.
  *   <li>{@code startTyping} - Processes a request indicating that a user has started typing in a
- *       chat and sends an event notification.
+ *       chat and sends an event notification, unless it was coalesced with a recent one.
  *   <li>{@code stopTyping} - Processes a request indicating that a user has stopped typing in a
  *       chat and sends an event notification.
  * </ul>
@@ -44,13 +43,12 @@ import org.springframework.web.bind.annotation.RestController;
 public class EventController {
 
   private final EventService eventService;
-  private final SimpMessagingTemplate messagingTemplate;
+  private final BroadcastService broadcastService;
   private final OnlineService onlineService;
 
   @MessageMapping(UPDATE_ONLINE_STATUS_EVENT_PATH)
-  @SendTo(USERS_ONLINE_STATUS_ENDPOINT)
-  public OnlineStatusDto updateUserOnlineStatus(@Valid @Payload Boolean isOnline, Principal principal) {
-    return onlineService.updateUserOnlineStatus(principal, isOnline);
+  public void updateUserOnlineStatus(@Valid @Payload Boolean isOnline, Principal principal) {
+    onlineService.updateUserOnlineStatus(principal, isOnline);
   }
 
   @MessageMapping(JOIN_CHAT_EVENT_PATH)
@@ -69,7 +67,7 @@ public class EventController {
 
   @MessageMapping(START_TYPING_EVENT_PATH)
   public void startTyping(@Valid @Payload EventRequest request, Principal principal) {
-    log.info("create a new START TYPING event {}", request);
+    log.debug("create a new START TYPING event {}", request);
     EventResponse message = eventService.startTyping(request, principal);
 
     sendResponse(request, message);
@@ -77,7 +75,7 @@ public class EventController {
 
   @MessageMapping(STOP_TYPING_EVENT_PATH)
   public void stopTyping(@Valid @Payload EventRequest request, Principal principal) {
-    log.info("create a new STOP TYPING event {}", request);
+    log.debug("create a new STOP TYPING event {}", request);
     EventResponse message = eventService.stopTyping(request, principal);
 
     sendResponse(request, message);
@@ -85,7 +83,7 @@ public class EventController {
 
   private <T> void sendResponse(EventRequest request, T message) {
     if (message != null) {
-      messagingTemplate.convertAndSend(MESSAGES_SUBSCRIBE_PATH.formatted(request.chatId()), message);
+      broadcastService.broadcast(MESSAGES_SUBSCRIBE_PATH.formatted(request.chatId()), message);
     }
   }
 }
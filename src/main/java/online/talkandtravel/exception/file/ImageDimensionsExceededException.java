@@ -0,0 +1,21 @@
+package online.talkandtravel.exception.file;
+
+import online.talkandtravel.exception.model.HttpException;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Exception thrown when the header of an image declares more pixels than are allowed to be
+ * decoded. It is raised before any decoding, so decompression bombs and huge canvases are rejected
+ * without allocating their pixels.
+ *
+ * <p>The HTTP status is set to 400 (Bad Request).
+ */
+public class ImageDimensionsExceededException extends HttpException {
+
+  private static final String MESSAGE = "Image of %sx%s pixels with %s frames is too large";
+  private static final HttpStatus STATUS = HttpStatus.BAD_REQUEST;
+
+  public ImageDimensionsExceededException(int width, int height, int frameCount) {
+    super(MESSAGE.formatted(width, height, frameCount), STATUS);
+  }
+}
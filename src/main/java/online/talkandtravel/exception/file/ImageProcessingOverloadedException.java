@@ -0,0 +1,20 @@
+package online.talkandtravel.exception.file;
+
+import online.talkandtravel.exception.model.HttpException;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Exception thrown when an image can't be accepted because the image processing queue is full.
+ *
+ * <p>The HTTP status is set to 503 (Service Unavailable), the client may retry the upload later.
+ */
+public class ImageProcessingOverloadedException extends HttpException {
+
+  private static final String MESSAGE = "Image processing queue is full, queued tasks: %s";
+  private static final String MESSAGE_TO_CLIENT = "Too many images are being processed, please try again later";
+  private static final HttpStatus STATUS = HttpStatus.SERVICE_UNAVAILABLE;
+
+  public ImageProcessingOverloadedException(int queuedTasks) {
+    super(MESSAGE.formatted(queuedTasks), MESSAGE_TO_CLIENT, STATUS);
+  }
+}
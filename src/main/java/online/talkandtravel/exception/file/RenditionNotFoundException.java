@@ -0,0 +1,19 @@
+package online.talkandtravel.exception.file;
+
+import online.talkandtravel.exception.model.HttpException;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Exception thrown when a rendition is requested for an image that doesn't exist.
+ *
+ * <p>The HTTP status is set to 404 (Not Found).
+ */
+public class RenditionNotFoundException extends HttpException {
+
+  private static final String MESSAGE = "Image [%s] not found";
+  private static final HttpStatus STATUS = HttpStatus.NOT_FOUND;
+
+  public RenditionNotFoundException(String imageKey) {
+    super(MESSAGE.formatted(imageKey), STATUS);
+  }
+}
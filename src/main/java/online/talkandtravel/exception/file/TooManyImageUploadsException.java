@@ -0,0 +1,20 @@
+package online.talkandtravel.exception.file;
+
+import online.talkandtravel.exception.model.HttpException;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Exception thrown when a user already has the maximum number of images waiting to be processed.
+ *
+ * <p>The HTTP status is set to 429 (Too Many Requests).
+ */
+public class TooManyImageUploadsException extends HttpException {
+
+  private static final String MESSAGE = "User with id %s has too many images waiting to be processed";
+  private static final String MESSAGE_TO_CLIENT = "You are uploading images too fast, please wait until previous uploads are processed";
+  private static final HttpStatus STATUS = HttpStatus.TOO_MANY_REQUESTS;
+
+  public TooManyImageUploadsException(Long userId) {
+    super(MESSAGE.formatted(userId), MESSAGE_TO_CLIENT, STATUS);
+  }
+}
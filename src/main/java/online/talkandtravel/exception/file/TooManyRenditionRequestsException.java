@@ -0,0 +1,21 @@
+package online.talkandtravel.exception.file;
+
+import online.talkandtravel.exception.model.HttpException;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Exception thrown when anonymous clients request more renditions that have to be generated than
+ * allowed per minute.
+ *
+ * <p>The HTTP status is set to 429 (Too Many Requests).
+ */
+public class TooManyRenditionRequestsException extends HttpException {
+
+  private static final String MESSAGE = "Anonymous rendition limit of %s per minute is exceeded";
+  private static final String MESSAGE_TO_CLIENT = "Too many images are being resized, please try again later";
+  private static final HttpStatus STATUS = HttpStatus.TOO_MANY_REQUESTS;
+
+  public TooManyRenditionRequestsException(int limitPerMinute) {
+    super(MESSAGE.formatted(limitPerMinute), MESSAGE_TO_CLIENT, STATUS);
+  }
+}
@@ -0,0 +1,21 @@
+package online.talkandtravel.exception.file;
+
+import java.util.List;
+import online.talkandtravel.exception.model.HttpException;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Exception thrown when a rendition of a width that isn't offered is requested. Only a fixed set
+ * of widths is generated, so arbitrary sizes can't be used to fill the storage or the CPU.
+ *
+ * <p>The HTTP status is set to 400 (Bad Request).
+ */
+public class UnsupportedRenditionWidthException extends HttpException {
+
+  private static final String MESSAGE = "Rendition width %s is not supported, supported widths: %s";
+  private static final HttpStatus STATUS = HttpStatus.BAD_REQUEST;
+
+  public UnsupportedRenditionWidthException(int width, List<Integer> supportedWidths) {
+    super(MESSAGE.formatted(width, supportedWidths), STATUS);
+  }
+}
@@ -0,0 +1,26 @@
+package online.talkandtravel.exception.message;
+
+import online.talkandtravel.exception.model.HttpException;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Exception thrown when a message cursor passed by the client can't be decoded, or when both the
+ * {@code before} and {@code after} cursors are passed to the same request.
+ *
+ * <p>The HTTP status is set to 400 (Bad Request).
+ */
+public class InvalidMessageCursorException extends HttpException {
+
+  private static final String MESSAGE = "Message cursor %s is invalid";
+  private static final String BOTH_CURSORS_MESSAGE =
+      "Message cursors before %s and after %s can't be combined, pass only one of them";
+  private static final HttpStatus STATUS = HttpStatus.BAD_REQUEST;
+
+  public InvalidMessageCursorException(String cursor) {
+    super(String.format(MESSAGE, cursor), STATUS);
+  }
+
+  public InvalidMessageCursorException(String before, String after) {
+    super(String.format(BOTH_CURSORS_MESSAGE, before, after), STATUS);
+  }
+}
@@ -0,0 +1,20 @@
+package online.talkandtravel.exception.message;
+
+import online.talkandtravel.exception.model.WebSocketException;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Exception thrown when a message can't be accepted because the write pipeline queue is full.
+ *
+ * <p>The HTTP status is set to 503 (Service Unavailable), the client may retry sending the message
+ * later.
+ */
+public class MessagePipelineOverloadedException extends WebSocketException {
+
+  private static final String MESSAGE = "Too many messages are being sent, please try again later";
+  private static final HttpStatus STATUS = HttpStatus.SERVICE_UNAVAILABLE;
+
+  public MessagePipelineOverloadedException(Long userId) {
+    super(MESSAGE, STATUS, userId);
+  }
+}
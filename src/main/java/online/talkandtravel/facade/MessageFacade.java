@@ -1,5 +1,7 @@
 package online.talkandtravel.facade;
 
+import java.security.Principal;
+import online.talkandtravel.model.dto.message.SendMessageRequest;
 import online.talkandtravel.model.dto.message.SendMessageWithAttachmentRequest;
 import online.talkandtravel.model.entity.User;
 import online.talkandtravel.model.entity.attachment.AttachmentType;
@@ -7,6 +9,8 @@ import online.talkandtravel.util.FileDto;
 
 public interface MessageFacade {
 
+ void sendMessage(SendMessageRequest request, Principal principal);
+
  void saveMessageWithAttachment(SendMessageWithAttachmentRequest file, FileDto fileDto, User user);
 
 
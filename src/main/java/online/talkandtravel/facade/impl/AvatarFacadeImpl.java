@@ -1,16 +1,15 @@
 package online.talkandtravel.facade.impl;
 
-import static online.talkandtravel.util.constants.AvatarDimensionsConstants.X256;
-import static online.talkandtravel.util.constants.AvatarDimensionsConstants.X50;
-import static online.talkandtravel.util.constants.S3Constants.AVATAR_X256_FOLDER_NAME;
-import static online.talkandtravel.util.constants.S3Constants.AVATAR_X50_FOLDER_NAME;
+import static online.talkandtravel.util.FilesUtils.deleteTempFile;
+import static online.talkandtravel.util.FilesUtils.spoolToTempFile;
 
+import java.nio.file.Path;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import online.talkandtravel.facade.AvatarFacade;
 import online.talkandtravel.model.dto.avatar.AvatarDto;
 import online.talkandtravel.service.AvatarService;
-import online.talkandtravel.service.ImageService;
+import online.talkandtravel.service.RenditionService;
 import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -19,26 +18,23 @@ import org.springframework.web.multipart.MultipartFile;
 @RequiredArgsConstructor
 public class AvatarFacadeImpl implements AvatarFacade {
 
-  private final ImageService imageService;
   private final AvatarService avatarService;
 
+  /**
+   * Stores the uploaded avatar as it is. The sizes clients display are generated by the {@link
+   * RenditionService} the first time they are requested, so the upload doesn't wait for resizing.
+   * The upload is spooled to a temp file and streamed to S3 from there, so it is never held on the
+   * heap as a whole.
+   */
   @Override
   public AvatarDto saveOrUpdateAvatar(MultipartFile file) {
     log.info("Save user avatar");
     avatarService.validateFile(file);
-    byte[] thumbnailX50 = imageService.generateThumbnail(getBytes(file), file.getContentType(), X50);
-    byte[] thumbnailX256 = imageService.generateThumbnail(getBytes(file), file.getContentType(), X256);
-
-    avatarService.saveOrUpdateUserAvatar(thumbnailX50, AVATAR_X50_FOLDER_NAME);
-    return avatarService.saveOrUpdateUserAvatar(thumbnailX256, AVATAR_X256_FOLDER_NAME);
-  }
-
-  private byte[] getBytes(MultipartFile file) {
+    Path image = spoolToTempFile(file);
     try {
-      return file.getBytes();
-    } catch (Exception e) {
-      log.info("Error when get bytes");
-      throw new RuntimeException(e);
+      return avatarService.saveOrUpdateUserAvatar(image, file.getContentType());
+    } finally {
+      deleteTempFile(image);
     }
   }
 }
@@ -1,48 +1,82 @@
 package online.talkandtravel.facade.impl;
 
+import static online.talkandtravel.util.FilesUtils.contentHash;
+import static online.talkandtravel.util.FilesUtils.deleteTempFile;
 import static online.talkandtravel.util.constants.ApiPathConstants.MESSAGES_SUBSCRIBE_PATH;
-import static online.talkandtravel.util.constants.AvatarDimensionsConstants.X256;
 import static online.talkandtravel.util.constants.S3Constants.IMAGE_ATTACHMENT_ORIGINAL_FOLDER_PATTERN;
-import static online.talkandtravel.util.constants.S3Constants.IMAGE_ATTACHMENT_THUMBNAIL_X256_FOLDER_PATTERN;
 
+import java.security.Principal;
 import java.util.UUID;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import online.talkandtravel.facade.MessageFacade;
 import online.talkandtravel.model.dto.message.MessageDto;
+import online.talkandtravel.model.dto.message.SendMessageRequest;
 import online.talkandtravel.model.dto.message.SendMessageWithAttachmentRequest;
 import online.talkandtravel.model.entity.User;
 import online.talkandtravel.model.entity.attachment.AttachmentType;
 import online.talkandtravel.model.entity.attachment.Image;
 import online.talkandtravel.service.AttachmentService;
-import online.talkandtravel.service.ImageService;
+import online.talkandtravel.service.BroadcastService;
+import online.talkandtravel.service.ImageProcessingScheduler;
 import online.talkandtravel.service.MessageService;
+import online.talkandtravel.service.MessageWritePipeline;
+import online.talkandtravel.service.RenditionService;
 import online.talkandtravel.util.FileDto;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
-import org.springframework.scheduling.annotation.Async;
-import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
 @Component
 @Log4j2
 @RequiredArgsConstructor
-@EnableAsync
 public class MessageFacadeImpl implements MessageFacade {
 
-  private final SimpMessagingTemplate messagingTemplate;
+  private final BroadcastService broadcastService;
   private final MessageService messageService;
   private final AttachmentService attachmentService;
-  private final ImageService imageService;
+  private final MessageWritePipeline messageWritePipeline;
+  private final ImageProcessingScheduler imageProcessingScheduler;
 
+  /**
+   * Checks chat membership and hands the message over to the {@link MessageWritePipeline} without
+   * touching the database. The replied message is validated in the batch transaction, and the
+   * message is broadcast to chat subscribers once that batch is committed.
+   */
+  @Override
+  public void sendMessage(SendMessageRequest request, Principal principal) {
+    messageWritePipeline.submit(messageService.createTextMessage(request, principal));
+  }
+
+  /**
+   * Queues the attachment spooled to {@link FileDto#file()} on the {@link ImageProcessingScheduler}
+   * and removes the temp file once it is processed, whether processing succeeded or not. If the
+   * scheduler is saturated the upload is rejected right away and the temp file is removed.
+   */
   @Override
-  @Async
   public void saveMessageWithAttachment(SendMessageWithAttachmentRequest request, FileDto fileDto,
       User user) {
     log.info("save message with attachment of type: {}", request.attachmentType());
+    try {
+      imageProcessingScheduler.submit(user.getId(), () -> saveAttachment(request, fileDto, user))
+          .whenComplete((result, e) -> {
+            if (e != null) {
+              log.error("Failed to save attachment: {} for chat id: {}, from user: {}",
+                  fileDto.filename(), request.chatId(), user.getId(), e);
+            }
+            deleteTempFile(fileDto.file());
+          });
+    } catch (RuntimeException e) {
+      deleteTempFile(fileDto.file());
+      throw e;
+    }
+  }
+
+  private Void saveAttachment(SendMessageWithAttachmentRequest request, FileDto fileDto,
+      User user) {
     if (AttachmentType.valueOf(request.attachmentType()).equals(AttachmentType.IMAGE)) {
       saveMessageWithImageAndNotifySubscribers(request, fileDto, user);
     }
+    return null;
   }
 
   private void saveMessageWithImageAndNotifySubscribers(SendMessageWithAttachmentRequest request,
@@ -73,18 +107,20 @@ public class MessageFacadeImpl implements MessageFacade {
     return messageService.saveMessageWithImage(request, image, user);
   }
 
+  /**
+   * Saves the original only, the thumbnail is generated by the {@link RenditionService} once it is
+   * first requested. Originals are looked up by their content hash, so an image that was posted
+   * before isn't uploaded again.
+   */
   private void saveToS3(FileDto file, Long chatId, String key) {
     log.info("save image to s3: {}", file.filename());
-    byte[] thumbnail = imageService.generateThumbnail(file.fileBytes(), file.contentType(), X256);
-
-    attachmentService.saveImage(thumbnail,
-        IMAGE_ATTACHMENT_THUMBNAIL_X256_FOLDER_PATTERN.formatted(chatId), file.contentType(), key);
-    attachmentService.saveImage(file.fileBytes(),
-        IMAGE_ATTACHMENT_ORIGINAL_FOLDER_PATTERN.formatted(chatId), file.contentType(), key);
+    attachmentService.saveImage(file.file(), contentHash(file.file()),
+        IMAGE_ATTACHMENT_ORIGINAL_FOLDER_PATTERN.formatted(chatId), file.contentType(), key)
+        .join();
   }
 
   private void notifySubscribers(MessageDto messageDto) {
-    messagingTemplate.convertAndSend(MESSAGES_SUBSCRIBE_PATH.formatted(messageDto.chatId()),
+    broadcastService.broadcast(MESSAGES_SUBSCRIBE_PATH.formatted(messageDto.chatId()),
         messageDto);
   }
 }
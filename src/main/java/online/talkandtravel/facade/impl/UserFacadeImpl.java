@@ -20,7 +20,7 @@ public class UserFacadeImpl implements UserFacade {
 
   @Override
   public void deleteUser() {
-    User user = authenticationService.getAuthenticatedUser();
+    User user = userService.getUserById(authenticationService.getAuthenticatedUser().getId());
     log.info("Delete user with id: {}", user.getId());
     deleteAvatar(user);
     userService.deleteUser(user);
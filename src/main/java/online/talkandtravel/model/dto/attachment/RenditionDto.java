@@ -0,0 +1,12 @@
+package online.talkandtravel.model.dto.attachment;
+
+import java.time.Duration;
+
+public record RenditionDto(
+    byte[] content,
+    String contentType,
+    String eTag,
+    Duration maxAge
+) {
+
+}
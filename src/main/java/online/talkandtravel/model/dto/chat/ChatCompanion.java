@@ -0,0 +1,13 @@
+package online.talkandtravel.model.dto.chat;
+
+/**
+ * Pair of users who are members of at least one common chat.
+ *
+ * <ul>
+ *   <li>{@code userId} - Id of the user.
+ *   <li>{@code companionId} - Id of another member of one of the user's chats.
+ *   <li>{@code companionEmail} - Email of the companion, the name of the companion's WebSocket
+ *       sessions.
+ * </ul>
+ */
+public record ChatCompanion(Long userId, Long companionId, String companionEmail) {}
@@ -0,0 +1,40 @@
+package online.talkandtravel.model.dto.chat;
+
+import java.time.ZonedDateTime;
+import online.talkandtravel.model.entity.ChatType;
+
+/**
+ * Read model of a chat as it is shown in the user's chat list, fetched by a single query instead
+ * of being assembled from the {@code Chat} entity and its collections.
+ *
+ * <ul>
+ *   <li>{@code id} - Unique identifier for the chat.
+ *   <li>{@code name} - Name of the chat.
+ *   <li>{@code description} - Description of the chat.
+ *   <li>{@code chatType} - Type of the chat (e.g., group, private).
+ *   <li>{@code creationDate} - Date and time when the chat was created.
+ *   <li>{@code countryName} - Name of the country of the chat, {@code null} if there is none.
+ *   <li>{@code countryFlagCode} - Flag code of the country of the chat.
+ *   <li>{@code usersCount} - Amount of users participating in the chat.
+ *   <li>{@code messagesCount} - Amount of messages exchanged in the chat.
+ *   <li>{@code unreadMessagesCount} - Amount of messages the user has not read yet.
+ *   <li>{@code lastMessageId} - Id of the latest message of the chat, {@code null} if it's empty.
+ *   <li>{@code companionId} - Id of another member of the chat, {@code null} if there is none.
+ * </ul>
+ */
+public record UserChatSummary(
+    Long id,
+    String name,
+    String description,
+    ChatType chatType,
+    ZonedDateTime creationDate,
+    String countryName,
+    String countryFlagCode,
+    Long usersCount,
+    Long messagesCount,
+    Long unreadMessagesCount,
+    Long lastMessageId,
+    Long companionId
+) {
+
+}
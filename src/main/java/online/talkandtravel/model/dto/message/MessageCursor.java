@@ -0,0 +1,48 @@
+package online.talkandtravel.model.dto.message;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import online.talkandtravel.exception.message.InvalidMessageCursorException;
+import online.talkandtravel.model.entity.Message;
+
+/**
+ * Position of a message in the chat history, used for keyset pagination.
+ *
+ * <ul>
+ *   <li>{@code creationDate} - creation date of the message.
+ *   <li>{@code id} - id of the message, it breaks ties between messages with the same creation
+ *       date.
+ * </ul>
+ *
+ * <p>Clients receive the cursor as an opaque string, see {@link #encode()} and {@link
+ * #decode(String)}.
+ */
+public record MessageCursor(ZonedDateTime creationDate, Long id) {
+
+  private static final String SEPARATOR = "_";
+
+  public static MessageCursor of(Message message) {
+    return new MessageCursor(message.getCreationDate(), message.getId());
+  }
+
+  public static MessageCursor decode(String cursor) {
+    try {
+      String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      String[] parts = decoded.split(SEPARATOR);
+      Instant creationDate = Instant.EPOCH.plus(Long.parseLong(parts[0]), ChronoUnit.MICROS);
+      return new MessageCursor(creationDate.atZone(ZoneOffset.UTC), Long.valueOf(parts[1]));
+    } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+      throw new InvalidMessageCursorException(cursor);
+    }
+  }
+
+  public String encode() {
+    long micros = ChronoUnit.MICROS.between(Instant.EPOCH, creationDate.toInstant());
+    String cursor = micros + SEPARATOR + id;
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+  }
+}
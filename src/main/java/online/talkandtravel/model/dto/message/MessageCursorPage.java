@@ -0,0 +1,25 @@
+package online.talkandtravel.model.dto.message;
+
+import java.util.List;
+
+/**
+ * Slice of the chat history returned by keyset pagination.
+ *
+ * <ul>
+ *   <li>{@code content} - messages in the order they were read, newest first when paging back in
+ *       history and oldest first when paging forward.
+ *   <li>{@code nextCursor} - cursor of the last message in {@code content}, pass it to continue in
+ *       the same direction. {@code null} if {@code content} is empty.
+ *   <li>{@code hasNext} - whether more messages exist in the same direction.
+ * </ul>
+ */
+public record MessageCursorPage(
+    List<MessageDto> content,
+    String nextCursor,
+    boolean hasNext
+) {
+
+  public static MessageCursorPage empty() {
+    return new MessageCursorPage(List.of(), null, false);
+  }
+}
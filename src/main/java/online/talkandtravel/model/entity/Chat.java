@@ -1,6 +1,7 @@
 package online.talkandtravel.model.entity;
 
 import jakarta.persistence.CascadeType;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
@@ -42,6 +43,10 @@ import org.hibernate.annotations.CreationTimestamp;
  *       relationship.
  *   <li>{@code country} - The country associated with the chat, mapped with a many-to-one
  *       relationship.
+ *   <li>{@code usersCount}, {@code messagesCount} and {@code lastMessageId} - Denormalized
+ *       statistics of the chat. They are written on insert only and then maintained by the update
+ *       queries of {@code ChatRepository}, so they can be read without loading {@code users} or
+ *       {@code messages}.
  * </ul>
  */
 @Getter
@@ -82,6 +87,15 @@ public class Chat {
   @JoinColumn(name = "country_id")
   private Country country;
 
+  @Column(nullable = false, updatable = false)
+  private long usersCount;
+
+  @Column(nullable = false, updatable = false)
+  private long messagesCount;
+
+  @Column(updatable = false)
+  private Long lastMessageId;
+
   @Override
   public String toString() {
     return "Chat{" +
@@ -90,8 +104,8 @@ public class Chat {
         ", description='" + description + '\'' +
         ", chatType=" + chatType +
         ", creationDate=" + creationDate +
-        ", users=" + users.size() +
-        ", messages=" + messages.size() +
+        ", usersCount=" + usersCount +
+        ", messagesCount=" + messagesCount +
         ", country=" + country.getName() +
         '}';
   }
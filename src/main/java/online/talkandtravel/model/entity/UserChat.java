@@ -1,5 +1,6 @@
 package online.talkandtravel.model.entity;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -25,6 +26,9 @@ import lombok.Setter;
  *   <li>{@code chat} - The chat associated with the user.
  *   <li>{@code userCountry} - The user's country, if applicable.
  *   <li>{@code lastReadMessageId} - The ID of the last message read by the user in the chat.
+ *   <li>{@code unreadMessagesCount} - Number of messages sent to the chat after the last read
+ *       message. It is incremented on every message insert and recalculated when the last read
+ *       message changes, it stays 0 while the user hasn't read any message.
  * </ul>
  */
 @Getter
@@ -56,4 +60,7 @@ public class UserChat {
   @JoinColumn(name = "last_read_message_id")
   private Message lastReadMessage;
 
+  @Column(nullable = false, updatable = false)
+  private long unreadMessagesCount;
+
 }
@@ -5,6 +5,7 @@ import java.util.UUID;
 import online.talkandtravel.model.entity.Avatar;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -16,12 +17,16 @@ import org.springframework.stereotype.Repository;
  * <ul>
  *   <li>Standard CRUD operations inherited from {@link JpaRepository}.
  *   <li>{@code findByUserId(Long userId)} - Finds an avatar by the associated user ID.
+ *   <li>{@code findUserIdByKey(UUID key)} - Finds the ID of the user an avatar belongs to.
  * </ul>
  */
 @Repository
 public interface AvatarRepository extends JpaRepository<Avatar, Long> {
   Optional<Avatar> findByUserId(Long userId);
 
+  @Query("SELECT a.user.id FROM Avatar a WHERE a.key = :key")
+  Optional<Long> findUserIdByKey(UUID key);
+
   @Modifying
   void deleteByKey(UUID key);
 }
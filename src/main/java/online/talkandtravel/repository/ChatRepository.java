@@ -7,6 +7,7 @@ import online.talkandtravel.model.entity.ChatType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
 /**
@@ -18,6 +19,9 @@ import org.springframework.data.jpa.repository.Query;
  * <ul>
  *   <li>Standard CRUD operations inherited from {@link JpaRepository}.
  *   <li>{@code countChats()} - Returns the total count of {@code Chat} entities.
+ *   <li>{@code incrementMessagesCount(Long, long, Long)} and {@code changeUsersCount(Long, long)} -
+ *       Maintain the denormalized statistics of a chat within the caller's transaction.
+ *   <li>{@code lockById(Long)} - Locks the chat row for the rest of the caller's transaction.
  * </ul>
  */
 public interface ChatRepository extends JpaRepository<Chat, Long> {
@@ -31,4 +35,41 @@ public interface ChatRepository extends JpaRepository<Chat, Long> {
   @Query(
       "SELECT c FROM Chat c JOIN c.users u WHERE c.chatType = :chatType AND SIZE(c.users) = 2 AND u.id IN :userIds GROUP BY c.id HAVING COUNT(u.id) = 2")
   Optional<Chat> findChatByUsersAndChatType(List<Long> userIds, ChatType chatType);
+
+  /**
+   * Adds the messages to the count and moves the last message forward. Writers race, so the
+   * pointer is only replaced by a message that is later by {@code (creation_date, id)}, the order
+   * the messages are listed in.
+   */
+  @Modifying
+  @Query(value = """
+      UPDATE chats
+      SET messages_count  = messages_count + :count,
+          last_message_id = CASE
+              WHEN last_message_id IS NULL OR EXISTS (
+                  SELECT 1
+                  FROM messages candidate, messages latest
+                  WHERE candidate.id = :lastMessageId
+                    AND latest.id = chats.last_message_id
+                    AND (candidate.creation_date, candidate.id)
+                        > (latest.creation_date, latest.id))
+              THEN :lastMessageId
+              ELSE last_message_id
+          END
+      WHERE id = :chatId
+      """, nativeQuery = true)
+  int incrementMessagesCount(Long chatId, long count, Long lastMessageId);
+
+  @Modifying
+  @Query(value = "UPDATE chats SET users_count = users_count + :delta WHERE id = :chatId",
+      nativeQuery = true)
+  int changeUsersCount(Long chatId, long delta);
+
+  /**
+   * Locks the chat row until the end of the caller's transaction. Message writers update the same
+   * row through {@link #incrementMessagesCount(Long, long, Long)}, so holding the lock serializes
+   * the caller with batches writing to the chat.
+   */
+  @Query(value = "SELECT id FROM chats WHERE id = :chatId FOR UPDATE", nativeQuery = true)
+  Optional<Long> lockById(Long chatId);
 }
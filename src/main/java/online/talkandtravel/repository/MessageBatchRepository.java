@@ -0,0 +1,25 @@
+package online.talkandtravel.repository;
+
+import java.util.List;
+import online.talkandtravel.model.entity.Message;
+
+/**
+ * Repository fragment for writing {@link Message} rows in bulk.
+ *
+ * <ul>
+ *   <li>{@link #insertAll(List)} - Inserts several messages with a single multi-row statement,
+ *       bypassing the persistence context.
+ * </ul>
+ */
+public interface MessageBatchRepository {
+
+  /**
+   * Inserts all messages with one multi-row {@code INSERT}. Ids are taken from the {@code messages}
+   * sequence in ascending order and assigned following the list order, so ids reflect the order
+   * in which messages were given.
+   *
+   * @param messages messages with chat, sender, type and creation date set
+   * @return the same messages with their ids populated
+   */
+  List<Message> insertAll(List<Message> messages);
+}
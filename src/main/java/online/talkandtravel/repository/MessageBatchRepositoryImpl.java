@@ -0,0 +1,75 @@
+package online.talkandtravel.repository;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import online.talkandtravel.model.entity.Message;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * JDBC implementation of {@link MessageBatchRepository}.
+ *
+ * <p>Ids for the whole batch are allocated with one sequence query, after which all rows are
+ * written with one statement, so a batch costs two round trips regardless of its size. The batch
+ * size should stay well below the Postgres limit of 32767 bind parameters per statement.
+ */
+@RequiredArgsConstructor
+public class MessageBatchRepositoryImpl implements MessageBatchRepository {
+
+  private static final String ALLOCATE_IDS_QUERY =
+      "SELECT nextval(pg_get_serial_sequence('messages', 'id')) FROM generate_series(1, ?)";
+  private static final String INSERT_QUERY =
+      "INSERT INTO messages (id, content, creation_date, sender_id, chat_id, type, "
+          + "replied_message_id, attachment_id) VALUES ";
+  private static final String VALUES_ROW = "(?, ?, ?, ?, ?, ?, ?, ?)";
+  private static final int[] ROW_TYPES = {
+    Types.BIGINT,
+    Types.VARCHAR,
+    Types.TIMESTAMP_WITH_TIMEZONE,
+    Types.BIGINT,
+    Types.BIGINT,
+    Types.VARCHAR,
+    Types.BIGINT,
+    Types.VARCHAR
+  };
+
+  private final JdbcTemplate jdbcTemplate;
+
+  @Override
+  public List<Message> insertAll(List<Message> messages) {
+    if (messages.isEmpty()) {
+      return messages;
+    }
+    List<Long> ids = allocateIds(messages.size());
+    List<Object> args = new ArrayList<>(messages.size() * ROW_TYPES.length);
+    int[] argTypes = new int[messages.size() * ROW_TYPES.length];
+    for (int i = 0; i < messages.size(); i++) {
+      Message message = messages.get(i);
+      message.setId(ids.get(i));
+      addRowArgs(message, args);
+      System.arraycopy(ROW_TYPES, 0, argTypes, i * ROW_TYPES.length, ROW_TYPES.length);
+    }
+    String sql = INSERT_QUERY + String.join(", ", Collections.nCopies(messages.size(), VALUES_ROW));
+    jdbcTemplate.update(sql, args.toArray(), argTypes);
+    return messages;
+  }
+
+  private List<Long> allocateIds(int count) {
+    List<Long> ids = new ArrayList<>(jdbcTemplate.queryForList(ALLOCATE_IDS_QUERY, Long.class, count));
+    Collections.sort(ids);
+    return ids;
+  }
+
+  private void addRowArgs(Message message, List<Object> args) {
+    args.add(message.getId());
+    args.add(message.getContent());
+    args.add(message.getCreationDate().toOffsetDateTime());
+    args.add(message.getSender().getId());
+    args.add(message.getChat().getId());
+    args.add(message.getType().name());
+    args.add(message.getRepliedMessage() == null ? null : message.getRepliedMessage().getId());
+    args.add(message.getAttachment() == null ? null : message.getAttachment().getId());
+  }
+}
@@ -1,11 +1,14 @@
 package online.talkandtravel.repository;
 
 import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import online.talkandtravel.model.entity.Message;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 /**
  * Repository interface for managing {@link Message} entities.
@@ -17,21 +20,72 @@ import org.springframework.data.jpa.repository.JpaRepository;
  *   <li>Standard CRUD operations inherited from {@link JpaRepository}.
  *   <li>Pagination support for retrieving messages by chat ID through {@link #findAllByChatId(Long,
  *       Pageable)}.
+ *   <li>Keyset pagination by {@code (creation_date, id)} through {@link #findLatest(Long, int)},
+ *       {@link #findBefore(Long, ZonedDateTime, Long, int)}, {@link #findBeforeInclusive(Long,
+ *       ZonedDateTime, Long, int)} and {@link #findAfter(Long, ZonedDateTime, Long, int)}. These
+ *       queries are served by the {@code (chat_id, creation_date, id)} index and cost the same at
+ *       any depth of the history.
+ *   <li>Loading several messages together with their sender and chat in one query through {@link
+ *       #findAllByIdIn(Collection)}.
+ *   <li>Multi-row inserts inherited from {@link MessageBatchRepository}.
+ *   <li>Finding who sent an attachment of a chat through {@link
+ *       #findSenderIdByChatIdAndAttachmentId(Long, String)}.
  * </ul>
  */
-public interface MessageRepository extends JpaRepository<Message, Long> {
+public interface MessageRepository extends JpaRepository<Message, Long>, MessageBatchRepository {
 
   Page<Message> findAllByChatIdAndCreationDateLessThan(Long chatId, ZonedDateTime creationDate, Pageable pageable);
   Page<Message> findAllByChatIdAndCreationDateLessThanEqual(Long chatId, ZonedDateTime creationDate, Pageable pageable);
 
   Optional<Message> findFirstByChatIdOrderByCreationDateDesc(Long chatId);
 
+  @Query("SELECT m FROM Message m JOIN FETCH m.chat c LEFT JOIN FETCH c.country "
+      + "LEFT JOIN FETCH m.sender s LEFT JOIN FETCH s.avatar LEFT JOIN FETCH m.attachment "
+      + "WHERE m.id IN :ids")
+  List<Message> findAllByIdIn(Collection<Long> ids);
+
   Page<Message> findAllByChatIdAndCreationDateAfter(Long chatId, ZonedDateTime creationDate, Pageable pageable);
 
   Page<Message> findAllByChatId(Long chatId, Pageable pageable);
 
+  @Query("SELECT m.sender.id FROM Message m "
+      + "WHERE m.chat.id = :chatId AND m.attachment.id = :attachmentId")
+  Optional<Long> findSenderIdByChatIdAndAttachmentId(Long chatId, String attachmentId);
+
   long countAllByChatIdAndIdGreaterThan(Long chatId, Long lastReadMessageId);
 
   long countAllByChatIdAndCreationDateAfter(Long chatId, ZonedDateTime creationDate);
 
+  @Query(value = """
+      SELECT * FROM messages
+      WHERE chat_id = :chatId
+      ORDER BY creation_date DESC, id DESC
+      LIMIT :limit
+      """, nativeQuery = true)
+  List<Message> findLatest(Long chatId, int limit);
+
+  @Query(value = """
+      SELECT * FROM messages
+      WHERE chat_id = :chatId AND (creation_date, id) < (:creationDate, :id)
+      ORDER BY creation_date DESC, id DESC
+      LIMIT :limit
+      """, nativeQuery = true)
+  List<Message> findBefore(Long chatId, ZonedDateTime creationDate, Long id, int limit);
+
+  @Query(value = """
+      SELECT * FROM messages
+      WHERE chat_id = :chatId AND (creation_date, id) <= (:creationDate, :id)
+      ORDER BY creation_date DESC, id DESC
+      LIMIT :limit
+      """, nativeQuery = true)
+  List<Message> findBeforeInclusive(Long chatId, ZonedDateTime creationDate, Long id, int limit);
+
+  @Query(value = """
+      SELECT * FROM messages
+      WHERE chat_id = :chatId AND (creation_date, id) > (:creationDate, :id)
+      ORDER BY creation_date, id
+      LIMIT :limit
+      """, nativeQuery = true)
+  List<Message> findAfter(Long chatId, ZonedDateTime creationDate, Long id, int limit);
+
 }
@@ -1,9 +1,15 @@
 package online.talkandtravel.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import online.talkandtravel.model.dto.chat.ChatCompanion;
+import online.talkandtravel.model.dto.chat.UserChatSummary;
+import online.talkandtravel.model.entity.ChatType;
 import online.talkandtravel.model.entity.UserChat;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 
 /**
  * Repository interface for managing {@link UserChat} entities.
@@ -12,8 +18,14 @@ import org.springframework.data.jpa.repository.JpaRepository;
  * including:
  * <ul>
  *   <li>Finding all user-chat associations for a given user through {@link #findAllByUserId(Long)}.</li>
+ *   <li>Finding the chat list of a user with counts, companion and last message ids in a single query through {@link #findAllSummariesByUserIdAndChatType(Long, ChatType)}.</li>
  *   <li>Finding a specific user-chat association by chat ID and user ID through {@link #findByChatIdAndUserId(Long, Long)}.</li>
+ *   <li>Checking whether a user is joined to a chat through {@link #existsByChatIdAndUserId(Long, Long)}.</li>
+ *   <li>Incrementing unread message counters of all chat members through {@link #incrementUnreadMessagesCount(Long, long)}.</li>
+ *   <li>Setting the last read message of a member together with its unread messages counter through {@link #updateLastReadMessage(Long, Long, Long)}.</li>
  *   <li>Finding all user-chat associations for a given user and user country ID through {@link #findAllByUserIdAndUserCountryId(Long, Long)}.</li>
+ *   <li>Finding the country chats a user is joined to through {@link #findAllCountryChatIdsByUserId(Long)}.</li>
+ *   <li>Finding the users sharing a private chat with any of the given users through {@link #findAllPrivateChatCompanionsByUserIdIn(Collection)}.</li>
  * </ul>
  */
 
@@ -21,9 +33,62 @@ public interface UserChatRepository extends JpaRepository<UserChat, Long> {
 
   List<UserChat> findAllByUserId(Long userId);
 
+  @Query("""
+      SELECT new online.talkandtravel.model.dto.chat.UserChatSummary(
+          c.id, c.name, c.description, c.chatType, c.creationDate, co.name, co.flagCode,
+          c.usersCount, c.messagesCount, uc.unreadMessagesCount, c.lastMessageId,
+          (SELECT MIN(ucc.user.id) FROM UserChat ucc WHERE ucc.chat.id = c.id AND ucc.user.id <> :userId))
+      FROM UserChat uc JOIN uc.chat c LEFT JOIN c.country co
+      WHERE uc.user.id = :userId AND c.chatType = :chatType
+      ORDER BY uc.id
+      """)
+  List<UserChatSummary> findAllSummariesByUserIdAndChatType(Long userId, ChatType chatType);
+
   Optional<UserChat> findByChatIdAndUserId(Long chatId, Long userId);
 
+  boolean existsByChatIdAndUserId(Long chatId, Long userId);
+
   List<UserChat> findAllByUserIdAndUserCountryId(Long userId, Long countryId);
 
   List<UserChat> findAllByChatId(Long chatId);
+
+  @Query("SELECT uc.chat.id FROM UserChat uc WHERE uc.user.id = :userId AND uc.userCountry IS NOT NULL")
+  List<Long> findAllCountryChatIdsByUserId(Long userId);
+
+  @Query("""
+      SELECT DISTINCT new online.talkandtravel.model.dto.chat.ChatCompanion(
+          uc.user.id, companion.user.id, companion.user.userEmail)
+      FROM UserChat uc JOIN UserChat companion ON companion.chat.id = uc.chat.id
+      WHERE uc.user.id IN :userIds AND companion.user.id <> uc.user.id
+          AND uc.chat.chatType = online.talkandtravel.model.entity.ChatType.PRIVATE
+      """)
+  List<ChatCompanion> findAllPrivateChatCompanionsByUserIdIn(Collection<Long> userIds);
+
+  @Modifying
+  @Query("UPDATE UserChat uc SET uc.unreadMessagesCount = uc.unreadMessagesCount + :count "
+      + "WHERE uc.chat.id = :chatId AND uc.lastReadMessage IS NOT NULL")
+  int incrementUnreadMessagesCount(Long chatId, long count);
+
+  /**
+   * Sets the last read message of a chat member and recounts the unread messages. Messages are
+   * counted if they come after the last read one by {@code (creation_date, id)}, the order messages
+   * are listed in.
+   *
+   * <p>The count is only consistent with concurrent message writes if the caller holds the lock
+   * from {@link ChatRepository#lockById(Long)} in the same transaction. Without it, a batch that
+   * commits between the count and this update would be missed.
+   */
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(value = """
+      UPDATE user_chats
+      SET last_read_message_id  = :lastReadMessageId,
+          unread_messages_count = (
+              SELECT count(*)
+              FROM messages m, messages last_read
+              WHERE last_read.id = :lastReadMessageId
+                AND m.chat_id = :chatId
+                AND (m.creation_date, m.id) > (last_read.creation_date, last_read.id))
+      WHERE chat_id = :chatId AND user_id = :userId
+      """, nativeQuery = true)
+  int updateLastReadMessage(Long chatId, Long userId, Long lastReadMessageId);
 }
@@ -1,8 +1,11 @@
 package online.talkandtravel.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import online.talkandtravel.model.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -13,6 +16,8 @@ import org.springframework.stereotype.Repository;
  *
  * <ul>
  *   <li>Finding a user by their email address through {@link #findByUserEmail(String)}.
+ *   <li>Loading several users together with their avatars through {@link
+ *       #findAllWithAvatarByIdIn(Collection)}.
  * </ul>
  */
 @Repository
@@ -21,4 +26,10 @@ public interface UserRepository extends JpaRepository<User, Long> {
   Optional<User> findByUserEmail(String email);
 
   boolean existsByUserEmail(String email);
+
+  @Query("SELECT u FROM User u LEFT JOIN FETCH u.avatar WHERE u.id IN :ids")
+  List<User> findAllWithAvatarByIdIn(Collection<Long> ids);
+
+  @Query("SELECT u.id FROM User u WHERE u.id IN :ids")
+  List<Long> findAllIdsByIdIn(Collection<Long> ids);
 }
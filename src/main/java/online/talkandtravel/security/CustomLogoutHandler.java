@@ -1,7 +1,6 @@
 package online.talkandtravel.security;
 
 import static online.talkandtravel.util.HttpUtils.createExceptionResponse;
-import static online.talkandtravel.util.constants.ApiPathConstants.USERS_ONLINE_STATUS_ENDPOINT;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpServletRequest;
@@ -10,11 +9,9 @@ import java.io.IOException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import online.talkandtravel.exception.model.ExceptionResponse;
-import online.talkandtravel.model.dto.user.OnlineStatusDto;
 import online.talkandtravel.service.OnlineService;
 import online.talkandtravel.service.TokenService;
 import org.springframework.http.HttpStatus;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.logout.LogoutHandler;
@@ -40,7 +37,6 @@ public class CustomLogoutHandler implements LogoutHandler {
   private final ObjectMapper objectMapper;
   private final TokenService tokenService;
   private final OnlineService onlineService;
-  private final SimpMessagingTemplate messagingTemplate;
 
   @Override
   public void logout(
@@ -89,14 +85,9 @@ public class CustomLogoutHandler implements LogoutHandler {
     return userId;
   }
 
-  /** Marks the token as expired and revoked. */
+  /** Marks the token as expired and revoked and notifies all instances about the revocation. */
   private void revokeToken(String token) {
-    var tokenEntity = tokenService.findByToken(token).orElse(null);
-    if (tokenEntity != null) {
-      tokenEntity.setExpired(true);
-      tokenEntity.setRevoked(true);
-      tokenService.save(tokenEntity);
-    }
+    tokenService.revokeToken(token);
   }
 
   /** Clears the security context, effectively logging the user out. */
@@ -104,10 +95,9 @@ public class CustomLogoutHandler implements LogoutHandler {
     SecurityContextHolder.clearContext();
   }
 
-  /** Notifies all users that the given user has gone offline. */
+  /** Marks the user offline, the change is published with the next presence batch. */
   private void notifyAllUserIsOffline(Long userId) {
-    OnlineStatusDto statusDto = onlineService.updateUserOnlineStatus(userId, false);
-    messagingTemplate.convertAndSend(USERS_ONLINE_STATUS_ENDPOINT, statusDto);
+    onlineService.updateUserOnlineStatus(userId, false);
   }
 
   /** Writes a Bad Request response when the request is invalid. */
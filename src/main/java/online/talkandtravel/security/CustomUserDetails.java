@@ -2,10 +2,12 @@ package online.talkandtravel.security;
 
 import java.util.Collection;
 import java.util.List;
-import lombok.AllArgsConstructor;
+import java.util.UUID;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
+import online.talkandtravel.model.entity.Avatar;
+import online.talkandtravel.model.entity.Role;
 import online.talkandtravel.model.entity.User;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -14,8 +16,14 @@ import org.springframework.security.core.userdetails.UserDetails;
 /**
  * Custom implementation of {@link UserDetails} for Spring Security.
  *
+ * <p>The principal is immutable and holds only the fields that authenticated requests need, it
+ * doesn't keep the {@link User} entity it was created from. It is cached between requests and
+ * kept by every WebSocket session, so it must stay small.
+ *
  * <p>This class provides user-specific details required for authentication and authorization:
  * <ul>
+ *   <li>{@link #getUser()} - Returns a detached {@link User} with the id, name, email, role and
+ *   avatar of the principal. It must not be saved, load the entity when other fields are needed.</li>
  *   <li>{@link #getAuthorities()} - Returns the user's authorities based on their role.</li>
  *   <li>{@link #getPassword()} - Retrieves the user's password.</li>
  *   <li>{@link #getUsername()} - Retrieves the user's email as the username.</li>
@@ -26,27 +34,51 @@ import org.springframework.security.core.userdetails.UserDetails;
  * </ul>
  */
 
-@AllArgsConstructor
-@ToString
+@ToString(exclude = "password")
 @EqualsAndHashCode
 @Getter
 public class CustomUserDetails implements UserDetails {
 
-    private User user;
+    private final Long id;
+    private final String userName;
+    private final String userEmail;
+    private final String password;
+    private final Role role;
+    private final Long avatarId;
+    private final UUID avatarKey;
 
-    @Override
-    public Collection<? extends GrantedAuthority> getAuthorities() {
-        return List.of(new SimpleGrantedAuthority(user.getRole().name()));
+    public CustomUserDetails(User user) {
+        this.id = user.getId();
+        this.userName = user.getUserName();
+        this.userEmail = user.getUserEmail();
+        this.password = user.getPassword();
+        this.role = user.getRole();
+        Avatar avatar = user.getAvatar();
+        this.avatarId = avatar == null ? null : avatar.getId();
+        this.avatarKey = avatar == null ? null : avatar.getKey();
+    }
+
+    public User getUser() {
+        User user = User.builder()
+            .id(id)
+            .userName(userName)
+            .userEmail(userEmail)
+            .role(role)
+            .build();
+        if (avatarKey != null) {
+            user.setAvatar(Avatar.builder().id(avatarId).key(avatarKey).build());
+        }
+        return user;
     }
 
     @Override
-    public String getPassword() {
-        return user.getPassword();
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return List.of(new SimpleGrantedAuthority(role.name()));
     }
 
     @Override
     public String getUsername() {
-        return user.getUserEmail();
+        return userEmail;
     }
 
     @Override
@@ -1,5 +1,7 @@
 package online.talkandtravel.service;
 
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
 import online.talkandtravel.model.entity.attachment.AttachmentType;
 import online.talkandtravel.model.entity.attachment.Image;
 import org.springframework.web.multipart.MultipartFile;
@@ -8,7 +10,8 @@ public interface AttachmentService {
 
   void validateAttachmentFile(MultipartFile file, String attachmentType);
 
-  void saveImage(byte[] image, String folderName, String contentType, String key);
+  CompletableFuture<Void> saveImage(Path image, String contentHash, String folderName,
+      String contentType, String key);
 
   String generateImageUrl(Image image, String avatarDimension);
 }
@@ -1,6 +1,7 @@
 package online.talkandtravel.service;
 
 import jakarta.servlet.http.HttpServletRequest;
+import java.util.Optional;
 import online.talkandtravel.model.entity.User;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -17,12 +18,16 @@ import org.springframework.security.core.userdetails.UserDetails;
  * <ul>
  *    <li>{@link #getAuthenticatedUser} gets the authenticated user
  *       details.
+ *    <li>{@link #findAuthenticatedUser} gets the authenticated user, or an empty optional for
+ *       anonymous requests.
  * </ul>
  */
 public interface AuthenticationService {
 
   User getAuthenticatedUser();
 
+  Optional<User> findAuthenticatedUser();
+
   boolean isUserAuthenticated();
 
   User checkUserCredentials(String email, String password);
@@ -1,6 +1,7 @@
 package online.talkandtravel.service;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.UUID;
 import online.talkandtravel.model.dto.avatar.AvatarDto;
 import online.talkandtravel.model.entity.Avatar;
@@ -19,9 +20,8 @@ import org.springframework.web.multipart.MultipartFile;
  *       user ID. Returns the avatar if found, or null if no avatar is associated with the given
  *       user ID.
  *       {@link IOException} if there are issues during image creation.
- *   <li>{@link #saveOrUpdateUserAvatar(MultipartFile)} - Handles the upload of a new avatar image file
- *       for a user with the specified user ID. The uploaded file is processed and saved as the
- *       user's avatar. Returns the newly created {@link Avatar} object.
+ *   <li>{@link #saveOrUpdateUserAvatar(Path, String)} - Saves the original avatar image of the
+ *       authenticated user. Its sizes are generated on request by the {@link RenditionService}.
  * </ul>
  */
 public interface AvatarService {
@@ -32,7 +32,5 @@ public interface AvatarService {
 
   Avatar findByUserId(Long userId);
 
-  String generateImageUrl(Avatar avatar, String avatarS3Folder);
-
-  AvatarDto saveOrUpdateUserAvatar(byte[] image, String folder);
+  AvatarDto saveOrUpdateUserAvatar(Path image, String contentType);
 }
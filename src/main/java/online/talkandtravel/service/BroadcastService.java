@@ -0,0 +1,28 @@
+package online.talkandtravel.service;
+
+/**
+ * Service interface for broadcasting payloads to the subscribers of a broker destination such as
+ * chat messages or users online status.
+ *
+ * <ul>
+ *   <li>{@link #broadcast(String, Object)} - Sends a payload to all subscribers of the destination,
+ *       connected to this or to any other application instance.
+ *   <li>{@link #broadcastToUser(String, String, Object)} - Sends a payload to the sessions of one
+ *       user subscribed to the user destination, connected to this or to any other application
+ *       instance.
+ *   <li>{@link #deliverLocally(String, byte[])} - Sends an already encoded JSON payload to the
+ *       subscribers connected to this application instance.
+ *   <li>{@link #isBroadcastDestination(String)} - Checks whether payloads of the destination are
+ *       shared between application instances.
+ * </ul>
+ */
+public interface BroadcastService {
+
+  void broadcast(String destination, Object payload);
+
+  void broadcastToUser(String user, String destination, Object payload);
+
+  void deliverLocally(String destination, byte[] json);
+
+  boolean isBroadcastDestination(String destination);
+}
@@ -0,0 +1,30 @@
+package online.talkandtravel.service;
+
+/**
+ * Service interface for checking whether a user is a member of a chat.
+ *
+ * <p>Membership checks run for every message and event a user sends, so results are cached and
+ * the database is queried only on a cache miss.
+ *
+ * <ul>
+ *   <li>{@link #isMember(Long, Long)} - Checks whether the user is joined to the chat.
+ *   <li>{@link #evict(Long, Long)} - Drops a cached membership after the user joined or left the
+ *       chat, on this and on all other application instances.
+ *   <li>{@link #evictChat(Long)} - Drops all cached memberships of a deleted chat.
+ *   <li>{@link #evictLocally(Long, Long)} - Drops cached memberships on this instance only.
+ * </ul>
+ */
+public interface ChatMembershipService {
+
+  boolean isMember(Long chatId, Long userId);
+
+  void evict(Long chatId, Long userId);
+
+  void evictChat(Long chatId);
+
+  /**
+   * @param chatId chat id
+   * @param userId user id, or {@code null} to drop memberships of all users of the chat
+   */
+  void evictLocally(Long chatId, Long userId);
+}
@@ -9,6 +9,7 @@ import online.talkandtravel.model.dto.chat.NewChatDto;
 import online.talkandtravel.model.dto.chat.NewPrivateChatDto;
 import online.talkandtravel.model.dto.chat.PrivateChatDto;
 import online.talkandtravel.model.dto.chat.SetLastReadMessageRequest;
+import online.talkandtravel.model.dto.message.MessageCursorPage;
 import online.talkandtravel.model.dto.message.MessageDto;
 import online.talkandtravel.model.dto.user.UserDtoBasic;
 import org.springframework.data.domain.Page;
@@ -48,6 +49,13 @@ import org.springframework.data.domain.Pageable;
  *       messages within a specific chat, ordered according to the defined sorting criteria. The
  *       method returns a {@link Page} of {@link MessageDto} objects, representing messages in
  *       the chat identified by the provided chat ID.
+ *   <li>{@link #findMessagesByCursor(Long, String, String, int)} - Retrieves messages of a chat
+ *       before or after a cursor, without counting the total number of messages. Passing both
+ *       cursors is rejected.
+ *   <li>{@link #findReadMessagesByCursor(Long, String, int)} - cursor based version of {@link
+ *       #findReadMessages(Long, Optional, Pageable)}
+ *   <li>{@link #findUnreadMessagesByCursor(Long, String, int)} - cursor based version of {@link
+ *       #findUnreadMessages(Long, Pageable)}
  * </ul>
  */
 public interface ChatService {
@@ -80,5 +88,11 @@ public interface ChatService {
 
   Page<MessageDto> findAllMessagesInChatOrdered(Long chatId, Pageable pageable);
 
+  MessageCursorPage findMessagesByCursor(Long chatId, String before, String after, int limit);
+
+  MessageCursorPage findReadMessagesByCursor(Long chatId, String before, int limit);
+
+  MessageCursorPage findUnreadMessagesByCursor(Long chatId, String after, int limit);
+
   ChatDto findChatById(Long chatId);
 }
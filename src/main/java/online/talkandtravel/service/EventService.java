@@ -22,11 +22,11 @@ import online.talkandtravel.model.dto.message.MessageDto;
  *       method returns an {@link EventDtoBasic} representing the event that occurred, including
  *       details about the chat and user.
  *   <li>{@link #startTyping(EventRequest, Principal)} - Processes a request indicating that a user has started
- *       typing in a chat. The method returns an {@link EventDtoBasic} representing the event that
- *       occurred, including details about the chat and user.
+ *       typing in a chat. The method returns an {@link EventResponse} representing the event that
+ *       occurred, or {@code null} if it was coalesced with a recent one and must not be broadcast.
  *   <li>{@link #stopTyping(EventRequest, Principal)} - Processes a request indicating that a user has stopped
- *       typing in a chat. The method returns an {@link EventDtoBasic} representing the event that
- *       occurred, including details about the chat and user.
+ *       typing in a chat. The method returns an {@link EventResponse} representing the event that
+ *       occurred, or {@code null} if the user wasn't typing.
  * </ul>
  */
 public interface EventService {
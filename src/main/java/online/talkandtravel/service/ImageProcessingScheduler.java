@@ -0,0 +1,24 @@
+package online.talkandtravel.service;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Dedicated worker pool for CPU heavy image work such as decoding and resizing uploads.
+ *
+ * <p>The pool is bounded both globally and per user, tasks of different users are taken in
+ * round-robin order so a burst of uploads from one user doesn't delay everyone else.
+ *
+ * <ul>
+ *   <li>{@link #submit(Long, Callable)} - Queues a task on behalf of a user and returns its result
+ *       asynchronously.
+ *   <li>{@link #submitAndWait(Long, Callable)} - Queues a task and blocks the caller until it
+ *       completes, rethrowing the exception the task failed with.
+ * </ul>
+ */
+public interface ImageProcessingScheduler {
+
+  <T> CompletableFuture<T> submit(Long userId, Callable<T> task);
+
+  <T> T submitAndWait(Long userId, Callable<T> task);
+}
@@ -1,5 +1,12 @@
 package online.talkandtravel.service;
 
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import online.talkandtravel.util.ImageHeader;
+import org.springframework.web.multipart.MultipartFile;
+
 /**
  * Service interface for image generation tasks.
  *
@@ -9,4 +16,8 @@ public interface ImageService {
 
   byte[] generateThumbnail(byte[] image, String contentType, int width);
 
+  Map<Integer, byte[]> generateThumbnails(Path image, String contentType, List<Integer> widths);
+
+  Optional<ImageHeader> probeImage(MultipartFile file);
+
 }
@@ -4,6 +4,7 @@ import java.security.Principal;
 import online.talkandtravel.model.dto.message.MessageDto;
 import online.talkandtravel.model.dto.message.SendMessageRequest;
 import online.talkandtravel.model.dto.message.SendMessageWithAttachmentRequest;
+import online.talkandtravel.model.entity.Message;
 import online.talkandtravel.model.entity.User;
 import online.talkandtravel.model.entity.attachment.Image;
 
@@ -19,11 +20,17 @@ import online.talkandtravel.model.entity.attachment.Image;
  *   <li>{@link #saveMessage(SendMessageRequest, Principal)} - Saves a new message based on the provided
  *       request data. The request includes details about the message content, the sender, and any
  *       replied message.
+ *   <li>{@link #createTextMessage(SendMessageRequest, Principal)} - Checks chat membership and
+ *       builds a text message that is ready to be inserted, without querying the database. The
+ *       chat and the replied message are referenced by id only; the replied message must be
+ *       validated by the writer.
  * </ul>
  */
 public interface MessageService {
 
   MessageDto saveMessage(SendMessageRequest sendMessageRequest, Principal principal);
 
+  Message createTextMessage(SendMessageRequest sendMessageRequest, Principal principal);
+
   MessageDto saveMessageWithImage(SendMessageWithAttachmentRequest request, Image image, User sender);
 }
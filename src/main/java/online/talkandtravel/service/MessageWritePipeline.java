@@ -0,0 +1,18 @@
+package online.talkandtravel.service;
+
+import online.talkandtravel.model.entity.Message;
+
+/**
+ * Write-behind pipeline for chat messages.
+ *
+ * <p>Messages submitted within a short window are inserted together with one multi-row statement
+ * and broadcast to chat subscribers only after the batch is committed.
+ *
+ * <ul>
+ *   <li>{@link #submit(Message)} - Enqueues a validated, unsaved message for insertion.
+ * </ul>
+ */
+public interface MessageWritePipeline {
+
+  void submit(Message message);
+}
@@ -1,7 +1,7 @@
 package online.talkandtravel.service;
 
 import java.security.Principal;
-import java.time.ZonedDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import online.talkandtravel.model.dto.user.OnlineStatusDto;
@@ -9,12 +9,34 @@ import online.talkandtravel.model.dto.user.OnlineStatusResponse;
 
 public interface OnlineService {
 
-    void updateLastSeenOn(Long userId, ZonedDateTime lastSeenOn);
-
     OnlineStatusDto updateUserOnlineStatus(Principal principal, Boolean isOnline);
 
     OnlineStatusDto updateUserOnlineStatus(Long userId, Boolean isOnline);
 
+    /**
+     * Registers the first WebSocket connection of the user to this application instance and marks
+     * the user online
+     *
+     * @param userId user id
+     */
+    void userConnected(Long userId);
+
+    /**
+     * Unregisters the last WebSocket connection of the user to this application instance and marks
+     * the user offline, unless the user is still connected to another instance
+     *
+     * @param userId user id
+     */
+    void userDisconnected(Long userId);
+
+    /**
+     * Extends the online status of users connected to this application instance. Users who went
+     * offline in the meantime stay offline
+     *
+     * @param userIds ids of the connected users
+     */
+    void refreshOnlineStatuses(Collection<Long> userIds);
+
     /**
      * Provides an initial snapshot of all user's online statuses
      *
@@ -0,0 +1,18 @@
+package online.talkandtravel.service;
+
+import online.talkandtravel.model.dto.user.OnlineStatusDto;
+
+/**
+ * Service interface for publishing changes of users online statuses to other users.
+ *
+ * <p>Changes are not sent one by one. They are accumulated and sent as a single batch frame per
+ * tick, in which every changed user appears once with their latest status.
+ *
+ * <ul>
+ *   <li>{@link #publish(OnlineStatusDto)} - Adds a status change to the next batch.
+ * </ul>
+ */
+public interface PresenceBroadcastService {
+
+  void publish(OnlineStatusDto status);
+}
@@ -0,0 +1,32 @@
+package online.talkandtravel.service;
+
+import java.util.UUID;
+import online.talkandtravel.model.dto.attachment.RenditionDto;
+
+/**
+ * Serves resized copies (renditions) of image attachments and avatars. A rendition is generated
+ * from the original the first time it is requested and stored in S3, so only images that are
+ * actually viewed are resized.
+ *
+ * <ul>
+ *   <li>{@link #getAttachmentRendition(Long, String, int)} - Returns a rendition of an image
+ *       attachment of a chat.
+ *   <li>{@link #getAvatarRendition(UUID, int)} - Returns a rendition of an avatar.
+ *   <li>{@link #generateAttachmentRenditionUrl(Long, String, int)} and {@link
+ *       #generateAvatarRenditionUrl(UUID, int)} - Build the URLs clients load renditions from.
+ *   <li>{@link #deleteAvatarRenditions(UUID)} - Deletes the stored renditions of an avatar, so they
+ *       are generated again from a replaced original.
+ * </ul>
+ */
+public interface RenditionService {
+
+  RenditionDto getAttachmentRendition(Long chatId, String imageKey, int width);
+
+  RenditionDto getAvatarRendition(UUID avatarKey, int width);
+
+  String generateAttachmentRenditionUrl(Long chatId, String imageKey, int width);
+
+  String generateAvatarRenditionUrl(UUID avatarKey, int width);
+
+  void deleteAvatarRenditions(UUID avatarKey);
+}
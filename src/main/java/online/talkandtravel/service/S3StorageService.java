@@ -0,0 +1,42 @@
+package online.talkandtravel.service;
+
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+/**
+ * Non-blocking access to the S3 bucket, so several objects can be written at once and the caller
+ * waits for the slowest write instead of the sum of all of them.
+ *
+ * <ul>
+ *   <li>{@link #putObject(String, String, byte[])} - Uploads content held in memory.
+ *   <li>{@link #putObject(String, String, Path)} - Streams a file from disk, large files are
+ *       uploaded in parts.
+ *   <li>{@link #copyObject(String, String)} - Copies an object inside the bucket.
+ *   <li>{@link #getObject(String)} - Downloads an object, completes with an empty optional if the
+ *       object doesn't exist.
+ *   <li>{@link #getObject(String, Path)} - Streams an object into a file, replacing its content,
+ *       completes with an empty optional if the object doesn't exist.
+ *   <li>{@link #deleteObject(String)} - Deletes an object, deleting a missing object succeeds.
+ *   <li>{@link #awaitAll(CompletableFuture[])} - Blocks until all writes complete, rethrowing the
+ *       exception the first failed write completed with.
+ * </ul>
+ */
+public interface S3StorageService {
+
+  CompletableFuture<Void> putObject(String key, String contentType, byte[] content);
+
+  CompletableFuture<Void> putObject(String key, String contentType, Path content);
+
+  CompletableFuture<Void> copyObject(String sourceKey, String destinationKey);
+
+  CompletableFuture<Optional<ResponseBytes<GetObjectResponse>>> getObject(String key);
+
+  CompletableFuture<Optional<GetObjectResponse>> getObject(String key, Path destination);
+
+  CompletableFuture<Void> deleteObject(String key);
+
+  void awaitAll(CompletableFuture<?>... writes);
+}
@@ -0,0 +1,25 @@
+package online.talkandtravel.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Cache of generated thumbnails keyed by the content hash of the original image and the thumbnail
+ * width, so re-posted images skip decoding and resizing.
+ *
+ * <ul>
+ *   <li>{@link #getOrGenerate(String, int, Supplier)} - Returns the cached thumbnail of a width or
+ *       generates and caches it.
+ *   <li>{@link #getOrGenerate(String, List, Function)} - Returns cached thumbnails of several widths,
+ *       the generator is called once with the widths that are missing.
+ * </ul>
+ */
+public interface ThumbnailCacheService {
+
+  byte[] getOrGenerate(String contentHash, int width, Supplier<byte[]> generator);
+
+  Map<Integer, byte[]> getOrGenerate(String contentHash, List<Integer> widths,
+      Function<List<Integer>, Map<Integer, byte[]>> generator);
+}
@@ -22,6 +22,8 @@ import online.talkandtravel.model.entity.User;
  *       for validating tokens or performing operations based on a specific token.
  *   <li>{@link #saveAll(List)} - Saves a list of tokens to the repository. This operation can be
  *       used for bulk token insertion or updating.
+ *   <li>{@link #revokeToken(String)} - Marks a token as expired and revoked and makes every
+ *       application instance reject it together with the other tokens of its user.
  * </ul>
  */
 public interface TokenService {
@@ -36,6 +38,15 @@ public interface TokenService {
 
   Long validateTokenAndGetUserId(String token);
 
+  void revokeToken(String token);
+
+  /**
+   * @param userId id of the user the token belongs to, whose cached tokens are verified again
+   * @param digest SHA-256 digest of the token, encoded with base64
+   * @param expiresAt expiration of the token in epoch millis
+   */
+  void revokeLocally(Long userId, String digest, long expiresAt);
+
   Long extractId(String token);
 
   String generateToken(Long userId);
@@ -0,0 +1,24 @@
+package online.talkandtravel.service;
+
+import online.talkandtravel.model.dto.user.UserNameDto;
+
+/**
+ * Service interface for tracking which users are typing in which chats.
+ *
+ * <p>The state is kept in memory only. It is used to coalesce typing events, so chat subscribers
+ * receive at most one START_TYPING event per interval, and to send STOP_TYPING automatically when
+ * a user stops sending typing events.
+ *
+ * <ul>
+ *   <li>{@link #startTyping(Long, UserNameDto)} - Registers typing activity and tells whether a
+ *       START_TYPING event must be broadcast.
+ *   <li>{@link #stopTyping(Long, Long)} - Clears typing activity and tells whether a STOP_TYPING
+ *       event must be broadcast.
+ * </ul>
+ */
+public interface TypingService {
+
+  boolean startTyping(Long chatId, UserNameDto user);
+
+  boolean stopTyping(Long chatId, Long userId);
+}
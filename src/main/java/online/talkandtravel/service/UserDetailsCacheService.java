@@ -0,0 +1,25 @@
+package online.talkandtravel.service;
+
+import org.springframework.security.core.userdetails.UserDetails;
+
+/**
+ * Service interface for loading the principals of authenticated users.
+ *
+ * <p>A principal is loaded for every authenticated request and every STOMP connect, so principals
+ * are cached for a limited time and the database is queried only on a cache miss.
+ *
+ * <ul>
+ *   <li>{@link #getUserDetails(Long)} - Returns the principal of the user.
+ *   <li>{@link #evict(Long)} - Drops a cached principal after the user was changed, on this and on
+ *       all other application instances.
+ *   <li>{@link #evictLocally(Long)} - Drops a cached principal on this instance only.
+ * </ul>
+ */
+public interface UserDetailsCacheService {
+
+  UserDetails getUserDetails(Long userId);
+
+  void evict(Long userId);
+
+  void evictLocally(Long userId);
+}
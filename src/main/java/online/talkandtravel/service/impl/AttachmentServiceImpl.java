@@ -1,13 +1,16 @@
 package online.talkandtravel.service.impl;
 
 import static online.talkandtravel.util.FilesUtils.bytesToMegabytes;
-import static online.talkandtravel.util.FilesUtils.getBytes;
-import static online.talkandtravel.util.FilesUtils.isAnimatedWebPImage;
 import static online.talkandtravel.util.constants.AttachmentConstants.SUPPORTED_IMAGE_ATTACHMENT_FORMATS;
+import static online.talkandtravel.util.constants.RedisConstants.ATTACHMENT_ORIGINAL_KEY_PATTERN;
 import static online.talkandtravel.util.constants.S3Constants.S3_URL_PATTERN;
 
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import online.talkandtravel.exception.attachment.MultipartFileIsEmptyException;
@@ -18,14 +21,15 @@ import online.talkandtravel.exception.file.UnsupportedImageFormatException;
 import online.talkandtravel.model.entity.attachment.AttachmentType;
 import online.talkandtravel.model.entity.attachment.Image;
 import online.talkandtravel.service.AttachmentService;
-import online.talkandtravel.util.FileDto;
+import online.talkandtravel.service.ImageService;
+import online.talkandtravel.service.S3StorageService;
+import online.talkandtravel.util.ImageHeader;
+import online.talkandtravel.util.constants.FileFormat;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
-import software.amazon.awssdk.core.sync.RequestBody;
-import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 
 @RequiredArgsConstructor
 @Log4j2
@@ -47,7 +51,12 @@ public class AttachmentServiceImpl implements AttachmentService {
   @Value("${attachments.images.maxSize}")
   private Long IMAGES_MAX_SIZE;
 
-  private final S3Client s3Client;
+  @Value("${thumbnailCache.sharedTtlInHours}")
+  private long SHARED_TTL_IN_HOURS;
+
+  private final S3StorageService s3StorageService;
+  private final RedisTemplate<String, String> redisTemplate;
+  private final ImageService imageService;
 
   @Override
   public void validateAttachmentFile(MultipartFile file, String attachmentType) {
@@ -68,7 +77,9 @@ public class AttachmentServiceImpl implements AttachmentService {
   public void validateImage(MultipartFile file) {
     validateImageSize(file.getSize());
     validateImageFileFormat(file.getContentType());
-    if (isAnimatedWebPImage(getBytes(file))) {
+    Optional<ImageHeader> header = imageService.probeImage(file);
+    if (header.isPresent() && header.get().animated()
+        && header.get().format().equals(FileFormat.WEBP.getExtension())) {
       throw new ImageProcessingException("Animated webp is not supported.");
     }
   }
@@ -79,18 +90,62 @@ public class AttachmentServiceImpl implements AttachmentService {
     }
   }
 
+  /**
+   * Streams the original from disk to S3. If an original with the same content hash was uploaded
+   * before, the stored object is copied inside S3 instead, so the upload is skipped. Should the
+   * stored object be gone, the original is uploaded as usual.
+   */
   @Override
-  public void saveImage(byte[] image, String imageFolderName, String contentType, String key){
-    String imagePath = AWS_S3_FOLDER_NAME + imageFolderName + "/" + key;
-    log.info("save image to path: {}", imagePath);
+  public CompletableFuture<Void> saveImage(Path image, String contentHash, String imageFolderName,
+      String contentType, String key) {
+    String objectKey = buildObjectKey(imageFolderName, key);
+    String uploadedKey = findUploadedOriginal(contentHash);
+    CompletableFuture<Boolean> copied = uploadedKey == null
+        ? CompletableFuture.completedFuture(false)
+        : copyUploadedOriginal(uploadedKey, objectKey);
+
+    return copied.thenCompose(isCopied -> isCopied
+        ? CompletableFuture.completedFuture(null)
+        : s3StorageService.putObject(objectKey, contentType, image)
+            .thenRun(() -> rememberUploadedOriginal(contentHash, objectKey)));
+  }
 
-    PutObjectRequest putObjectRequest = PutObjectRequest.builder()
-        .bucket(AWS_S3_BUCKET_NAME)
-        .key(imagePath)
-        .contentType(contentType)
-        .build();
+  private String findUploadedOriginal(String contentHash) {
+    try {
+      return redisTemplate.opsForValue().get(ATTACHMENT_ORIGINAL_KEY_PATTERN.formatted(contentHash));
+    } catch (Exception e) {
+      log.error("Failed to find uploaded original {}: {}", contentHash, e.getMessage());
+      return null;
+    }
+  }
 
-    s3Client.putObject(putObjectRequest, RequestBody.fromBytes(image));
+  private CompletableFuture<Boolean> copyUploadedOriginal(String sourceKey,
+      String destinationKey) {
+    return s3StorageService.copyObject(sourceKey, destinationKey).handle((result, e) -> {
+      if (e != null) {
+        log.warn("Failed to copy uploaded original {}, upload it again: {}", sourceKey,
+            e.getMessage());
+        return false;
+      }
+      log.info("Identical original is already stored at {}, copied it to {}", sourceKey,
+          destinationKey);
+      return true;
+    });
+  }
+
+  private void rememberUploadedOriginal(String contentHash, String objectKey) {
+    try {
+      redisTemplate.opsForValue().set(ATTACHMENT_ORIGINAL_KEY_PATTERN.formatted(contentHash),
+          objectKey, Duration.ofHours(SHARED_TTL_IN_HOURS));
+    } catch (Exception e) {
+      log.error("Failed to remember uploaded original {}: {}", contentHash, e.getMessage());
+    }
+  }
+
+  private String buildObjectKey(String imageFolderName, String key) {
+    String imagePath = AWS_S3_FOLDER_NAME + imageFolderName + "/" + key;
+    log.info("save image to path: {}", imagePath);
+    return imagePath;
   }
 
   @Override
@@ -3,6 +3,7 @@ package online.talkandtravel.service.impl;
 import static java.lang.String.format;
 
 import jakarta.servlet.http.HttpServletRequest;
+import java.util.Optional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import online.talkandtravel.exception.auth.UserAuthenticationException;
@@ -30,6 +31,8 @@ import org.springframework.stereotype.Service;
  * <ul>
  *   <li>{@link #getAuthenticatedUser()} - gets the authenticated
  *       user from {@link SecurityContextHolder}
+ *   <li>{@link #findAuthenticatedUser()} - gets the authenticated user if the request isn't
+ *       anonymous
  *   <li>{@link #checkUserCredentials(String, String)} - Validates user credentials and throws an
  *       exception if credentials are invalid.
  *   <li>{@link #checkUserCredentials(String, User)} - Checks if the provided password matches the
@@ -61,6 +64,20 @@ public class AuthenticationServiceImpl implements AuthenticationService {
     return getUserFromPrincipal(principal);
   }
 
+  /**
+   * Returns the authenticated user, or an empty optional when the request is anonymous, for
+   * endpoints that are open to everyone but treat signed-in users differently.
+   */
+  @Override
+  public Optional<User> findAuthenticatedUser() {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    if (authentication != null
+        && authentication.getPrincipal() instanceof CustomUserDetails userDetails) {
+      return Optional.of(userDetails.getUser());
+    }
+    return Optional.empty();
+  }
+
   /**
    * Checks if the user is authenticated by verifying the presence of an authentication object
    * in the Spring Security context.
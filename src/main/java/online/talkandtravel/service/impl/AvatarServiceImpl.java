@@ -1,13 +1,10 @@
 package online.talkandtravel.service.impl;
 
 import static online.talkandtravel.util.FilesUtils.bytesToMegabytes;
-import static online.talkandtravel.util.constants.AvatarDimensionsConstants.X256;
-import static online.talkandtravel.util.constants.AvatarDimensionsConstants.X50;
 import static online.talkandtravel.util.constants.FileFormatConstants.SUPPORTED_FORMAT_AVATAR;
-import static online.talkandtravel.util.constants.S3Constants.AVATAR_X256_FOLDER_NAME;
-import static online.talkandtravel.util.constants.S3Constants.AVATAR_X50_FOLDER_NAME;
-import static online.talkandtravel.util.constants.S3Constants.S3_URL_PATTERN;
+import static online.talkandtravel.util.constants.S3Constants.AVATAR_ORIGINAL_FOLDER_NAME;
 
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Optional;
 import java.util.UUID;
@@ -22,15 +19,15 @@ import online.talkandtravel.model.entity.User;
 import online.talkandtravel.repository.AvatarRepository;
 import online.talkandtravel.service.AuthenticationService;
 import online.talkandtravel.service.AvatarService;
+import online.talkandtravel.service.ImageService;
+import online.talkandtravel.service.RenditionService;
+import online.talkandtravel.service.S3StorageService;
+import online.talkandtravel.service.UserDetailsCacheService;
 import online.talkandtravel.util.mapper.AvatarMapper;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
-import software.amazon.awssdk.core.sync.RequestBody;
-import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
-import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 
 /**
  * Implementation of the {@link AvatarService} for managing user avatars.
@@ -45,19 +42,16 @@ public class AvatarServiceImpl implements AvatarService {
   @Value("${avatars.max-size-in-mb}")
   private int MAX_SIZE_AVATAR_IN_MB;
 
-  @Value("${aws.region}")
-  private String AWS_REGION;
-
-  @Value("${aws.s3.bucketName}")
-  private String AWS_S3_BUCKET_NAME;
-
   @Value("${aws.s3.avatarsFolderName}")
   private String AWS_S3_AVATARS_FOLDER_NAME;
 
   private final AvatarRepository avatarRepository;
   private final AuthenticationService authenticationService;
-  private final S3Client s3Client;
+  private final S3StorageService s3StorageService;
+  private final RenditionService renditionService;
+  private final ImageService imageService;
   private final AvatarMapper avatarMapper;
+  private final UserDetailsCacheService userDetailsCacheService;
 
 
   @Transactional
@@ -66,16 +60,9 @@ public class AvatarServiceImpl implements AvatarService {
     return getAvatar(userId);
   }
 
-  @Override
-  public String generateImageUrl(Avatar avatar, String avatarS3Folder) {
-    String fullAvatarFolderPath = AWS_S3_AVATARS_FOLDER_NAME + avatarS3Folder;
-    return S3_URL_PATTERN.formatted(AWS_S3_BUCKET_NAME, AWS_REGION, fullAvatarFolderPath,
-        avatar.getKey());
-  }
-
   @Override
   @Transactional
-  public AvatarDto saveOrUpdateUserAvatar(byte[] image, String folder) {
+  public AvatarDto saveOrUpdateUserAvatar(Path image, String contentType) {
     User user = authenticationService.getAuthenticatedUser();
     log.info("Save or update user avatar for user: {}", user.getId());
     Optional<Avatar> avatarOptional = avatarRepository.findByUserId(user.getId());
@@ -83,10 +70,12 @@ public class AvatarServiceImpl implements AvatarService {
     Avatar avatar;
     if (avatarOptional.isPresent()) {
       avatar = avatarOptional.get();
-      update(image, avatar, folder);
+      saveOriginalToS3(image, contentType, avatar.getKey());
+      renditionService.deleteAvatarRenditions(avatar.getKey());
 
     } else {
-      avatar = save(image, folder);
+      avatar = save(image, contentType);
+      userDetailsCacheService.evict(user.getId());
     }
     return avatarMapper.toAvatarDto(avatar);
   }
@@ -96,48 +85,34 @@ public class AvatarServiceImpl implements AvatarService {
   public void deleteByKey(UUID key) {
     avatarRepository.deleteByKey(key);
 
-    String[] folderPaths = {AVATAR_X50_FOLDER_NAME, AVATAR_X256_FOLDER_NAME};
-    for (String folder : folderPaths) {
-      deleteObject(buildS3Key(folder, key));
-    }
+    s3StorageService.awaitAll(s3StorageService.deleteObject(buildOriginalS3Key(key)));
+    renditionService.deleteAvatarRenditions(key);
   }
 
-  private String buildS3Key(String folderName, UUID key) {
-    return AWS_S3_AVATARS_FOLDER_NAME + folderName + "/" + key;
-  }
-
-  private void deleteObject(String fullKey) {
-    DeleteObjectRequest request = DeleteObjectRequest.builder()
-        .bucket(AWS_S3_BUCKET_NAME)
-        .key(fullKey)
-        .build();
-    s3Client.deleteObject(request);
+  private String buildOriginalS3Key(UUID key) {
+    return AWS_S3_AVATARS_FOLDER_NAME + AVATAR_ORIGINAL_FOLDER_NAME + "/" + key;
   }
 
   @Override
   public void validateFile(MultipartFile imageFile) {
     validateImageFormat(imageFile.getOriginalFilename());
     validateImageSize(imageFile);
+    imageService.probeImage(imageFile);
   }
 
-  private Avatar save(byte[] image, String folder) {
+  private Avatar save(Path image, String contentType) {
     UUID key = UUID.randomUUID();
-    saveImageToS3(image, AWS_S3_AVATARS_FOLDER_NAME + folder, key);
+    saveOriginalToS3(image, contentType, key);
     return saveAvatar(key);
   }
 
-  private void update(byte[] image, Avatar avatar, String folder) {
-    saveImageToS3(image, AWS_S3_AVATARS_FOLDER_NAME + folder, avatar.getKey());
-  }
-
-  private void saveImageToS3(byte[] bytes, String avatarFolderName, UUID key) {
-    PutObjectRequest putObjectRequest = PutObjectRequest.builder()
-        .bucket(AWS_S3_BUCKET_NAME)
-        .key(avatarFolderName + "/" + key.toString())
-        .contentType("png")
-        .build();
-
-    s3Client.putObject(putObjectRequest, RequestBody.fromBytes(bytes));
+  /**
+   * Only the original is stored, the sizes clients load are generated by the {@link
+   * RenditionService} once they are first requested.
+   */
+  private void saveOriginalToS3(Path image, String contentType, UUID key) {
+    s3StorageService.awaitAll(
+        s3StorageService.putObject(buildOriginalS3Key(key), contentType, image));
   }
 
   private Avatar saveAvatar(UUID key) {
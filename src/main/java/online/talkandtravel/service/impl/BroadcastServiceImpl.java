@@ -0,0 +1,137 @@
+package online.talkandtravel.service.impl;
+
+import static online.talkandtravel.util.constants.ApiPathConstants.CHATS_BROKER_DESTINATION;
+import static online.talkandtravel.util.constants.ApiPathConstants.USERS_ONLINE_STATUSES_ENDPOINT;
+import static online.talkandtravel.util.constants.ApiPathConstants.USERS_ONLINE_STATUS_ENDPOINT;
+import static online.talkandtravel.util.constants.ApiPathConstants.USER_DESTINATION_PREFIX;
+import static online.talkandtravel.util.constants.ApiPathConstants.USER_ONLINE_STATUSES_QUEUE;
+import static online.talkandtravel.util.constants.RedisConstants.WEBSOCKET_BROADCAST_CHANNEL_PREFIX;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import online.talkandtravel.service.BroadcastService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.CompositeMessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+
+/**
+ * Implementation of the {@link BroadcastService}.
+ *
+ * <p>A payload is encoded to JSON exactly once per broadcast, with the converter of the broker,
+ * on the instance that broadcasts it. The encoded bytes are what is shared through Redis, and
+ * every other instance hands them to its broker as an already converted message, so they aren't
+ * converted again there.
+ *
+ * <p>The STOMP frame of every subscriber session is still built by the broker. A MESSAGE frame
+ * carries the {@code subscription} and {@code message-id} headers of its session, so the frames of
+ * two sessions never have the same bytes and can't be shared.
+ *
+ * <p>When {@code webSocketBroadcast.shareThroughRedis} is disabled the bytes go straight to the
+ * in-memory broker, which is enough for a single application instance.
+ *
+ * <p>When it is enabled the bytes are published as is to the Redis channel {@link
+ * online.talkandtravel.util.constants.RedisConstants#WEBSOCKET_BROADCAST_CHANNEL_PREFIX} followed
+ * by the destination. Every instance subscribes only to the channels of destinations its own
+ * sessions are subscribed to (see {@link
+ * online.talkandtravel.config.websocket.BroadcastSubscriptionRegistry}) and delivers received
+ * payloads to them through {@link #deliverLocally(String, byte[])} without decoding them. The
+ * publishing instance receives its own payloads the same way, so every subscriber gets a payload
+ * exactly once.
+ *
+ * <p>Payloads for one user are broadcast to the user destination {@code /user/{name}/queue/...},
+ * which every instance resolves against its own sessions of that user, so they only reach the
+ * sessions the user authenticated.
+ */
+@Service
+@Log4j2
+@RequiredArgsConstructor
+public class BroadcastServiceImpl implements BroadcastService {
+
+  private static final MessageHeaders JSON_HEADERS =
+      new MessageHeaders(Map.of(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_JSON));
+
+  private final SimpMessagingTemplate messagingTemplate;
+  private final RedisTemplate<String, String> redisTemplate;
+  private final CompositeMessageConverter brokerMessageConverter;
+
+  @Value("${webSocketBroadcast.shareThroughRedis}")
+  private boolean SHARE_THROUGH_REDIS;
+
+  @Override
+  public void broadcast(String destination, Object payload) {
+    byte[] json;
+    try {
+      json = encode(payload);
+    } catch (Exception e) {
+      log.error("Failed to encode broadcast to {}: {}", destination, e.getMessage());
+      return;
+    }
+    if (SHARE_THROUGH_REDIS && publish(destination, json)) {
+      return;
+    }
+    deliverLocally(destination, json);
+  }
+
+  @Override
+  public void broadcastToUser(String user, String destination, Object payload) {
+    broadcast(USER_DESTINATION_PREFIX + "/" + user + destination, payload);
+  }
+
+  /**
+   * Encodes the payload with the converter of the broker, so the JSON is exactly what {@code
+   * SimpMessagingTemplate.convertAndSend} would produce.
+   */
+  private byte[] encode(Object payload) {
+    Message<?> message = brokerMessageConverter.toMessage(payload, JSON_HEADERS);
+    if (message == null || !(message.getPayload() instanceof byte[] json)) {
+      throw new IllegalArgumentException("Unsupported payload " + payload.getClass().getName());
+    }
+    return json;
+  }
+
+  /** Publishes the encoded payload, returns {@code false} if Redis is unavailable */
+  private boolean publish(String destination, byte[] json) {
+    byte[] channel = (WEBSOCKET_BROADCAST_CHANNEL_PREFIX + destination).getBytes(StandardCharsets.UTF_8);
+    try {
+      redisTemplate.execute((RedisCallback<Long>) connection -> connection.publish(channel, json));
+      return true;
+    } catch (Exception e) {
+      log.error("Failed to publish broadcast to {}, delivering it locally: {}", destination,
+          e.getMessage());
+      return false;
+    }
+  }
+
+  @Override
+  public void deliverLocally(String destination, byte[] json) {
+    SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create();
+    accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+    accessor.setLeaveMutable(true);
+    messagingTemplate.send(destination, MessageBuilder.createMessage(json, accessor.getMessageHeaders()));
+  }
+
+  @Override
+  public boolean isBroadcastDestination(String destination) {
+    return destination != null && (destination.startsWith(CHATS_BROKER_DESTINATION + "/")
+        || destination.equals(USERS_ONLINE_STATUSES_ENDPOINT)
+        || destination.equals(USERS_ONLINE_STATUS_ENDPOINT)
+        || isUserOnlineStatusesDestination(destination));
+  }
+
+  /** Matches {@code /user/{name}/queue/onlineStatuses} with a non-empty user name */
+  private boolean isUserOnlineStatusesDestination(String destination) {
+    String prefix = USER_DESTINATION_PREFIX + "/";
+    return destination.length() > prefix.length() + USER_ONLINE_STATUSES_QUEUE.length()
+        && destination.startsWith(prefix) && destination.endsWith(USER_ONLINE_STATUSES_QUEUE);
+  }
+}
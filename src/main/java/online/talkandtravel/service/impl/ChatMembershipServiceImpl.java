@@ -0,0 +1,202 @@
+package online.talkandtravel.service.impl;
+
+import static online.talkandtravel.util.constants.RedisConstants.CHAT_MEMBERSHIP_INVALIDATION_ALL_USERS;
+import static online.talkandtravel.util.constants.RedisConstants.CHAT_MEMBERSHIP_INVALIDATION_CHANNEL;
+import static online.talkandtravel.util.constants.RedisConstants.CHAT_MEMBERSHIP_INVALIDATION_SEPARATOR;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import online.talkandtravel.repository.UserChatRepository;
+import online.talkandtravel.service.ChatMembershipService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Implementation of the {@link ChatMembershipService} backed by a bounded in-memory cache.
+ *
+ * <p>The cache stores confirmed memberships only, as {@code (chatId, userId)} pairs in primitive
+ * {@code long} arrays. It is split into segments, each of them is a direct-mapped table: a pair
+ * has exactly one slot and a newer pair simply replaces an older one in the same slot, so memory
+ * use is fixed at {@code chatMembership.cacheSize} entries.
+ *
+ * <p>Every eviction bumps the version of its segment. A membership loaded from the database is
+ * cached only if the version didn't change during the query, so a concurrent leave can't be
+ * overwritten with a stale result.
+ *
+ * <p>Evictions run after the surrounding transaction commits. When {@code
+ * chatMembership.shareThroughRedis} is enabled they are also published to the {@link
+ * online.talkandtravel.util.constants.RedisConstants#CHAT_MEMBERSHIP_INVALIDATION_CHANNEL} channel,
+ * so other application instances drop their copies too.
+ */
+@Service
+@Log4j2
+@RequiredArgsConstructor
+public class ChatMembershipServiceImpl implements ChatMembershipService {
+
+  private static final int SEGMENTS = 16;
+  private static final long EMPTY = 0L;
+
+  private final UserChatRepository userChatRepository;
+  private final RedisTemplate<String, String> redisTemplate;
+
+  @Value("${chatMembership.cacheSize}")
+  private int CACHE_SIZE;
+
+  @Value("${chatMembership.shareThroughRedis}")
+  private boolean SHARE_THROUGH_REDIS;
+
+  private Segment[] segments;
+
+  @PostConstruct
+  public void init() {
+    int segmentSize = Integer.highestOneBit(Math.max(CACHE_SIZE / SEGMENTS, 1));
+    segments = new Segment[SEGMENTS];
+    for (int i = 0; i < SEGMENTS; i++) {
+      segments[i] = new Segment(segmentSize);
+    }
+  }
+
+  @Override
+  public boolean isMember(Long chatId, Long userId) {
+    long hash = hash(chatId, userId);
+    Segment segment = segmentFor(hash);
+    long version;
+    synchronized (segment) {
+      if (segment.contains(hash, chatId, userId)) {
+        return true;
+      }
+      version = segment.version;
+    }
+    boolean isMember = userChatRepository.existsByChatIdAndUserId(chatId, userId);
+    if (isMember) {
+      synchronized (segment) {
+        if (segment.version == version) {
+          segment.put(hash, chatId, userId);
+        }
+      }
+    }
+    return isMember;
+  }
+
+  @Override
+  public void evict(Long chatId, Long userId) {
+    evictLocally(chatId, userId);
+    afterCommit(() -> {
+      evictLocally(chatId, userId);
+      publishInvalidation(chatId + CHAT_MEMBERSHIP_INVALIDATION_SEPARATOR + userId);
+    });
+  }
+
+  @Override
+  public void evictChat(Long chatId) {
+    evictLocally(chatId, null);
+    afterCommit(() -> {
+      evictLocally(chatId, null);
+      publishInvalidation(chatId + CHAT_MEMBERSHIP_INVALIDATION_SEPARATOR
+          + CHAT_MEMBERSHIP_INVALIDATION_ALL_USERS);
+    });
+  }
+
+  @Override
+  public void evictLocally(Long chatId, Long userId) {
+    if (userId != null) {
+      long hash = hash(chatId, userId);
+      Segment segment = segmentFor(hash);
+      synchronized (segment) {
+        segment.remove(hash, chatId, userId);
+      }
+      return;
+    }
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        segment.removeChat(chatId);
+      }
+    }
+  }
+
+  private void publishInvalidation(String payload) {
+    if (!SHARE_THROUGH_REDIS) {
+      return;
+    }
+    try {
+      redisTemplate.convertAndSend(CHAT_MEMBERSHIP_INVALIDATION_CHANNEL, payload);
+    } catch (Exception e) {
+      log.error("Failed to publish chat membership invalidation {}: {}", payload, e.getMessage());
+    }
+  }
+
+  private void afterCommit(Runnable action) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      action.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        action.run();
+      }
+    });
+  }
+
+  private Segment segmentFor(long hash) {
+    return segments[(int) (hash >>> 60) & (SEGMENTS - 1)];
+  }
+
+  private static long hash(long chatId, long userId) {
+    long hash = chatId * 0x9E3779B97F4A7C15L + userId;
+    hash ^= hash >>> 33;
+    hash *= 0xFF51AFD7ED558CCDL;
+    return hash ^ (hash >>> 33);
+  }
+
+  /** Direct-mapped table of {@code (chatId, userId)} pairs, guarded by its own monitor */
+  private static final class Segment {
+
+    private final long[] chatIds;
+    private final long[] userIds;
+    private final int mask;
+    private long version;
+
+    private Segment(int size) {
+      chatIds = new long[size];
+      userIds = new long[size];
+      mask = size - 1;
+    }
+
+    private boolean contains(long hash, long chatId, long userId) {
+      int slot = (int) hash & mask;
+      return chatIds[slot] == chatId && userIds[slot] == userId;
+    }
+
+    private void put(long hash, long chatId, long userId) {
+      int slot = (int) hash & mask;
+      chatIds[slot] = chatId;
+      userIds[slot] = userId;
+    }
+
+    private void remove(long hash, long chatId, long userId) {
+      version++;
+      if (contains(hash, chatId, userId)) {
+        clear((int) hash & mask);
+      }
+    }
+
+    private void removeChat(long chatId) {
+      version++;
+      for (int slot = 0; slot < chatIds.length; slot++) {
+        if (chatIds[slot] == chatId) {
+          clear(slot);
+        }
+      }
+    }
+
+    private void clear(int slot) {
+      chatIds[slot] = EMPTY;
+      userIds[slot] = EMPTY;
+    }
+  }
+}
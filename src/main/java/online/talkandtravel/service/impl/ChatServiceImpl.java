@@ -2,9 +2,11 @@ package online.talkandtravel.service.impl;
 
 import static java.lang.String.format;
 
-import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
@@ -13,6 +15,7 @@ import online.talkandtravel.exception.chat.ChatNotFoundException;
 import online.talkandtravel.exception.chat.MainCountryChatNotFoundException;
 import online.talkandtravel.exception.chat.PrivateChatAlreadyExistsException;
 import online.talkandtravel.exception.country.CountryNotFoundException;
+import online.talkandtravel.exception.message.InvalidMessageCursorException;
 import online.talkandtravel.exception.message.MessageFromAnotherChatException;
 import online.talkandtravel.exception.message.MessageNotFoundException;
 import online.talkandtravel.exception.user.TheSameUserException;
@@ -26,6 +29,9 @@ import online.talkandtravel.model.dto.chat.NewPrivateChatDto;
 import online.talkandtravel.model.dto.chat.PrivateChatDto;
 import online.talkandtravel.model.dto.chat.PrivateChatInfoDto;
 import online.talkandtravel.model.dto.chat.SetLastReadMessageRequest;
+import online.talkandtravel.model.dto.chat.UserChatSummary;
+import online.talkandtravel.model.dto.message.MessageCursor;
+import online.talkandtravel.model.dto.message.MessageCursorPage;
 import online.talkandtravel.model.dto.message.MessageDto;
 import online.talkandtravel.model.dto.user.UserDtoBasic;
 import online.talkandtravel.model.entity.Chat;
@@ -60,9 +66,12 @@ import org.springframework.transaction.annotation.Transactional;
  *
  * <ul>
  *   <li>{@link #createPrivateChat(NewPrivateChatDto)} - creates private chat between two users
- *   <li>{@link #findAllUsersPrivateChats()} - finds all private chats of a user
+ *   <li>{@link #findAllUsersPrivateChats()} - finds all private chats of a user. The chat list
+ *       is read through a {@link UserChatSummary} query plus one batch load of companions and one
+ *       of last messages, whatever the number of chats or the size of their history
  *   <li>{@link #setLastReadMessage(Long, SetLastReadMessageRequest)} - updates lastReadMessage of
- *       field that represents last read message of chat by user
+ *       field that represents last read message of chat by user and recalculates the unread
+ *       messages counter
  *   <li>{@link #findReadMessages(Long, Optional, Pageable)} - finds messages that the user has already read
  *   <li>{@link ChatService#findUnreadMessages(Long, Pageable)} - finds messages that the user has
  *       not yet read
@@ -74,6 +83,10 @@ import org.springframework.transaction.annotation.Transactional;
  *       in a specified chat.
  *   <li>{@link #findAllMessagesInChatOrdered(Long, Pageable)} - Retrieves all messages in a
  *       specified chat, ordered and paginated.
+ *   <li>{@link #findMessagesByCursor(Long, String, String, int)} - Retrieves messages of a chat
+ *       using keyset pagination by {@code (creationDate, id)}, so the cost of a page doesn't depend
+ *       on how deep in the history it is. Only one of the {@code before} and {@code after} cursors
+ *       may be passed.
  *   <li>{@link #getChat(Long)} - Retrieves a chat entity by its ID, or throws an exception if not
  *       found.
  *   <li>{@link #getCountry(String)} - Retrieves a country entity by its name, or throws an
@@ -139,11 +152,16 @@ public class ChatServiceImpl implements ChatService {
   @Override
   public List<PrivateChatDto> findAllUsersPrivateChats() {
     User user = authenticationService.getAuthenticatedUser();
-    List<UserChat> userChats = userChatRepository.findAllByUserId(user.getId());
+    List<UserChatSummary> summaries =
+        userChatRepository.findAllSummariesByUserIdAndChatType(user.getId(), ChatType.PRIVATE);
+
+    Map<Long, User> companions = loadByIds(summaries, UserChatSummary::companionId,
+        userRepository::findAllWithAvatarByIdIn, User::getId);
+    Map<Long, Message> lastMessages = loadByIds(summaries, UserChatSummary::lastMessageId,
+        messageRepository::findAllByIdIn, Message::getId);
 
-    return userChats.stream()
-        .filter(userChat -> isPrivateChat(userChat.getChat()))
-        .map((userChat) -> buildPrivateChatDto(userChat, user))
+    return summaries.stream()
+        .map(summary -> buildPrivateChatDto(summary, companions, lastMessages))
         .map(chatNameToCompanionName())
         .toList();
   }
@@ -152,22 +170,28 @@ public class ChatServiceImpl implements ChatService {
   public List<ChatDto> findAllUserPublicChats() {
     User user = authenticationService.getAuthenticatedUser();
 
-    return userChatRepository.findAllByUserId(user.getId()).stream()
-        .filter((userChat -> userChat.getChat().getChatType().equals(ChatType.GROUP)))
-        .map((userChat) -> chatMapper.toDto(userChat.getChat(), countUnreadMessages(userChat)))
+    return userChatRepository.findAllSummariesByUserIdAndChatType(user.getId(), ChatType.GROUP)
+        .stream()
+        .map(chatMapper::summaryToDto)
         .toList();
   }
 
+  /**
+   * Locks the chat row before recounting unread messages. Message batches update the same row
+   * before they increment unread counters, so a batch either commits before the recount and is
+   * counted, or increments the new counter after it.
+   */
   @Override
+  @Transactional
   public void setLastReadMessage(Long chatId, SetLastReadMessageRequest dtoRequest) {
     User user = authenticationService.getAuthenticatedUser();
-    UserChat userChat = getUserChat(chatId, user.getId());
+    getUserChat(chatId, user.getId());
     Message message = getMessage(dtoRequest.lastReadMessageId());
 
     verifyMessageBelongsToChat(message, chatId);
 
-    userChat.setLastReadMessage(message);
-    userChatRepository.save(userChat);
+    chatRepository.lockById(chatId);
+    userChatRepository.updateLastReadMessage(chatId, user.getId(), message.getId());
   }
 
   @Override
@@ -235,7 +259,6 @@ public class ChatServiceImpl implements ChatService {
         country.getChats().stream().filter(chat -> chat.getName().equals(countryName)).findFirst();
 
     Chat chat = optionalChat.orElseThrow(() -> new MainCountryChatNotFoundException(countryName));
-    chat.getMessages().sort(Comparator.comparing(Message::getCreationDate));
     Long unreadMessagesCount = countUnreadMessages(user.getId(), chat.getId());
 
     return chatMapper.toDto(chat, unreadMessagesCount);
@@ -244,7 +267,7 @@ public class ChatServiceImpl implements ChatService {
   @Override
   public Long countUsersInChat(Long chatId) {
     Chat chat = getChat(chatId);
-    return (long) chat.getUsers().size();
+    return chat.getUsersCount();
   }
 
   @Override
@@ -267,6 +290,68 @@ public class ChatServiceImpl implements ChatService {
         .map(messageMapper::toMessageDto);
   }
 
+  @Override
+  public MessageCursorPage findMessagesByCursor(Long chatId, String before, String after, int limit) {
+    if (before != null && after != null) {
+      throw new InvalidMessageCursorException(before, after);
+    }
+    if (before != null) {
+      MessageCursor cursor = MessageCursor.decode(before);
+      return toCursorPage(messageRepository.findBefore(chatId, cursor.creationDate(), cursor.id(), limit + 1), limit);
+    }
+    if (after != null) {
+      MessageCursor cursor = MessageCursor.decode(after);
+      return toCursorPage(messageRepository.findAfter(chatId, cursor.creationDate(), cursor.id(), limit + 1), limit);
+    }
+    return toCursorPage(messageRepository.findLatest(chatId, limit + 1), limit);
+  }
+
+  /**
+   * finds read messages, newest first. Without a cursor it starts from the last read message
+   * (inclusive), or from the latest message if the user hasn't read anything yet
+   */
+  @Override
+  public MessageCursorPage findReadMessagesByCursor(Long chatId, String before, int limit) {
+    if (before != null) {
+      return findMessagesByCursor(chatId, before, null, limit);
+    }
+    User user = authenticationService.getAuthenticatedUser();
+    UserChat userChat = getUserChat(chatId, user.getId());
+    List<Message> messages = Optional.ofNullable(userChat.getLastReadMessage())
+        .map(lastReadMsg -> messageRepository.findBeforeInclusive(chatId, lastReadMsg.getCreationDate(),
+            lastReadMsg.getId(), limit + 1))
+        .orElseGet(() -> messageRepository.findLatest(chatId, limit + 1));
+    return toCursorPage(messages, limit);
+  }
+
+  /**
+   * finds unread messages, oldest first. Without a cursor it starts right after the last read
+   * message, if the user hasn't read anything yet the result is empty
+   */
+  @Override
+  public MessageCursorPage findUnreadMessagesByCursor(Long chatId, String after, int limit) {
+    if (after != null) {
+      return findMessagesByCursor(chatId, null, after, limit);
+    }
+    User user = authenticationService.getAuthenticatedUser();
+    UserChat userChat = getUserChat(chatId, user.getId());
+    return Optional.ofNullable(userChat.getLastReadMessage())
+        .map(lastReadMsg -> toCursorPage(messageRepository.findAfter(chatId,
+            lastReadMsg.getCreationDate(), lastReadMsg.getId(), limit + 1), limit))
+        .orElseGet(MessageCursorPage::empty);
+  }
+
+  /**
+   * builds a page from messages that were queried with {@code limit + 1}, the extra message only
+   * tells that there is a next page
+   */
+  private MessageCursorPage toCursorPage(List<Message> messages, int limit) {
+    boolean hasNext = messages.size() > limit;
+    List<Message> content = hasNext ? messages.subList(0, limit) : messages;
+    String nextCursor = content.isEmpty() ? null : MessageCursor.of(content.get(content.size() - 1)).encode();
+    return new MessageCursorPage(content.stream().map(messageMapper::toMessageDto).toList(), nextCursor, hasNext);
+  }
+
   private UserChat getUserChat(Long chatId, Long userId) {
     return userChatRepository
         .findByChatIdAndUserId(chatId, userId)
@@ -279,11 +364,9 @@ public class ChatServiceImpl implements ChatService {
         .orElse(DEFAULT_UNREAD_MESSAGES_AMOUNT);
   }
 
+  /** reads the counter maintained on message insert, so no count query is needed */
   private Long countUnreadMessages(UserChat userChat) {
-    Optional<Message> lastReadMessage = Optional.ofNullable(userChat.getLastReadMessage());
-    return lastReadMessage.map((msg) -> messageRepository.countAllByChatIdAndCreationDateAfter(
-            msg.getChat().getId(), msg.getCreationDate()))
-        .orElse(DEFAULT_UNREAD_MESSAGES_AMOUNT);
+    return userChat.getUnreadMessagesCount();
   }
 
   private Message getMessage(Long id) {
@@ -297,27 +380,32 @@ public class ChatServiceImpl implements ChatService {
     }
   }
 
-  private PrivateChatDto buildPrivateChatDto(UserChat authUserChat, User authUser) {
-    Chat chat = authUserChat.getChat();
-    UserChat companionUserChat = getCompanionUserChat(authUser.getId(), chat);
-
-    PrivateChatInfoDto privateChatInfoDto = chatMapper.chatToPrivateChatInfoDto(chat, countUnreadMessages(authUserChat));
-    Message lastMessage = messageRepository.findFirstByChatIdOrderByCreationDateDesc(chat.getId()).orElse(null);
-    return userChatMapper.toPrivateChatDto(privateChatInfoDto, companionUserChat.getUser(), lastMessage);
-  }
-
-  private boolean isPrivateChat(Chat chat) {
-    return chat.getChatType().equals(ChatType.PRIVATE);
+  private PrivateChatDto buildPrivateChatDto(UserChatSummary summary, Map<Long, User> companions,
+      Map<Long, Message> lastMessages) {
+    PrivateChatInfoDto privateChatInfoDto = chatMapper.summaryToPrivateChatInfoDto(summary);
+    User companion = Optional.ofNullable(companions.get(summary.companionId()))
+        .orElseGet(this::getRemovedUser);
+    Message lastMessage = lastMessages.get(summary.lastMessageId());
+    return userChatMapper.toPrivateChatDto(privateChatInfoDto, companion, lastMessage);
   }
 
-  private UserChat getCompanionUserChat(Long authUserId, Chat chat) {
-    return userChatRepository.findAllByChatId(chat.getId()).stream()
-        .filter(userChat1 -> !userChat1.getUser().getId().equals(authUserId))
-        .findFirst()
-        .orElse(UserChat.builder().chat(chat).user(getRemovedUser()).build());
+  /**
+   * Loads the entities referenced by the summaries with one query, skipping it when there is
+   * nothing to load.
+   */
+  private <T> Map<Long, T> loadByIds(List<UserChatSummary> summaries,
+      Function<UserChatSummary, Long> idExtractor, Function<Set<Long>, List<T>> loader,
+      Function<T, Long> idGetter) {
+    Set<Long> ids = summaries.stream()
+        .map(idExtractor)
+        .filter(Objects::nonNull)
+        .collect(Collectors.toSet());
+    if (ids.isEmpty()) {
+      return Map.of();
+    }
+    return loader.apply(ids).stream().collect(Collectors.toMap(idGetter, Function.identity()));
   }
 
-
   private Chat getChat(Long chatId) {
     return chatRepository.findById(chatId).orElseThrow(() -> new ChatNotFoundException(chatId));
   }
@@ -340,6 +428,7 @@ public class ChatServiceImpl implements ChatService {
             .chatType(ChatType.PRIVATE)
             .description(format("Private chat for %s and %s", userName, companionName))
             .name(userName + "-" + companionName)
+            .usersCount(2)
             .build());
   }
 
@@ -360,6 +449,7 @@ public class ChatServiceImpl implements ChatService {
         .name(dto.name())
         .country(country)
         .users(List.of(user))
+        .usersCount(1)
         .build();
   }
 
@@ -4,7 +4,6 @@ import java.security.Principal;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.util.List;
-import java.util.Optional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import online.talkandtravel.exception.chat.ChatNotFoundException;
@@ -16,6 +15,7 @@ import online.talkandtravel.exception.user.UserCountryNotFoundException;
 import online.talkandtravel.model.dto.event.EventRequest;
 import online.talkandtravel.model.dto.event.EventResponse;
 import online.talkandtravel.model.dto.message.MessageDto;
+import online.talkandtravel.model.dto.user.UserNameDto;
 import online.talkandtravel.model.entity.Chat;
 import online.talkandtravel.model.entity.ChatType;
 import online.talkandtravel.model.entity.Message;
@@ -28,7 +28,9 @@ import online.talkandtravel.repository.MessageRepository;
 import online.talkandtravel.repository.UserChatRepository;
 import online.talkandtravel.repository.UserCountryRepository;
 import online.talkandtravel.security.CustomUserDetails;
+import online.talkandtravel.service.ChatMembershipService;
 import online.talkandtravel.service.EventService;
+import online.talkandtravel.service.TypingService;
 import online.talkandtravel.util.mapper.MessageMapper;
 import online.talkandtravel.util.mapper.UserMapper;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -41,8 +43,11 @@ import org.springframework.transaction.annotation.Transactional;
  * <p>This service provides methods for handling various events in a chat, including:
  *
  * <ul>
- *   <li>{@link #startTyping(EventRequest, Principal)} - Logs an event when a user starts typing in a chat.
- *   <li>{@link #stopTyping(EventRequest, Principal)} - Logs an event when a user stops typing in a chat.
+ *   <li>{@link #startTyping(EventRequest, Principal)} - Creates an event when a user starts typing in a
+ *       chat. Repeated events are coalesced by {@link TypingService}, the database is not accessed
+ *       when the membership is cached.
+ *   <li>{@link #stopTyping(EventRequest, Principal)} - Creates an event when a user stops typing in a
+ *       chat, if the user was typing.
  *   <li>{@link #leaveChat(EventRequest, Principal)} - Manages the user's departure from a chat and records the
  *       event.
  *   <li>{@link #joinChat(EventRequest, Principal)} - Handles the user's entry into a chat and records the
@@ -72,6 +77,8 @@ public class EventServiceImpl implements EventService {
   public static final int MAX_USERS_IN_PRIVATE_CHAT = 2;
   private final ChatRepository chatRepository;
   private final UserChatRepository userChatRepository;
+  private final ChatMembershipService chatMembershipService;
+  private final TypingService typingService;
   private final UserCountryRepository userCountryRepository;
   private final MessageRepository messageRepository;
   private final MessageMapper messageMapper;
@@ -80,15 +87,22 @@ public class EventServiceImpl implements EventService {
   @Override
   public EventResponse startTyping(EventRequest request, Principal principal) {
     User user = getUser(principal);
-    throwIfChatNotExists(request, user.getId());
-    return createChatTransientEvent(user, MessageType.START_TYPING);
+    validateUserChatMembership(request, user.getId());
+    UserNameDto userNameDto = userMapper.toUserNameDto(user);
+    if (!typingService.startTyping(request.chatId(), userNameDto)) {
+      return null;
+    }
+    return createChatTransientEvent(userNameDto, MessageType.START_TYPING);
   }
 
   @Override
   public EventResponse stopTyping(EventRequest request, Principal principal) {
     User user = getUser(principal);
-    throwIfChatNotExists(request, user.getId());
-    return createChatTransientEvent(user, MessageType.STOP_TYPING);
+    validateUserChatMembership(request, user.getId());
+    if (!typingService.stopTyping(request.chatId(), user.getId())) {
+      return null;
+    }
+    return createChatTransientEvent(userMapper.toUserNameDto(user), MessageType.STOP_TYPING);
   }
 
   @Override
@@ -100,10 +114,12 @@ public class EventServiceImpl implements EventService {
 
     if (chat.getChatType().equals(ChatType.PRIVATE)) {
       deleteChat(chat);
+      chatMembershipService.evictChat(chat.getId());
       return null;
     }
 
     removeConnections(request, chat, user);
+    chatMembershipService.evict(chat.getId(), user.getId());
 
     if (isPrivateChatEmpty(chat)) {
       return null;
@@ -120,7 +136,14 @@ public class EventServiceImpl implements EventService {
         .sender(user)
         .type(MessageType.LEAVE)
         .build();
-    return messageRepository.save(message);
+    return saveEventMessage(message);
+  }
+
+  private Message saveEventMessage(Message message) {
+    Message saved = messageRepository.save(message);
+    chatRepository.incrementMessagesCount(message.getChat().getId(), 1, saved.getId());
+    userChatRepository.incrementUnreadMessagesCount(message.getChat().getId(), 1);
+    return saved;
   }
 
   @Transactional
@@ -142,6 +165,7 @@ public class EventServiceImpl implements EventService {
     checkUserAlreadyJoinedChat(request, author.getId());
 
     saveConnections(chat, author);
+    chatMembershipService.evict(chat.getId(), author.getId());
 
     Message message =
         Message.builder()
@@ -150,7 +174,7 @@ public class EventServiceImpl implements EventService {
             .sender(author)
             .type(MessageType.JOIN)
             .build();
-    message = messageRepository.save(message);
+    message = saveEventMessage(message);
     return messageMapper.toMessageDto(message);
   }
 
@@ -165,9 +189,7 @@ public class EventServiceImpl implements EventService {
   }
 
   private void validateUserChatMembership(EventRequest request, Long authorId) {
-    Optional<UserChat> optionalUserChat =
-        userChatRepository.findByChatIdAndUserId(request.chatId(), authorId);
-    if (optionalUserChat.isEmpty()) {
+    if (!chatMembershipService.isMember(request.chatId(), authorId)) {
       throw new UserNotJoinedTheChatException(authorId, request.chatId());
     }
   }
@@ -175,7 +197,10 @@ public class EventServiceImpl implements EventService {
   private void removeUserFromChat(Long chatId, Long authorId) {
     userChatRepository
         .findByChatIdAndUserId(chatId, authorId)
-        .ifPresent(userChatRepository::delete);
+        .ifPresent(userChat -> {
+          userChatRepository.delete(userChat);
+          chatRepository.changeUsersCount(chatId, -1);
+        });
   }
 
   private void handleUserCountryAssociation(Chat chat, User author) {
@@ -206,7 +231,7 @@ public class EventServiceImpl implements EventService {
 
   private void checkChatIsNotPrivate(EventRequest request, Chat chat, Long authorId) {
     if (chat.getChatType().equals(ChatType.PRIVATE)
-        && chat.getUsers().size() >= MAX_USERS_IN_PRIVATE_CHAT) {
+        && chat.getUsersCount() >= MAX_USERS_IN_PRIVATE_CHAT) {
       throw new PrivateChatMustContainTwoUsersException(request, authorId);
     }
   }
@@ -217,6 +242,7 @@ public class EventServiceImpl implements EventService {
       userCountry = findOrCreateUserCountry(chat, author);
     }
     saveUserChat(chat, author, userCountry);
+    chatRepository.changeUsersCount(chat.getId(), 1);
   }
 
   /**
@@ -250,9 +276,7 @@ public class EventServiceImpl implements EventService {
   }
 
   private void checkUserAlreadyJoinedChat(EventRequest request, Long authorId) {
-    Optional<UserChat> userChats =
-        userChatRepository.findByChatIdAndUserId(request.chatId(), authorId);
-    if (userChats.isPresent()) {
+    if (chatMembershipService.isMember(request.chatId(), authorId)) {
       throw new UserAlreadyJoinTheChatException(authorId, request.chatId());
     }
   }
@@ -264,24 +288,17 @@ public class EventServiceImpl implements EventService {
             () -> new WebSocketException(new ChatNotFoundException(request.chatId()), authorId));
   }
 
-  private void throwIfChatNotExists(EventRequest request, Long authorId) {
-    if (!chatRepository.existsById(request.chatId())) {
-      throw new WebSocketException(new ChatNotFoundException(request.chatId()), authorId);
-    }
-  }
-
   /**
    * creates event that it isn't persisted to a database That is temporary and not intended for
    * persistent storage.
    *
-   * @param user User
+   * @param user author of the event
    * @param messageType type of transient event
    * @return processed event dto
    */
-  private EventResponse createChatTransientEvent(User user, MessageType messageType) {
-    EventResponse response = new EventResponse(userMapper.toUserNameDto(user), messageType, ZonedDateTime.now(
-        ZoneOffset.UTC));
-    log.info("TransientEvent, type: {}, time: {}", messageType, response.creationDate());
+  private EventResponse createChatTransientEvent(UserNameDto user, MessageType messageType) {
+    EventResponse response = new EventResponse(user, messageType, ZonedDateTime.now(ZoneOffset.UTC));
+    log.debug("TransientEvent, type: {}, time: {}", messageType, response.creationDate());
     return response;
   }
 }
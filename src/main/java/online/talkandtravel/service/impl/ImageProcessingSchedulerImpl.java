@@ -0,0 +1,277 @@
+package online.talkandtravel.service.impl;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.log4j.Log4j2;
+import online.talkandtravel.exception.file.ImageProcessingOverloadedException;
+import online.talkandtravel.exception.file.TooManyImageUploadsException;
+import online.talkandtravel.service.ImageProcessingScheduler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Implementation of the {@link ImageProcessingScheduler}.
+ *
+ * <p>Tasks are kept in a queue per user, and users with pending tasks wait in a round-robin line.
+ * A worker takes the first user of the line, runs one of their tasks and puts the user back at the
+ * end if they still have something queued, so every user gets a fair share of the workers.
+ *
+ * <ul>
+ *   <li>{@code imageProcessing.workers} - Number of worker threads, {@code 0} means one per
+ *       available core.
+ *   <li>{@code imageProcessing.queueCapacity} - Max number of tasks waiting in total, above it
+ *       tasks are rejected with {@link ImageProcessingOverloadedException} (503).
+ *   <li>{@code imageProcessing.perUserQueueCapacity} - Max number of tasks waiting per user, above
+ *       it tasks are rejected with {@link TooManyImageUploadsException} (429).
+ *   <li>{@code imageProcessing.statsIntervalInMs} - How often queue depth, wait and processing
+ *       latencies are logged.
+ * </ul>
+ */
+@Service
+@Log4j2
+public class ImageProcessingSchedulerImpl implements ImageProcessingScheduler {
+
+  @Value("${imageProcessing.workers}")
+  private int WORKERS;
+
+  @Value("${imageProcessing.queueCapacity}")
+  private int QUEUE_CAPACITY;
+
+  @Value("${imageProcessing.perUserQueueCapacity}")
+  private int PER_USER_QUEUE_CAPACITY;
+
+  @Value("${imageProcessing.statsIntervalInMs}")
+  private long STATS_INTERVAL_IN_MS;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition taskAvailable = lock.newCondition();
+
+  /** Waiting tasks per user, guarded by {@link #lock} */
+  private final Map<Long, Deque<ImageTask<?>>> pendingTasks = new HashMap<>();
+
+  /** Users with waiting tasks in the order they will be served, guarded by {@link #lock} */
+  private final Deque<Long> readyUsers = new ArrayDeque<>();
+
+  /** Number of waiting tasks of all users, guarded by {@link #lock} */
+  private int queuedTasks;
+
+  private final AtomicInteger activeTasks = new AtomicInteger();
+  private final LatencyStats waitLatency = new LatencyStats();
+  private final LatencyStats processingLatency = new LatencyStats();
+
+  private ExecutorService workers;
+  private ScheduledExecutorService statsReporter;
+
+  @PostConstruct
+  public void start() {
+    int workerCount = WORKERS > 0 ? WORKERS : Runtime.getRuntime().availableProcessors();
+    AtomicInteger workerNumber = new AtomicInteger();
+    workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+      Thread thread = new Thread(runnable, "image-processing-" + workerNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    for (int i = 0; i < workerCount; i++) {
+      workers.execute(this::runWorkerLoop);
+    }
+
+    statsReporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "image-processing-stats");
+      thread.setDaemon(true);
+      return thread;
+    });
+    statsReporter.scheduleWithFixedDelay(this::reportStats, STATS_INTERVAL_IN_MS,
+        STATS_INTERVAL_IN_MS, TimeUnit.MILLISECONDS);
+    log.info("Image processing scheduler started with {} workers", workerCount);
+  }
+
+  @PreDestroy
+  public void stop() {
+    workers.shutdownNow();
+    statsReporter.shutdownNow();
+    lock.lock();
+    try {
+      log.info("Stop image processing scheduler, cancel {} queued tasks", queuedTasks);
+      pendingTasks.values().forEach(tasks -> tasks.forEach(task -> task.future.cancel(false)));
+      pendingTasks.clear();
+      readyUsers.clear();
+      queuedTasks = 0;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public <T> CompletableFuture<T> submit(Long userId, Callable<T> task) {
+    ImageTask<T> imageTask = new ImageTask<>(task, System.nanoTime());
+    lock.lock();
+    try {
+      if (queuedTasks >= QUEUE_CAPACITY) {
+        throw new ImageProcessingOverloadedException(queuedTasks);
+      }
+      Deque<ImageTask<?>> userTasks = pendingTasks.get(userId);
+      if (userTasks == null) {
+        userTasks = new ArrayDeque<>();
+        pendingTasks.put(userId, userTasks);
+        readyUsers.addLast(userId);
+      } else if (userTasks.size() >= PER_USER_QUEUE_CAPACITY) {
+        throw new TooManyImageUploadsException(userId);
+      }
+      userTasks.addLast(imageTask);
+      queuedTasks++;
+      taskAvailable.signal();
+    } finally {
+      lock.unlock();
+    }
+    return imageTask.future;
+  }
+
+  @Override
+  public <T> T submitAndWait(Long userId, Callable<T> task) {
+    try {
+      return submit(userId, task).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw e;
+    }
+  }
+
+  public void reportStats() {
+    LatencySnapshot waited = waitLatency.snapshotAndReset();
+    LatencySnapshot processed = processingLatency.snapshotAndReset();
+    int queued = getQueuedTasks();
+    if (processed.count() == 0 && queued == 0) {
+      return;
+    }
+    log.info("Image processing: queued {}, active {}, completed {}, wait avg {} ms max {} ms, "
+            + "processing avg {} ms max {} ms", queued, activeTasks.get(), processed.count(),
+        waited.averageInMs(), waited.maxInMs(), processed.averageInMs(), processed.maxInMs());
+  }
+
+  public int getQueuedTasks() {
+    lock.lock();
+    try {
+      return queuedTasks;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int getActiveTasks() {
+    return activeTasks.get();
+  }
+
+  private void runWorkerLoop() {
+    while (!Thread.currentThread().isInterrupted()) {
+      ImageTask<?> task;
+      try {
+        task = take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      run(task);
+    }
+  }
+
+  private ImageTask<?> take() throws InterruptedException {
+    lock.lockInterruptibly();
+    try {
+      while (readyUsers.isEmpty()) {
+        taskAvailable.await();
+      }
+      Long userId = readyUsers.pollFirst();
+      Deque<ImageTask<?>> userTasks = pendingTasks.get(userId);
+      ImageTask<?> task = userTasks.pollFirst();
+      if (userTasks.isEmpty()) {
+        pendingTasks.remove(userId);
+      } else {
+        readyUsers.addLast(userId);
+      }
+      queuedTasks--;
+      return task;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void run(ImageTask<?> task) {
+    long startedAt = System.nanoTime();
+    waitLatency.record(startedAt - task.queuedAt);
+    activeTasks.incrementAndGet();
+    try {
+      task.run();
+    } finally {
+      activeTasks.decrementAndGet();
+      processingLatency.record(System.nanoTime() - startedAt);
+    }
+  }
+
+  private static class ImageTask<T> {
+
+    private final Callable<T> callable;
+    private final long queuedAt;
+    private final CompletableFuture<T> future = new CompletableFuture<>();
+
+    private ImageTask(Callable<T> callable, long queuedAt) {
+      this.callable = callable;
+      this.queuedAt = queuedAt;
+    }
+
+    private void run() {
+      try {
+        future.complete(callable.call());
+      } catch (Throwable e) {
+        future.completeExceptionally(e);
+      }
+    }
+  }
+
+  /** Count, sum and max of latencies recorded since the last snapshot */
+  private static class LatencyStats {
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalInNanos = new LongAdder();
+    private final AtomicLong maxInNanos = new AtomicLong();
+
+    private void record(long latencyInNanos) {
+      count.increment();
+      totalInNanos.add(latencyInNanos);
+      maxInNanos.accumulateAndGet(latencyInNanos, Math::max);
+    }
+
+    private LatencySnapshot snapshotAndReset() {
+      return new LatencySnapshot(count.sumThenReset(), totalInNanos.sumThenReset(),
+          maxInNanos.getAndSet(0));
+    }
+  }
+
+  private record LatencySnapshot(long count, long totalInNanos, long maxInNanos) {
+
+    private long averageInMs() {
+      return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalInNanos / count);
+    }
+
+    private long maxInMs() {
+      return TimeUnit.NANOSECONDS.toMillis(maxInNanos);
+    }
+  }
+}
@@ -6,34 +6,46 @@ import static online.talkandtravel.util.constants.FileFormat.WEBP;
 import static online.talkandtravel.util.constants.FileFormatConstants.ANIMATED_WEBP_IMAGE_MARKER;
 
 import com.luciad.imageio.webp.WebPWriteParam;
-import com.madgag.gif.fmsware.AnimatedGifEncoder;
-import com.madgag.gif.fmsware.GifDecoder;
-import java.awt.Graphics2D;
-import java.awt.Image;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
 import javax.imageio.ImageWriteParam;
 import javax.imageio.ImageWriter;
+import javax.imageio.stream.FileCacheImageInputStream;
+import javax.imageio.stream.FileImageInputStream;
+import javax.imageio.stream.ImageInputStream;
 import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
 import lombok.Getter;
 import lombok.extern.log4j.Log4j2;
+import online.talkandtravel.exception.file.ImageDimensionsExceededException;
 import online.talkandtravel.exception.file.ImageProcessingException;
 import online.talkandtravel.exception.file.ImageWriteException;
 import online.talkandtravel.service.ImageService;
 import online.talkandtravel.util.FilesUtils;
+import online.talkandtravel.util.GifTranscoder;
+import online.talkandtravel.util.ImageHeader;
+import online.talkandtravel.util.ImageProbe;
+import online.talkandtravel.util.ImageResizeUtils;
 import online.talkandtravel.util.constants.FileFormat;
-import org.imgscalr.Scalr;
-import org.imgscalr.Scalr.Method;
+import online.talkandtravel.util.constants.ResizeMode;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
 
 
 /**
@@ -45,17 +57,20 @@ import org.springframework.stereotype.Service;
  *
  * <p>The service includes the following functionalities:</p>
  * <ul>
- *   <li>Resizing GIF images while preserving animation frames.</li>
+ *   <li>Resizing GIF images frame by frame while preserving the animation.</li>
  *   <li>Handling SVG images by returning them as-is without conversion.</li>
  *   <li>Resizing PNG, JPEG, and WebP images to fit within a specified size while maintaining aspect ratio.</li>
+ *   <li>Producing several thumbnail sizes from a single decode of the image.</li>
  *   <li>Converting images to WebP format for reduced file size and faster loading times.</li>
  *   <li>Detecting and processing animated WebP images.</li>
+ *   <li>Rejecting images whose header declares more pixels than allowed before decoding them.</li>
  * </ul>
  *
  * <p>Exception Handling:</p>
  * <ul>
  *   <li>{@link ImageProcessingException} - Thrown if there is an error in processing the image (e.g., unsupported format).</li>
  *   <li>{@link ImageWriteException} - Thrown if there is an error writing the image to the desired format.</li>
+ *   <li>{@link ImageDimensionsExceededException} - Thrown if the image header declares more pixels than allowed.</li>
  * </ul>
  *
  * @see ImageService
@@ -66,7 +81,17 @@ import org.springframework.stereotype.Service;
 @Log4j2
 public class ImageServiceImpl implements ImageService {
 
-  private static final int BIG_IMAGE_WIDTH = 250;
+  @Value("${imageProcessing.resizeMode}")
+  private ResizeMode RESIZE_MODE;
+
+  @Value("${imageProcessing.gifMaxFrames}")
+  private int GIF_MAX_FRAMES;
+
+  @Value("${imageProcessing.maxPixels}")
+  private long MAX_PIXELS;
+
+  @Value("${imageProcessing.maxAnimationPixels}")
+  private long MAX_ANIMATION_PIXELS;
 
 
   /**
@@ -108,6 +133,66 @@ public class ImageServiceImpl implements ImageService {
     }
   }
 
+  /**
+   * Generates thumbnails of several widths from a single decode of an image spooled to disk.
+   *
+   * <p>Unlike {@link #generateThumbnail(byte[], String, int)} the original is never loaded into
+   * memory as a whole: the animation marker is sniffed from the file header and the image is decoded
+   * straight from the file, so only the decoded pixels and the thumbnails live on the heap. The
+   * thumbnails are produced from the largest width to the smallest, each one downscaled from the
+   * previous thumbnail rather than from the original, so every extra width costs one resize of an
+   * already small image instead of a full decode.</p>
+   *
+   * @param image The file holding the original image.
+   * @param widths The target widths of the thumbnails.
+   * @return Thumbnails keyed by their width.
+   * @throws ImageProcessingException If the image cannot be processed (e.g., unsupported format or error during processing).
+   */
+  @Override
+  public Map<Integer, byte[]> generateThumbnails(Path image, String contentType,
+      List<Integer> widths) {
+    log.info("Generate thumbnails from file with widths: {}", widths);
+    List<Integer> descendingWidths = widths.stream()
+        .distinct()
+        .sorted(Comparator.reverseOrder())
+        .toList();
+    try {
+      FileFormat fileFormat = FileFormat.fromMimeType(Objects.requireNonNull(contentType));
+      log.info("Uploaded file format: {}", fileFormat);
+
+      if (fileFormat.equals(GIF)) {
+        checkPixelBudget(ImageProbe.probe(image));
+        return transcodeGif(new FileImageInputStream(image.toFile()), descendingWidths);
+
+      } else if (fileFormat.equals(SVG)) {
+        log.info("Image is svg, just return bytes");
+        byte[] svg = Files.readAllBytes(image);
+        Map<Integer, byte[]> thumbnails = new LinkedHashMap<>();
+        descendingWidths.forEach(width -> thumbnails.put(width, svg));
+        return thumbnails;
+
+      } else if (fileFormat.equals(WEBP) && FilesUtils.isAnimatedWebPImage(FilesUtils.readHeader(image))) {
+        log.error("File is animated webp. This format is not supported");
+        throw new ImageProcessingException("Animated webp is not supported.");
+
+      } else {
+        log.info("Image type is PNG, JPEG, or WEBP");
+        checkPixelBudget(ImageProbe.probe(image));
+        Map<Integer, byte[]> thumbnails = new LinkedHashMap<>();
+        BufferedImage source = ImageIO.read(image.toFile());
+        for (int width : descendingWidths) {
+          source = resizeImage(source, width);
+          thumbnails.put(width, encodeThumbnail(fileFormat, source));
+        }
+        return thumbnails;
+      }
+
+    } catch (Exception e) {
+      log.error("Can't generate thumbnails: {}", e.getMessage(), e);
+      throw new ImageProcessingException(e.getMessage(), "Your file is invalid");
+    }
+  }
+
   /**
    * Handles standard image files (e.g., PNG, JPEG, WEBP) by resizing and converting them to WebP format.
    *
@@ -119,8 +204,10 @@ public class ImageServiceImpl implements ImageService {
   public byte[] handleStandardImageFile(FileFormat fileFormat, byte[] imageBytes, int width)
       throws IOException {
     log.info("Image type is PNG, JPEG, or WEBP");
+    return encodeThumbnail(fileFormat, resizeImage(imageBytes, width));
+  }
 
-    BufferedImage image = resizeImage(imageBytes, width);
+  private byte[] encodeThumbnail(FileFormat fileFormat, BufferedImage image) throws IOException {
     if (fileFormat.equals(WEBP)) {
       log.info("Image format is webp. No converting needed, just return.");
       return imageTyBytes(image);
@@ -137,131 +224,104 @@ public class ImageServiceImpl implements ImageService {
   /**
    * Resizes a GIF image while preserving its animation frames.
    *
-   * <p>This method extracts the frames of the GIF, resizes each frame to fit the target size, and
-   * returns the resized GIF as a byte array. It also adjusts the delay for each frame to ensure
-   * proper playback speed.</p>
+   * <p>Frames are decoded, resized and encoded one at a time by the {@link GifTranscoder}, GIFs with
+   * more than {@code imageProcessing.gifMaxFrames} frames are thinned out evenly.</p>
    *
    * @param bytes The byte array representing the original GIF image.
    * @param targetSize The target size for resizing the GIF.
    * @return A byte array representing the resized GIF image.
    */
   public byte[] resizeGif(byte[] bytes, int targetSize) {
-    log.info("Resize GIF.");
+    try {
+      checkPixelBudget(ImageProbe.probe(bytes));
+      return transcodeGif(new MemoryCacheImageInputStream(new ByteArrayInputStream(bytes)),
+          List.of(targetSize)).get(targetSize);
+    } catch (IOException e) {
+      throw new ImageProcessingException(e.getMessage());
+    }
+  }
 
-    GifDecoder decoder = new GifDecoder();
-    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-    decoder.read(new ByteArrayInputStream(bytes));
+  private Map<Integer, byte[]> transcodeGif(ImageInputStream input, List<Integer> widths)
+      throws IOException {
+    log.info("Resize GIF to sizes: {}", widths);
+    Map<Integer, ByteArrayOutputStream> outputs = new LinkedHashMap<>();
+    widths.forEach(width -> outputs.put(width, new ByteArrayOutputStream()));
 
-    Method quality = determineNewImageQuality(decoder.getImage());
-    List<Integer> framesDelays = extractFramesDelays(decoder);
-    List<BufferedImage> resizedFrames = extractAndResizeFrames(decoder, targetSize, quality);
+    try (input) {
+      GifTranscoder.transcode(input, outputs, RESIZE_MODE, GIF_MAX_FRAMES);
+    }
 
-    encodeFrames(byteArrayOutputStream, resizedFrames, framesDelays);
-    return byteArrayOutputStream.toByteArray();
+    Map<Integer, byte[]> thumbnails = new LinkedHashMap<>();
+    outputs.forEach((width, output) -> thumbnails.put(width, output.toByteArray()));
+    return thumbnails;
   }
 
   /**
-   * Determines the quality for resizing the GIF based on its dimensions.
+   * Resizes a standard image (PNG, JPEG, or WebP) to fit within the target size.
    *
-   * @param image The GIF image.
-   * @return The resizing method (either {@link Method#SPEED} or {@link Method#ULTRA_QUALITY}).
+   * @param targetSize The target size for the resized image.
+   * @return A resized image as a {@link BufferedImage}.
+   * @throws IOException If there is an error reading or writing the image data.
    */
-  private Method determineNewImageQuality(BufferedImage image) {
-      if (image.getWidth() > BIG_IMAGE_WIDTH || image.getHeight() > BIG_IMAGE_WIDTH) {
-        return Method.SPEED;
-      }
-      return Method.ULTRA_QUALITY;
+  public BufferedImage resizeImage(byte[] image, int targetSize) throws IOException {
+    checkPixelBudget(ImageProbe.probe(image));
+    return resizeImage(ImageIO.read(new ByteArrayInputStream(image)), targetSize);
   }
 
-
   /**
-   * Extracts the frame delays from the decoded GIF image.
+   * Reads the format, dimensions and frame count from the header of the upload and rejects it when
+   * it exceeds {@code imageProcessing.maxPixels} or {@code imageProcessing.maxAnimationPixels}.
+   * Nothing is decoded, only the header and, for GIFs, the frame headers are read. Counting GIF
+   * frames reads through the whole upload, so what has been read is cached in a temp file rather
+   * than on the heap.
    *
-   * @param decoder The GIF decoder.
-   * @return A list of frame delays in milliseconds.
+   * @return The header, empty for SVG images which are not rasterized.
+   * @throws ImageProcessingException If the header can't be read.
+   * @throws ImageDimensionsExceededException If the image exceeds a pixel budget.
    */
-  private List<Integer> extractFramesDelays(GifDecoder decoder) {
-    List<Integer> framesDelays = new ArrayList<>();
-    for (int i = 0; i < decoder.getFrameCount(); i++) {
-      int delay = decoder.getDelay(i);
-      framesDelays.add(delay * 2);
+  @Override
+  public Optional<ImageHeader> probeImage(MultipartFile file) {
+    String contentType = file.getContentType();
+    if (contentType != null && contentType.toLowerCase().contains(SVG.getExtension())) {
+      return Optional.empty();
     }
-    return framesDelays;
-  }
-
-  /**
-   * Extracts and resizes each frame of the GIF image.
-   *
-   * @param decoder The GIF decoder.
-   * @param targetSize The target size for the resized frames.
-   * @param quality The desired quality for resizing the frames.
-   * @return A list of resized frames as {@link BufferedImage} objects.
-   */
-  private List<BufferedImage> extractAndResizeFrames(GifDecoder decoder, int targetSize, Method quality) {
-    List<BufferedImage> resizedFrames = new java.util.ArrayList<>();
-    for (int i = 0; i < decoder.getFrameCount(); i++) {
-      BufferedImage frame = decoder.getFrame(i);
-      ImageDimensions imageDimensions = new ImageDimensions(frame, targetSize);
-      int newWidth = imageDimensions.getNewWidth();
-      int newHeight = imageDimensions.getNewHeight();
-      int offsetX = Math.max(0, (newWidth - targetSize) / 2);
-      int offsetY = Math.max(0, (newHeight - targetSize) / 2);
-      BufferedImage resizedFrame = Scalr.resize(frame, quality, newWidth, newHeight);
-
-      int validWidth = Math.min(targetSize, newWidth - offsetX);
-      int validHeight = Math.min(targetSize, newHeight - offsetY);
-
-      if (validWidth > 0 && validHeight > 0 && offsetX + validWidth <= resizedFrame.getWidth() && offsetY + validHeight <= resizedFrame.getHeight()) {
-        resizedFrames.add(resizedFrame.getSubimage(offsetX, offsetY, validWidth, validHeight));
-      } else {
-        resizedFrames.add(resizedFrame);
-      }
+    try (InputStream inputStream = file.getInputStream();
+        ImageInputStream input = new FileCacheImageInputStream(inputStream, null)) {
+      ImageHeader header = ImageProbe.probe(input);
+      log.info("Probed image: {}", header);
+      checkPixelBudget(header);
+      return Optional.of(header);
+    } catch (IOException e) {
+      log.error("Can't read header of {}: {}", file.getOriginalFilename(), e.getMessage());
+      throw new ImageProcessingException(e.getMessage(), "Your file is invalid");
     }
-    return resizedFrames;
   }
 
-  /**
-   * Encodes the resized GIF frames into a single GIF image and writes it to the output stream.
-   *
-   * @param byteArrayOutputStream The output stream to write the encoded GIF data.
-   * @param frames The resized frames to be included in the GIF.
-   * @param framesDelays The list of delays for each frame in the GIF.
-   */
-  private void encodeFrames(ByteArrayOutputStream byteArrayOutputStream, List<BufferedImage> frames, List<Integer> framesDelays) {
-    AnimatedGifEncoder encoder = new AnimatedGifEncoder();
-    encoder.start(byteArrayOutputStream);
-    encoder.setRepeat(0);
-
-    for (int i = 0; i < frames.size(); i++) {
-      int delay = framesDelays.get(i);
-      BufferedImage resizedFrame = frames.get(i);
-      encoder.addFrame(resizedFrame);
-      encoder.setDelay(delay);
+  private void checkPixelBudget(ImageHeader header) {
+    if (header.pixels() > MAX_PIXELS || header.animationPixels() > MAX_ANIMATION_PIXELS) {
+      log.error("Image of {}x{} pixels with {} frames exceeds the pixel budget", header.width(),
+          header.height(), header.frameCount());
+      throw new ImageDimensionsExceededException(header.width(), header.height(),
+          header.frameCount());
     }
-    encoder.finish();
   }
 
   /**
-   * Resizes a standard image (PNG, JPEG, or WebP) to fit within the target size.
+   * Resizes a decoded image to a square of the target size, cropping whatever overflows it, with
+   * the configured {@link ResizeMode}.
    *
+   * @param originalImage The decoded image.
    * @param targetSize The target size for the resized image.
    * @return A resized image as a {@link BufferedImage}.
-   * @throws IOException If there is an error reading or writing the image data.
    */
-  public BufferedImage resizeImage(byte[] image, int targetSize) throws IOException {
-    ByteArrayInputStream inputStream = new ByteArrayInputStream(image);
-    BufferedImage originalImage = ImageIO.read(inputStream);
+  public BufferedImage resizeImage(BufferedImage originalImage, int targetSize) {
     ImageDimensions imageDimensions = new ImageDimensions(originalImage, targetSize);
     int newWidth = imageDimensions.getNewWidth();
     int newHeight = imageDimensions.getNewHeight();
-    Image scaledImage = originalImage.getScaledInstance(newWidth, newHeight, Image.SCALE_SMOOTH);
 
     BufferedImage resizedImage = new BufferedImage(targetSize, targetSize, BufferedImage.TYPE_INT_ARGB);
-
-    Graphics2D g2d = resizedImage.createGraphics();
-    g2d.drawImage(scaledImage, (targetSize - newWidth) / 2, (targetSize - newHeight) / 2, null);
-    g2d.dispose();
-
+    ImageResizeUtils.resizeInto(originalImage, resizedImage, (targetSize - newWidth) / 2,
+        (targetSize - newHeight) / 2, newWidth, newHeight, RESIZE_MODE);
     return resizedImage;
   }
 
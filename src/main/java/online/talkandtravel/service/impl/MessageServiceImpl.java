@@ -19,10 +19,12 @@ import online.talkandtravel.repository.ChatRepository;
 import online.talkandtravel.repository.MessageRepository;
 import online.talkandtravel.repository.UserChatRepository;
 import online.talkandtravel.security.CustomUserDetails;
+import online.talkandtravel.service.ChatMembershipService;
 import online.talkandtravel.service.MessageService;
 import online.talkandtravel.util.mapper.MessageMapper;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -35,8 +37,13 @@ import org.springframework.transaction.annotation.Transactional;
  *
  * <ul>
  *   <li>{@link #saveMessage(SendMessageRequest, Principal)} - Saves a new message to a specified chat. It
- *       handles adding the message to the chat, associating it with a user, and linking it to a
+ *       inserts the message row directly, associating it with a user, and linking it to a
  *       replied message if provided.
+ *   <li>{@link #createTextMessage(SendMessageRequest, Principal)} - Checks that the sender is a
+ *       member of the chat and builds an unsaved text message, so it can be written later as part
+ *       of a batch. It runs without a transaction: membership comes from the {@link
+ *       ChatMembershipService} cache, and the chat and the replied message are id-only stubs. The
+ *       replied message is loaded and validated when the batch is written.
  * </ul>
  */
 @Slf4j
@@ -48,6 +55,7 @@ public class MessageServiceImpl implements MessageService {
   private final MessageRepository messageRepository;
   private final ChatRepository chatRepository;
   private final UserChatRepository userChatRepository;
+  private final ChatMembershipService chatMembershipService;
   private final MessageMapper messageMapper;
 
   @Override
@@ -57,20 +65,30 @@ public class MessageServiceImpl implements MessageService {
     checkUserJoinedTheChat(request.chatId(), sender.getId());
     Chat chat = getChat(request.chatId(), sender.getId());
     Message repliedMessage = getRepliedMessage(request.repliedMessageId(), sender.getId(), chat.getId());
+    return messageMapper.toMessageDto(insertMessage(buildTextMessage(request, sender, chat, repliedMessage)));
+  }
 
-    Message message =
-        Message.builder()
-            .type(MessageType.TEXT)
-            .content(request.content())
-            .repliedMessage(repliedMessage)
-            .sender(sender)
-            .build();
-    chat.getMessages().add(message);
-    chat = chatRepository.save(chat);
-    // Retrieve the last added message from the saved chat
-    message = chat.getMessages().get(chat.getMessages().size() - 1);
-    message.setChat(chat);
-    return messageMapper.toMessageDto(message);
+  @Override
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  public Message createTextMessage(SendMessageRequest request, Principal principal) {
+    User sender = getUser(principal);
+    checkUserJoinedTheChat(request.chatId(), sender.getId());
+    Chat chat = Chat.builder().id(request.chatId()).build();
+    Message repliedMessage = request.repliedMessageId() == null
+        ? null
+        : Message.builder().id(request.repliedMessageId()).build();
+    return buildTextMessage(request, sender, chat, repliedMessage);
+  }
+
+  private Message buildTextMessage(SendMessageRequest request, User sender, Chat chat,
+      Message repliedMessage) {
+    return Message.builder()
+        .type(MessageType.TEXT)
+        .content(request.content())
+        .repliedMessage(repliedMessage)
+        .sender(sender)
+        .chat(chat)
+        .build();
   }
 
   @Override
@@ -87,15 +105,28 @@ public class MessageServiceImpl implements MessageService {
             .content(request.content())
             .repliedMessage(repliedMessage)
             .sender(sender)
+            .chat(chat)
             .attachment(image)
             .build();
-    chat.getMessages().add(message);
-    chat = chatRepository.save(chat);
-    // Retrieve the last added message from the saved chat
-    message = chat.getMessages().get(chat.getMessages().size() - 1);
-    message.setChat(chat);
-    return messageMapper.toMessageDto(message);
+    return messageMapper.toMessageDto(insertMessage(message));
+  }
 
+  /**
+   * Appends a single row to the {@code messages} table.
+   *
+   * <p>The message is persisted on its own, so neither {@code Chat.messages} nor {@code Chat.users}
+   * is initialized and the cost of a send does not depend on the chat history size. The identity
+   * column is populated on insert, so the returned message already carries its id and creation
+   * date. Unread message counters of the chat members are incremented in the same transaction.
+   *
+   * @param message new message that references its chat
+   * @return persisted message
+   */
+  private Message insertMessage(Message message) {
+    Message saved = messageRepository.save(message);
+    chatRepository.incrementMessagesCount(message.getChat().getId(), 1, saved.getId());
+    userChatRepository.incrementUnreadMessagesCount(message.getChat().getId(), 1);
+    return saved;
   }
 
   private User getUser(Principal principal) {
@@ -104,8 +135,9 @@ public class MessageServiceImpl implements MessageService {
   }
 
   private void checkUserJoinedTheChat(Long chatId, Long senderId) {
-    userChatRepository.findByChatIdAndUserId(chatId, senderId)
-        .orElseThrow(() -> new UserNotJoinedTheChatException(senderId, chatId));
+    if (!chatMembershipService.isMember(chatId, senderId)) {
+      throw new UserNotJoinedTheChatException(senderId, chatId);
+    }
   }
 
   private Chat getChat(Long chatId,  Long senderId) {
@@ -0,0 +1,292 @@
+package online.talkandtravel.service.impl;
+
+import static online.talkandtravel.util.HttpUtils.createExceptionResponse;
+import static online.talkandtravel.util.constants.ApiPathConstants.MESSAGES_SUBSCRIBE_PATH;
+import static online.talkandtravel.util.constants.ApiPathConstants.USER_WEBSOCKET_ERRORS_PATH;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import online.talkandtravel.exception.message.MessageFromAnotherChatException;
+import online.talkandtravel.exception.message.MessageNotFoundException;
+import online.talkandtravel.exception.message.MessagePipelineOverloadedException;
+import online.talkandtravel.exception.model.ExceptionResponse;
+import online.talkandtravel.exception.model.HttpException;
+import online.talkandtravel.model.dto.message.MessageDto;
+import online.talkandtravel.model.entity.Message;
+import online.talkandtravel.repository.ChatRepository;
+import online.talkandtravel.repository.MessageRepository;
+import online.talkandtravel.repository.UserChatRepository;
+import online.talkandtravel.service.BroadcastService;
+import online.talkandtravel.service.MessageWritePipeline;
+import online.talkandtravel.util.mapper.MessageMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Implementation of the {@link MessageWritePipeline}.
+ *
+ * <p>Submitted messages are put in a bounded queue that is drained by a single flusher thread. The
+ * flusher takes the first waiting message and keeps collecting until the batch holds {@code
+ * messagePipeline.batchSize} messages or {@code messagePipeline.flushIntervalInMs} has passed, then
+ * inserts the batch in one transaction and broadcasts the messages in the order they were
+ * submitted. Since there is only one flusher, creation dates and ids grow in submit order, which
+ * keeps messages of every chat in send order both in the database and for subscribers.
+ *
+ * <p>This ordering assumes a single application instance. Every instance runs its own flusher, and
+ * it assigns creation dates from its own clock. Messages of the same chat saved by different
+ * instances are therefore ordered by {@code (creation_date, id)}, not strictly by send order. The
+ * sequence id breaks ties between equal creation dates. The keyset queries of {@link
+ * MessageRepository} sort by that pair, so pages stay stable either way.
+ *
+ * <p>Submitted messages reference their chat and replied message by id only. Replied messages are
+ * loaded and validated inside the batch transaction, and messages are mapped to DTOs there too, so
+ * nothing lazy is touched after commit. A message that replies to a missing message or to a
+ * message of another chat is skipped, and its sender is notified.
+ *
+ * <p>If a batch fails, its messages are retried one by one, so a single bad message doesn't drop
+ * the others. A sender whose message can't be saved is notified on the errors path.
+ */
+@Service
+@Log4j2
+@RequiredArgsConstructor
+public class MessageWritePipelineImpl implements MessageWritePipeline {
+
+  private static final String FAILED_TO_SAVE_MESSAGE = "Failed to save message";
+  private static final long SHUTDOWN_TIMEOUT_IN_SEC = 10;
+
+  private final MessageRepository messageRepository;
+  private final ChatRepository chatRepository;
+  private final UserChatRepository userChatRepository;
+  private final MessageMapper messageMapper;
+  private final SimpMessagingTemplate messagingTemplate;
+  private final BroadcastService broadcastService;
+  private final TransactionTemplate transactionTemplate;
+
+  @Value("${messagePipeline.batchSize}")
+  private int BATCH_SIZE;
+
+  @Value("${messagePipeline.flushIntervalInMs}")
+  private long FLUSH_INTERVAL_IN_MS;
+
+  @Value("${messagePipeline.queueCapacity}")
+  private int QUEUE_CAPACITY;
+
+  private BlockingQueue<Message> queue;
+  private ExecutorService flusher;
+  private volatile boolean running;
+
+  /** Last assigned creation date, accessed by the flusher thread only */
+  private ZonedDateTime lastCreationDate = ZonedDateTime.now(ZoneOffset.UTC);
+
+  @PostConstruct
+  public void start() {
+    queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    flusher = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "message-write-pipeline"));
+    running = true;
+    flusher.execute(this::runFlushLoop);
+  }
+
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    log.info("Stop message write pipeline, messages in queue: {}", queue.size());
+    running = false;
+    flusher.shutdown();
+    if (!flusher.awaitTermination(SHUTDOWN_TIMEOUT_IN_SEC, TimeUnit.SECONDS)) {
+      log.warn("Message write pipeline did not stop in time, messages left: {}", queue.size());
+      flusher.shutdownNow();
+    }
+  }
+
+  @Override
+  public void submit(Message message) {
+    if (!queue.offer(message)) {
+      throw new MessagePipelineOverloadedException(message.getSender().getId());
+    }
+  }
+
+  private void runFlushLoop() {
+    List<Message> batch = new ArrayList<>(BATCH_SIZE);
+    while (running || !queue.isEmpty()) {
+      try {
+        collectBatch(batch);
+        if (!batch.isEmpty()) {
+          flush(batch);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (Exception e) {
+        log.error("Unexpected error in message write pipeline", e);
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  private void collectBatch(List<Message> batch) throws InterruptedException {
+    Message first = queue.poll(FLUSH_INTERVAL_IN_MS, TimeUnit.MILLISECONDS);
+    if (first == null) {
+      return;
+    }
+    batch.add(first);
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(FLUSH_INTERVAL_IN_MS);
+    while (batch.size() < BATCH_SIZE) {
+      long remaining = deadline - System.nanoTime();
+      Message next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+      if (next == null) {
+        return;
+      }
+      batch.add(next);
+    }
+  }
+
+  private void flush(List<Message> batch) {
+    assignCreationDates(batch);
+    InsertedBatch result;
+    try {
+      result = transactionTemplate.execute(status -> insert(batch));
+    } catch (Exception e) {
+      log.error("Failed to insert batch of {} messages, retry one by one: {}", batch.size(), e.getMessage());
+      batch.forEach(this::flushSingle);
+      return;
+    }
+    log.debug("Inserted batch of {} messages", result.inserted().size());
+    notify(result);
+  }
+
+  private void flushSingle(Message message) {
+    InsertedBatch result;
+    try {
+      result = transactionTemplate.execute(status -> insert(List.of(message)));
+    } catch (Exception e) {
+      log.error("Failed to insert message from user {} to chat {}: {}",
+          message.getSender().getId(), message.getChat().getId(), e.getMessage());
+      notifySender(message.getSender().getId(),
+          createExceptionResponse(FAILED_TO_SAVE_MESSAGE, HttpStatus.INTERNAL_SERVER_ERROR));
+      return;
+    }
+    notify(result);
+  }
+
+  /**
+   * Validates replied messages, inserts the valid messages and updates chat statistics and unread
+   * message counters once per chat of the batch. Chats are updated in id order, so concurrent
+   * batches lock their rows in the same order.
+   *
+   * @return DTOs of the inserted messages in submit order and the rejected messages
+   */
+  private InsertedBatch insert(List<Message> messages) {
+    List<RejectedMessage> rejected = new ArrayList<>();
+    List<Message> accepted = resolveRepliedMessages(messages, rejected);
+    if (accepted.isEmpty()) {
+      return new InsertedBatch(List.of(), rejected);
+    }
+    messageRepository.insertAll(accepted);
+    accepted.stream()
+        .collect(Collectors.groupingBy(message -> message.getChat().getId(), TreeMap::new,
+            Collectors.toList()))
+        .forEach((chatId, chatMessages) -> {
+          Message lastMessage = chatMessages.get(chatMessages.size() - 1);
+          chatRepository.incrementMessagesCount(chatId, chatMessages.size(), lastMessage.getId());
+          userChatRepository.incrementUnreadMessagesCount(chatId, chatMessages.size());
+        });
+    return new InsertedBatch(accepted.stream().map(messageMapper::toMessageDto).toList(), rejected);
+  }
+
+  /**
+   * Loads replied messages of the batch with one query and replaces id references with them.
+   * Messages replying to a missing message or to a message of another chat are added to {@code
+   * rejected}.
+   *
+   * @return messages that can be inserted, in submit order
+   */
+  private List<Message> resolveRepliedMessages(List<Message> messages, List<RejectedMessage> rejected) {
+    List<Long> repliedIds = messages.stream()
+        .map(Message::getRepliedMessage)
+        .filter(Objects::nonNull)
+        .map(Message::getId)
+        .distinct()
+        .toList();
+    if (repliedIds.isEmpty()) {
+      return messages;
+    }
+    Map<Long, Message> repliedMessages = messageRepository.findAllById(repliedIds).stream()
+        .collect(Collectors.toMap(Message::getId, Function.identity()));
+
+    List<Message> accepted = new ArrayList<>(messages.size());
+    for (Message message : messages) {
+      if (message.getRepliedMessage() == null) {
+        accepted.add(message);
+        continue;
+      }
+      Long repliedId = message.getRepliedMessage().getId();
+      Long chatId = message.getChat().getId();
+      Message repliedMessage = repliedMessages.get(repliedId);
+      if (repliedMessage == null) {
+        rejected.add(new RejectedMessage(message, new MessageNotFoundException(repliedId)));
+      } else if (!repliedMessage.getChat().getId().equals(chatId)) {
+        rejected.add(new RejectedMessage(message,
+            new MessageFromAnotherChatException(repliedId, chatId, repliedMessage.getChat().getId())));
+      } else {
+        message.setRepliedMessage(repliedMessage);
+        accepted.add(message);
+      }
+    }
+    return accepted;
+  }
+
+  /**
+   * Assigns strictly increasing creation dates. Dates are truncated to microseconds, the precision
+   * of a Postgres timestamp, so the stored value equals the broadcast one.
+   */
+  private void assignCreationDates(List<Message> batch) {
+    for (Message message : batch) {
+      ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.MICROS);
+      lastCreationDate = now.isAfter(lastCreationDate) ? now : lastCreationDate.plus(1, ChronoUnit.MICROS);
+      message.setCreationDate(lastCreationDate);
+    }
+  }
+
+  private void notify(InsertedBatch result) {
+    result.rejected().forEach(rejected -> {
+      HttpException exception = rejected.exception();
+      log.debug("Rejected message from user {}: {}",
+          rejected.message().getSender().getId(), exception.getMessage());
+      notifySender(rejected.message().getSender().getId(),
+          createExceptionResponse(exception.getMessageToClient(), exception.getHttpStatus()));
+    });
+    result.inserted().forEach(this::notifySubscribers);
+  }
+
+  private void notifySubscribers(MessageDto message) {
+    broadcastService.broadcast(MESSAGES_SUBSCRIBE_PATH.formatted(message.chatId()), message);
+  }
+
+  private void notifySender(Long senderId, ExceptionResponse error) {
+    messagingTemplate.convertAndSend(USER_WEBSOCKET_ERRORS_PATH.formatted(senderId), error);
+  }
+
+  private record InsertedBatch(List<MessageDto> inserted, List<RejectedMessage> rejected) {}
+
+  private record RejectedMessage(Message message, HttpException exception) {}
+}
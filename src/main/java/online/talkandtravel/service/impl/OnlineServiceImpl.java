@@ -1,20 +1,29 @@
 package online.talkandtravel.service.impl;
 
 import static online.talkandtravel.util.AuthenticationUtils.getUserFromPrincipal;
-import static online.talkandtravel.util.RedisUtils.getUserLastSeenKey;
-import static online.talkandtravel.util.RedisUtils.getUserLastSeenRedisKeys;
-import static online.talkandtravel.util.RedisUtils.getUserStatusRedisKey;
-import static online.talkandtravel.util.RedisUtils.getUserStatusRedisKeys;
+import static online.talkandtravel.util.constants.RedisConstants.USERS_CONNECTIONS_KEY;
+import static online.talkandtravel.util.constants.RedisConstants.USERS_LAST_SEEN_KEY;
+import static online.talkandtravel.util.constants.RedisConstants.USERS_OFFLINE_ON_KEY;
+import static online.talkandtravel.util.constants.RedisConstants.USERS_ONLINE_KEY;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
 import java.security.Principal;
-import java.time.Duration;
+import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
-import java.util.stream.IntStream;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import online.talkandtravel.exception.user.UserNotFoundException;
@@ -23,10 +32,64 @@ import online.talkandtravel.model.dto.user.OnlineStatusResponse;
 import online.talkandtravel.model.entity.User;
 import online.talkandtravel.repository.UserRepository;
 import online.talkandtravel.service.OnlineService;
+import online.talkandtravel.service.PresenceBroadcastService;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisZSetCommands.ZAddArgs;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Service;
 
+/**
+ * Implementation of the {@link OnlineService}.
+ *
+ * <p>Presence of all users is kept in three Redis structures:
+ *
+ * <ul>
+ *   <li>{@link online.talkandtravel.util.constants.RedisConstants#USERS_ONLINE_KEY} - a sorted set
+ *       of online user ids scored by the time their heartbeat expires, in epoch millis. A user is
+ *       online while the score is in the future.
+ *   <li>{@link online.talkandtravel.util.constants.RedisConstants#USERS_LAST_SEEN_KEY} - a hash of
+ *       user id to the time the user was last seen, in epoch millis.
+ *   <li>{@link online.talkandtravel.util.constants.RedisConstants#USERS_CONNECTIONS_KEY} - a hash
+ *       of user id to the number of application instances the user has WebSocket connections to.
+ *   <li>{@link online.talkandtravel.util.constants.RedisConstants#USERS_OFFLINE_ON_KEY} - a hash of
+ *       user id to the time the user last went offline on request or by closing their last
+ *       connection, in epoch millis.
+ * </ul>
+ *
+ * <p>Users connected through WebSocket don't have to send heartbeats. They go online when they
+ * open the first connection to an instance and offline when the last connection to the last
+ * instance is closed. While they stay connected the instance extends their heartbeats in one
+ * pipeline every {@code presence.sessionRefreshIntervalInMs}, only for users still in the sorted
+ * set, so a user who asked to be shown offline isn't brought back.
+ *
+ * <p>Heartbeats are not written one by one. They are collected in memory and flushed every {@code
+ * presence.flushIntervalInMs} in a single script, a user who sent several heartbeats in between
+ * is written once. A heartbeat drained by a flush can reach Redis after the user went offline, on
+ * this or another instance. So the script skips heartbeats sent before the user's offline time,
+ * and a stale heartbeat never brings a user back online.
+ *
+ * <p>Expired heartbeats are found by a sweep that runs every {@code presence.sweepIntervalInMs} on
+ * every instance. It is a script that removes members with a score in the past from the sorted set
+ * and records their last seen time in one atomic step, so each expired user is returned to exactly
+ * one instance however many of them sweep at the same time. Redis keyspace notifications aren't
+ * used, so no instance receives expiration events of unrelated keys.
+ *
+ * <p>Only real transitions are published through {@link PresenceBroadcastService}: a user goes
+ * online when a flush adds them to the sorted set rather than just moving their score, and goes
+ * offline when their member is actually removed from it. A repeated heartbeat or logout therefore
+ * publishes nothing.
+ *
+ * <p>Bulk lookups read both structures in one pipelined round trip. Without a list of ids only
+ * the online users are returned, so the lookup scales with online users instead of registered
+ * ones.
+ */
 @Service
 @RequiredArgsConstructor
 @Log4j2
@@ -34,16 +97,110 @@ public class OnlineServiceImpl implements OnlineService {
 
     private final RedisTemplate<String, String> redisTemplate;
     private final UserRepository userRepository;
+    private final PresenceBroadcastService presenceBroadcastService;
+
+    private static final int SWEEP_BATCH_SIZE = 1000;
+
+    /**
+     * Removes up to ARGV[2] members with a heartbeat expired at ARGV[1] from the sorted set, sets
+     * their last seen time to ARGV[1], drops their connection counters left by instances that
+     * stopped without closing connections and returns them
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> REMOVE_EXPIRED_SCRIPT = new DefaultRedisScript<>("""
+        local expired = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, ARGV[2])
+        for _, userId in ipairs(expired) do
+            redis.call('ZREM', KEYS[1], userId)
+            redis.call('HSET', KEYS[2], userId, ARGV[1])
+            redis.call('HDEL', KEYS[3], userId)
+        end
+        return expired
+        """, List.class);
+
+    /**
+     * Adds the heartbeats passed as ARGV triples of user id, time sent and expiration to the sorted
+     * set, skipping those sent before the user last went offline, and returns the users that
+     * weren't in the set yet
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> FLUSH_HEARTBEATS_SCRIPT = new DefaultRedisScript<>("""
+        local added = {}
+        for i = 1, #ARGV, 3 do
+            local offlineOn = redis.call('HGET', KEYS[2], ARGV[i])
+            if not offlineOn or tonumber(offlineOn) < tonumber(ARGV[i + 1]) then
+                if redis.call('ZADD', KEYS[1], ARGV[i + 2], ARGV[i]) == 1 then
+                    table.insert(added, ARGV[i])
+                end
+            end
+        end
+        return added
+        """, List.class);
+
+    /** Decrements the connection counter of the user, returns the number of remaining instances */
+    private static final RedisScript<Long> RELEASE_CONNECTION_SCRIPT = new DefaultRedisScript<>("""
+        local remaining = redis.call('HINCRBY', KEYS[1], ARGV[1], -1)
+        if remaining <= 0 then
+            redis.call('HDEL', KEYS[1], ARGV[1])
+        end
+        return remaining
+        """, Long.class);
 
     @Value("${USER_ONLINE_STATUS_EXPIRATION_DURATION_IN_SEC}")
     public Long KEY_EXPIRATION_DURATION_IN_SEC;
 
-    @Override
-    public void updateLastSeenOn(Long userId, ZonedDateTime lastSeenOn) {
-        log.info("Update last seen on of user: {}", userId);
-        String key = getUserLastSeenKey(userId);
+    @Value("${presence.flushIntervalInMs}")
+    private long FLUSH_INTERVAL_IN_MS;
+
+    @Value("${presence.sweepIntervalInMs}")
+    private long SWEEP_INTERVAL_IN_MS;
+
+    /** user id -> time the heartbeat was sent in epoch millis, waiting to be flushed */
+    private final Map<Long, Long> pendingHeartbeats = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "presence-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushHeartbeats, FLUSH_INTERVAL_IN_MS,
+            FLUSH_INTERVAL_IN_MS, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::sweepExpired, SWEEP_INTERVAL_IN_MS,
+            SWEEP_INTERVAL_IN_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+        flushHeartbeats();
+    }
 
-        redisTemplate.opsForValue().set(key, lastSeenOn.toString());
+    /** Marks users whose heartbeat has expired offline and publishes the change */
+    public void sweepExpired() {
+        try {
+            List<String> expired;
+            do {
+                ZonedDateTime lastSeenOn = ZonedDateTime.now(ZoneOffset.UTC);
+                expired = removeExpired(lastSeenOn.toInstant().toEpochMilli());
+                for (String userId : expired) {
+                    log.info("Online status of user {} expired", userId);
+                    presenceBroadcastService.publish(
+                        new OnlineStatusDto(Long.valueOf(userId), false, lastSeenOn));
+                }
+            } while (expired.size() == SWEEP_BATCH_SIZE);
+        } catch (Exception e) {
+            log.error("Failed to sweep expired online statuses: {}", e.getMessage());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> removeExpired(long now) {
+        List<String> expired = redisTemplate.execute(REMOVE_EXPIRED_SCRIPT,
+            List.of(USERS_ONLINE_KEY, USERS_LAST_SEEN_KEY, USERS_CONNECTIONS_KEY), Long.toString(now),
+            Integer.toString(SWEEP_BATCH_SIZE));
+        return expired == null ? List.of() : expired;
     }
 
     @Override
@@ -55,26 +212,56 @@ public class OnlineServiceImpl implements OnlineService {
     @Override
     public OnlineStatusDto updateUserOnlineStatus(Long userId, Boolean isOnline) {
         log.info("updateUserOnlineStatusById userId: {}, isOnline: {}", userId, isOnline);
-        String key = getUserStatusRedisKey(userId);
-
         return isOnline ?
-            updateStatusToOnline(key, userId)
+            updateStatusToOnline(userId)
                 :
-            updateStatusToOffline(key, userId);
+            updateStatusToOffline(userId);
+    }
+
+    @Override
+    public void userConnected(Long userId) {
+        redisTemplate.opsForHash().increment(USERS_CONNECTIONS_KEY, userId.toString(), 1);
+        updateStatusToOnline(userId);
+    }
+
+    @Override
+    public void userDisconnected(Long userId) {
+        Long remaining = redisTemplate.execute(RELEASE_CONNECTION_SCRIPT,
+            List.of(USERS_CONNECTIONS_KEY), userId.toString());
+        if (remaining == null || remaining <= 0) {
+            updateStatusToOffline(userId);
+        }
+    }
+
+    @Override
+    public void refreshOnlineStatuses(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        byte[] key = USERS_ONLINE_KEY.getBytes(StandardCharsets.UTF_8);
+        double expiresAt = System.currentTimeMillis() + KEY_EXPIRATION_DURATION_IN_SEC * 1000;
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Long userId : userIds) {
+                connection.zSetCommands().zAdd(key, expiresAt,
+                    userId.toString().getBytes(StandardCharsets.UTF_8), ZAddArgs.ifExists());
+            }
+            return null;
+        });
     }
 
     /**
-     * Provides an initial snapshot of all user's online statuses
+     * Provides an initial snapshot of user's online statuses
      *
      * @return a map where the key is the user ID and the value is a boolean indicating
-     * whether the user is online (true) or offline (false)
+     * whether the user is online (true) or offline (false). Without a list of ids only online
+     * users are present in the map
      */
     @Override
     public Map<Long, OnlineStatusResponse> getAllUsersOnlineStatuses(List<Long> usersIdList) {
         if (usersIdList != null && !usersIdList.isEmpty()) {
             return getAllUsersOnlineStatusesForUsersList(usersIdList);
         }
-        return getAllUsersOnlineStatuses();
+        return getOnlineUsersStatuses();
     }
 
     /**
@@ -86,86 +273,136 @@ public class OnlineServiceImpl implements OnlineService {
      */
     @Override
     public OnlineStatusResponse getUserOnlineStatusById(Long userId) {
-        User user = getUser(userId);
-        Map<Long, OnlineStatusResponse> statusDtoMap = getAllUsersOnlineStatusesForUsersIdList(List.of(user));
-        return statusDtoMap.get(userId);
+        if (!userRepository.existsById(userId)) {
+            throw new UserNotFoundException(userId);
+        }
+        return getStatuses(List.of(userId)).get(userId);
     }
 
-    private OnlineStatusDto updateStatusToOffline(String key, Long userId) {
-        ZonedDateTime lastSeenOn = ZonedDateTime.now(ZoneOffset.UTC);
-        updateLastSeenOn(userId, lastSeenOn);
-        redisTemplate.delete(key);
-        return new OnlineStatusDto(userId, false, lastSeenOn);
+    public Map<Long, OnlineStatusResponse> getAllUsersOnlineStatusesForUsersList(List<Long> userIds) {
+        return getStatuses(userRepository.findAllIdsByIdIn(new HashSet<>(userIds)));
     }
 
-    private OnlineStatusDto updateStatusToOnline(String key, Long userId) {
-        Duration keyDuration = Duration.ofSeconds(KEY_EXPIRATION_DURATION_IN_SEC);
-        redisTemplate.opsForValue().set(key, Boolean.TRUE.toString(), keyDuration);
-        return new OnlineStatusDto(userId, true);
+    private OnlineStatusDto updateStatusToOffline(Long userId) {
+        pendingHeartbeats.remove(userId);
+        ZonedDateTime lastSeenOn = ZonedDateTime.now(ZoneOffset.UTC);
+        List<Object> results = redisTemplate.executePipelined(new SessionCallback<>() {
+            @Override
+            public Object execute(@NonNull RedisOperations operations) throws DataAccessException {
+                operations.opsForZSet().remove(USERS_ONLINE_KEY, userId.toString());
+                operations.opsForHash().put(USERS_LAST_SEEN_KEY, userId.toString(),
+                    Long.toString(lastSeenOn.toInstant().toEpochMilli()));
+                operations.opsForHash().put(USERS_OFFLINE_ON_KEY, userId.toString(),
+                    Long.toString(lastSeenOn.toInstant().toEpochMilli()));
+                return null;
+            }
+        });
+        OnlineStatusDto status = new OnlineStatusDto(userId, false, lastSeenOn);
+        if (results.get(0) instanceof Long removed && removed > 0) {
+            presenceBroadcastService.publish(status);
+        }
+        return status;
     }
 
-    private User getUser(Long userId) {
-        Optional<User> userOptional = userRepository.findById(userId);
-        return userOptional.orElseThrow(() ->  new UserNotFoundException(userId));
+    private OnlineStatusDto updateStatusToOnline(Long userId) {
+        pendingHeartbeats.put(userId, System.currentTimeMillis());
+        return new OnlineStatusDto(userId, true);
     }
 
-    private Map<Long, OnlineStatusResponse> getAllUsersOnlineStatuses() {
-        return getAllUsersOnlineStatusesForUsersIdList(userRepository.findAll());
+    private void flushHeartbeats() {
+        if (pendingHeartbeats.isEmpty()) {
+            return;
+        }
+        Map<Long, Long> heartbeats = new HashMap<>(pendingHeartbeats.size());
+        for (Long userId : pendingHeartbeats.keySet()) {
+            Long sentAt = pendingHeartbeats.remove(userId);
+            if (sentAt != null) {
+                heartbeats.put(userId, sentAt);
+            }
+        }
+        try {
+            writeHeartbeats(heartbeats);
+        } catch (Exception e) {
+            log.error("Failed to flush {} heartbeats: {}", heartbeats.size(), e.getMessage());
+        }
     }
 
-    public Map<Long, OnlineStatusResponse> getAllUsersOnlineStatusesForUsersList(List<Long> userIds) {
-        return getAllUsersOnlineStatusesForUsersIdList(userRepository.findAllById(userIds));
+    /**
+     * Writes the heartbeats in one script call and publishes users that weren't online before.
+     * Heartbeats of users who went offline after sending them are dropped by the script.
+     */
+    @SuppressWarnings("unchecked")
+    private void writeHeartbeats(Map<Long, Long> heartbeats) {
+        long expirationInMs = KEY_EXPIRATION_DURATION_IN_SEC * 1000;
+        Object[] args = new Object[heartbeats.size() * 3];
+        int i = 0;
+        for (Map.Entry<Long, Long> heartbeat : heartbeats.entrySet()) {
+            args[i++] = heartbeat.getKey().toString();
+            args[i++] = heartbeat.getValue().toString();
+            args[i++] = Long.toString(heartbeat.getValue() + expirationInMs);
+        }
+        List<String> added = redisTemplate.execute(FLUSH_HEARTBEATS_SCRIPT,
+            List.of(USERS_ONLINE_KEY, USERS_OFFLINE_ON_KEY), args);
+        if (added == null) {
+            return;
+        }
+        for (String userId : added) {
+            presenceBroadcastService.publish(new OnlineStatusDto(Long.valueOf(userId), true));
+        }
     }
 
-    public Map<Long, OnlineStatusResponse> getAllUsersOnlineStatusesForUsersIdList(List<User> users){
-        List<Long> userIds = users
-                .stream()
-                .map(User::getId)
-                .toList();
-
-        List<String> userLastSeenRedisKeys = getUserLastSeenRedisKeys(userIds);
-        List<String> userStatusRedisKeys = getUserStatusRedisKeys(userIds);
-
-        List<Boolean> usersStatuses = getValuesAsBoolean(userStatusRedisKeys);
-        List<ZonedDateTime> usersLastSeenData = getValuesAsTime(userLastSeenRedisKeys);
-
-        return collectToMap(userIds, usersStatuses, usersLastSeenData);
-    }
+    private Map<Long, OnlineStatusResponse> getOnlineUsersStatuses() {
+        long now = System.currentTimeMillis();
+        Set<String> onlineUsers = redisTemplate.opsForZSet()
+            .rangeByScore(USERS_ONLINE_KEY, now, Double.POSITIVE_INFINITY);
+        if (onlineUsers == null || onlineUsers.isEmpty()) {
+            return Map.of();
+        }
+        List<Long> userIds = onlineUsers.stream().map(Long::valueOf).toList();
+        List<Object> lastSeenData = redisTemplate.opsForHash()
+            .multiGet(USERS_LAST_SEEN_KEY, new ArrayList<>(onlineUsers));
 
-    private List<Boolean> getValuesAsBoolean(List<String> keys) {
-        return getValuesFromKeys(keys)
-                .stream()
-                .map(Boolean::parseBoolean)
-                .toList();
+        Map<Long, OnlineStatusResponse> onlineStatuses = new HashMap<>(userIds.size());
+        for (int i = 0; i < userIds.size(); i++) {
+            onlineStatuses.put(userIds.get(i),
+                new OnlineStatusResponse(true, toTime(lastSeenData.get(i))));
+        }
+        return onlineStatuses;
     }
 
-    private List<ZonedDateTime> getValuesAsTime(List<String> keys) {
-        return getValuesFromKeys(keys)
-                .stream()
-                .map((value) -> Optional.ofNullable(value)
-                        .map(ZonedDateTime::parse)
-                        .orElse(null))
-                .toList();
-    }
+    @SuppressWarnings("unchecked")
+    private Map<Long, OnlineStatusResponse> getStatuses(List<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return Map.of();
+        }
+        Object[] members = userIds.stream().map(Object::toString).toArray();
+        List<Object> results = redisTemplate.executePipelined(new SessionCallback<>() {
+            @Override
+            public Object execute(@NonNull RedisOperations operations) throws DataAccessException {
+                operations.opsForZSet().score(USERS_ONLINE_KEY, members);
+                operations.opsForHash().multiGet(USERS_LAST_SEEN_KEY, List.of(members));
+                return null;
+            }
+        });
+        List<Double> expirations = (List<Double>) results.get(0);
+        List<Object> lastSeenData = (List<Object>) results.get(1);
 
-    private List<String> getValuesFromKeys(List<String> keys) {
-        return Optional.ofNullable(redisTemplate.opsForValue().multiGet(keys))
-                .orElse(List.of());
+        long now = System.currentTimeMillis();
+        Map<Long, OnlineStatusResponse> onlineStatuses = new HashMap<>(userIds.size());
+        for (int i = 0; i < userIds.size(); i++) {
+            Double expiresAt = expirations.get(i);
+            boolean isOnline = expiresAt != null && expiresAt > now;
+            onlineStatuses.put(userIds.get(i),
+                new OnlineStatusResponse(isOnline, toTime(lastSeenData.get(i))));
+        }
+        return onlineStatuses;
     }
 
-    private Map<Long, OnlineStatusResponse> collectToMap(List<Long> userIdList,
-        List<Boolean> usersStatuses, List<ZonedDateTime> usersLastSeenData) {
-        Map<Long, OnlineStatusResponse> onlineStatuses = new HashMap<>(userIdList.size());
-
-        IntStream.range(0, userIdList.size())
-            .forEach((i) -> {
-                Long userId = userIdList.get(i);
-                Boolean isOnline = usersStatuses.get(i);
-                ZonedDateTime lastSeenOn = usersLastSeenData.get(i);
-
-                onlineStatuses.put(userId,
-                    new OnlineStatusResponse(isOnline, lastSeenOn));
-            });
-        return onlineStatuses;
+    private ZonedDateTime toTime(Object epochMillis) {
+        if (epochMillis == null) {
+            return null;
+        }
+        return ZonedDateTime.ofInstant(Instant.ofEpochMilli(Long.parseLong(epochMillis.toString())),
+            ZoneOffset.UTC);
     }
 }
@@ -0,0 +1,130 @@
+package online.talkandtravel.service.impl;
+
+import static online.talkandtravel.util.constants.ApiPathConstants.USERS_ONLINE_STATUSES_ENDPOINT;
+import static online.talkandtravel.util.constants.ApiPathConstants.USERS_ONLINE_STATUS_ENDPOINT;
+import static online.talkandtravel.util.constants.ApiPathConstants.USER_ONLINE_STATUSES_QUEUE;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import online.talkandtravel.model.dto.chat.ChatCompanion;
+import online.talkandtravel.model.dto.user.OnlineStatusDto;
+import online.talkandtravel.repository.UserChatRepository;
+import online.talkandtravel.service.BroadcastService;
+import online.talkandtravel.service.PresenceBroadcastService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Implementation of the {@link PresenceBroadcastService}.
+ *
+ * <p>Status changes are kept per user, a later change of the same user replaces the earlier one.
+ * A background thread runs every {@code presence.broadcastIntervalInMs} and sends the accumulated
+ * changes as a list of {@link OnlineStatusDto}:
+ *
+ * <ul>
+ *   <li>by default to {@link
+ *       online.talkandtravel.util.constants.ApiPathConstants#USERS_ONLINE_STATUSES_ENDPOINT}, one
+ *       frame per tick for every subscriber.
+ *   <li>when {@code presence.broadcastToPrivateChatCompanionsOnly} is enabled to the user queue
+ *       {@link online.talkandtravel.util.constants.ApiPathConstants#USER_ONLINE_STATUSES_QUEUE} of
+ *       every user sharing a private chat with at least one changed user, each frame containing
+ *       only the changes of that user's companions. Group chats are left out, so the fan-out of a
+ *       change is bounded by the private chats of the user rather than the size of the country
+ *       chats, and only the sessions of the recipient can subscribe to its queue.
+ * </ul>
+ *
+ * <p>While {@code presence.legacyOnlineStatusTopic} is enabled every change is also sent on its own
+ * to the deprecated {@link
+ * online.talkandtravel.util.constants.ApiPathConstants#USERS_ONLINE_STATUS_ENDPOINT}, for clients
+ * that haven't moved to the batched destinations yet.
+ */
+@Service
+@Log4j2
+@RequiredArgsConstructor
+public class PresenceBroadcastServiceImpl implements PresenceBroadcastService {
+
+  private final BroadcastService broadcastService;
+  private final UserChatRepository userChatRepository;
+
+  @Value("${presence.broadcastIntervalInMs}")
+  private long BROADCAST_INTERVAL_IN_MS;
+
+  @Value("${presence.broadcastToPrivateChatCompanionsOnly}")
+  private boolean BROADCAST_TO_PRIVATE_CHAT_COMPANIONS_ONLY;
+
+  @Value("${presence.legacyOnlineStatusTopic}")
+  private boolean LEGACY_ONLINE_STATUS_TOPIC;
+
+  private final Map<Long, OnlineStatusDto> pendingStatuses = new ConcurrentHashMap<>();
+  private ScheduledExecutorService broadcaster;
+
+  @PostConstruct
+  public void start() {
+    broadcaster = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "presence-broadcaster");
+      thread.setDaemon(true);
+      return thread;
+    });
+    broadcaster.scheduleWithFixedDelay(this::broadcastPending, BROADCAST_INTERVAL_IN_MS,
+        BROADCAST_INTERVAL_IN_MS, TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  public void stop() {
+    broadcaster.shutdownNow();
+  }
+
+  @Override
+  public void publish(OnlineStatusDto status) {
+    pendingStatuses.put(status.userId(), status);
+  }
+
+  /** Sends the status changes accumulated since the previous tick */
+  @SuppressWarnings("deprecation")
+  public void broadcastPending() {
+    if (pendingStatuses.isEmpty()) {
+      return;
+    }
+    Map<Long, OnlineStatusDto> statuses = new HashMap<>(pendingStatuses.size());
+    for (Long userId : pendingStatuses.keySet()) {
+      OnlineStatusDto status = pendingStatuses.remove(userId);
+      if (status != null) {
+        statuses.put(userId, status);
+      }
+    }
+    try {
+      if (BROADCAST_TO_PRIVATE_CHAT_COMPANIONS_ONLY) {
+        broadcastToCompanions(statuses);
+      } else {
+        broadcastService.broadcast(USERS_ONLINE_STATUSES_ENDPOINT, new ArrayList<>(statuses.values()));
+      }
+      if (LEGACY_ONLINE_STATUS_TOPIC) {
+        statuses.values().forEach(status ->
+            broadcastService.broadcast(USERS_ONLINE_STATUS_ENDPOINT, status));
+      }
+    } catch (Exception e) {
+      log.error("Failed to broadcast {} online statuses: {}", statuses.size(), e.getMessage());
+    }
+  }
+
+  private void broadcastToCompanions(Map<Long, OnlineStatusDto> statuses) {
+    Map<String, List<OnlineStatusDto>> statusesByRecipient = new HashMap<>();
+    for (ChatCompanion companion :
+        userChatRepository.findAllPrivateChatCompanionsByUserIdIn(statuses.keySet())) {
+      statusesByRecipient.computeIfAbsent(companion.companionEmail(), email -> new ArrayList<>())
+          .add(statuses.get(companion.userId()));
+    }
+    statusesByRecipient.forEach((recipient, recipientStatuses) ->
+        broadcastService.broadcastToUser(recipient, USER_ONLINE_STATUSES_QUEUE, recipientStatuses));
+  }
+}
@@ -0,0 +1,267 @@
+package online.talkandtravel.service.impl;
+
+import static online.talkandtravel.util.FilesUtils.contentHash;
+import static online.talkandtravel.util.FilesUtils.createDownloadTempFile;
+import static online.talkandtravel.util.FilesUtils.deleteTempFile;
+import static online.talkandtravel.util.constants.ApiPathConstants.ATTACHMENT_RENDITION_PATH;
+import static online.talkandtravel.util.constants.ApiPathConstants.AVATAR_RENDITION_PATH;
+import static online.talkandtravel.util.constants.S3Constants.AVATAR_ORIGINAL_FOLDER_NAME;
+import static online.talkandtravel.util.constants.S3Constants.AVATAR_RENDITION_FOLDER_PATTERN;
+import static online.talkandtravel.util.constants.S3Constants.IMAGE_ATTACHMENT_ORIGINAL_FOLDER_PATTERN;
+import static online.talkandtravel.util.constants.S3Constants.IMAGE_ATTACHMENT_THUMBNAIL_FOLDER_PATTERN;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntFunction;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import online.talkandtravel.exception.file.RenditionNotFoundException;
+import online.talkandtravel.exception.file.TooManyRenditionRequestsException;
+import online.talkandtravel.exception.file.UnsupportedRenditionWidthException;
+import online.talkandtravel.model.dto.attachment.RenditionDto;
+import online.talkandtravel.model.entity.User;
+import online.talkandtravel.repository.AvatarRepository;
+import online.talkandtravel.repository.MessageRepository;
+import online.talkandtravel.service.AuthenticationService;
+import online.talkandtravel.service.ImageProcessingScheduler;
+import online.talkandtravel.service.ImageService;
+import online.talkandtravel.service.RenditionService;
+import online.talkandtravel.service.S3StorageService;
+import online.talkandtravel.service.ThumbnailCacheService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+/**
+ * Implementation of the {@link RenditionService}.
+ *
+ * <ul>
+ *   <li>A stored rendition is read from S3. On a miss the original is downloaded to a temp file,
+ *       so it is never held on the heap as a whole, and looked up in the {@link
+ *       ThumbnailCacheService}. Only if it isn't cached either it is resized on the {@link
+ *       ImageProcessingScheduler}, to every width of {@code renditions.widths} from a single
+ *       decode. The requested rendition is returned right away and all of them are stored in S3 in
+ *       the background, so the other widths are never decoded again.
+ *   <li>Resizing is queued on behalf of the requesting user. Anonymous requests share the {@link
+ *       #ANONYMOUS_QUEUE_ID} queue and are limited to {@code renditions.anonymousMissesPerMinute}
+ *       resizes, above it they are rejected with {@link TooManyRenditionRequestsException} (429).
+ *       So clients viewing an image never take the queue slots of the user who uploaded it.
+ *   <li>Concurrent requests for the same rendition are served by a single load, the others wait
+ *       for its result instead of resizing the same image again.
+ *   <li>Renditions are stored under the folders the eagerly generated thumbnails used, so those are
+ *       served as they are.
+ * </ul>
+ */
+@Service
+@Log4j2
+@RequiredArgsConstructor
+public class RenditionServiceImpl implements RenditionService {
+
+  /** Scheduler queue shared by all anonymous requests, user ids are always positive */
+  public static final Long ANONYMOUS_QUEUE_ID = -1L;
+
+  private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+  private static final long MILLIS_IN_MINUTE = 60_000;
+
+  @Value("${aws.s3.attachmentsFolderName}")
+  private String AWS_S3_ATTACHMENTS_FOLDER_NAME;
+
+  @Value("${aws.s3.avatarsFolderName}")
+  private String AWS_S3_AVATARS_FOLDER_NAME;
+
+  @Value("${renditions.baseUrl}")
+  private String BASE_URL;
+
+  @Value("${renditions.widths}")
+  private List<Integer> WIDTHS;
+
+  @Value("${renditions.attachmentMaxAgeInSec}")
+  private long ATTACHMENT_MAX_AGE_IN_SEC;
+
+  @Value("${renditions.avatarMaxAgeInSec}")
+  private long AVATAR_MAX_AGE_IN_SEC;
+
+  @Value("${renditions.anonymousMissesPerMinute}")
+  private int ANONYMOUS_MISSES_PER_MINUTE;
+
+  private final S3StorageService s3StorageService;
+  private final ImageService imageService;
+  private final ImageProcessingScheduler imageProcessingScheduler;
+  private final ThumbnailCacheService thumbnailCacheService;
+  private final MessageRepository messageRepository;
+  private final AvatarRepository avatarRepository;
+  private final AuthenticationService authenticationService;
+
+  /** Renditions that are being loaded, keyed by their object key */
+  private final ConcurrentHashMap<String, CompletableFuture<RenditionDto>> inFlight =
+      new ConcurrentHashMap<>();
+
+  /** Start of the current minute of anonymous resizes, guarded by {@code this} */
+  private long anonymousWindowStartInMs;
+
+  /** Anonymous resizes in the current minute, guarded by {@code this} */
+  private int anonymousMisses;
+
+  @Override
+  public RenditionDto getAttachmentRendition(Long chatId, String imageKey, int width) {
+    validateWidth(width);
+    return getOrLoad(
+        renditionWidth -> buildObjectKey(AWS_S3_ATTACHMENTS_FOLDER_NAME,
+            IMAGE_ATTACHMENT_THUMBNAIL_FOLDER_PATTERN.formatted(chatId, renditionWidth), imageKey),
+        buildObjectKey(AWS_S3_ATTACHMENTS_FOLDER_NAME,
+            IMAGE_ATTACHMENT_ORIGINAL_FOLDER_PATTERN.formatted(chatId), imageKey),
+        imageKey, width, Duration.ofSeconds(ATTACHMENT_MAX_AGE_IN_SEC),
+        () -> messageRepository.findSenderIdByChatIdAndAttachmentId(chatId, imageKey).isPresent());
+  }
+
+  @Override
+  public RenditionDto getAvatarRendition(UUID avatarKey, int width) {
+    validateWidth(width);
+    String imageKey = avatarKey.toString();
+    return getOrLoad(
+        renditionWidth -> buildAvatarRenditionKey(avatarKey, renditionWidth),
+        buildObjectKey(AWS_S3_AVATARS_FOLDER_NAME, AVATAR_ORIGINAL_FOLDER_NAME, imageKey),
+        imageKey, width, Duration.ofSeconds(AVATAR_MAX_AGE_IN_SEC),
+        () -> avatarRepository.findUserIdByKey(avatarKey).isPresent());
+  }
+
+  @Override
+  public String generateAttachmentRenditionUrl(Long chatId, String imageKey, int width) {
+    return BASE_URL + ATTACHMENT_RENDITION_PATH.formatted(chatId, imageKey, width);
+  }
+
+  @Override
+  public String generateAvatarRenditionUrl(UUID avatarKey, int width) {
+    return BASE_URL + AVATAR_RENDITION_PATH.formatted(avatarKey, width);
+  }
+
+  @Override
+  public void deleteAvatarRenditions(UUID avatarKey) {
+    s3StorageService.awaitAll(WIDTHS.stream()
+        .map(width -> s3StorageService.deleteObject(buildAvatarRenditionKey(avatarKey, width)))
+        .toArray(CompletableFuture[]::new));
+  }
+
+  private RenditionDto getOrLoad(IntFunction<String> renditionKeys, String originalKey,
+      String imageKey, int width, Duration maxAge, BooleanSupplier imageExists) {
+    String renditionKey = renditionKeys.apply(width);
+    CompletableFuture<RenditionDto> loading = new CompletableFuture<>();
+    CompletableFuture<RenditionDto> inFlightLoading = inFlight.putIfAbsent(renditionKey, loading);
+    if (inFlightLoading != null) {
+      log.info("Rendition {} is already being loaded, wait for it", renditionKey);
+      return await(inFlightLoading);
+    }
+
+    try {
+      loading.complete(load(renditionKeys, originalKey, imageKey, width, maxAge, imageExists));
+    } catch (RuntimeException e) {
+      loading.completeExceptionally(e);
+    } finally {
+      inFlight.remove(renditionKey, loading);
+    }
+    return await(loading);
+  }
+
+  private RenditionDto load(IntFunction<String> renditionKeys, String originalKey, String imageKey,
+      int width, Duration maxAge, BooleanSupplier imageExists) {
+    String renditionKey = renditionKeys.apply(width);
+    Optional<ResponseBytes<GetObjectResponse>> stored =
+        await(s3StorageService.getObject(renditionKey));
+    if (stored.isPresent()) {
+      return toRenditionDto(stored.get().asByteArray(),
+          toContentType(stored.get().response().contentType()), maxAge);
+    }
+
+    if (!imageExists.getAsBoolean()) {
+      throw new RenditionNotFoundException(imageKey);
+    }
+    Path image = createDownloadTempFile();
+    try {
+      GetObjectResponse original = await(s3StorageService.getObject(originalKey, image))
+          .orElseThrow(() -> new RenditionNotFoundException(imageKey));
+      String contentType = toContentType(original.contentType());
+
+      log.info("Rendition {} is not stored, generate it", renditionKey);
+      Long queueId = authenticationService.findAuthenticatedUser()
+          .map(User::getId)
+          .orElse(ANONYMOUS_QUEUE_ID);
+      byte[] rendition = thumbnailCacheService.getOrGenerate(contentHash(image), width, () -> {
+        if (queueId.equals(ANONYMOUS_QUEUE_ID)) {
+          acquireAnonymousMiss();
+        }
+        Map<Integer, byte[]> renditions = imageProcessingScheduler.submitAndWait(queueId,
+            () -> imageService.generateThumbnails(image, contentType, WIDTHS));
+        renditions.forEach((renditionWidth, content) -> {
+          if (renditionWidth != width) {
+            s3StorageService.putObject(renditionKeys.apply(renditionWidth), contentType, content);
+          }
+        });
+        return renditions.get(width);
+      });
+      s3StorageService.putObject(renditionKey, contentType, rendition);
+      return toRenditionDto(rendition, contentType, maxAge);
+    } finally {
+      deleteTempFile(image);
+    }
+  }
+
+  /** Counts an anonymous resize against the limit of the current minute */
+  private synchronized void acquireAnonymousMiss() {
+    long now = System.currentTimeMillis();
+    if (now - anonymousWindowStartInMs >= MILLIS_IN_MINUTE) {
+      anonymousWindowStartInMs = now;
+      anonymousMisses = 0;
+    }
+    if (anonymousMisses >= ANONYMOUS_MISSES_PER_MINUTE) {
+      throw new TooManyRenditionRequestsException(ANONYMOUS_MISSES_PER_MINUTE);
+    }
+    anonymousMisses++;
+  }
+
+  private RenditionDto toRenditionDto(byte[] content, String contentType, Duration maxAge) {
+    return new RenditionDto(content, contentType, "\"" + contentHash(content) + "\"", maxAge);
+  }
+
+  /** Avatars stored before renditions were introduced have a bare subtype as content type */
+  private String toContentType(String storedContentType) {
+    if (storedContentType == null) {
+      return DEFAULT_CONTENT_TYPE;
+    }
+    return storedContentType.contains("/") ? storedContentType : "image/" + storedContentType;
+  }
+
+  private void validateWidth(int width) {
+    if (!WIDTHS.contains(width)) {
+      throw new UnsupportedRenditionWidthException(width, WIDTHS);
+    }
+  }
+
+  private String buildAvatarRenditionKey(UUID avatarKey, int width) {
+    return buildObjectKey(AWS_S3_AVATARS_FOLDER_NAME, AVATAR_RENDITION_FOLDER_PATTERN.formatted(width),
+        avatarKey.toString());
+  }
+
+  private String buildObjectKey(String rootFolderName, String folderName, String key) {
+    return rootFolderName + folderName + "/" + key;
+  }
+
+  private <T> T await(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+}
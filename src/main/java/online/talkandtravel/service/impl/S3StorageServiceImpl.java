@@ -0,0 +1,151 @@
+package online.talkandtravel.service.impl;
+
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import online.talkandtravel.service.S3StorageService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.FileTransformerConfiguration;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+/**
+ * Implementation of the {@link S3StorageService} on top of the {@link S3AsyncClient}.
+ *
+ * <p>Writes are started right away on the Netty event loop and never block the calling thread,
+ * failures are logged with the object key before they are passed on to the caller.
+ */
+@Service
+@Log4j2
+@RequiredArgsConstructor
+public class S3StorageServiceImpl implements S3StorageService {
+
+  @Value("${aws.s3.bucketName}")
+  private String AWS_S3_BUCKET_NAME;
+
+  private final S3AsyncClient s3AsyncClient;
+
+  @Override
+  public CompletableFuture<Void> putObject(String key, String contentType, byte[] content) {
+    return putObject(key, contentType, AsyncRequestBody.fromBytes(content));
+  }
+
+  @Override
+  public CompletableFuture<Void> putObject(String key, String contentType, Path content) {
+    return putObject(key, contentType, AsyncRequestBody.fromFile(content));
+  }
+
+  private CompletableFuture<Void> putObject(String key, String contentType,
+      AsyncRequestBody body) {
+    log.info("put object: {}", key);
+    PutObjectRequest request = PutObjectRequest.builder()
+        .bucket(AWS_S3_BUCKET_NAME)
+        .key(key)
+        .contentType(contentType)
+        .build();
+
+    return logFailure(s3AsyncClient.putObject(request, body), "put", key);
+  }
+
+  @Override
+  public CompletableFuture<Void> copyObject(String sourceKey, String destinationKey) {
+    log.info("copy object: {} to {}", sourceKey, destinationKey);
+    CopyObjectRequest request = CopyObjectRequest.builder()
+        .sourceBucket(AWS_S3_BUCKET_NAME)
+        .sourceKey(sourceKey)
+        .destinationBucket(AWS_S3_BUCKET_NAME)
+        .destinationKey(destinationKey)
+        .build();
+
+    return logFailure(s3AsyncClient.copyObject(request), "copy", destinationKey);
+  }
+
+  @Override
+  public CompletableFuture<Optional<ResponseBytes<GetObjectResponse>>> getObject(String key) {
+    GetObjectRequest request = GetObjectRequest.builder()
+        .bucket(AWS_S3_BUCKET_NAME)
+        .key(key)
+        .build();
+
+    return emptyIfNotFound(s3AsyncClient.getObject(request, AsyncResponseTransformer.toBytes()),
+        key);
+  }
+
+  @Override
+  public CompletableFuture<Optional<GetObjectResponse>> getObject(String key, Path destination) {
+    GetObjectRequest request = GetObjectRequest.builder()
+        .bucket(AWS_S3_BUCKET_NAME)
+        .key(key)
+        .build();
+
+    return emptyIfNotFound(s3AsyncClient.getObject(request, AsyncResponseTransformer.toFile(
+        destination, FileTransformerConfiguration.defaultCreateOrReplaceExisting())), key);
+  }
+
+  private <T> CompletableFuture<Optional<T>> emptyIfNotFound(CompletableFuture<T> download,
+      String key) {
+    return download.handle((object, e) -> {
+      if (e == null) {
+        return Optional.of(object);
+      }
+      if (isNotFound(e)) {
+        return Optional.empty();
+      }
+      log.error("Failed to get object {}: {}", key, e.getMessage());
+      throw e instanceof CompletionException completionException
+          ? completionException
+          : new CompletionException(e);
+    });
+  }
+
+  @Override
+  public CompletableFuture<Void> deleteObject(String key) {
+    log.info("delete object: {}", key);
+    DeleteObjectRequest request = DeleteObjectRequest.builder()
+        .bucket(AWS_S3_BUCKET_NAME)
+        .key(key)
+        .build();
+
+    return logFailure(s3AsyncClient.deleteObject(request), "delete", key);
+  }
+
+  @Override
+  public void awaitAll(CompletableFuture<?>... writes) {
+    try {
+      CompletableFuture.allOf(writes).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+
+  private boolean isNotFound(Throwable e) {
+    Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+    return cause instanceof S3Exception s3Exception
+        && s3Exception.statusCode() == HttpStatus.NOT_FOUND.value();
+  }
+
+  private CompletableFuture<Void> logFailure(CompletableFuture<?> write, String operation,
+      String key) {
+    return write.whenComplete((response, e) -> {
+      if (e != null) {
+        log.error("Failed to {} object {}: {}", operation, key, e.getMessage());
+      }
+    }).thenApply(response -> null);
+  }
+}
@@ -0,0 +1,166 @@
+package online.talkandtravel.service.impl;
+
+import static online.talkandtravel.util.constants.RedisConstants.THUMBNAIL_KEY_PATTERN;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import online.talkandtravel.service.ThumbnailCacheService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Service;
+
+/**
+ * Implementation of the {@link ThumbnailCacheService} with a local and a shared tier.
+ *
+ * <ul>
+ *   <li>The local tier is an in-memory LRU bounded by the total size of the thumbnails, {@code
+ *       thumbnailCache.localMaxSizeInMb}.
+ *   <li>The shared tier keeps thumbnails up to {@code thumbnailCache.sharedMaxEntrySizeInKb} in
+ *       Redis for {@code thumbnailCache.sharedTtlInHours}, so an image processed by one instance is
+ *       reused by the others. Redis errors are logged and treated as misses.
+ * </ul>
+ */
+@Service
+@Log4j2
+@RequiredArgsConstructor
+public class ThumbnailCacheServiceImpl implements ThumbnailCacheService {
+
+  private static final long BYTES_IN_KB = 1024;
+  private static final long BYTES_IN_MB = 1024 * 1024;
+
+  private final RedisTemplate<String, String> redisTemplate;
+
+  @Value("${thumbnailCache.localMaxSizeInMb}")
+  private long LOCAL_MAX_SIZE_IN_MB;
+
+  @Value("${thumbnailCache.sharedMaxEntrySizeInKb}")
+  private long SHARED_MAX_ENTRY_SIZE_IN_KB;
+
+  @Value("${thumbnailCache.sharedTtlInHours}")
+  private long SHARED_TTL_IN_HOURS;
+
+  /** Thumbnails in access order, guarded by itself */
+  private final LinkedHashMap<String, byte[]> localCache = new LinkedHashMap<>(16, 0.75f, true);
+
+  /** Total size of the thumbnails in {@link #localCache}, guarded by {@link #localCache} */
+  private long localCacheSizeInBytes;
+
+  @Override
+  public byte[] getOrGenerate(String contentHash, int width, Supplier<byte[]> generator) {
+    return getOrGenerate(contentHash, List.of(width), widths -> Map.of(width, generator.get()))
+        .get(width);
+  }
+
+  @Override
+  public Map<Integer, byte[]> getOrGenerate(String contentHash, List<Integer> widths,
+      Function<List<Integer>, Map<Integer, byte[]>> generator) {
+    Map<Integer, byte[]> thumbnails = new HashMap<>();
+    List<Integer> missingWidths = new ArrayList<>();
+    for (Integer width : widths) {
+      byte[] thumbnail = getLocally(toKey(contentHash, width));
+      if (thumbnail != null) {
+        thumbnails.put(width, thumbnail);
+      } else {
+        missingWidths.add(width);
+      }
+    }
+
+    if (!missingWidths.isEmpty()) {
+      Map<Integer, byte[]> shared = getShared(contentHash, missingWidths);
+      shared.forEach((width, thumbnail) -> putLocally(toKey(contentHash, width), thumbnail));
+      thumbnails.putAll(shared);
+      missingWidths.removeAll(shared.keySet());
+    }
+
+    if (!missingWidths.isEmpty()) {
+      log.info("Thumbnails of {} with widths {} are not cached, generate them", contentHash,
+          missingWidths);
+      Map<Integer, byte[]> generated = generator.apply(missingWidths);
+      generated.forEach((width, thumbnail) -> putLocally(toKey(contentHash, width), thumbnail));
+      putShared(contentHash, generated);
+      thumbnails.putAll(generated);
+    }
+    return thumbnails;
+  }
+
+  private byte[] getLocally(String key) {
+    synchronized (localCache) {
+      return localCache.get(key);
+    }
+  }
+
+  private void putLocally(String key, byte[] thumbnail) {
+    long maxSizeInBytes = LOCAL_MAX_SIZE_IN_MB * BYTES_IN_MB;
+    if (thumbnail.length > maxSizeInBytes) {
+      return;
+    }
+    synchronized (localCache) {
+      byte[] previous = localCache.put(key, thumbnail);
+      if (previous != null) {
+        localCacheSizeInBytes -= previous.length;
+      }
+      localCacheSizeInBytes += thumbnail.length;
+
+      Iterator<byte[]> leastRecentlyUsed = localCache.values().iterator();
+      while (localCacheSizeInBytes > maxSizeInBytes && leastRecentlyUsed.hasNext()) {
+        localCacheSizeInBytes -= leastRecentlyUsed.next().length;
+        leastRecentlyUsed.remove();
+      }
+    }
+  }
+
+  private Map<Integer, byte[]> getShared(String contentHash, List<Integer> widths) {
+    Map<Integer, byte[]> thumbnails = new HashMap<>();
+    try {
+      byte[][] keys = widths.stream()
+          .map(width -> toKey(contentHash, width).getBytes(StandardCharsets.UTF_8))
+          .toArray(byte[][]::new);
+      List<byte[]> values = redisTemplate.execute(
+          (RedisCallback<List<byte[]>>) connection -> connection.stringCommands().mGet(keys));
+      for (int i = 0; values != null && i < widths.size(); i++) {
+        if (values.get(i) != null) {
+          thumbnails.put(widths.get(i), values.get(i));
+        }
+      }
+    } catch (Exception e) {
+      log.error("Failed to read thumbnails of {} from Redis: {}", contentHash, e.getMessage());
+    }
+    return thumbnails;
+  }
+
+  private void putShared(String contentHash, Map<Integer, byte[]> thumbnails) {
+    long maxEntrySizeInBytes = SHARED_MAX_ENTRY_SIZE_IN_KB * BYTES_IN_KB;
+    Expiration expiration = Expiration.from(SHARED_TTL_IN_HOURS, TimeUnit.HOURS);
+    try {
+      redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+        thumbnails.forEach((width, thumbnail) -> {
+          if (thumbnail.length <= maxEntrySizeInBytes) {
+            connection.stringCommands().set(
+                toKey(contentHash, width).getBytes(StandardCharsets.UTF_8), thumbnail, expiration,
+                SetOption.upsert());
+          }
+        });
+        return null;
+      });
+    } catch (Exception e) {
+      log.error("Failed to write thumbnails of {} to Redis: {}", contentHash, e.getMessage());
+    }
+  }
+
+  private String toKey(String contentHash, int width) {
+    return THUMBNAIL_KEY_PATTERN.formatted(contentHash, width);
+  }
+}
@@ -2,22 +2,29 @@ package online.talkandtravel.service.impl;
 
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.function.Function;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import online.talkandtravel.exception.token.ExpiredTokenException;
@@ -27,8 +34,10 @@ import online.talkandtravel.model.entity.TokenType;
 import online.talkandtravel.model.entity.User;
 import online.talkandtravel.repository.TokenRepository;
 import online.talkandtravel.service.TokenService;
+import online.talkandtravel.util.constants.RedisConstants;
 import org.apache.commons.lang3.math.NumberUtils;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -46,7 +55,19 @@ import org.springframework.transaction.annotation.Transactional;
  *   <li>{@link #findByToken(String)} - Finds a token by its value, returning an {@code Optional} to
  *       handle the case where the token might not exist.
  *   <li>{@link #saveAll(List)} - Saves a batch of tokens to the repository. specific user.
+ *   <li>{@link #validateTokenAndGetUserId(String)} - Validates a bearer token. The signing key and
+ *       the parser are built once. A verified token is cached by its SHA-256 digest until its
+ *       {@code exp}, so only the first request with a token parses it and queries the database.
+ *   <li>{@link #revokeToken(String)} - Marks the stored token as expired and revoked and publishes
+ *       the user id and the token digest to {@link RedisConstants#TOKEN_REVOCATION_CHANNEL}. Every
+ *       application instance keeps published digests in memory until the token expires and rejects
+ *       them before looking into the cache. It also drops every cached token of the user, so the
+ *       other tokens of the user are verified against the stored token again, which rejects them
+ *       the way it did before tokens were cached.
  * </ul>
+ *
+ * <p>The cache holds at most {@code tokenValidation.cacheSize} tokens. When it is full expired
+ * tokens are dropped, and if that isn't enough it is cleared.
  */
 @Service
 @Log4j2
@@ -65,7 +86,33 @@ public class TokenServiceImpl implements TokenService {
   @Value("${SECRET_KEY}")
   private String secretKey;
 
+  @Value("${tokenValidation.cacheSize}")
+  private int CACHE_SIZE;
+
   private final TokenRepository tokenRepository;
+  private final RedisTemplate<String, String> redisTemplate;
+
+  /** digest of a verified token -> user id and expiration */
+  private final Map<String, VerifiedToken> verifiedTokens = new ConcurrentHashMap<>();
+
+  /** digest of a revoked token -> expiration in epoch millis */
+  private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+
+  /**
+   * user id -> local time of the last revocation in epoch millis. Tokens of the user verified
+   * before that time are verified again, even if they were cached while the revocation was
+   * received.
+   */
+  private final Map<Long, Long> revokedUsers = new ConcurrentHashMap<>();
+
+  private Key signInKey;
+  private JwtParser jwtParser;
+
+  @PostConstruct
+  public void init() {
+    signInKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+    jwtParser = Jwts.parserBuilder().setSigningKey(signInKey).build();
+  }
 
   @Override
   public Token generatePasswordRecoveryToken(User user) {
@@ -141,19 +188,67 @@ public class TokenServiceImpl implements TokenService {
    * @return ID of authenticated user
    */
   @Override
-  @Transactional
   public Long validateTokenAndGetUserId(String token) {
-    Long userId = extractId(token);
-    verifyProvidedTokenValid(token);
+    String digest = digest(token);
+    if (revokedTokens.containsKey(digest)) {
+      throw new InvalidTokenException("Token is revoked", "Token is expired");
+    }
+    long now = System.currentTimeMillis();
+    VerifiedToken verifiedToken = verifiedTokens.get(digest);
+    if (verifiedToken != null && verifiedToken.expiresAt() > now
+        && verifiedToken.verifiedAt() > revokedUsers.getOrDefault(verifiedToken.userId(), 0L)) {
+      return verifiedToken.userId();
+    }
+
+    Claims claims = parseClaims(token);
+    Long userId = extractId(claims);
     verifyStoredTokenPresentAndValid(userId);
+    cacheVerifiedToken(digest, userId, claims.getExpiration(), now);
     return userId;
   }
 
   @Override
   public Long extractId(String token) {
-    String subject = extractClaim(token, Claims::getSubject);
-    validateSubject(subject);
-    return NumberUtils.toLong(subject);
+    return extractId(parseClaims(token));
+  }
+
+  @Override
+  public void revokeToken(String token) {
+    tokenRepository.findByToken(token).ifPresent(tokenEntity -> {
+      tokenEntity.setExpired(true);
+      tokenEntity.setRevoked(true);
+      tokenRepository.save(tokenEntity);
+    });
+
+    Claims claims = readClaims(token);
+    if (claims == null) {
+      return;
+    }
+    Long userId = NumberUtils.toLong(claims.getSubject());
+    String digest = digest(token);
+    long expiresAt = claims.getExpiration() != null
+        ? claims.getExpiration().getTime()
+        : System.currentTimeMillis();
+    revokeLocally(userId, digest, expiresAt);
+    try {
+      redisTemplate.convertAndSend(RedisConstants.TOKEN_REVOCATION_CHANNEL,
+          userId + RedisConstants.TOKEN_REVOCATION_SEPARATOR + digest
+              + RedisConstants.TOKEN_REVOCATION_SEPARATOR + expiresAt);
+    } catch (Exception e) {
+      log.error("Failed to publish token revocation: {}", e.getMessage());
+    }
+  }
+
+  @Override
+  public void revokeLocally(Long userId, String digest, long expiresAt) {
+    long now = System.currentTimeMillis();
+    revokedTokens.values().removeIf(revokedUntil -> revokedUntil <= now);
+    revokedTokens.put(digest, expiresAt);
+
+    long tokenLifetime = TimeUnit.HOURS.toMillis(USER_TOKEN_EXPIRING_TIME_IN_HOURS);
+    revokedUsers.values().removeIf(revokedAt -> revokedAt <= now - tokenLifetime);
+    revokedUsers.merge(userId, now, Math::max);
+    verifiedTokens.values().removeIf(verifiedToken -> verifiedToken.userId().equals(userId));
   }
 
   @Override
@@ -168,10 +263,50 @@ public class TokenServiceImpl implements TokenService {
         .setSubject(userId.toString())
         .setIssuedAt(new Date(System.currentTimeMillis()))
         .setExpiration(Date.from(Instant.now().plus(USER_TOKEN_EXPIRING_TIME_IN_HOURS, ChronoUnit.HOURS)))
-        .signWith(SignatureAlgorithm.HS256, getSignInKey())
+        .signWith(SignatureAlgorithm.HS256, signInKey)
         .compact();
   }
 
+  private Long extractId(Claims claims) {
+    String subject = claims.getSubject();
+    validateSubject(subject);
+    return NumberUtils.toLong(subject);
+  }
+
+  /** Returns the claims of a token that may be already expired, or null if it can't be read */
+  private Claims readClaims(String token) {
+    try {
+      return jwtParser.parseClaimsJws(token).getBody();
+    } catch (ExpiredJwtException e) {
+      return e.getClaims();
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
+  private void cacheVerifiedToken(String digest, Long userId, Date expiration, long now) {
+    if (expiration == null) {
+      return;
+    }
+    if (verifiedTokens.size() >= CACHE_SIZE) {
+      verifiedTokens.values().removeIf(verifiedToken -> verifiedToken.expiresAt() <= now);
+      if (verifiedTokens.size() >= CACHE_SIZE) {
+        verifiedTokens.clear();
+      }
+    }
+    verifiedTokens.put(digest, new VerifiedToken(userId, expiration.getTime(), now));
+  }
+
+  private String digest(String token) {
+    try {
+      byte[] hash = MessageDigest.getInstance("SHA-256")
+          .digest(token.getBytes(StandardCharsets.UTF_8));
+      return Base64.getEncoder().encodeToString(hash);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
   private void validateSubject(String subject) {
     if (!NumberUtils.isCreatable(subject)) {
       throw new InvalidTokenException(
@@ -194,25 +329,10 @@ public class TokenServiceImpl implements TokenService {
     }
   }
 
-  private void verifyProvidedTokenValid(String token) {
-    parseClaims(token);
-  }
-
-  private <T> T extractClaim(String token, Function<Claims, T> claimsResolvers) {
-    final Claims claims = parseClaims(token);
-
-    return claimsResolvers.apply(claims);
-  }
-
   private Claims parseClaims(String token) {
     Claims claims;
     try {
-      claims =
-          Jwts.parserBuilder()
-              .setSigningKey(getSignInKey())
-              .build()
-              .parseClaimsJws(token)
-              .getBody();
+      claims = jwtParser.parseClaimsJws(token).getBody();
     } catch (ExpiredJwtException expiredJwtException) {
       throw new InvalidTokenException(
           expiredJwtException.getMessage(), "Invalid token. The provided token is expired ");
@@ -223,8 +343,9 @@ public class TokenServiceImpl implements TokenService {
     return claims;
   }
 
-  private Key getSignInKey() {
-    byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-    return Keys.hmacShaKeyFor(keyBytes);
-  }
+  /**
+   * @param verifiedAt Local time the stored token was checked at, taken before the check so a
+   *     revocation received while it runs isn't missed.
+   */
+  private record VerifiedToken(Long userId, long expiresAt, long verifiedAt) {}
 }
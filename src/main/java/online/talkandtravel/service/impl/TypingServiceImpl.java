@@ -0,0 +1,121 @@
+package online.talkandtravel.service.impl;
+
+import static online.talkandtravel.util.constants.ApiPathConstants.MESSAGES_SUBSCRIBE_PATH;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import online.talkandtravel.model.dto.event.EventResponse;
+import online.talkandtravel.model.dto.user.UserNameDto;
+import online.talkandtravel.model.entity.MessageType;
+import online.talkandtravel.service.BroadcastService;
+import online.talkandtravel.service.TypingService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Implementation of the {@link TypingService}.
+ *
+ * <p>Typing state is stored per chat and user. A START_TYPING event is broadcast when a user starts
+ * typing and then again at most once per {@code typing.startIntervalInMs}, however often the
+ * client sends it. A background sweeper runs every {@code typing.sweepIntervalInMs} and broadcasts
+ * STOP_TYPING for users that haven't sent a typing event for {@code typing.timeoutInMs}, so a
+ * client that disconnects while typing doesn't leave the indicator on.
+ */
+@Service
+@Log4j2
+@RequiredArgsConstructor
+public class TypingServiceImpl implements TypingService {
+
+  private final BroadcastService broadcastService;
+
+  @Value("${typing.startIntervalInMs}")
+  private long START_INTERVAL_IN_MS;
+
+  @Value("${typing.timeoutInMs}")
+  private long TIMEOUT_IN_MS;
+
+  @Value("${typing.sweepIntervalInMs}")
+  private long SWEEP_INTERVAL_IN_MS;
+
+  private final Map<TypingKey, TypingState> typingStates = new ConcurrentHashMap<>();
+  private ScheduledExecutorService sweeper;
+
+  @PostConstruct
+  public void start() {
+    sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "typing-sweeper");
+      thread.setDaemon(true);
+      return thread;
+    });
+    sweeper.scheduleWithFixedDelay(this::stopExpired, SWEEP_INTERVAL_IN_MS, SWEEP_INTERVAL_IN_MS,
+        TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  public void stop() {
+    sweeper.shutdownNow();
+  }
+
+  @Override
+  public boolean startTyping(Long chatId, UserNameDto user) {
+    long now = System.currentTimeMillis();
+    boolean[] broadcast = {false};
+    typingStates.compute(new TypingKey(chatId, user.id()), (key, state) -> {
+      if (state == null || now - state.startedAt >= START_INTERVAL_IN_MS) {
+        broadcast[0] = true;
+        return new TypingState(user, now);
+      }
+      state.lastActivityAt = now;
+      return state;
+    });
+    return broadcast[0];
+  }
+
+  @Override
+  public boolean stopTyping(Long chatId, Long userId) {
+    return typingStates.remove(new TypingKey(chatId, userId)) != null;
+  }
+
+  /** Removes expired typing states and notifies chat subscribers that these users stopped typing */
+  public void stopExpired() {
+    long now = System.currentTimeMillis();
+    typingStates.forEach((key, state) -> {
+      if (now - state.lastActivityAt >= TIMEOUT_IN_MS && typingStates.remove(key, state)) {
+        notifyStoppedTyping(key.chatId(), state.user);
+      }
+    });
+  }
+
+  private void notifyStoppedTyping(long chatId, UserNameDto user) {
+    try {
+      EventResponse response = new EventResponse(user, MessageType.STOP_TYPING, ZonedDateTime.now(ZoneOffset.UTC));
+      broadcastService.broadcast(MESSAGES_SUBSCRIBE_PATH.formatted(chatId), response);
+    } catch (Exception e) {
+      log.error("Failed to send STOP_TYPING to chat {}: {}", chatId, e.getMessage());
+    }
+  }
+
+  private record TypingKey(long chatId, long userId) {}
+
+  private static final class TypingState {
+
+    private final UserNameDto user;
+    private final long startedAt;
+    private volatile long lastActivityAt;
+
+    private TypingState(UserNameDto user, long startedAt) {
+      this.user = user;
+      this.startedAt = startedAt;
+      this.lastActivityAt = startedAt;
+    }
+  }
+}
@@ -0,0 +1,125 @@
+package online.talkandtravel.service.impl;
+
+import static online.talkandtravel.util.constants.RedisConstants.USER_DETAILS_INVALIDATION_CHANNEL;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import online.talkandtravel.exception.user.UserNotFoundException;
+import online.talkandtravel.repository.UserRepository;
+import online.talkandtravel.security.CustomUserDetails;
+import online.talkandtravel.service.UserDetailsCacheService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Implementation of the {@link UserDetailsCacheService} backed by a bounded in-memory cache.
+ *
+ * <p>The cache holds immutable {@link CustomUserDetails} for {@code userDetails.cacheTtlInSeconds}
+ * and at most {@code userDetails.cacheSize} users. When it is full expired principals are dropped,
+ * and if that isn't enough it is cleared.
+ *
+ * <p>Every eviction bumps a version. A principal loaded from the database is cached only if the
+ * version didn't change during the query, so a concurrent update can't be overwritten with a stale
+ * result.
+ *
+ * <p>Evictions run after the surrounding transaction commits. When {@code
+ * userDetails.shareThroughRedis} is enabled they are also published to the {@link
+ * online.talkandtravel.util.constants.RedisConstants#USER_DETAILS_INVALIDATION_CHANNEL} channel,
+ * so other application instances drop their copies too.
+ */
+@Service
+@Log4j2
+@RequiredArgsConstructor
+public class UserDetailsCacheServiceImpl implements UserDetailsCacheService {
+
+  private final UserRepository userRepository;
+  private final RedisTemplate<String, String> redisTemplate;
+
+  @Value("${userDetails.cacheSize}")
+  private int CACHE_SIZE;
+
+  @Value("${userDetails.cacheTtlInSeconds}")
+  private long CACHE_TTL_IN_SECONDS;
+
+  @Value("${userDetails.shareThroughRedis}")
+  private boolean SHARE_THROUGH_REDIS;
+
+  private final Map<Long, CachedUserDetails> cache = new ConcurrentHashMap<>();
+  private final AtomicLong version = new AtomicLong();
+
+  @Override
+  public UserDetails getUserDetails(Long userId) {
+    long now = System.currentTimeMillis();
+    CachedUserDetails cached = cache.get(userId);
+    if (cached != null && cached.expiresAt() > now) {
+      return cached.userDetails();
+    }
+
+    long versionBeforeLoad = version.get();
+    CustomUserDetails userDetails = userRepository.findById(userId)
+        .map(CustomUserDetails::new)
+        .orElseThrow(() -> new UserNotFoundException(userId));
+    if (version.get() == versionBeforeLoad) {
+      put(userId, userDetails, now);
+    }
+    return userDetails;
+  }
+
+  @Override
+  public void evict(Long userId) {
+    evictLocally(userId);
+    afterCommit(() -> {
+      evictLocally(userId);
+      publishInvalidation(userId);
+    });
+  }
+
+  @Override
+  public void evictLocally(Long userId) {
+    version.incrementAndGet();
+    cache.remove(userId);
+  }
+
+  private void put(Long userId, CustomUserDetails userDetails, long now) {
+    if (cache.size() >= CACHE_SIZE) {
+      cache.values().removeIf(cached -> cached.expiresAt() <= now);
+      if (cache.size() >= CACHE_SIZE) {
+        cache.clear();
+      }
+    }
+    cache.put(userId, new CachedUserDetails(userDetails, now + CACHE_TTL_IN_SECONDS * 1000));
+  }
+
+  private void publishInvalidation(Long userId) {
+    if (!SHARE_THROUGH_REDIS) {
+      return;
+    }
+    try {
+      redisTemplate.convertAndSend(USER_DETAILS_INVALIDATION_CHANNEL, userId.toString());
+    } catch (Exception e) {
+      log.error("Failed to publish user details invalidation {}: {}", userId, e.getMessage());
+    }
+  }
+
+  private void afterCommit(Runnable action) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      action.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        action.run();
+      }
+    });
+  }
+
+  private record CachedUserDetails(CustomUserDetails userDetails, long expiresAt) {}
+}
@@ -22,9 +22,12 @@ import online.talkandtravel.model.dto.user.UserDtoBasic;
 import online.talkandtravel.model.dto.user.UserDtoShort;
 import online.talkandtravel.model.entity.Role;
 import online.talkandtravel.model.entity.User;
+import online.talkandtravel.repository.ChatRepository;
+import online.talkandtravel.repository.UserChatRepository;
 import online.talkandtravel.repository.UserRepository;
-import online.talkandtravel.security.CustomUserDetails;
 import online.talkandtravel.service.AuthenticationService;
+import online.talkandtravel.service.ChatMembershipService;
+import online.talkandtravel.service.UserDetailsCacheService;
 import online.talkandtravel.service.UserService;
 import online.talkandtravel.util.mapper.UserMapper;
 import org.springframework.beans.factory.annotation.Value;
@@ -66,6 +69,10 @@ public class UserServiceImpl implements UserService {
   private final PasswordEncoder passwordEncoder;
   private final UserMapper userMapper;
   private final AuthenticationService authenticationService;
+  private final UserDetailsCacheService userDetailsCacheService;
+  private final UserChatRepository userChatRepository;
+  private final ChatRepository chatRepository;
+  private final ChatMembershipService chatMembershipService;
 
   @Override
   public User getUser(String email) {
@@ -80,6 +87,7 @@ public class UserServiceImpl implements UserService {
     user.setPassword(encodedPassword);
 
     userRepository.save(user);
+    userDetailsCacheService.evict(user.getId());
   }
 
   @Override
@@ -154,9 +162,7 @@ public class UserServiceImpl implements UserService {
 
   @Override
   public UserDetails getUserDetails(Long userId) {
-    return userRepository.findById(userId)
-        .map(CustomUserDetails::new)
-        .orElseThrow(() -> new UserNotFoundException(userId));
+    return userDetailsCacheService.getUserDetails(userId);
   }
 
   /**
@@ -168,10 +174,11 @@ public class UserServiceImpl implements UserService {
   @Override
   @Transactional
   public UpdateUserResponse update(UpdateUserRequest request) {
-    User existingUser = authenticationService.getAuthenticatedUser();
+    User existingUser = getUserById(authenticationService.getAuthenticatedUser().getId());
     log.info("update user with id:{}, dto:{}", existingUser.getId(), request);
     userMapper.updateUser(request, existingUser);
     User updated = userRepository.save(existingUser);
+    userDetailsCacheService.evict(updated.getId());
     return userMapper.toUpdateUserResponse(updated);
   }
 
@@ -200,8 +207,15 @@ public class UserServiceImpl implements UserService {
     }
   }
 
+  /**
+   * Anonymizes the user and removes them from all country chats. Removing the countries deletes the
+   * country chat memberships through orphan removal, so the member counts and cached memberships of
+   * those chats are updated here in the same transaction.
+   */
   @Override
+  @Transactional
   public void deleteUser(User user) {
+    List<Long> countryChatIds = userChatRepository.findAllCountryChatIdsByUserId(user.getId());
     user.setUserName(DELETED_USER_NAME);
     user.setAbout(null);
     user.setUserEmail(null);
@@ -209,6 +223,11 @@ public class UserServiceImpl implements UserService {
     user.setPassword(null);
     user.setCountries(List.of());
     userRepository.save(user);
+    for (Long chatId : countryChatIds) {
+      chatRepository.changeUsersCount(chatId, -1);
+      chatMembershipService.evict(chatId, user.getId());
+    }
+    userDetailsCacheService.evict(user.getId());
   }
 
   private UserDtoBasic saveAndMapToDto(User user) {
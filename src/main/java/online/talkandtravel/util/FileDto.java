@@ -1,7 +1,14 @@
 package online.talkandtravel.util;
 
+import java.nio.file.Path;
+
+/**
+ * Upload that has been spooled to a temporary file so it can outlive the request that carried it.
+ * The file is owned by whoever processes the dto and must be removed with
+ * {@link FilesUtils#deleteTempFile(Path)} once it is no longer needed.
+ */
 public record FileDto(
-    byte[] fileBytes,
+    Path file,
     String contentType,
     String filename,
     Long size) {
@@ -1,29 +1,125 @@
 package online.talkandtravel.util;
 
 import static online.talkandtravel.util.constants.FileFormatConstants.ANIMATED_WEBP_IMAGE_MARKER;
+import static online.talkandtravel.util.constants.FileFormatConstants.IMAGE_HEADER_SIZE;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import lombok.extern.log4j.Log4j2;
 import online.talkandtravel.exception.file.ImageProcessingException;
 import org.springframework.web.multipart.MultipartFile;
 
 @Log4j2
 public class FilesUtils {
+
+  private static final String UPLOAD_TEMP_FILE_PREFIX = "upload-";
+  private static final String DOWNLOAD_TEMP_FILE_PREFIX = "download-";
+  private static final String UPLOAD_TEMP_FILE_SUFFIX = ".tmp";
+  private static final String CONTENT_HASH_ALGORITHM = "SHA-256";
+  private static final int CONTENT_HASH_BUFFER_SIZE = 64 * 1024;
+
   public static double bytesToMegabytes(long bytes) {
     return bytes / (1024.0 * 1024.0);
   }
 
+  /**
+   * Spools the multipart upload to a temporary file once, so the content is never held on the heap
+   * as a whole. The caller owns the returned file and has to delete it after processing.
+   */
   public static FileDto toFileDto(MultipartFile file) {
-    return new FileDto(getBytes(file), file.getContentType(), file.getOriginalFilename(),
+    return new FileDto(spoolToTempFile(file), file.getContentType(), file.getOriginalFilename(),
         file.getSize());
   }
 
+  public static Path spoolToTempFile(MultipartFile file) {
+    Path path = null;
+    try {
+      path = Files.createTempFile(UPLOAD_TEMP_FILE_PREFIX, UPLOAD_TEMP_FILE_SUFFIX);
+      file.transferTo(path);
+      return path;
+    } catch (IOException e) {
+      log.error("Can't spool upload {} to a temp file", file.getOriginalFilename(), e);
+      deleteTempFile(path);
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** Creates an empty temp file to download into, the caller has to delete it */
+  public static Path createDownloadTempFile() {
+    try {
+      return Files.createTempFile(DOWNLOAD_TEMP_FILE_PREFIX, UPLOAD_TEMP_FILE_SUFFIX);
+    } catch (IOException e) {
+      log.error("Can't create a temp file to download into", e);
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public static void deleteTempFile(Path path) {
+    if (path == null) {
+      return;
+    }
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException e) {
+      log.warn("Can't delete temp file {}: {}", path, e.getMessage());
+    }
+  }
+
+  /**
+   * Reads only the first bytes of the file, which is enough to sniff its type and animation markers
+   * without loading the whole file.
+   */
+  public static byte[] readHeader(Path file) {
+    try (InputStream inputStream = Files.newInputStream(file)) {
+      return inputStream.readNBytes(IMAGE_HEADER_SIZE);
+    } catch (IOException e) {
+      log.error("Can't read header of {}", file);
+      throw new ImageProcessingException(e.getMessage());
+    }
+  }
+
+  /**
+   * Returns the hex encoded SHA-256 of the file content, used to recognize identical uploads.
+   */
+  public static String contentHash(Path file) {
+    MessageDigest digest = sha256();
+    try (InputStream inputStream = Files.newInputStream(file)) {
+      byte[] buffer = new byte[CONTENT_HASH_BUFFER_SIZE];
+      int read;
+      while ((read = inputStream.read(buffer)) != -1) {
+        digest.update(buffer, 0, read);
+      }
+    } catch (IOException e) {
+      log.error("Can't hash file {}", file);
+      throw new UncheckedIOException(e);
+    }
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  public static String contentHash(byte[] content) {
+    return HexFormat.of().formatHex(sha256().digest(content));
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance(CONTENT_HASH_ALGORITHM);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
   public static boolean isAnimatedWebPImage(byte[] image)  {
     try {
       ByteArrayInputStream webpStream = new ByteArrayInputStream(image);
-      byte[] buffer = new byte[64];
+      byte[] buffer = new byte[IMAGE_HEADER_SIZE];
       webpStream.read(buffer);
 
       String header = new String(buffer, StandardCharsets.UTF_8);
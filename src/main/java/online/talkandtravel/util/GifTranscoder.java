@@ -0,0 +1,253 @@
+package online.talkandtravel.util;
+
+import com.madgag.gif.fmsware.AnimatedGifEncoder;
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import javax.imageio.IIOException;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+import lombok.extern.log4j.Log4j2;
+import online.talkandtravel.util.constants.ResizeMode;
+import org.w3c.dom.NodeList;
+
+/**
+ * Resizes an animated GIF one frame at a time.
+ *
+ * <p>Frames are read with the JDK GIF reader and drawn onto a canvas of the logical screen size
+ * according to their offsets and disposal methods. Every frame that is kept is downscaled into one
+ * thumbnail raster per width and passed to an {@link AnimatedGifEncoder}, which writes it out
+ * right away. Only the canvas, a copy of it for frames disposed to the previous state and the
+ * thumbnails stay on the heap, so peak memory depends on the GIF dimensions but not on its frame
+ * count.
+ *
+ * <p>When {@code maxFrames} is positive and the GIF has more frames, only every n-th frame is
+ * encoded, with n chosen so that at most {@code maxFrames} remain. The delays of the dropped frames
+ * are added to the frame shown in their place, so the animation keeps its duration.
+ */
+@Log4j2
+public class GifTranscoder {
+
+  private static final String GIF_FORMAT_NAME = "gif";
+  private static final String STREAM_METADATA_FORMAT = "javax_imageio_gif_stream_1.0";
+  private static final String IMAGE_METADATA_FORMAT = "javax_imageio_gif_image_1.0";
+  private static final String RESTORE_TO_BACKGROUND = "restoreToBackgroundColor";
+  private static final String RESTORE_TO_PREVIOUS = "restoreToPrevious";
+  private static final int MILLIS_IN_DELAY_UNIT = 10;
+
+  /** Thumbnails play at half the speed of the original, as they did before frames were streamed */
+  private static final int DELAY_FACTOR = 2;
+
+  /**
+   * In {@link ResizeMode#SMOOTH} mode GIFs wider or taller than this are resized with {@link
+   * ResizeMode#SPEED}, the smooth resize is too slow to run on every frame of a big canvas
+   */
+  private static final int SMOOTH_MAX_CANVAS_SIZE = 250;
+
+  /**
+   * Resizes the GIF to a square of every width in {@code outputs} and writes each one to its
+   * stream. The input stream is left open.
+   *
+   * @param input The original GIF.
+   * @param outputs The streams to write the resized GIFs to, keyed by width.
+   * @param resizeMode The resize mode applied to every frame.
+   * @param maxFrames The maximum number of frames to encode, 0 or less to keep them all.
+   */
+  public static void transcode(ImageInputStream input,
+      Map<Integer, ? extends OutputStream> outputs, ResizeMode resizeMode, int maxFrames)
+      throws IOException {
+    ImageReader reader = ImageIO.getImageReadersByFormatName(GIF_FORMAT_NAME).next();
+    try {
+      reader.setInput(input, false, false);
+      transcode(reader, outputs, resizeMode, maxFrames);
+    } finally {
+      reader.dispose();
+    }
+  }
+
+  private static void transcode(ImageReader reader, Map<Integer, ? extends OutputStream> outputs,
+      ResizeMode resizeMode, int maxFrames) throws IOException {
+    int frameCount = reader.getNumImages(true);
+    if (frameCount < 1) {
+      throw new IIOException("GIF has no frames");
+    }
+    int frameStep = maxFrames > 0 ? Math.max(1, (frameCount + maxFrames - 1) / maxFrames) : 1;
+    log.info("Transcode GIF with {} frames, keep every {} frame", frameCount, frameStep);
+
+    Frame firstFrame = Frame.of(reader.getImageMetadata(0));
+    int[] canvasSize = canvasSize(reader.getStreamMetadata(), firstFrame);
+    BufferedImage canvas = new BufferedImage(canvasSize[0], canvasSize[1],
+        BufferedImage.TYPE_INT_ARGB);
+    BufferedImage previousCanvas = null;
+    Graphics2D graphics = canvas.createGraphics();
+    ResizeMode frameResizeMode = resizeMode == ResizeMode.SMOOTH
+        && (canvas.getWidth() > SMOOTH_MAX_CANVAS_SIZE
+        || canvas.getHeight() > SMOOTH_MAX_CANVAS_SIZE)
+        ? ResizeMode.SPEED
+        : resizeMode;
+
+    List<Integer> descendingWidths = outputs.keySet().stream()
+        .sorted(Comparator.reverseOrder())
+        .toList();
+    BufferedImage[] thumbnails = new BufferedImage[descendingWidths.size()];
+    AnimatedGifEncoder[] encoders = new AnimatedGifEncoder[descendingWidths.size()];
+    for (int i = 0; i < descendingWidths.size(); i++) {
+      int width = descendingWidths.get(i);
+      thumbnails[i] = new BufferedImage(width, width, BufferedImage.TYPE_INT_ARGB);
+      encoders[i] = new AnimatedGifEncoder();
+      encoders[i].start(outputs.get(width));
+      encoders[i].setRepeat(0);
+    }
+
+    try {
+      int pendingDelay = 0;
+      for (int index = 0; index < frameCount; index++) {
+        Frame frame;
+        BufferedImage image;
+        try {
+          frame = index == 0 ? firstFrame : Frame.of(reader.getImageMetadata(index));
+          image = reader.read(index);
+        } catch (IOException e) {
+          if (index == 0) {
+            throw e;
+          }
+          log.warn("Can't read GIF frame {}, keep the first {} frames: {}", index, index,
+              e.getMessage());
+          break;
+        }
+
+        if (frame.disposal().equals(RESTORE_TO_PREVIOUS)) {
+          if (previousCanvas == null) {
+            previousCanvas = new BufferedImage(canvas.getWidth(), canvas.getHeight(),
+                BufferedImage.TYPE_INT_ARGB);
+          }
+          copyPixels(canvas, previousCanvas);
+        }
+        graphics.drawImage(image, frame.left(), frame.top(), null);
+
+        if (index % frameStep == 0) {
+          if (index > 0) {
+            addFrames(encoders, thumbnails, pendingDelay);
+          }
+          resizeInto(canvas, thumbnails, frameResizeMode);
+          pendingDelay = 0;
+        }
+        pendingDelay += frame.delay();
+
+        if (frame.disposal().equals(RESTORE_TO_BACKGROUND)) {
+          graphics.setComposite(AlphaComposite.Clear);
+          graphics.fillRect(frame.left(), frame.top(), frame.width(), frame.height());
+          graphics.setComposite(AlphaComposite.SrcOver);
+        } else if (frame.disposal().equals(RESTORE_TO_PREVIOUS)) {
+          copyPixels(previousCanvas, canvas);
+        }
+      }
+      addFrames(encoders, thumbnails, pendingDelay);
+    } finally {
+      graphics.dispose();
+    }
+
+    for (AnimatedGifEncoder encoder : encoders) {
+      encoder.finish();
+    }
+  }
+
+  /**
+   * Downscales the canvas into the largest thumbnail and every smaller thumbnail from the one
+   * before it.
+   */
+  private static void resizeInto(BufferedImage canvas, BufferedImage[] thumbnails,
+      ResizeMode resizeMode) {
+    BufferedImage source = canvas;
+    for (BufferedImage thumbnail : thumbnails) {
+      Arrays.fill(((DataBufferInt) thumbnail.getRaster().getDataBuffer()).getData(), 0);
+      int size = thumbnail.getWidth();
+      double aspectRatio = (double) source.getWidth() / source.getHeight();
+      int width = size;
+      int height = (int) (size / aspectRatio);
+      if (height < size) {
+        height = size;
+        width = (int) (size * aspectRatio);
+      }
+      ImageResizeUtils.resizeInto(source, thumbnail, (size - width) / 2, (size - height) / 2,
+          width, height, resizeMode);
+      source = thumbnail;
+    }
+  }
+
+  private static void addFrames(AnimatedGifEncoder[] encoders, BufferedImage[] thumbnails,
+      int delay) {
+    for (int i = 0; i < encoders.length; i++) {
+      encoders[i].setDelay(delay * MILLIS_IN_DELAY_UNIT * DELAY_FACTOR);
+      encoders[i].addFrame(thumbnails[i]);
+    }
+  }
+
+  private static void copyPixels(BufferedImage source, BufferedImage target) {
+    int[] sourcePixels = ((DataBufferInt) source.getRaster().getDataBuffer()).getData();
+    int[] targetPixels = ((DataBufferInt) target.getRaster().getDataBuffer()).getData();
+    System.arraycopy(sourcePixels, 0, targetPixels, 0, sourcePixels.length);
+  }
+
+  /**
+   * Returns the logical screen size, or the size of the first frame when the GIF doesn't declare
+   * one.
+   */
+  private static int[] canvasSize(IIOMetadata streamMetadata, Frame firstFrame) {
+    if (streamMetadata != null) {
+      IIOMetadataNode screen = child(
+          (IIOMetadataNode) streamMetadata.getAsTree(STREAM_METADATA_FORMAT),
+          "LogicalScreenDescriptor");
+      if (screen != null) {
+        int width = intAttribute(screen, "logicalScreenWidth", 0);
+        int height = intAttribute(screen, "logicalScreenHeight", 0);
+        if (width > 0 && height > 0) {
+          return new int[] {width, height};
+        }
+      }
+    }
+    return new int[] {firstFrame.left() + firstFrame.width(),
+        firstFrame.top() + firstFrame.height()};
+  }
+
+  private static IIOMetadataNode child(IIOMetadataNode root, String name) {
+    NodeList nodes = root.getElementsByTagName(name);
+    return nodes.getLength() > 0 ? (IIOMetadataNode) nodes.item(0) : null;
+  }
+
+  private static int intAttribute(IIOMetadataNode node, String name, int defaultValue) {
+    String value = node.getAttribute(name);
+    return value == null || value.isEmpty() ? defaultValue : Integer.parseInt(value);
+  }
+
+  /**
+   * Placement and timing of a single frame.
+   *
+   * @param delay The delay before the next frame, in hundredths of a second.
+   */
+  private record Frame(int left, int top, int width, int height, int delay, String disposal) {
+
+    static Frame of(IIOMetadata metadata) {
+      IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(IMAGE_METADATA_FORMAT);
+      IIOMetadataNode descriptor = child(root, "ImageDescriptor");
+      IIOMetadataNode control = child(root, "GraphicControlExtension");
+      return new Frame(
+          intAttribute(descriptor, "imageLeftPosition", 0),
+          intAttribute(descriptor, "imageTopPosition", 0),
+          intAttribute(descriptor, "imageWidth", 0),
+          intAttribute(descriptor, "imageHeight", 0),
+          control == null ? 0 : intAttribute(control, "delayTime", 0),
+          control == null ? "none" : control.getAttribute("disposalMethod"));
+    }
+  }
+}
@@ -0,0 +1,23 @@
+package online.talkandtravel.util;
+
+/**
+ * Format, dimensions and frame count of an image as declared in its header, read by {@link
+ * ImageProbe} without decoding any pixels.
+ */
+public record ImageHeader(
+    String format,
+    int width,
+    int height,
+    int frameCount,
+    boolean animated) {
+
+  /** Number of pixels of a single frame, which is what a decode allocates */
+  public long pixels() {
+    return (long) width * height;
+  }
+
+  /** Number of pixels of all frames, which is what a resize of the whole animation processes */
+  public long animationPixels() {
+    return pixels() * frameCount;
+  }
+}
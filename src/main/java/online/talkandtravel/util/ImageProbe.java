@@ -0,0 +1,188 @@
+package online.talkandtravel.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Locale;
+import javax.imageio.IIOException;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.FileImageInputStream;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import org.w3c.dom.NodeList;
+
+/**
+ * Reads the {@link ImageHeader} of an image without decoding its pixels.
+ *
+ * <ul>
+ *   <li>WebP headers are parsed here, the chunk headers are walked to count the frames of an
+ *       animation.
+ *   <li>Other formats go through the {@link ImageReader} that ImageIO picks for the content, which
+ *       only reads the header to answer {@link ImageReader#getWidth(int)}. GIF frames are counted
+ *       by skipping over their data, the canvas is the logical screen declared by the GIF.
+ * </ul>
+ *
+ * <p>The format is recognized from the content, not from the declared content type. Readers may
+ * discard what they have read, so the image has to be decoded from a new stream afterwards.
+ */
+public class ImageProbe {
+
+  private static final String GIF_FORMAT_NAME = "gif";
+  private static final String WEBP_FORMAT_NAME = "webp";
+  private static final String GIF_STREAM_METADATA_FORMAT = "javax_imageio_gif_stream_1.0";
+
+  private static final String RIFF_SIGNATURE = "RIFF";
+  private static final String WEBP_SIGNATURE = "WEBP";
+  private static final String VP8_CHUNK = "VP8 ";
+  private static final String VP8L_CHUNK = "VP8L";
+  private static final String VP8X_CHUNK = "VP8X";
+  private static final String ANMF_CHUNK = "ANMF";
+  private static final int WEBP_HEADER_SIZE = 30;
+  private static final int WEBP_FIRST_CHUNK_OFFSET = 12;
+  private static final int WEBP_CHUNK_HEADER_SIZE = 8;
+  private static final int VP8X_ANIMATION_FLAG = 0x02;
+  private static final int VP8_DIMENSION_MASK = 0x3FFF;
+
+  public static ImageHeader probe(byte[] image) throws IOException {
+    try (ImageInputStream input = new MemoryCacheImageInputStream(
+        new ByteArrayInputStream(image))) {
+      return probe(input);
+    }
+  }
+
+  public static ImageHeader probe(Path image) throws IOException {
+    try (ImageInputStream input = new FileImageInputStream(image.toFile())) {
+      return probe(input);
+    }
+  }
+
+  public static ImageHeader probe(ImageInputStream input) throws IOException {
+    long start = input.getStreamPosition();
+    input.mark();
+    byte[] header = new byte[WEBP_HEADER_SIZE];
+    boolean webP = readFully(input, header) && isWebP(header);
+    input.reset();
+    if (webP) {
+      return probeWebP(input, start, header);
+    }
+    return probeWithImageReader(input);
+  }
+
+  private static ImageHeader probeWithImageReader(ImageInputStream input) throws IOException {
+    Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+    if (!readers.hasNext()) {
+      throw new IIOException("Unknown image format");
+    }
+    ImageReader reader = readers.next();
+    try {
+      reader.setInput(input, false, true);
+      String format = reader.getFormatName().toLowerCase(Locale.ROOT);
+      int width = reader.getWidth(0);
+      int height = reader.getHeight(0);
+      int frameCount = 1;
+
+      if (format.equals(GIF_FORMAT_NAME)) {
+        IIOMetadataNode screen = gifLogicalScreen(reader.getStreamMetadata());
+        if (screen != null) {
+          width = Math.max(width, Integer.parseInt(screen.getAttribute("logicalScreenWidth")));
+          height = Math.max(height, Integer.parseInt(screen.getAttribute("logicalScreenHeight")));
+        }
+        frameCount = reader.getNumImages(true);
+      }
+      return new ImageHeader(format, width, height, frameCount, frameCount > 1);
+    } finally {
+      reader.dispose();
+    }
+  }
+
+  private static IIOMetadataNode gifLogicalScreen(IIOMetadata streamMetadata) {
+    if (streamMetadata == null) {
+      return null;
+    }
+    NodeList nodes = ((IIOMetadataNode) streamMetadata.getAsTree(GIF_STREAM_METADATA_FORMAT))
+        .getElementsByTagName("LogicalScreenDescriptor");
+    return nodes.getLength() > 0 ? (IIOMetadataNode) nodes.item(0) : null;
+  }
+
+  private static boolean isWebP(byte[] header) {
+    return chunkName(header, 0).equals(RIFF_SIGNATURE)
+        && chunkName(header, 8).equals(WEBP_SIGNATURE);
+  }
+
+  /**
+   * Reads the dimensions from the first chunk, which is VP8 for lossy, VP8L for lossless and VP8X
+   * for extended images. Only extended images can be animated.
+   */
+  private static ImageHeader probeWebP(ImageInputStream input, long start, byte[] header)
+      throws IOException {
+    String firstChunk = chunkName(header, WEBP_FIRST_CHUNK_OFFSET);
+    switch (firstChunk) {
+      case VP8_CHUNK -> {
+        int width = littleEndian(header, 26, 2) & VP8_DIMENSION_MASK;
+        int height = littleEndian(header, 28, 2) & VP8_DIMENSION_MASK;
+        return new ImageHeader(WEBP_FORMAT_NAME, width, height, 1, false);
+      }
+      case VP8L_CHUNK -> {
+        int bits = littleEndian(header, 21, 4);
+        int width = (bits & VP8_DIMENSION_MASK) + 1;
+        int height = ((bits >>> 14) & VP8_DIMENSION_MASK) + 1;
+        return new ImageHeader(WEBP_FORMAT_NAME, width, height, 1, false);
+      }
+      case VP8X_CHUNK -> {
+        boolean animated = (header[20] & VP8X_ANIMATION_FLAG) != 0;
+        int width = littleEndian(header, 24, 3) + 1;
+        int height = littleEndian(header, 27, 3) + 1;
+        int frameCount = animated ? countWebPFrames(input, start) : 1;
+        return new ImageHeader(WEBP_FORMAT_NAME, width, height, frameCount, animated);
+      }
+      default -> throw new IIOException("Unknown WebP chunk " + firstChunk);
+    }
+  }
+
+  /** Walks the chunk headers, seeking over the chunk data, and counts the animation frames */
+  private static int countWebPFrames(ImageInputStream input, long start) throws IOException {
+    byte[] chunkHeader = new byte[WEBP_CHUNK_HEADER_SIZE];
+    long offset = start + WEBP_FIRST_CHUNK_OFFSET;
+    int frameCount = 0;
+    while (true) {
+      input.seek(offset);
+      if (!readFully(input, chunkHeader)) {
+        break;
+      }
+      if (chunkName(chunkHeader, 0).equals(ANMF_CHUNK)) {
+        frameCount++;
+      }
+      long chunkSize = littleEndian(chunkHeader, 4, 4) & 0xFFFFFFFFL;
+      offset += WEBP_CHUNK_HEADER_SIZE + chunkSize + (chunkSize & 1);
+    }
+    return Math.max(frameCount, 1);
+  }
+
+  /** Returns false when the stream ends before the buffer is filled */
+  private static boolean readFully(ImageInputStream input, byte[] buffer) throws IOException {
+    try {
+      input.readFully(buffer);
+      return true;
+    } catch (EOFException e) {
+      return false;
+    }
+  }
+
+  private static String chunkName(byte[] header, int offset) {
+    return new String(header, offset, 4, StandardCharsets.US_ASCII);
+  }
+
+  private static int littleEndian(byte[] bytes, int offset, int length) {
+    int value = 0;
+    for (int i = length - 1; i >= 0; i--) {
+      value = (value << 8) | (bytes[offset + i] & 0xFF);
+    }
+    return value;
+  }
+}
@@ -0,0 +1,182 @@
+package online.talkandtravel.util;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import online.talkandtravel.util.constants.ResizeMode;
+
+/**
+ * Draws a downscaled copy of an image into a region of another image.
+ *
+ * <p>In {@link ResizeMode#BALANCED} mode the source is halved by averaging every 2x2 block of
+ * pixels until the next halving would go below the target size, then the last step is done with
+ * bicubic interpolation straight into the destination. The halving steps ping-pong between two
+ * scratch rasters allocated for the first two steps, so a large reduction allocates at most two
+ * intermediate images no matter how many steps it takes. Averaging works on the pixel arrays
+ * directly, which is an order of magnitude faster than a bilinear {@link Graphics2D} draw in the
+ * software pipeline used on servers.
+ */
+public class ImageResizeUtils {
+
+  public static void resizeInto(BufferedImage source, BufferedImage destination, int x, int y,
+      int width, int height, ResizeMode mode) {
+    switch (mode) {
+      case SMOOTH -> resizeSmooth(source, destination, x, y, width, height);
+      case SPEED -> draw(source, source.getWidth(), source.getHeight(), destination, x, y, width,
+          height, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+      case BALANCED -> resizeProgressively(source, destination, x, y, width, height);
+    }
+  }
+
+  private static void resizeSmooth(BufferedImage source, BufferedImage destination, int x, int y,
+      int width, int height) {
+    Image scaledImage = source.getScaledInstance(width, height, Image.SCALE_SMOOTH);
+    Graphics2D g2d = destination.createGraphics();
+    g2d.drawImage(scaledImage, x, y, null);
+    g2d.dispose();
+  }
+
+  private static void resizeProgressively(BufferedImage source, BufferedImage destination, int x,
+      int y, int width, int height) {
+    BufferedImage current = source;
+    int currentWidth = source.getWidth();
+    int currentHeight = source.getHeight();
+    BufferedImage[] scratch = new BufferedImage[2];
+    int scratchType = source.getTransparency() == Transparency.OPAQUE
+        ? BufferedImage.TYPE_INT_RGB
+        : BufferedImage.TYPE_INT_ARGB;
+    int next = 0;
+
+    while (currentWidth / 2 >= width && currentHeight / 2 >= height) {
+      int halfWidth = currentWidth / 2;
+      int halfHeight = currentHeight / 2;
+      if (scratch[next] == null) {
+        scratch[next] = new BufferedImage(halfWidth, halfHeight, scratchType);
+      }
+      halve(current, currentWidth, currentHeight, scratch[next]);
+      current = scratch[next];
+      currentWidth = halfWidth;
+      currentHeight = halfHeight;
+      next = 1 - next;
+    }
+    draw(current, currentWidth, currentHeight, destination, x, y, width, height,
+        RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+  }
+
+  /**
+   * Writes the top left {@code sourceWidth x sourceHeight} region of the source, halved in both
+   * dimensions, to the top left of the target. Colors are weighted by alpha, so fully transparent
+   * pixels don't darken the edges of what they surround.
+   */
+  private static void halve(BufferedImage source, int sourceWidth, int sourceHeight,
+      BufferedImage target) {
+    int halfWidth = sourceWidth / 2;
+    int halfHeight = sourceHeight / 2;
+    int[] upperRow = new int[sourceWidth];
+    int[] lowerRow = new int[sourceWidth];
+    int[] targetPixels = ((DataBufferInt) target.getRaster().getDataBuffer()).getData();
+    int targetStride = target.getWidth();
+    boolean opaque = target.getType() == BufferedImage.TYPE_INT_RGB;
+
+    for (int y = 0; y < halfHeight; y++) {
+      readRow(source, 2 * y, sourceWidth, upperRow);
+      readRow(source, 2 * y + 1, sourceWidth, lowerRow);
+      int targetOffset = y * targetStride;
+      for (int x = 0; x < halfWidth; x++) {
+        int left = 2 * x;
+        targetPixels[targetOffset + x] = opaque
+            ? averageOpaque(upperRow[left], upperRow[left + 1], lowerRow[left], lowerRow[left + 1])
+            : average(upperRow[left], upperRow[left + 1], lowerRow[left], lowerRow[left + 1]);
+      }
+    }
+  }
+
+  private static int averageOpaque(int p1, int p2, int p3, int p4) {
+    int red = (((p1 >> 16) & 0xFF) + ((p2 >> 16) & 0xFF) + ((p3 >> 16) & 0xFF) + ((p4 >> 16) & 0xFF) + 2) >> 2;
+    int green = (((p1 >> 8) & 0xFF) + ((p2 >> 8) & 0xFF) + ((p3 >> 8) & 0xFF) + ((p4 >> 8) & 0xFF) + 2) >> 2;
+    int blue = ((p1 & 0xFF) + (p2 & 0xFF) + (p3 & 0xFF) + (p4 & 0xFF) + 2) >> 2;
+    return 0xFF000000 | (red << 16) | (green << 8) | blue;
+  }
+
+  private static int average(int p1, int p2, int p3, int p4) {
+    int a1 = p1 >>> 24;
+    int a2 = p2 >>> 24;
+    int a3 = p3 >>> 24;
+    int a4 = p4 >>> 24;
+    int alphaSum = a1 + a2 + a3 + a4;
+    if (alphaSum == 0) {
+      return 0;
+    }
+    int red = (((p1 >> 16) & 0xFF) * a1 + ((p2 >> 16) & 0xFF) * a2 + ((p3 >> 16) & 0xFF) * a3
+        + ((p4 >> 16) & 0xFF) * a4) / alphaSum;
+    int green = (((p1 >> 8) & 0xFF) * a1 + ((p2 >> 8) & 0xFF) * a2 + ((p3 >> 8) & 0xFF) * a3
+        + ((p4 >> 8) & 0xFF) * a4) / alphaSum;
+    int blue = ((p1 & 0xFF) * a1 + (p2 & 0xFF) * a2 + (p3 & 0xFF) * a3 + (p4 & 0xFF) * a4)
+        / alphaSum;
+    int alpha = (alphaSum + 2) >> 2;
+    return (alpha << 24) | (red << 16) | (green << 8) | blue;
+  }
+
+  /**
+   * Reads a row of pixels as non premultiplied ARGB. The image types produced by our decoders are
+   * read from their data buffers directly, anything else goes through {@link BufferedImage#getRGB}.
+   */
+  private static void readRow(BufferedImage image, int y, int width, int[] row) {
+    WritableRaster raster = image.getRaster();
+    if (raster.getParent() != null || raster.getDataBuffer().getOffset() != 0) {
+      image.getRGB(0, y, width, 1, row, 0, width);
+      return;
+    }
+    switch (image.getType()) {
+      case BufferedImage.TYPE_INT_RGB -> {
+        int[] pixels = ((DataBufferInt) raster.getDataBuffer()).getData();
+        int offset = y * ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+        for (int x = 0; x < width; x++) {
+          row[x] = 0xFF000000 | pixels[offset + x];
+        }
+      }
+      case BufferedImage.TYPE_INT_ARGB -> {
+        int[] pixels = ((DataBufferInt) raster.getDataBuffer()).getData();
+        int offset = y * ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+        System.arraycopy(pixels, offset, row, 0, width);
+      }
+      case BufferedImage.TYPE_3BYTE_BGR -> {
+        byte[] pixels = ((DataBufferByte) raster.getDataBuffer()).getData();
+        int offset = y * ((ComponentSampleModel) raster.getSampleModel()).getScanlineStride();
+        for (int x = 0; x < width; x++, offset += 3) {
+          row[x] = 0xFF000000 | (pixels[offset + 2] & 0xFF) << 16 | (pixels[offset + 1] & 0xFF) << 8
+              | (pixels[offset] & 0xFF);
+        }
+      }
+      case BufferedImage.TYPE_4BYTE_ABGR -> {
+        byte[] pixels = ((DataBufferByte) raster.getDataBuffer()).getData();
+        int offset = y * ((ComponentSampleModel) raster.getSampleModel()).getScanlineStride();
+        for (int x = 0; x < width; x++, offset += 4) {
+          row[x] = (pixels[offset] & 0xFF) << 24 | (pixels[offset + 3] & 0xFF) << 16
+              | (pixels[offset + 2] & 0xFF) << 8 | (pixels[offset + 1] & 0xFF);
+        }
+      }
+      default -> image.getRGB(0, y, width, 1, row, 0, width);
+    }
+  }
+
+  /**
+   * Draws the top left {@code sourceWidth x sourceHeight} region of the source into the given
+   * region of the destination.
+   */
+  private static void draw(BufferedImage source, int sourceWidth, int sourceHeight,
+      BufferedImage destination, int x, int y, int width, int height, Object interpolation) {
+    Graphics2D g2d = destination.createGraphics();
+    g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, interpolation);
+    g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+    g2d.drawImage(source, x, y, x + width, y + height, 0, 0, sourceWidth, sourceHeight, null);
+    g2d.dispose();
+  }
+}
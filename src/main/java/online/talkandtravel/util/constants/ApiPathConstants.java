@@ -29,6 +29,8 @@ public final class ApiPathConstants {
   public static final String CREATE_PRIVATE_CHAT_PATH = API_BASE_PATH + "/chats/private";
   public static final String FIND_MAIN_CHAT_PATH = API_V2_BASE_PATH + "/country/%s/main-chat";
   public static final String FIND_ALL_USER_PUBLIC_CHATS = API_V2_BASE_PATH + "/user/public-chats";
+  public static final String ATTACHMENT_RENDITION_PATH = API_BASE_PATH + "/images/chats/%s/attachments/%s?width=%s";
+  public static final String AVATAR_RENDITION_PATH = API_BASE_PATH + "/images/avatars/%s?width=%s";
 
   // Application destinations prefixes
   public static final String APPLICATION_DESTINATION_PREFIX = "/request";
@@ -39,6 +41,8 @@ public final class ApiPathConstants {
   // Message broker prefixes
   public static final String BROKER_DESTINATION_PREFIX = "/notify";
   public static final String CHATS_BROKER_DESTINATION = BROKER_DESTINATION_PREFIX + "/chat";
+  public static final String USER_QUEUE_DESTINATION_PREFIX = "/queue";
+  public static final String USER_DESTINATION_PREFIX = "/user";
 
   // Websocket endpoints
   public static final String HANDSHAKE_URI = "http://localhost:%s/ws";
@@ -58,6 +62,14 @@ public final class ApiPathConstants {
 
   // Websocket subscribe endpoints
   public static final String USER_WEBSOCKET_ERRORS_PATH = "/notify/user/%s/errors";
+  /**
+   * @deprecated one frame per status change, kept while {@code presence.legacyOnlineStatusTopic} is
+   *     enabled. Subscribe to {@link #USERS_ONLINE_STATUSES_ENDPOINT} instead.
+   */
+  @Deprecated
   public static final String USERS_ONLINE_STATUS_ENDPOINT = BROKER_DESTINATION_PREFIX + "/users/onlineStatus";
+  public static final String USERS_ONLINE_STATUSES_ENDPOINT = BROKER_DESTINATION_PREFIX + "/users/onlineStatuses";
+  /** Sent with {@code convertAndSendToUser}, clients subscribe to {@code /user/queue/onlineStatuses} */
+  public static final String USER_ONLINE_STATUSES_QUEUE = USER_QUEUE_DESTINATION_PREFIX + "/onlineStatuses";
   public static final String MESSAGES_SUBSCRIBE_PATH = CHATS_BROKER_DESTINATION + "/%s/messages";
 }
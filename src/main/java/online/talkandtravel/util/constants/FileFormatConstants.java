@@ -4,4 +4,5 @@ public class FileFormatConstants {
 
   public static final String[] SUPPORTED_FORMAT_AVATAR = {"jpeg", "jpg", "png", "webp", "svg", "gif", "tiff"};
   public static final String ANIMATED_WEBP_IMAGE_MARKER = "ANIM";
+  public static final int IMAGE_HEADER_SIZE = 64;
 }
@@ -1,8 +1,19 @@
 package online.talkandtravel.util.constants;
 
 public class RedisConstants {
-  public static final String USER_STATUS_KEY = "user:%s:isOnline";
-  public static final String USER_LAST_SEEN_KEY = "user:%s:lastSeenOn";
+  public static final String USERS_ONLINE_KEY = "users:online";
+  public static final String USERS_LAST_SEEN_KEY = "users:lastSeenOn";
+  public static final String USERS_CONNECTIONS_KEY = "users:connections";
+  public static final String USERS_OFFLINE_ON_KEY = "users:offlineOn";
   public static final String USER_REGISTER_DATA_REDIS_KEY_PATTERN = "register-user-data:%s";
   public static final String USER_REGISTER_DATA_REDIS_KEY_SEARCH_PATTERN = "register-user-data:*";
+  public static final String CHAT_MEMBERSHIP_INVALIDATION_CHANNEL = "chat-membership:invalidate";
+  public static final String CHAT_MEMBERSHIP_INVALIDATION_SEPARATOR = ":";
+  public static final String CHAT_MEMBERSHIP_INVALIDATION_ALL_USERS = "*";
+  public static final String WEBSOCKET_BROADCAST_CHANNEL_PREFIX = "ws-broadcast:";
+  public static final String TOKEN_REVOCATION_CHANNEL = "token:revoke";
+  public static final String TOKEN_REVOCATION_SEPARATOR = "|";
+  public static final String USER_DETAILS_INVALIDATION_CHANNEL = "user-details:invalidate";
+  public static final String THUMBNAIL_KEY_PATTERN = "thumbnails:%s:%s";
+  public static final String ATTACHMENT_ORIGINAL_KEY_PATTERN = "attachments:original:%s";
 }
@@ -0,0 +1,18 @@
+package online.talkandtravel.util.constants;
+
+/**
+ * Trade-off between quality and speed used when images are downscaled to thumbnails.
+ *
+ * <ul>
+ *   <li>{@link #SMOOTH} - Area averaging of {@link java.awt.Image#getScaledInstance}, the slowest
+ *       path, kept to reproduce the original thumbnails.
+ *   <li>{@link #BALANCED} - Repeated halving by averaging 2x2 pixel blocks followed by one
+ *       bicubic step, close to {@link #SMOOTH} in quality at a fraction of its cost.
+ *   <li>{@link #SPEED} - A single bilinear step, fastest but aliased on large reductions.
+ * </ul>
+ */
+public enum ResizeMode {
+  SMOOTH,
+  BALANCED,
+  SPEED
+}
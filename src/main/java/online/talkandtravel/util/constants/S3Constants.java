@@ -3,10 +3,10 @@ package online.talkandtravel.util.constants;
 public class S3Constants {
 
 
-  public static final String AVATAR_X50_FOLDER_NAME = "/50x50";
-  public static final String IMAGE_ATTACHMENT_THUMBNAIL_X256_FOLDER_PATTERN = "/chat_%s/thumbnails/256x256";
+  public static final String AVATAR_ORIGINAL_FOLDER_NAME = "/original";
+  public static final String AVATAR_RENDITION_FOLDER_PATTERN = "/%1$sx%1$s";
+  public static final String IMAGE_ATTACHMENT_THUMBNAIL_FOLDER_PATTERN = "/chat_%1$s/thumbnails/%2$sx%2$s";
   public static final String IMAGE_ATTACHMENT_ORIGINAL_FOLDER_PATTERN = "/chat_%s/originals";
-  public static final String AVATAR_X256_FOLDER_NAME = "/256x256";
   public static final String S3_URL_PATTERN = "https://%s.s3.%s.amazonaws.com/%s/%s";
 
 }
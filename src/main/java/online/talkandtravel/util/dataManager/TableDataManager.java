@@ -1,5 +1,7 @@
 package online.talkandtravel.util.dataManager;
 
+import static online.talkandtravel.util.constants.RedisConstants.USERS_LAST_SEEN_KEY;
+
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.File;
@@ -19,11 +21,8 @@ import online.talkandtravel.repository.ChatRepository;
 import online.talkandtravel.repository.CountryRepository;
 import online.talkandtravel.repository.UserRepository;
 import online.talkandtravel.service.UserService;
-import online.talkandtravel.util.RedisUtils;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.redis.core.Cursor;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -77,8 +76,8 @@ public class TableDataManager implements DataManager {
 
   @Override
   public void prepareRedisData() {
-    if (redisHasRecords()) {
-      log.info("Redis is not empty. There is no need in data population.");
+    if (Boolean.TRUE.equals(redisTemplate.hasKey(USERS_LAST_SEEN_KEY))) {
+      log.info("Redis has users last seen data. There is no need in data population.");
       return;
     }
 
@@ -92,21 +91,14 @@ public class TableDataManager implements DataManager {
               return !isNullLastLoggedOn;
             })
         .collect(Collectors.toMap(
-            (user) -> RedisUtils.getUserLastSeenKey(user.getId()),
-            (user) -> user.getLastLoggedOn().toString()));
+            (user) -> user.getId().toString(),
+            (user) -> Long.toString(user.getLastLoggedOn().toInstant().toEpochMilli())));
 
     log.info("Users last seen data map size: {}", lastSeenUsersData.size());
-    redisTemplate.opsForValue().multiSet(lastSeenUsersData);
+    redisTemplate.opsForHash().putAll(USERS_LAST_SEEN_KEY, lastSeenUsersData);
     log.info("Prepare ok.");
   }
 
-  private boolean redisHasRecords() {
-    Cursor<String> cursor = redisTemplate.scan(
-        ScanOptions.scanOptions().count(1).build()
-    );
-    return cursor.hasNext();
-  }
-
   @Override
   @Transactional
   public void checkAndPopulateCountries() {
@@ -1,12 +1,13 @@
 package online.talkandtravel.util.mapper;
 
+import static online.talkandtravel.util.constants.AvatarDimensionsConstants.X256;
 import static online.talkandtravel.util.constants.S3Constants.IMAGE_ATTACHMENT_ORIGINAL_FOLDER_PATTERN;
-import static online.talkandtravel.util.constants.S3Constants.IMAGE_ATTACHMENT_THUMBNAIL_X256_FOLDER_PATTERN;
 
 import online.talkandtravel.config.MapperConfig;
 import online.talkandtravel.model.dto.attachment.ImageAttachmentDto;
 import online.talkandtravel.model.entity.attachment.Image;
 import online.talkandtravel.service.AttachmentService;
+import online.talkandtravel.service.RenditionService;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -21,10 +22,15 @@ public abstract class AttachmentMapper {
   @Lazy
   private AttachmentService attachmentService;
 
-  protected static final String THUMBNAIL_FOLDER = IMAGE_ATTACHMENT_THUMBNAIL_X256_FOLDER_PATTERN;
+  @Autowired
+  @Lazy
+  private RenditionService renditionService;
+
   protected static final String ORIGINAL_FOLDER = IMAGE_ATTACHMENT_ORIGINAL_FOLDER_PATTERN;
 
-  @Mapping(target = "thumbnailImageUrl", expression = "java(generateAvatarUrl(image, THUMBNAIL_FOLDER, chatId))")
+  protected static final int THUMBNAIL_WIDTH = X256;
+
+  @Mapping(target = "thumbnailImageUrl", expression = "java(generateRenditionUrl(image, THUMBNAIL_WIDTH, chatId))")
   @Mapping(target = "originalImageUrl", expression = "java(generateAvatarUrl(image, ORIGINAL_FOLDER, chatId))")
   @Mapping(target = "type", expression = "java(image.getDiscriminatorValue())")
   public abstract ImageAttachmentDto toImageAttachmentDto(Image image, Long chatId);
@@ -32,4 +38,8 @@ public abstract class AttachmentMapper {
   public String generateAvatarUrl(Image image, String avatarS3Folder, Long chatId) {
     return attachmentService.generateImageUrl(image, avatarS3Folder.formatted(chatId));
   }
+
+  public String generateRenditionUrl(Image image, int width, Long chatId) {
+    return renditionService.generateAttachmentRenditionUrl(chatId, image.getId(), width);
+  }
 }
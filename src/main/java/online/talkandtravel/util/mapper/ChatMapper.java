@@ -5,6 +5,8 @@ import online.talkandtravel.model.dto.chat.BasicChatInfoDto;
 import online.talkandtravel.model.dto.chat.ChatDto;
 import online.talkandtravel.model.dto.chat.ChatInfoDto;
 import online.talkandtravel.model.dto.chat.PrivateChatInfoDto;
+import online.talkandtravel.model.dto.chat.UserChatSummary;
+import online.talkandtravel.model.dto.country.CountryInfoDto;
 import online.talkandtravel.model.entity.Chat;
 import online.talkandtravel.model.entity.UserChat;
 import org.mapstruct.Mapper;
@@ -22,11 +24,14 @@ import org.mapstruct.Mapping;
  *
  * <ul>
  *   <li>{@link #toDto(Chat)} - Converts a {@link Chat} entity to a {@link ChatDto}. This method
- *       maps the properties of the {@link Chat} entity to the DTO, including nested collections
- *       like users and messages.
+ *       maps the properties of the {@link Chat} entity to the DTO. Users and messages counts are
+ *       read from the denormalized statistics of the chat, so no collections are loaded.
  *   <li>{@link #userChatToChatInfoDto(UserChat)} - Converts a {@link UserChat} entity to a {@link
  *       PrivateChatInfoDto}. This method handles the mapping of properties from {@link UserChat} to {@link
  *       PrivateChatInfoDto}, including fields such as name, description, and creation date.
+ *   <li>{@link #summaryToDto(UserChatSummary)} and {@link
+ *       #summaryToPrivateChatInfoDto(UserChatSummary)} - Convert a {@link UserChatSummary} read
+ *       model to chat DTOs. Counts are taken from the read model, so no collections are loaded.
  * </ul>
  *
  * <p>This mapper relies on other mappers for converting nested objects, such as {@link UserMapper},
@@ -42,30 +47,33 @@ import org.mapstruct.Mapping;
     })
 public interface ChatMapper {
 
-  @Mapping(target = "usersCount", expression = "java((long) chat.getUsers().size())")
-  @Mapping(target = "messagesCount", expression = "java((long) chat.getMessages().size())")
   @Mapping(target = "unreadMessagesCount", source = "unreadMessagesCount")
   ChatDto toDto(Chat chat, Long unreadMessagesCount);
 
-  @Mapping(target = "messagesCount", expression = "java((long) chat.getMessages().size())")
-  @Mapping(target = "usersCount", expression = "java((long) chat.getUsers().size())")
   ChatInfoDto toChatInfoDto(Chat chat);
 
-  @Mapping(target = "usersCount", expression = "java((long) chat.getUsers().size())")
   BasicChatInfoDto toBasicChatInfoDto(Chat chat);
 
-  @Mapping(target = "messagesCount", expression = "java((long) chat.getMessages().size())")
-  @Mapping(target = "usersCount", expression = "java((long) chat.getUsers().size())")
   @Mapping(target = "unreadMessagesCount", source = "unreadMessagesCount")
   PrivateChatInfoDto chatToPrivateChatInfoDto(Chat chat, Long unreadMessagesCount);
 
-  @Mapping(target = "usersCount", expression = "java((long) userChat.getChat().getUsers().size())")
-  @Mapping(
-      target = "messagesCount",
-      expression = "java((long) userChat.getChat().getMessages().size())")
+  @Mapping(target = "usersCount", source = "chat.usersCount")
+  @Mapping(target = "messagesCount", source = "chat.messagesCount")
   @Mapping(target = "description", source = "chat.description")
   @Mapping(target = "creationDate", source = "chat.creationDate")
   @Mapping(target = "chatType", source = "chat.chatType")
   @Mapping(target = "name", source = "chat.name")
   ChatInfoDto userChatToChatInfoDto(UserChat userChat);
+
+  @Mapping(target = "country", expression = "java(toCountryInfoDto(summary))")
+  ChatDto summaryToDto(UserChatSummary summary);
+
+  PrivateChatInfoDto summaryToPrivateChatInfoDto(UserChatSummary summary);
+
+  default CountryInfoDto toCountryInfoDto(UserChatSummary summary) {
+    if (summary.countryName() == null) {
+      return null;
+    }
+    return new CountryInfoDto(summary.countryName(), summary.countryFlagCode());
+  }
 }
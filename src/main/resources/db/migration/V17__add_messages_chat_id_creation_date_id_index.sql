@@ -0,0 +1,3 @@
+-- Composite index for keyset pagination of chat history by (creation_date, id)
+CREATE INDEX IF NOT EXISTS idx_messages_chat_id_creation_date_id
+    ON public.messages (chat_id, creation_date, id);
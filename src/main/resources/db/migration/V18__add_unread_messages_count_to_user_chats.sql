@@ -0,0 +1,11 @@
+-- Denormalized number of messages sent to the chat after the user's last read message
+ALTER TABLE public.user_chats
+    ADD COLUMN IF NOT EXISTS unread_messages_count bigint NOT NULL DEFAULT 0;
+
+UPDATE public.user_chats uc
+SET unread_messages_count = (SELECT count(*)
+                             FROM public.messages m
+                                      JOIN public.messages last_read ON last_read.id = uc.last_read_message_id
+                             WHERE m.chat_id = uc.chat_id
+                               AND m.creation_date > last_read.creation_date)
+WHERE uc.last_read_message_id IS NOT NULL;
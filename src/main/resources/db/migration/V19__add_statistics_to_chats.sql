@@ -0,0 +1,15 @@
+-- Denormalized chat statistics maintained by the message and join/leave paths
+ALTER TABLE public.chats
+    ADD COLUMN IF NOT EXISTS users_count bigint NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS messages_count bigint NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS last_message_id bigint
+        REFERENCES public.messages (id) ON DELETE SET NULL;
+
+UPDATE public.chats c
+SET users_count     = (SELECT count(*) FROM public.user_chats uc WHERE uc.chat_id = c.id),
+    messages_count  = (SELECT count(*) FROM public.messages m WHERE m.chat_id = c.id),
+    last_message_id = (SELECT m.id
+                       FROM public.messages m
+                       WHERE m.chat_id = c.id
+                       ORDER BY m.creation_date DESC, m.id DESC
+                       LIMIT 1);
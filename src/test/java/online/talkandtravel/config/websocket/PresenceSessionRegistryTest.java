@@ -0,0 +1,161 @@
+package online.talkandtravel.config.websocket;
+
+import static online.talkandtravel.testdata.UserTestData.getAlice;
+import static online.talkandtravel.testdata.UserTestData.getBob;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import online.talkandtravel.model.entity.User;
+import online.talkandtravel.security.CustomUserDetails;
+import online.talkandtravel.service.OnlineService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+@ExtendWith(MockitoExtension.class)
+class PresenceSessionRegistryTest {
+
+  private static final long TIMEOUT_IN_SEC = 5;
+
+  @Mock
+  private OnlineService onlineService;
+
+  @InjectMocks
+  private PresenceSessionRegistry underTest;
+
+  private final User alice = getAlice();
+  private final User bob = getBob();
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(underTest, "SESSION_REFRESH_INTERVAL_IN_MS", 3_600_000L);
+    underTest.start();
+  }
+
+  @AfterEach
+  void tearDown() {
+    underTest.stop();
+  }
+
+  @Test
+  void shouldUpdateOnlineService_onFirstConnectAndLastDisconnectOnly() {
+    underTest.onConnected(connected("s1", alice));
+    underTest.onConnected(connected("s2", alice));
+    underTest.onDisconnect(disconnected("s1"));
+    awaitPresenceUpdates();
+
+    verify(onlineService).userConnected(alice.getId());
+    verifyNoMoreInteractions(onlineService);
+
+    underTest.onDisconnect(disconnected("s2"));
+    awaitPresenceUpdates();
+
+    verify(onlineService).userDisconnected(alice.getId());
+    verifyNoMoreInteractions(onlineService);
+  }
+
+  @Test
+  void shouldIgnoreRepeatedConnectAndUnknownDisconnect() {
+    underTest.onConnected(connected("s1", alice));
+    underTest.onConnected(connected("s1", alice));
+    underTest.onDisconnect(disconnected("unknown"));
+    awaitPresenceUpdates();
+
+    verify(onlineService).userConnected(alice.getId());
+    verifyNoMoreInteractions(onlineService);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void refreshConnectedUsers_shouldRefreshUsersWithOpenSessions() {
+    underTest.onConnected(connected("s1", alice));
+    underTest.onConnected(connected("s2", bob));
+    underTest.onDisconnect(disconnected("s2"));
+
+    underTest.refreshConnectedUsers();
+
+    ArgumentCaptor<Collection<Long>> captor = ArgumentCaptor.forClass(Collection.class);
+    verify(onlineService).refreshOnlineStatuses(captor.capture());
+    assertThat(captor.getValue()).containsExactly(alice.getId());
+  }
+
+  @Test
+  void shouldIgnoreSession_withoutUser() {
+    underTest.onConnected(new SessionConnectedEvent(this, message("s1"), null));
+    awaitPresenceUpdates();
+
+    verifyNoInteractions(onlineService);
+  }
+
+  @Test
+  void shouldNotHoldRegistry_whileOnlineServiceIsCalled() throws Exception {
+    CountDownLatch connectStarted = new CountDownLatch(1);
+    CountDownLatch releaseConnect = new CountDownLatch(1);
+    doAnswer(invocation -> {
+      connectStarted.countDown();
+      releaseConnect.await(TIMEOUT_IN_SEC, TimeUnit.SECONDS);
+      return null;
+    }).when(onlineService).userConnected(alice.getId());
+
+    underTest.onConnected(connected("s1", alice));
+    assertThat(connectStarted.await(TIMEOUT_IN_SEC, TimeUnit.SECONDS)).isTrue();
+    underTest.onConnected(connected("s2", bob));
+    underTest.onDisconnect(disconnected("s1"));
+    releaseConnect.countDown();
+    awaitPresenceUpdates();
+
+    InOrder inOrder = inOrder(onlineService);
+    inOrder.verify(onlineService).userConnected(alice.getId());
+    inOrder.verify(onlineService).userConnected(bob.getId());
+    inOrder.verify(onlineService).userDisconnected(alice.getId());
+  }
+
+  /** Waits until the updates queued so far have been applied */
+  private void awaitPresenceUpdates() {
+    ScheduledExecutorService presenceUpdater =
+        (ScheduledExecutorService) ReflectionTestUtils.getField(underTest, "presenceUpdater");
+    try {
+      presenceUpdater.submit(() -> { }).get(TIMEOUT_IN_SEC, TimeUnit.SECONDS);
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private SessionConnectedEvent connected(String sessionId, User user) {
+    UsernamePasswordAuthenticationToken principal =
+        new UsernamePasswordAuthenticationToken(new CustomUserDetails(user), null);
+    return new SessionConnectedEvent(this, message(sessionId), principal);
+  }
+
+  private SessionDisconnectEvent disconnected(String sessionId) {
+    return new SessionDisconnectEvent(this, message(sessionId), sessionId, CloseStatus.NORMAL);
+  }
+
+  private Message<byte[]> message(String sessionId) {
+    SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create();
+    accessor.setSessionId(sessionId);
+    return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+  }
+}
@@ -14,7 +14,7 @@ import static online.talkandtravel.util.constants.ApiPathConstants.MESSAGES_SUBS
 import static online.talkandtravel.util.constants.ApiPathConstants.START_TYPING_EVENT_FULL_PATH;
 import static online.talkandtravel.util.constants.ApiPathConstants.STOP_TYPING_EVENT_FULL_PATH;
 import static online.talkandtravel.util.constants.ApiPathConstants.UPDATE_ONLINE_STATUS_FULL_PATH;
-import static online.talkandtravel.util.constants.ApiPathConstants.USERS_ONLINE_STATUS_ENDPOINT;
+import static online.talkandtravel.util.constants.ApiPathConstants.USERS_ONLINE_STATUSES_ENDPOINT;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -33,6 +33,7 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.MethodOrderer;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import org.junit.jupiter.api.TestInstance.Lifecycle;
 import org.junit.jupiter.api.TestMethodOrder;
@@ -79,26 +80,25 @@ public class EventControllerIntegrationTest extends StompIntegrationTest {
 
     private Stream<Arguments> updateOnlineStatusTestArgs() {
       return Stream.of(
-          Arguments.of(0, aliceStompSession, 2L, true),
-          Arguments.of(1, bobStompSession, 3L, true),
-          Arguments.of(2, aliceStompSession, 2L, false),
-          Arguments.of(3, aliceStompSession, 2L, true)
+          Arguments.of(0, aliceStompSession, 2L, false),
+          Arguments.of(1, bobStompSession, 3L, false),
+          Arguments.of(2, aliceStompSession, 2L, true)
       );
     }
 
     @Order(2)
-    @ParameterizedTest
-    @MethodSource("verifyOnlineStatusIsOfflineArgs")
-    void verifyOnlineStatusIsOffline(Integer index, Long userId, Boolean isOnline) {
-      pause(ONE_SECOND_PAUSE);
-      assertMessage(index, userId, isOnline);
+    @Test
+    void verifyOnlineStatusIsKept_whileSessionIsConnected() {
+      pause(3 * ONE_SECOND_PAUSE);
+      assertThat(onlineStatusDtoList).hasSize(3);
     }
 
-    private Stream<Arguments> verifyOnlineStatusIsOfflineArgs() {
-      return Stream.of(
-          Arguments.of(4, 3L, false),
-          Arguments.of(5, 2L, false)
-      );
+    @Order(3)
+    @Test
+    void verifyOnlineStatusIsOffline_whenSessionDisconnected() {
+      aliceStompSession.disconnect();
+      pause(AFTER_SEND_PAUSE_TIME);
+      assertMessage(3, 2L, false);
     }
 
     private void assertMessage(Integer index, Long userId, Boolean isOnline) {
@@ -114,8 +114,8 @@ public class EventControllerIntegrationTest extends StompIntegrationTest {
     }
 
     private void subscribeToOnlineStatus() {
-      subscribe(onlineStatusDtoList::add, OnlineStatusDto.class, aliceStompSession,
-          USERS_ONLINE_STATUS_ENDPOINT);
+      subscribe(statuses -> onlineStatusDtoList.addAll(List.of(statuses)), OnlineStatusDto[].class,
+          bobStompSession, USERS_ONLINE_STATUSES_ENDPOINT);
     }
   }
 
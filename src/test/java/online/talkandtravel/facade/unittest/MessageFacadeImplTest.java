@@ -0,0 +1,139 @@
+package online.talkandtravel.facade.unittest;
+
+import static online.talkandtravel.util.FilesUtils.contentHash;
+import static online.talkandtravel.util.constants.S3Constants.IMAGE_ATTACHMENT_ORIGINAL_FOLDER_PATTERN;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import online.talkandtravel.exception.file.TooManyImageUploadsException;
+import online.talkandtravel.facade.impl.MessageFacadeImpl;
+import online.talkandtravel.model.dto.message.MessageDto;
+import online.talkandtravel.model.dto.message.SendMessageWithAttachmentRequest;
+import online.talkandtravel.model.dto.user.UserNameDto;
+import online.talkandtravel.model.entity.MessageType;
+import online.talkandtravel.model.entity.User;
+import online.talkandtravel.model.entity.attachment.AttachmentType;
+import online.talkandtravel.service.AttachmentService;
+import online.talkandtravel.service.BroadcastService;
+import online.talkandtravel.service.ImageProcessingScheduler;
+import online.talkandtravel.service.MessageService;
+import online.talkandtravel.service.MessageWritePipeline;
+import online.talkandtravel.util.FileDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+public class MessageFacadeImplTest {
+
+  private static final Long CHAT_ID = 1L;
+  private static final String CONTENT_TYPE = "image/png";
+
+  @Mock private BroadcastService broadcastService;
+
+  @Mock private MessageService messageService;
+
+  @Mock private AttachmentService attachmentService;
+
+  @Mock private MessageWritePipeline messageWritePipeline;
+
+  @Mock private ImageProcessingScheduler imageProcessingScheduler;
+
+  @InjectMocks private MessageFacadeImpl underTest;
+
+  private Path file;
+  private String fileHash;
+  private FileDto fileDto;
+  private SendMessageWithAttachmentRequest request;
+  private User user;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    file = Files.createTempFile("upload-", ".tmp");
+    Files.write(file, new byte[] {61, 45, 5, 52, 54, 55, 65});
+    fileHash = contentHash(file);
+    fileDto = new FileDto(file, CONTENT_TYPE, "image.png", Files.size(file));
+    request = new SendMessageWithAttachmentRequest(null, CHAT_ID, null,
+        AttachmentType.IMAGE.name(), null);
+    user = User.builder().id(1L).build();
+  }
+
+  private void runSubmittedTasksInPlace() {
+    when(imageProcessingScheduler.submit(eq(user.getId()), any())).thenAnswer(invocation -> {
+      try {
+        return CompletableFuture.completedFuture(invocation.<Callable<?>>getArgument(1).call());
+      } catch (Exception e) {
+        return CompletableFuture.failedFuture(e);
+      }
+    });
+  }
+
+  private void completeUploads() {
+    when(attachmentService.saveImage(any(Path.class), anyString(), anyString(), anyString(),
+        anyString())).thenReturn(CompletableFuture.completedFuture(null));
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  @Test
+  void saveMessageWithAttachment_shouldStreamOriginalFromSpooledFile_andDeleteIt() {
+    MessageDto messageDto = new MessageDto(1L, MessageType.TEXT, null, null,
+        new UserNameDto(1L, "alice", null), CHAT_ID, null);
+    runSubmittedTasksInPlace();
+    completeUploads();
+    when(messageService.saveMessageWithImage(eq(request), any(), eq(user))).thenReturn(messageDto);
+
+    underTest.saveMessageWithAttachment(request, fileDto, user);
+
+    verify(attachmentService).saveImage(eq(file), eq(fileHash),
+        eq(IMAGE_ATTACHMENT_ORIGINAL_FOLDER_PATTERN.formatted(CHAT_ID)), eq(CONTENT_TYPE),
+        anyString());
+    verify(broadcastService).broadcast(anyString(), eq(messageDto));
+    assertThat(file).doesNotExist();
+  }
+
+  @Test
+  void saveMessageWithAttachment_shouldDeleteSpooledFile_andNotBroadcast_whenUploadFails() {
+    runSubmittedTasksInPlace();
+    when(messageService.saveMessageWithImage(eq(request), any(), eq(user))).thenReturn(
+        new MessageDto(1L, MessageType.TEXT, null, null, new UserNameDto(1L, "alice", null),
+            CHAT_ID, null));
+    when(attachmentService.saveImage(any(Path.class), anyString(), anyString(), anyString(),
+        anyString())).thenReturn(CompletableFuture.failedFuture(new IllegalStateException("S3 is down")));
+
+    underTest.saveMessageWithAttachment(request, fileDto, user);
+
+    verify(broadcastService, never()).broadcast(anyString(), any());
+    assertThat(file).doesNotExist();
+  }
+
+  @Test
+  void saveMessageWithAttachment_shouldDeleteSpooledFileAndRethrow_whenSchedulerRejects() {
+    when(imageProcessingScheduler.submit(eq(user.getId()), any()))
+        .thenThrow(new TooManyImageUploadsException(user.getId()));
+
+    assertThrows(TooManyImageUploadsException.class,
+        () -> underTest.saveMessageWithAttachment(request, fileDto, user));
+
+    verify(messageService, never()).saveMessageWithImage(any(), any(), any());
+    assertThat(file).doesNotExist();
+  }
+}
@@ -0,0 +1,58 @@
+package online.talkandtravel.repository.integrationtest;
+
+import static online.talkandtravel.config.TestDataConstant.CHAT_MESSAGES_DATA_SQL;
+import static online.talkandtravel.config.TestDataConstant.PRIVATE_CHATS_DATA_SQL;
+import static online.talkandtravel.config.TestDataConstant.USERS_DATA_SQL;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import online.talkandtravel.config.IntegrationTest;
+import online.talkandtravel.repository.ChatRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+
+@Sql({USERS_DATA_SQL, PRIVATE_CHATS_DATA_SQL, CHAT_MESSAGES_DATA_SQL})
+public class ChatRepositoryIntegrationTest extends IntegrationTest {
+
+  private static final Long CHAT_ID = 10000L;
+  private static final Long OLDER_MESSAGE_ID = 5L;
+  private static final Long NEWER_MESSAGE_ID = 10L;
+
+  @Autowired
+  private ChatRepository underTest;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Test
+  void incrementMessagesCount_shouldNotMoveLastMessageBack_whenUpdatesArriveOutOfOrder() {
+    long messagesCount = messagesCount();
+
+    underTest.incrementMessagesCount(CHAT_ID, 1, NEWER_MESSAGE_ID);
+    underTest.incrementMessagesCount(CHAT_ID, 1, OLDER_MESSAGE_ID);
+
+    assertEquals(NEWER_MESSAGE_ID, lastMessageId());
+    assertEquals(messagesCount + 2, messagesCount());
+  }
+
+  @Test
+  void incrementMessagesCount_shouldMoveLastMessageForward() {
+    jdbcTemplate.update("UPDATE chats SET last_message_id = ? WHERE id = ?", OLDER_MESSAGE_ID,
+        CHAT_ID);
+
+    underTest.incrementMessagesCount(CHAT_ID, 1, NEWER_MESSAGE_ID);
+
+    assertEquals(NEWER_MESSAGE_ID, lastMessageId());
+  }
+
+  private Long lastMessageId() {
+    return jdbcTemplate.queryForObject("SELECT last_message_id FROM chats WHERE id = ?",
+        Long.class, CHAT_ID);
+  }
+
+  private long messagesCount() {
+    return jdbcTemplate.queryForObject("SELECT messages_count FROM chats WHERE id = ?",
+        Long.class, CHAT_ID);
+  }
+}
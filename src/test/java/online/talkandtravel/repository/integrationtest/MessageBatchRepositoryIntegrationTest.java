@@ -0,0 +1,109 @@
+package online.talkandtravel.repository.integrationtest;
+
+import static online.talkandtravel.config.TestDataConstant.CHAT_MESSAGES_DATA_SQL;
+import static online.talkandtravel.config.TestDataConstant.PRIVATE_CHATS_DATA_SQL;
+import static online.talkandtravel.config.TestDataConstant.USERS_DATA_SQL;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+import online.talkandtravel.config.IntegrationTest;
+import online.talkandtravel.model.entity.Chat;
+import online.talkandtravel.model.entity.Message;
+import online.talkandtravel.model.entity.MessageType;
+import online.talkandtravel.model.entity.User;
+import online.talkandtravel.repository.MessageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+
+@Sql({USERS_DATA_SQL, PRIVATE_CHATS_DATA_SQL, CHAT_MESSAGES_DATA_SQL})
+public class MessageBatchRepositoryIntegrationTest extends IntegrationTest {
+
+  private static final Long CHAT_ID = 10000L;
+  private static final Long SENDER_ID = 2L;
+  private static final Long REPLIED_MESSAGE_ID = 10L;
+
+  @Autowired
+  private MessageRepository underTest;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  /** Test data inserts messages with explicit ids, so move the sequence past them */
+  @BeforeEach
+  void setUp() {
+    jdbcTemplate.queryForObject(
+        "SELECT setval(pg_get_serial_sequence('messages', 'id'), (SELECT max(id) FROM messages))",
+        Long.class);
+  }
+
+  @Test
+  void insertAll_shouldAssignAscendingIdsInListOrder() {
+    List<Message> messages = List.of(
+        createMessage("first", null),
+        createMessage("second", null),
+        createMessage("third", null));
+
+    underTest.insertAll(messages);
+
+    List<Long> ids = messages.stream().map(Message::getId).toList();
+    assertThat(ids).doesNotContainNull().isSorted().doesNotHaveDuplicates();
+    assertThat(ids.get(0)).isGreaterThan(REPLIED_MESSAGE_ID);
+    List<String> contents = jdbcTemplate.queryForList(
+        "SELECT content FROM messages WHERE id >= ? ORDER BY id", String.class, ids.get(0));
+    assertEquals(List.of("first", "second", "third"), contents);
+  }
+
+  @Test
+  void insertAll_shouldStoreCreationDateAsSameInstant() {
+    ZonedDateTime creationDate =
+        ZonedDateTime.of(2024, 8, 24, 18, 30, 15, 123_456_000, ZoneId.of("Europe/Kyiv"));
+    Message message = createMessage("hello", null);
+    message.setCreationDate(creationDate);
+
+    underTest.insertAll(List.of(message));
+
+    OffsetDateTime stored = jdbcTemplate.queryForObject(
+        "SELECT creation_date FROM messages WHERE id = ?", OffsetDateTime.class, message.getId());
+    assertThat(stored.toInstant()).isEqualTo(creationDate.toInstant());
+  }
+
+  @Test
+  void insertAll_shouldStoreNullReplyAndAttachment_andKeepReplyWhenPresent() {
+    Message plain = createMessage("plain", null);
+    Message reply = createMessage("reply", Message.builder().id(REPLIED_MESSAGE_ID).build());
+
+    underTest.insertAll(List.of(plain, reply));
+
+    Map<String, Object> plainRow = selectReplyAndAttachment(plain.getId());
+    assertNull(plainRow.get("replied_message_id"));
+    assertNull(plainRow.get("attachment_id"));
+    Map<String, Object> replyRow = selectReplyAndAttachment(reply.getId());
+    assertEquals(REPLIED_MESSAGE_ID, ((Number) replyRow.get("replied_message_id")).longValue());
+    assertNull(replyRow.get("attachment_id"));
+  }
+
+  private Map<String, Object> selectReplyAndAttachment(Long messageId) {
+    return jdbcTemplate.queryForMap(
+        "SELECT replied_message_id, attachment_id FROM messages WHERE id = ?", messageId);
+  }
+
+  private Message createMessage(String content, Message repliedMessage) {
+    return Message.builder()
+        .type(MessageType.TEXT)
+        .content(content)
+        .creationDate(ZonedDateTime.now())
+        .sender(User.builder().id(SENDER_ID).build())
+        .chat(Chat.builder().id(CHAT_ID).build())
+        .repliedMessage(repliedMessage)
+        .build();
+  }
+}
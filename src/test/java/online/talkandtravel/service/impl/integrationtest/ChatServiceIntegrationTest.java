@@ -229,6 +229,7 @@ public class ChatServiceIntegrationTest extends IntegrationTest {
           messageRepository.countAllByChatIdAndCreationDateAfter(chatId,
               userChat.getLastReadMessage()
                   .getCreationDate()));
+      assertEquals(expectedUnreadMessagesCount, userChat.getUnreadMessagesCount());
     }
 
     private static Stream<Arguments> shouldUpdate_whenChatFoundArgs() {
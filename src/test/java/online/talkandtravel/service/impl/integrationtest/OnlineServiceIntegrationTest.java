@@ -3,17 +3,13 @@ package online.talkandtravel.service.impl.integrationtest;
 import static online.talkandtravel.config.TestDataConstant.PRIVATE_CHATS_DATA_SQL;
 import static online.talkandtravel.config.TestDataConstant.USERS_DATA_SQL;
 import static online.talkandtravel.testdata.UserTestData.ALICE_ID;
-import static online.talkandtravel.testdata.UserTestData.ALISE_LAST_SEEN_ON_REDIS_KEY;
-import static online.talkandtravel.testdata.UserTestData.ALISE_ONLINE_STATUS_REDIS_KEY;
 import static online.talkandtravel.testdata.UserTestData.BOB_ID;
-import static online.talkandtravel.testdata.UserTestData.BOB_LAST_SEEN_ON_REDIS_KEY;
-import static online.talkandtravel.testdata.UserTestData.BOB_ONLINE_STATUS_REDIS_KEY;
 import static online.talkandtravel.testdata.UserTestData.TOMAS_ID;
-import static online.talkandtravel.testdata.UserTestData.TOMAS_LAST_SEEN_ON_REDIS_KEY;
-import static online.talkandtravel.testdata.UserTestData.TOMAS_ONLINE_STATUS_REDIS_KEY;
 import static online.talkandtravel.testdata.UserTestData.getAlice;
 import static online.talkandtravel.testdata.UserTestData.getBob;
 import static online.talkandtravel.testdata.UserTestData.getTomas;
+import static online.talkandtravel.util.constants.RedisConstants.USERS_LAST_SEEN_KEY;
+import static online.talkandtravel.util.constants.RedisConstants.USERS_ONLINE_KEY;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -22,9 +18,9 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
-import java.time.Duration;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Stream;
@@ -49,6 +45,8 @@ import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisConnectionUtils;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
 
 /**
  * Alise is offline, last seen on - 2 days from now
@@ -71,20 +69,23 @@ public class OnlineServiceIntegrationTest extends IntegrationTest {
   @Value("${USER_ONLINE_STATUS_EXPIRATION_DURATION_IN_SEC}")
   Long redisKeyExpirationInSec;
 
-  private static final String REDIS_KEY_TEMPLATE = "user:%s:isOnline";
   private static final Long NOT_EXISTING_USER_ID = 777L;
   private static User alice, bob, tomas;
-  private static final ZonedDateTime aliseLastSeenOn = ZonedDateTime.now(ZoneOffset.UTC).minusDays(2);
-  private static final ZonedDateTime tomasLastSeenOn = ZonedDateTime.now(ZoneOffset.UTC);
+  private static final ZonedDateTime aliseLastSeenOn =
+      ZonedDateTime.now(ZoneOffset.UTC).minusDays(2).truncatedTo(ChronoUnit.MILLIS);
+  private static final ZonedDateTime tomasLastSeenOn =
+      ZonedDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.MILLIS);
+  private static final long HEARTBEAT_FLUSH_PAUSE_IN_MS = 200;
+  private static final long SWEEP_PAUSE_IN_MS = 500;
 
   @BeforeEach
   void init() {
     alice = getAlice();
     bob = getBob();
     tomas = getTomas();
-    redisTemplate.opsForValue().set(ALISE_LAST_SEEN_ON_REDIS_KEY, aliseLastSeenOn.toString());
-    redisTemplate.opsForValue().set(TOMAS_LAST_SEEN_ON_REDIS_KEY, tomasLastSeenOn.toString());
-    redisTemplate.opsForValue().set(TOMAS_ONLINE_STATUS_REDIS_KEY, Boolean.TRUE.toString());
+    setLastSeenOn(ALICE_ID, aliseLastSeenOn);
+    setLastSeenOn(TOMAS_ID, tomasLastSeenOn);
+    setUserStatusToOnlineById(TOMAS_ID);
   }
 
   @AfterEach
@@ -98,17 +99,18 @@ public class OnlineServiceIntegrationTest extends IntegrationTest {
   class UpdateUserOnlineStatus {
 
     @Test
-    void shouldUpdateAliseStatusToOnlineAndVerifySetKeyExpirationTime() {
+    void shouldUpdateAliseStatusToOnlineAndVerifySetKeyExpirationTime() throws InterruptedException {
 
       OnlineStatusDto result = underTest.updateUserOnlineStatus(ALICE_ID, true);
+      Thread.sleep(HEARTBEAT_FLUSH_PAUSE_IN_MS);
 
       assertEquals(true, result.isOnline());
       assertEquals(ALICE_ID, result.userId());
-      assertEquals(true, redisTemplate.expire(ALISE_ONLINE_STATUS_REDIS_KEY, Duration.ofSeconds(redisKeyExpirationInSec)));
 
-      String onlineStatusInRedis = redisTemplate.opsForValue().get(ALISE_ONLINE_STATUS_REDIS_KEY);
-      assertNotNull(onlineStatusInRedis, "Online status should be stored in Redis");
-      assertEquals("true", onlineStatusInRedis, "Online status in Redis should be 'true'");
+      Double expiresAt = redisTemplate.opsForZSet().score(USERS_ONLINE_KEY, ALICE_ID.toString());
+      assertNotNull(expiresAt, "Online status should be stored in Redis");
+      assertTrue(expiresAt > System.currentTimeMillis(), "Online status should expire in the future");
+      assertTrue(expiresAt <= System.currentTimeMillis() + redisKeyExpirationInSec * 1000);
     }
 
     @Test
@@ -118,22 +120,43 @@ public class OnlineServiceIntegrationTest extends IntegrationTest {
       assertEquals(false, result.isOnline());
       assertEquals(TOMAS_ID, result.userId());
       assertTrue(result.lastSeenOn().isAfter(tomasLastSeenOn));
-      assertEquals(false, redisTemplate.hasKey(TOMAS_ONLINE_STATUS_REDIS_KEY));
-      assertEquals(true, redisTemplate.hasKey(TOMAS_LAST_SEEN_ON_REDIS_KEY));
+      assertNull(redisTemplate.opsForZSet().score(USERS_ONLINE_KEY, TOMAS_ID.toString()));
+      assertEquals(true, hasLastSeenOn(TOMAS_ID));
     }
 
     @Test
-    void shouldUpdateBobStatusToOnline() {
-      assertEquals(false, redisTemplate.hasKey(BOB_LAST_SEEN_ON_REDIS_KEY));
-      assertEquals(false, redisTemplate.hasKey(BOB_ONLINE_STATUS_REDIS_KEY));
+    void shouldUpdateBobStatusToOnline() throws InterruptedException {
+      assertEquals(false, hasLastSeenOn(BOB_ID));
+      assertNull(redisTemplate.opsForZSet().score(USERS_ONLINE_KEY, BOB_ID.toString()));
 
       OnlineStatusDto result = underTest.updateUserOnlineStatus(BOB_ID, true);
+      Thread.sleep(HEARTBEAT_FLUSH_PAUSE_IN_MS);
 
       assertEquals(true, result.isOnline());
       assertNull(result.lastSeenOn());
       assertEquals(BOB_ID, result.userId());
-      assertEquals(true, redisTemplate.hasKey(BOB_ONLINE_STATUS_REDIS_KEY));
-      assertEquals(false, redisTemplate.hasKey(BOB_LAST_SEEN_ON_REDIS_KEY));
+      assertNotNull(redisTemplate.opsForZSet().score(USERS_ONLINE_KEY, BOB_ID.toString()));
+      assertEquals(false, hasLastSeenOn(BOB_ID));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldKeepTomasOffline_whenHeartbeatSentBeforeGoingOfflineIsFlushedLater()
+        throws InterruptedException {
+      Map<Long, Long> pendingHeartbeats = (Map<Long, Long>) ReflectionTestUtils.getField(
+          AopTestUtils.getTargetObject(underTest), "pendingHeartbeats");
+      long sentAt = System.currentTimeMillis() - 1;
+
+      underTest.updateUserOnlineStatus(TOMAS_ID, false);
+      pendingHeartbeats.put(TOMAS_ID, sentAt);
+      Thread.sleep(HEARTBEAT_FLUSH_PAUSE_IN_MS);
+
+      assertNull(redisTemplate.opsForZSet().score(USERS_ONLINE_KEY, TOMAS_ID.toString()));
+
+      underTest.updateUserOnlineStatus(TOMAS_ID, true);
+      Thread.sleep(HEARTBEAT_FLUSH_PAUSE_IN_MS);
+
+      assertNotNull(redisTemplate.opsForZSet().score(USERS_ONLINE_KEY, TOMAS_ID.toString()));
     }
 
     @Test
@@ -143,7 +166,22 @@ public class OnlineServiceIntegrationTest extends IntegrationTest {
       assertEquals(false, result.isOnline());
       assertNotNull(result.lastSeenOn());
       assertEquals(BOB_ID, result.userId());
-      assertEquals(true, redisTemplate.hasKey(BOB_LAST_SEEN_ON_REDIS_KEY));
+      assertEquals(true, hasLastSeenOn(BOB_ID));
+    }
+  }
+
+  @Nested
+  class SweepExpired {
+
+    @Test
+    void shouldRemoveBobAndSetLastSeenOn_whenHeartbeatExpired() throws InterruptedException {
+      redisTemplate.opsForZSet().add(USERS_ONLINE_KEY, BOB_ID.toString(), System.currentTimeMillis() - 1);
+
+      Thread.sleep(SWEEP_PAUSE_IN_MS);
+
+      assertNull(redisTemplate.opsForZSet().score(USERS_ONLINE_KEY, BOB_ID.toString()));
+      assertEquals(true, hasLastSeenOn(BOB_ID));
+      assertNotNull(redisTemplate.opsForZSet().score(USERS_ONLINE_KEY, TOMAS_ID.toString()));
     }
   }
 
@@ -152,19 +190,11 @@ public class OnlineServiceIntegrationTest extends IntegrationTest {
 
     @ParameterizedTest
     @MethodSource("emptyListOrNullArgs")
-    void shouldGetAllOfflineUsers_whenEmptyListOrNull(List<Long> usersIdList ) {
+    void shouldGetOnlyOnlineUsers_whenEmptyListOrNull(List<Long> usersIdList ) {
       Map<Long, OnlineStatusResponse> actualMap = underTest.getAllUsersOnlineStatuses(usersIdList);
 
-      assertThat(actualMap).hasSize(4);
+      assertThat(actualMap).hasSize(1);
 
-      assertThat(actualMap).hasEntrySatisfying(alice.getId(), (statusResponse) -> {
-        assertFalse(statusResponse.isOnline());
-        assertEquals(statusResponse.lastSeenOn(), aliseLastSeenOn);
-      });
-      assertThat(actualMap).hasEntrySatisfying(bob.getId(), (statusResponse) -> {
-        assertFalse(statusResponse.isOnline());
-        assertNull(statusResponse.lastSeenOn());
-      });
       assertThat(actualMap).hasEntrySatisfying(tomas.getId(), (statusResponse) -> {
         assertTrue(statusResponse.isOnline());
         assertEquals(tomasLastSeenOn, statusResponse.lastSeenOn());
@@ -177,16 +207,13 @@ public class OnlineServiceIntegrationTest extends IntegrationTest {
       setUserStatusToOnlineById(alice.getId());
 
       Map<Long, OnlineStatusResponse> actualMap = underTest.getAllUsersOnlineStatuses(usersIdList);
-      assertThat(actualMap).hasSize(4);
+      assertThat(actualMap).hasSize(2);
 
       assertThat(actualMap).hasEntrySatisfying(alice.getId(), (statusResponse) -> {
         assertTrue(statusResponse.isOnline());
         assertEquals(statusResponse.lastSeenOn(), aliseLastSeenOn);
       });
-      assertThat(actualMap).hasEntrySatisfying(bob.getId(), (statusResponse) -> {
-        assertFalse(statusResponse.isOnline());
-        assertNull(statusResponse.lastSeenOn());
-      });
+      assertThat(actualMap).doesNotContainKey(bob.getId());
       assertThat(actualMap).hasEntrySatisfying(tomas.getId(), (statusResponse) -> {
         assertTrue(statusResponse.isOnline());
         assertEquals(tomasLastSeenOn, statusResponse.lastSeenOn());
@@ -248,11 +275,17 @@ public class OnlineServiceIntegrationTest extends IntegrationTest {
 
   }
 
-  private String createRedisKeyByUserId(Long userId) {
-    return REDIS_KEY_TEMPLATE.formatted(userId);
+  private void setUserStatusToOnlineById(Long userId) {
+    long expiresAt = System.currentTimeMillis() + redisKeyExpirationInSec * 1000;
+    redisTemplate.opsForZSet().add(USERS_ONLINE_KEY, userId.toString(), expiresAt);
+  }
+
+  private void setLastSeenOn(Long userId, ZonedDateTime lastSeenOn) {
+    redisTemplate.opsForHash().put(USERS_LAST_SEEN_KEY, userId.toString(),
+        Long.toString(lastSeenOn.toInstant().toEpochMilli()));
   }
 
-  private void setUserStatusToOnlineById(Long userId) {
-    redisTemplate.opsForValue().set(createRedisKeyByUserId(userId), Boolean.TRUE.toString());
+  private boolean hasLastSeenOn(Long userId) {
+    return redisTemplate.opsForHash().hasKey(USERS_LAST_SEEN_KEY, userId.toString());
   }
 }
@@ -2,14 +2,14 @@ package online.talkandtravel.service.impl.integrationtest;
 
 import static online.talkandtravel.config.StompTestConstants.AFTER_SEND_PAUSE_TIME;
 import static online.talkandtravel.testdata.UserTestData.ALICE_ID;
-import static online.talkandtravel.testdata.UserTestData.LAST_SEEN_ON_REDIS_KEY_PATTERN;
-import static online.talkandtravel.testdata.UserTestData.ONLINE_STATUS_REDIS_KEY_PATTERN;
 import static online.talkandtravel.testdata.UserTestData.getAlice;
 import static online.talkandtravel.testdata.UserTestData.getAliceSaved;
 import static online.talkandtravel.testdata.UserTestData.getBob;
 import static online.talkandtravel.testdata.UserTestData.getBobSaved;
 import static online.talkandtravel.util.constants.ApiPathConstants.UPDATE_ONLINE_STATUS_FULL_PATH;
-import static online.talkandtravel.util.constants.ApiPathConstants.USERS_ONLINE_STATUS_ENDPOINT;
+import static online.talkandtravel.util.constants.ApiPathConstants.USERS_ONLINE_STATUSES_ENDPOINT;
+import static online.talkandtravel.util.constants.RedisConstants.USERS_LAST_SEEN_KEY;
+import static online.talkandtravel.util.constants.RedisConstants.USERS_ONLINE_KEY;
 import static online.talkandtravel.util.constants.RedisConstants.USER_REGISTER_DATA_REDIS_KEY_PATTERN;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -67,7 +67,6 @@ public class OnlineServiceWebsocketIntegrationTest extends StompIntegrationTest
   void init() throws ExecutionException, InterruptedException {
     setupTestUsers();
     StompSession bobSubscriberSession = authenticateAndSubscribe(getBob());
-    aliseSession = authenticateAndSubscribe(getAlice());
     pause(2000);
     subscribeToOnlineStatus(bobSubscriberSession);
   }
@@ -83,7 +82,8 @@ public class OnlineServiceWebsocketIntegrationTest extends StompIntegrationTest
   }
 
   private void subscribeToOnlineStatus(StompSession session) {
-    subscribe(onlineStatusDtoList::add, OnlineStatusDto.class, session, USERS_ONLINE_STATUS_ENDPOINT);
+    subscribe(statuses -> onlineStatusDtoList.addAll(List.of(statuses)), OnlineStatusDto[].class,
+        session, USERS_ONLINE_STATUSES_ENDPOINT);
   }
 
   @Test
@@ -106,14 +106,14 @@ public class OnlineServiceWebsocketIntegrationTest extends StompIntegrationTest
 
   @Test
   @Order(3)
-  void shouldSendOnlineStatus_whenAliseStatusUpdatedToOnline() {
-    sendStatusUpdate(true);
+  void shouldSendOnlineStatus_whenAliseConnects() throws ExecutionException, InterruptedException {
+    aliseSession = authenticateAndSubscribe(getAlice());
     assertOnlineStatusReceived(3);
     verifyAliseOnline(onlineStatusDtoList.get(2));
   }
 
   @Test
-  @Order(3)
+  @Order(4)
   void shouldSendOnlineStatus_whenAliseStatusUpdatedToOffline() {
     sendStatusUpdate(false);
     assertOnlineStatusReceived(4);
@@ -121,14 +121,21 @@ public class OnlineServiceWebsocketIntegrationTest extends StompIntegrationTest
   }
 
   @Test
-  @Order(4)
+  @Order(5)
+  void shouldKeepAliseOffline_whileHerSessionIsConnected() {
+    pause(2000);
+    assertOnlineStatusReceived(4);
+  }
+
+  @Test
+  @Order(6)
   void shouldNotSendOnlineStatus_whenNewUserRequestRegister() {
     registerNewUser();
     assertOnlineStatusReceived(4);
   }
 
   @Test
-  @Order(5)
+  @Order(7)
   void shouldSendOnlineStatus_whenNewConfirmRegistration() {
     RegisterRequestWithToken requestWithToken = saveUserRegisterDataToRedis();
     confirmUserRegistration(requestWithToken.token);
@@ -138,7 +145,7 @@ public class OnlineServiceWebsocketIntegrationTest extends StompIntegrationTest
   }
 
   @Test
-  @Order(6)
+  @Order(8)
   void shouldSendOfflineStatus_whenNewUserIsInactive() {
     pause(2000);
     assertOnlineStatusReceived(6);
@@ -192,10 +199,10 @@ public class OnlineServiceWebsocketIntegrationTest extends StompIntegrationTest
     assertNotNull(result.userId());
     assertNull(result.lastSeenOn());
 
-    String onlineStatus = getOnlineStatusFromRedis(result.userId());
+    Double onlineStatus = getOnlineStatusFromRedis(result.userId());
     String lastSeenOn = getLastSeenInFromRedis(result.userId());
     assertNotNull(onlineStatus);
-    assertTrue(Boolean.parseBoolean(onlineStatus));
+    assertTrue(onlineStatus > System.currentTimeMillis());
     assertNull(lastSeenOn);
   }
 
@@ -204,18 +211,18 @@ public class OnlineServiceWebsocketIntegrationTest extends StompIntegrationTest
     assertNotNull(result.userId());
     assertNotNull(result.lastSeenOn());
 
-    String onlineStatus = getOnlineStatusFromRedis(result.userId());
+    Double onlineStatus = getOnlineStatusFromRedis(result.userId());
     String lastSeenOn = getLastSeenInFromRedis(result.userId());
     assertNull(onlineStatus);
     assertNotNull(lastSeenOn);
   }
 
-  private String getOnlineStatusFromRedis(Long userId) {
-    return redisTemplate.opsForValue().get(ONLINE_STATUS_REDIS_KEY_PATTERN.formatted(userId));
+  private Double getOnlineStatusFromRedis(Long userId) {
+    return redisTemplate.opsForZSet().score(USERS_ONLINE_KEY, userId.toString());
   }
 
   private String getLastSeenInFromRedis(Long userId) {
-    return redisTemplate.opsForValue().get(LAST_SEEN_ON_REDIS_KEY_PATTERN.formatted(userId));
+    return (String) redisTemplate.opsForHash().get(USERS_LAST_SEEN_KEY, userId.toString());
   }
 
   private void verifyOnlineStatus(OnlineStatusDto result, Long userId) {
@@ -223,10 +230,10 @@ public class OnlineServiceWebsocketIntegrationTest extends StompIntegrationTest
     assertTrue(result.isOnline());
     assertNull(result.lastSeenOn());
 
-    String onlineStatus = getOnlineStatusFromRedis(result.userId());
+    Double onlineStatus = getOnlineStatusFromRedis(result.userId());
     String lastSeenOn = getLastSeenInFromRedis(result.userId());
     assertNotNull(onlineStatus);
-    assertTrue(Boolean.parseBoolean(onlineStatus));
+    assertTrue(onlineStatus > System.currentTimeMillis());
     assertNotNull(lastSeenOn);
   }
 
@@ -235,7 +242,7 @@ public class OnlineServiceWebsocketIntegrationTest extends StompIntegrationTest
     assertFalse(result.isOnline());
     assertNotNull(result.lastSeenOn());
 
-    String onlineStatus = getOnlineStatusFromRedis(result.userId());
+    Double onlineStatus = getOnlineStatusFromRedis(result.userId());
     String lastSeenOn = getLastSeenInFromRedis(result.userId());
     assertNull(onlineStatus);
     assertNotNull(lastSeenOn);
@@ -6,6 +6,8 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.util.List;
+import java.util.Optional;
 import lombok.extern.log4j.Log4j2;
 import online.talkandtravel.model.entity.User;
 import online.talkandtravel.security.CustomUserDetails;
@@ -15,8 +17,10 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 
 @ExtendWith(MockitoExtension.class)
@@ -53,6 +57,25 @@ class AuthenticationServiceImplTest {
     assertTrue(isAuthenticated);
   }
 
+  @Test
+  void findAuthenticatedUser_shouldReturnUser_whenAuthenticated() {
+    CustomUserDetails userDetails = mock(CustomUserDetails.class);
+    User user = mock(User.class);
+    when(userDetails.getUser()).thenReturn(user);
+    SecurityContextHolder.getContext()
+        .setAuthentication(new UsernamePasswordAuthenticationToken(userDetails, null));
+
+    assertEquals(Optional.of(user), underTest.findAuthenticatedUser());
+  }
+
+  @Test
+  void findAuthenticatedUser_shouldReturnEmpty_whenAnonymous() {
+    SecurityContextHolder.getContext().setAuthentication(new AnonymousAuthenticationToken("key",
+        "anonymousUser", List.of(new SimpleGrantedAuthority("ROLE_ANONYMOUS"))));
+
+    assertEquals(Optional.empty(), underTest.findAuthenticatedUser());
+  }
+
   @Test
   void testIsUserAuth_NotAuthenticated() {
     SecurityContextHolder.clearContext();
@@ -0,0 +1,126 @@
+package online.talkandtravel.service.impl.unittest;
+
+import static online.talkandtravel.util.constants.ApiPathConstants.MESSAGES_SUBSCRIBE_PATH;
+import static online.talkandtravel.util.constants.ApiPathConstants.USERS_ONLINE_STATUSES_ENDPOINT;
+import static online.talkandtravel.util.constants.ApiPathConstants.USERS_ONLINE_STATUS_ENDPOINT;
+import static online.talkandtravel.util.constants.ApiPathConstants.USER_ONLINE_STATUSES_QUEUE;
+import static online.talkandtravel.util.constants.ApiPathConstants.USER_WEBSOCKET_ERRORS_PATH;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import online.talkandtravel.model.dto.message.MessageDto;
+import online.talkandtravel.service.impl.BroadcastServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.CompositeMessageConverter;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.MimeTypeUtils;
+
+@ExtendWith(MockitoExtension.class)
+public class BroadcastServiceImplTest {
+
+  private BroadcastServiceImpl underTest;
+
+  @Mock private SimpMessagingTemplate messagingTemplate;
+
+  @Mock private RedisTemplate<String, String> redisTemplate;
+
+  private final String destination = MESSAGES_SUBSCRIBE_PATH.formatted(1L);
+  private final MessageDto payload = new MessageDto("hello");
+
+  @BeforeEach
+  void setUp() {
+    CompositeMessageConverter converter =
+        new CompositeMessageConverter(List.of(new MappingJackson2MessageConverter()));
+    underTest = new BroadcastServiceImpl(messagingTemplate, redisTemplate, converter);
+  }
+
+  @Test
+  void broadcast_shouldSendEncodedJsonToLocalBroker_whenNotSharedThroughRedis() {
+    ReflectionTestUtils.setField(underTest, "SHARE_THROUGH_REDIS", false);
+
+    underTest.broadcast(destination, payload);
+
+    Message<byte[]> sent = captureSentMessage();
+    assertTrue(new String(sent.getPayload()).contains("\"content\":\"hello\""));
+    assertEquals(MimeTypeUtils.APPLICATION_JSON, sent.getHeaders().get(MessageHeaders.CONTENT_TYPE));
+    verify(messagingTemplate, never()).convertAndSend(anyString(), any(Object.class));
+    verify(redisTemplate, never()).execute(any(RedisCallback.class));
+  }
+
+  @Test
+  void broadcast_shouldPublishOnly_whenSharedThroughRedis() {
+    ReflectionTestUtils.setField(underTest, "SHARE_THROUGH_REDIS", true);
+
+    underTest.broadcast(destination, payload);
+
+    verify(redisTemplate).execute(any(RedisCallback.class));
+    verify(messagingTemplate, never()).send(anyString(), any());
+  }
+
+  @Test
+  void broadcast_shouldDeliverLocally_whenPublishFails() {
+    ReflectionTestUtils.setField(underTest, "SHARE_THROUGH_REDIS", true);
+    when(redisTemplate.execute(any(RedisCallback.class)))
+        .thenThrow(new IllegalStateException("redis is down"));
+
+    underTest.broadcast(destination, payload);
+
+    assertTrue(new String(captureSentMessage().getPayload()).contains("\"content\":\"hello\""));
+  }
+
+  @Test
+  void broadcastToUser_shouldSendToUserDestination() {
+    underTest.broadcastToUser("alice@mail.com", USER_ONLINE_STATUSES_QUEUE, payload);
+
+    verify(messagingTemplate).send(eq("/user/alice@mail.com/queue/onlineStatuses"), any());
+  }
+
+  @Test
+  void deliverLocally_shouldSendJsonBytesAsIs() {
+    byte[] json = "{\"content\":\"hello\"}".getBytes();
+
+    underTest.deliverLocally(destination, json);
+
+    Message<byte[]> sent = captureSentMessage();
+    assertArrayEquals(json, sent.getPayload());
+    assertEquals(MimeTypeUtils.APPLICATION_JSON, sent.getHeaders().get(MessageHeaders.CONTENT_TYPE));
+  }
+
+  @Test
+  void isBroadcastDestination_shouldAcceptChatsAndOnlineStatusOnly() {
+    assertTrue(underTest.isBroadcastDestination(destination));
+    assertTrue(underTest.isBroadcastDestination(USERS_ONLINE_STATUSES_ENDPOINT));
+    assertTrue(underTest.isBroadcastDestination(USERS_ONLINE_STATUS_ENDPOINT));
+    assertTrue(underTest.isBroadcastDestination("/user/alice@mail.com" + USER_ONLINE_STATUSES_QUEUE));
+    assertFalse(underTest.isBroadcastDestination("/user" + USER_ONLINE_STATUSES_QUEUE));
+    assertFalse(underTest.isBroadcastDestination(USER_WEBSOCKET_ERRORS_PATH.formatted(1L)));
+    assertFalse(underTest.isBroadcastDestination(null));
+  }
+
+  @SuppressWarnings("unchecked")
+  private Message<byte[]> captureSentMessage() {
+    ArgumentCaptor<Message<byte[]>> captor = ArgumentCaptor.forClass(Message.class);
+    verify(messagingTemplate).send(eq(destination), captor.capture());
+    return captor.getValue();
+  }
+}
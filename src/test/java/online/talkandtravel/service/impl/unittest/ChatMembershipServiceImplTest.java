@@ -0,0 +1,87 @@
+package online.talkandtravel.service.impl.unittest;
+
+import static online.talkandtravel.util.constants.RedisConstants.CHAT_MEMBERSHIP_INVALIDATION_CHANNEL;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import online.talkandtravel.repository.UserChatRepository;
+import online.talkandtravel.service.impl.ChatMembershipServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+public class ChatMembershipServiceImplTest {
+
+  @InjectMocks private ChatMembershipServiceImpl underTest;
+
+  @Mock private UserChatRepository userChatRepository;
+
+  @Mock private RedisTemplate<String, String> redisTemplate;
+
+  private final Long chatId = 1L;
+  private final Long userId = 2L;
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(underTest, "CACHE_SIZE", 1024);
+    ReflectionTestUtils.setField(underTest, "SHARE_THROUGH_REDIS", true);
+    underTest.init();
+  }
+
+  @Test
+  void isMember_shouldQueryDatabaseOnce_whenUserIsMember() {
+    when(userChatRepository.existsByChatIdAndUserId(chatId, userId)).thenReturn(true);
+
+    assertTrue(underTest.isMember(chatId, userId));
+    assertTrue(underTest.isMember(chatId, userId));
+
+    verify(userChatRepository, times(1)).existsByChatIdAndUserId(chatId, userId);
+  }
+
+  @Test
+  void isMember_shouldNotCacheMissingMembership() {
+    when(userChatRepository.existsByChatIdAndUserId(chatId, userId)).thenReturn(false);
+
+    assertFalse(underTest.isMember(chatId, userId));
+    assertFalse(underTest.isMember(chatId, userId));
+
+    verify(userChatRepository, times(2)).existsByChatIdAndUserId(chatId, userId);
+  }
+
+  @Test
+  void evict_shouldDropMembershipAndPublishInvalidation() {
+    when(userChatRepository.existsByChatIdAndUserId(chatId, userId)).thenReturn(true, false);
+    underTest.isMember(chatId, userId);
+
+    underTest.evict(chatId, userId);
+
+    assertFalse(underTest.isMember(chatId, userId));
+    verify(redisTemplate).convertAndSend(CHAT_MEMBERSHIP_INVALIDATION_CHANNEL, "1:2");
+  }
+
+  @Test
+  void evictChat_shouldDropMembershipsOfAllUsers() {
+    Long otherUserId = 3L;
+    when(userChatRepository.existsByChatIdAndUserId(chatId, userId)).thenReturn(true);
+    when(userChatRepository.existsByChatIdAndUserId(chatId, otherUserId)).thenReturn(true);
+    underTest.isMember(chatId, userId);
+    underTest.isMember(chatId, otherUserId);
+
+    underTest.evictChat(chatId);
+    underTest.isMember(chatId, userId);
+    underTest.isMember(chatId, otherUserId);
+
+    verify(userChatRepository, times(2)).existsByChatIdAndUserId(chatId, userId);
+    verify(userChatRepository, times(2)).existsByChatIdAndUserId(chatId, otherUserId);
+    verify(redisTemplate).convertAndSend(CHAT_MEMBERSHIP_INVALIDATION_CHANNEL, "1:*");
+  }
+}
@@ -7,8 +7,10 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -20,11 +22,13 @@ import java.time.ZonedDateTime;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import lombok.extern.log4j.Log4j2;
 import online.talkandtravel.exception.chat.ChatNotFoundException;
 import online.talkandtravel.exception.chat.MainCountryChatNotFoundException;
 import online.talkandtravel.exception.chat.PrivateChatAlreadyExistsException;
 import online.talkandtravel.exception.country.CountryNotFoundException;
+import online.talkandtravel.exception.message.InvalidMessageCursorException;
 import online.talkandtravel.exception.message.MessageNotFoundException;
 import online.talkandtravel.exception.user.UserChatNotFoundException;
 import online.talkandtravel.exception.user.UserNotAuthenticatedException;
@@ -38,7 +42,10 @@ import online.talkandtravel.model.dto.chat.NewPrivateChatDto;
 import online.talkandtravel.model.dto.chat.PrivateChatDto;
 import online.talkandtravel.model.dto.chat.PrivateChatInfoDto;
 import online.talkandtravel.model.dto.chat.SetLastReadMessageRequest;
+import online.talkandtravel.model.dto.chat.UserChatSummary;
 import online.talkandtravel.model.dto.country.CountryInfoDto;
+import online.talkandtravel.model.dto.message.MessageCursor;
+import online.talkandtravel.model.dto.message.MessageCursorPage;
 import online.talkandtravel.model.dto.message.MessageDto;
 import online.talkandtravel.model.dto.user.UserDtoBasic;
 import online.talkandtravel.model.dto.user.UserDtoShort;
@@ -67,6 +74,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
@@ -321,6 +329,7 @@ class ChatServiceImplTest {
             .name(chatName)
             .country(country1)
             .users(List.of(user1))
+            .usersCount(1)
             .build();
 
     Chat savedChat =
@@ -331,6 +340,7 @@ class ChatServiceImplTest {
             .name(chatName)
             .country(country1)
             .users(List.of(user1))
+            .usersCount(1)
             .build();
 
 
@@ -341,6 +351,7 @@ class ChatServiceImplTest {
       UserChat userChat = new UserChat();
       userChat.setLastReadMessage(Message.builder().creationDate(ZonedDateTime.now(ZoneOffset.UTC))
           .chat(savedChat).build());
+      userChat.setUnreadMessagesCount(100L);
 
       when(authenticationService.getAuthenticatedUser()).thenReturn(user1);
       when(countryRepository.findById(countryName)).thenReturn(Optional.of(country1));
@@ -349,7 +360,6 @@ class ChatServiceImplTest {
           .thenReturn(Optional.of(userCountry));
       when(userChatRepository.findByChatIdAndUserId(savedChat.getId(), user1.getId()))
           .thenReturn(Optional.of(userChat));
-      when(messageRepository.countAllByChatIdAndCreationDateAfter(anyLong(), any(ZonedDateTime.class))).thenReturn(100L);
       when(chatMapper.toDto(savedChat, 100L)).thenReturn(chatDto);
 
       ChatDto result = underTest.createCountryChat(request);
@@ -491,21 +501,20 @@ class ChatServiceImplTest {
       PrivateChatDto aliceAndDeletedChatDto = new PrivateChatDto(privateChatAliceAndDeletedInfoDto,
           new UserDtoShort(null, REMOVED_USER_NAME, REMOVED_USER_EMAIL, new AvatarDto("url", "url")), null);
 
+      UserChatSummary aliceBobSummary = buildSummary(aliceBobChat, 2L, 0L, 2L, bob.getId());
+      UserChatSummary aliceAndDeletedSummary = buildSummary(aliceAndDeletedChat, 1L, 0L, null, null);
+
       when(authenticationService.getAuthenticatedUser()).thenReturn(alice);
-      when(userChatRepository.findAllByUserId(alice.getId())).thenReturn(
-          List.of(aliceBobUserChat, aliceAndDeletedUserChat));
-      when(userChatRepository.findAllByChatId(200L)).thenReturn(
-          List.of(aliceBobUserChat, bobAliceUserChat));
-      when(userChatRepository.findAllByChatId(201L)).thenReturn(List.of(aliceAndDeletedUserChat));
-      when(chatMapper.chatToPrivateChatInfoDto(any(Chat.class), anyLong())).thenReturn(
-          privateChatInfoDto, privateChatAliceAndDeletedInfoDto);
-      when(messageRepository.findFirstByChatIdOrderByCreationDateDesc(200L)).thenReturn(
-          Optional.of(lastAliceBobChatMessage));
+      when(userChatRepository.findAllSummariesByUserIdAndChatType(alice.getId(), ChatType.PRIVATE))
+          .thenReturn(List.of(aliceBobSummary, aliceAndDeletedSummary));
+      when(userRepository.findAllWithAvatarByIdIn(Set.of(bob.getId()))).thenReturn(List.of(bob));
+      when(messageRepository.findAllByIdIn(Set.of(lastAliceBobChatMessage.getId())))
+          .thenReturn(List.of(lastAliceBobChatMessage));
+      when(chatMapper.summaryToPrivateChatInfoDto(aliceBobSummary)).thenReturn(privateChatInfoDto);
+      when(chatMapper.summaryToPrivateChatInfoDto(aliceAndDeletedSummary))
+          .thenReturn(privateChatAliceAndDeletedInfoDto);
       when(userChatMapper.toPrivateChatDto(privateChatInfoDto, bob, lastAliceBobChatMessage))
           .thenReturn(aliceBobChatDto);
-
-      when(messageRepository.findFirstByChatIdOrderByCreationDateDesc(201L)).thenReturn(
-          Optional.empty());
       when(userChatMapper.toPrivateChatDto(privateChatAliceAndDeletedInfoDto, User.builder()
                   .userName(REMOVED_USER_NAME)
                   .userEmail("undefined")
@@ -528,13 +537,25 @@ class ChatServiceImplTest {
       assertThat(aliceAndDeletedChatDtoActual).isEqualTo(aliceAndDeletedChatDto);
 
       verify(authenticationService).getAuthenticatedUser();
-      verify(userChatRepository).findAllByUserId(alice.getId());
-      verify(userChatRepository).findAllByChatId(200L);
-      verify(userChatRepository).findAllByChatId(201L);
-      verify(chatMapper, times(2)).chatToPrivateChatInfoDto(any(Chat.class), anyLong());
+      verify(userChatRepository).findAllSummariesByUserIdAndChatType(alice.getId(), ChatType.PRIVATE);
+      verify(userChatRepository, never()).findAllByChatId(anyLong());
+      verify(messageRepository, never()).findFirstByChatIdOrderByCreationDateDesc(anyLong());
       verify(userChatMapper, times(2)).toPrivateChatDto(any(), any(), any());
     }
 
+    @Test
+    void shouldNotLoadCompanionsAndMessages_whenThereAreNoPrivateChats() {
+      when(authenticationService.getAuthenticatedUser()).thenReturn(alice);
+      when(userChatRepository.findAllSummariesByUserIdAndChatType(alice.getId(), ChatType.PRIVATE))
+          .thenReturn(List.of());
+
+      List<PrivateChatDto> actual = underTest.findAllUsersPrivateChats();
+
+      assertThat(actual).isEmpty();
+      verify(userRepository, never()).findAllWithAvatarByIdIn(any());
+      verify(messageRepository, never()).findAllByIdIn(any());
+    }
+
     @Nested
     class FindAllCountriesMainChats {
       private final Country country = new Country("TestCountry", "flagCode");
@@ -597,6 +618,13 @@ class ChatServiceImplTest {
           .build();
     }
 
+    private static UserChatSummary buildSummary(Chat chat, Long usersCount, Long unreadMessagesCount,
+        Long lastMessageId, Long companionId) {
+      return new UserChatSummary(chat.getId(), chat.getName(), chat.getDescription(),
+          chat.getChatType(), chat.getCreationDate(), null, null, usersCount,
+          (long) chat.getMessages().size(), unreadMessagesCount, lastMessageId, companionId);
+    }
+
     private PrivateChatInfoDto createPrivateChatInfoDto(String chatName) {
       return new PrivateChatInfoDto(null, chatName, null, null, null, null, null, null);
     }
@@ -624,27 +652,21 @@ class ChatServiceImplTest {
   @Nested
   class FindAllUserPublicChats {
 
-    List<UserChat> userChats;
     ChatDto chatDto;
 
     @BeforeEach
     void init() {
-      Message lastReadMessage = message;
-      lastReadMessage.setCreationDate(ZonedDateTime.now().minusDays(1));
-
-      userChat.setLastReadMessage(lastReadMessage);
-
-      userChats = List.of(userChat);
       chatDto = new ChatDto("Test Group Chat");
     }
 
     @Test
     void findAllUsersPublicChats_shouldReturnChatDtoList_whenPublicChatsExist() {
+      UserChatSummary summary = new UserChatSummary(chat.getId(), chat.getName(), null,
+          ChatType.GROUP, null, "TestCountry", "tc", 10L, 20L, 5L, 1L, null);
       when(authenticationService.getAuthenticatedUser()).thenReturn(user);
-      when(userChatRepository.findAllByUserId(1L)).thenReturn(userChats);
-      when(messageRepository.countAllByChatIdAndCreationDateAfter(eq(chat.getId()), any(ZonedDateTime.class)))
-          .thenReturn(5L);
-      when(chatMapper.toDto(any(Chat.class), anyLong())).thenReturn(chatDto);
+      when(userChatRepository.findAllSummariesByUserIdAndChatType(1L, ChatType.GROUP))
+          .thenReturn(List.of(summary));
+      when(chatMapper.summaryToDto(summary)).thenReturn(chatDto);
 
       List<ChatDto> result = underTest.findAllUserPublicChats();
 
@@ -652,9 +674,9 @@ class ChatServiceImplTest {
       assertThat(result).hasSize(1);
       assertThat(result.get(0)).isEqualTo(chatDto);
 
-      verify(userChatRepository).findAllByUserId(1L);
-      verify(messageRepository).countAllByChatIdAndCreationDateAfter(eq(chat.getId()), any(ZonedDateTime.class));
-      verify(chatMapper).toDto(any(Chat.class), anyLong());
+      verify(userChatRepository).findAllSummariesByUserIdAndChatType(1L, ChatType.GROUP);
+      verify(userChatRepository, never()).findAllByUserId(anyLong());
+      verify(messageRepository, never()).countAllByChatIdAndCreationDateAfter(anyLong(), any(ZonedDateTime.class));
     }
 
   }
@@ -676,8 +698,11 @@ class ChatServiceImplTest {
 
       underTest.setLastReadMessage(chatId, requestDto);
 
-      verify(userChatRepository).save(userChat1);
       verify(messageRepository).findById(2L);
+      InOrder inOrder = inOrder(chatRepository, userChatRepository);
+      inOrder.verify(chatRepository).lockById(chatId);
+      inOrder.verify(userChatRepository).updateLastReadMessage(chatId, userId, message.getId());
+      verify(userChatRepository, never()).save(any(UserChat.class));
     }
 
     @Test
@@ -825,4 +850,81 @@ class ChatServiceImplTest {
     }
   }
 
+  @Nested
+  class FindMessagesByCursor {
+
+    private static final Long CHAT_ID = 1L;
+    private static final int LIMIT = 2;
+    private ZonedDateTime createdOn;
+    private List<Message> messages;
+
+    @BeforeEach
+    void setUp() {
+      createdOn = ZonedDateTime.of(2024, 9, 1, 12, 0, 0, 123_456_000, ZoneOffset.UTC);
+      messages = List.of(
+          Message.builder().chat(chat).id(3L).creationDate(createdOn).content("message 3").build(),
+          Message.builder().chat(chat).id(2L).creationDate(createdOn.minusMinutes(1)).content("message 2").build(),
+          Message.builder().chat(chat).id(1L).creationDate(createdOn.minusMinutes(2)).content("message 1").build()
+      );
+    }
+
+    @Test
+    void findMessagesByCursor_shouldReturnLatestMessages_whenNoCursorProvided() {
+      when(messageRepository.findLatest(CHAT_ID, LIMIT + 1)).thenReturn(messages);
+      when(messageMapper.toMessageDto(any(Message.class)))
+          .thenAnswer(invocation -> new MessageDto(invocation.<Message>getArgument(0).getContent()));
+
+      MessageCursorPage result = underTest.findMessagesByCursor(CHAT_ID, null, null, LIMIT);
+
+      assertEquals(LIMIT, result.content().size());
+      assertEquals("message 3", result.content().get(0).content());
+      assertTrue(result.hasNext());
+      assertEquals(MessageCursor.of(messages.get(1)), MessageCursor.decode(result.nextCursor()));
+      verify(messageMapper, times(LIMIT)).toMessageDto(any(Message.class));
+    }
+
+    @Test
+    void findMessagesByCursor_shouldSeekBeforeCursor_whenBeforeProvided() {
+      String before = MessageCursor.of(messages.get(0)).encode();
+      when(messageRepository.findBefore(CHAT_ID, createdOn, 3L, LIMIT + 1))
+          .thenReturn(messages.subList(1, 3));
+      when(messageMapper.toMessageDto(any(Message.class)))
+          .thenAnswer(invocation -> new MessageDto(invocation.<Message>getArgument(0).getContent()));
+
+      MessageCursorPage result = underTest.findMessagesByCursor(CHAT_ID, before, null, LIMIT);
+
+      assertEquals(2, result.content().size());
+      assertThat(result.hasNext()).isFalse();
+      verify(messageRepository, never()).findLatest(anyLong(), anyInt());
+    }
+
+    @Test
+    void findMessagesByCursor_shouldThrow_whenCursorIsInvalid() {
+      assertThrows(InvalidMessageCursorException.class,
+          () -> underTest.findMessagesByCursor(CHAT_ID, "not a cursor", null, LIMIT));
+      verifyNoInteractions(messageRepository);
+    }
+
+    @Test
+    void findMessagesByCursor_shouldThrow_whenBothBeforeAndAfterProvided() {
+      String cursor = MessageCursor.of(messages.get(0)).encode();
+
+      assertThrows(InvalidMessageCursorException.class,
+          () -> underTest.findMessagesByCursor(CHAT_ID, cursor, cursor, LIMIT));
+      verifyNoInteractions(messageRepository);
+    }
+
+    @Test
+    void findUnreadMessagesByCursor_shouldReturnEmptyPage_whenNoLastReadMessage() {
+      when(authenticationService.getAuthenticatedUser()).thenReturn(user);
+      when(userChatRepository.findByChatIdAndUserId(CHAT_ID, user.getId()))
+          .thenReturn(Optional.of(new UserChat()));
+
+      MessageCursorPage result = underTest.findUnreadMessagesByCursor(CHAT_ID, null, LIMIT);
+
+      assertThat(result.content()).isEmpty();
+      assertThat(result.nextCursor()).isNull();
+      verifyNoInteractions(messageRepository);
+    }
+  }
 }
@@ -7,6 +7,7 @@ import static online.talkandtravel.testdata.UserTestData.getAlice;
 import static online.talkandtravel.testdata.UserTestData.getBob;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.any;
@@ -46,6 +47,8 @@ import online.talkandtravel.repository.UserChatRepository;
 import online.talkandtravel.repository.UserCountryRepository;
 import online.talkandtravel.repository.UserRepository;
 import online.talkandtravel.security.CustomUserDetails;
+import online.talkandtravel.service.ChatMembershipService;
+import online.talkandtravel.service.TypingService;
 import online.talkandtravel.service.impl.EventServiceImpl;
 import online.talkandtravel.util.mapper.MessageMapper;
 import online.talkandtravel.util.mapper.UserMapper;
@@ -68,12 +71,15 @@ class EventServiceImplTest {
   @Mock private UserMapper userMapper;
   @Mock private MessageMapper messageMapper;
   @Mock private UserChatRepository userChatRepository;
+  @Mock private ChatMembershipService chatMembershipService;
+  @Mock private TypingService typingService;
   @Mock private UserCountryRepository userCountryRepository;
 
   @InjectMocks private EventServiceImpl underTest;
 
   private Chat chat;
   private User user;
+  private User authenticatedUser;
   private Message message;
   private MessageDto messageDto;
   private UserNameDto userNameDto;
@@ -117,7 +123,8 @@ class EventServiceImplTest {
 
     eventRequest = new EventRequest(CHAT_ID);
 
-    UserDetails userDetails = new CustomUserDetails(user);
+    CustomUserDetails userDetails = new CustomUserDetails(user);
+    authenticatedUser = userDetails.getUser();
     principal = new UsernamePasswordAuthenticationToken(
         userDetails,
         null,
@@ -132,21 +139,34 @@ class EventServiceImplTest {
 
     @Test
     void startTyping_shouldReturnEventDtoBasic_whenChatAndUserExist() {
-      when(chatRepository.existsById(chatId)).thenReturn(true);
-      when(userMapper.toUserNameDto(user)).thenReturn(userNameDto);
+      when(chatMembershipService.isMember(chatId, ALICE_ID)).thenReturn(true);
+      when(userMapper.toUserNameDto(authenticatedUser)).thenReturn(userNameDto);
+      when(typingService.startTyping(chatId, userNameDto)).thenReturn(true);
 
       EventResponse result = underTest.startTyping(eventRequest, principal);
 
       assertEqualsExcludingTime(eventResponse, result);
-      verify(chatRepository, times(1)).existsById(chatId);
+      verify(chatMembershipService, times(1)).isMember(chatId, ALICE_ID);
+      verifyNoInteractions(chatRepository);
     }
 
     @Test
-    void startTyping_shouldThrowChatNotFoundException_whenChatDoesNotExist() {
-      when(chatRepository.existsById(chatId)).thenReturn(false);
+    void startTyping_shouldReturnNull_whenEventIsCoalesced() {
+      when(chatMembershipService.isMember(chatId, ALICE_ID)).thenReturn(true);
+      when(userMapper.toUserNameDto(authenticatedUser)).thenReturn(userNameDto);
+      when(typingService.startTyping(chatId, userNameDto)).thenReturn(false);
 
-      assertThrows(WebSocketException.class, () -> underTest.startTyping(eventRequest, principal));
-      verify(chatRepository, times(1)).existsById(anyLong());
+      EventResponse result = underTest.startTyping(eventRequest, principal);
+
+      assertNull(result);
+    }
+
+    @Test
+    void startTyping_shouldThrowUserNotJoinedTheChatException_whenUserNotInChat() {
+      when(chatMembershipService.isMember(chatId, ALICE_ID)).thenReturn(false);
+
+      assertThrows(UserNotJoinedTheChatException.class, () -> underTest.startTyping(eventRequest, principal));
+      verify(typingService, never()).startTyping(anyLong(), any(UserNameDto.class));
       verify(messageRepository, never()).save(any(Message.class));
       verify(messageMapper, never()).toMessageDto(any(Message.class));
     }
@@ -160,8 +180,9 @@ class EventServiceImplTest {
 
     @Test
     void stopTyping_shouldReturnEventResponse_whenChatAndUserExist() {
-      when(chatRepository.existsById(chatId)).thenReturn(true);
-      when(userMapper.toUserNameDto(user)).thenReturn(userNameDto);
+      when(chatMembershipService.isMember(chatId, ALICE_ID)).thenReturn(true);
+      when(typingService.stopTyping(chatId, ALICE_ID)).thenReturn(true);
+      when(userMapper.toUserNameDto(authenticatedUser)).thenReturn(userNameDto);
       EventResponse expected =
           new EventResponse(
               userNameDto,
@@ -172,15 +193,27 @@ class EventServiceImplTest {
       EventResponse result = underTest.stopTyping(eventRequest, principal);
 
       assertEqualsExcludingTime(expected, result);
-      verify(chatRepository, times(1)).existsById(chatId);
+      verify(chatMembershipService, times(1)).isMember(chatId, ALICE_ID);
+      verifyNoInteractions(chatRepository);
     }
 
     @Test
-    void stopTyping_shouldThrowChatNotFoundException_whenChatDoesNotExist() {
-      when(chatRepository.existsById(chatId)).thenReturn(false);
+    void stopTyping_shouldReturnNull_whenUserWasNotTyping() {
+      when(chatMembershipService.isMember(chatId, ALICE_ID)).thenReturn(true);
+      when(typingService.stopTyping(chatId, ALICE_ID)).thenReturn(false);
+
+      EventResponse result = underTest.stopTyping(eventRequest, principal);
 
-      assertThrows(WebSocketException.class, () -> underTest.stopTyping(eventRequest, principal));
-      verify(chatRepository, times(1)).existsById(1L);
+      assertNull(result);
+      verify(userMapper, never()).toUserNameDto(any(User.class));
+    }
+
+    @Test
+    void stopTyping_shouldThrowUserNotJoinedTheChatException_whenUserNotInChat() {
+      when(chatMembershipService.isMember(chatId, ALICE_ID)).thenReturn(false);
+
+      assertThrows(UserNotJoinedTheChatException.class, () -> underTest.stopTyping(eventRequest, principal));
+      verify(typingService, never()).stopTyping(anyLong(), anyLong());
       verify(messageRepository, never()).save(any(Message.class));
       verify(messageMapper, never()).toMessageDto(any(Message.class));
     }
@@ -194,7 +227,7 @@ class EventServiceImplTest {
 
       chat.setCountry(new Country("Country1", "co"));
       when(chatRepository.findById(1L)).thenReturn(Optional.of(chat));
-      when(userChatRepository.findByChatIdAndUserId(ARUBA_CHAT_ID, ALICE_ID)).thenReturn(Optional.empty());
+      when(chatMembershipService.isMember(ARUBA_CHAT_ID, ALICE_ID)).thenReturn(false);
       when(userCountryRepository.findByCountryNameAndUserId("Country1", ALICE_ID))
           .thenReturn(Optional.of(userCountry));
 
@@ -205,21 +238,24 @@ class EventServiceImplTest {
 
       assertEquals(messageDto, result);
       verify(chatRepository, times(1)).findById(1L);
-      verify(userChatRepository, times(1)).findByChatIdAndUserId(ARUBA_CHAT_ID, ALICE_ID);
+      verify(chatMembershipService, times(1)).isMember(ARUBA_CHAT_ID, ALICE_ID);
+      verify(chatMembershipService, times(1)).evict(ARUBA_CHAT_ID, ALICE_ID);
       verify(userCountryRepository, times(1)).findByCountryNameAndUserId("Country1", ALICE_ID);
       verify(userCountryRepository, times(1)).save(any(UserCountry.class));
+      verify(chatRepository, times(1)).changeUsersCount(chat.getId(), 1);
       verify(messageRepository, times(1)).save(any(Message.class));
+      verify(chatRepository, times(1)).incrementMessagesCount(chat.getId(), 1, message.getId());
       verify(messageMapper, times(1)).toMessageDto(message);
     }
 
     @Test
     void joinChat_shouldThrowUserAlreadyJoinTheChatException_whenUserAlreadyJoined() {
       when(chatRepository.findById(1L)).thenReturn(Optional.of(chat));
-      when(userChatRepository.findByChatIdAndUserId(ARUBA_CHAT_ID, ALICE_ID)).thenReturn(Optional.of(userChat));
+      when(chatMembershipService.isMember(ARUBA_CHAT_ID, ALICE_ID)).thenReturn(true);
 
       assertThrows(UserAlreadyJoinTheChatException.class, () -> underTest.joinChat(eventRequest, principal));
       verify(chatRepository, times(1)).findById(1L);
-      verify(userChatRepository, times(1)).findByChatIdAndUserId(ARUBA_CHAT_ID, ALICE_ID);
+      verify(chatMembershipService, times(1)).isMember(ARUBA_CHAT_ID, ALICE_ID);
       verify(userCountryRepository, never()).findByCountryNameAndUserId(anyString(), anyLong());
       verify(userChatRepository, never()).save(any(UserChat.class));
       verify(userCountryRepository, never()).save(any(UserCountry.class));
@@ -234,7 +270,7 @@ class EventServiceImplTest {
       assertThrows(WebSocketException.class, () -> underTest.joinChat(eventRequest, principal));
       verify(chatRepository, times(1)).findById(1L);
       verify(userRepository, never()).findById(anyLong());
-      verify(userChatRepository, never()).findByChatIdAndUserId(anyLong(), anyLong());
+      verify(chatMembershipService, never()).isMember(anyLong(), anyLong());
       verify(userCountryRepository, never()).findByCountryNameAndUserId(anyString(), anyLong());
       verify(userChatRepository, never()).save(any(UserChat.class));
       verify(userCountryRepository, never()).save(any(UserCountry.class));
@@ -245,16 +281,12 @@ class EventServiceImplTest {
     @Test
     void joinChat_shouldThrowPrivateChatException_whenChatIsPrivateAndFull() {
       chat.setChatType(ChatType.PRIVATE);
-      User companion = new User();
-      companion.setId(2L);
-      companion.setUserName("User2");
-      chat.getUsers().add(companion);
-      chat.getUsers().add(user);
+      chat.setUsersCount(2);
       when(chatRepository.findById(1L)).thenReturn(Optional.of(chat));
 
       assertThrows(WebSocketException.class, () -> underTest.joinChat(eventRequest, principal));
       verify(chatRepository, times(1)).findById(1L);
-      verify(userChatRepository, never()).findByChatIdAndUserId(anyLong(), anyLong());
+      verify(chatMembershipService, never()).isMember(anyLong(), anyLong());
       verify(userCountryRepository, never()).findByCountryNameAndUserId(anyString(), anyLong());
       verify(userChatRepository, never()).save(any(UserChat.class));
       verify(userCountryRepository, never()).save(any(UserCountry.class));
@@ -270,7 +302,7 @@ class EventServiceImplTest {
     private static final EventRequest leaveChatRequest = new EventRequest(ARUBA_CHAT_ID);
     private Message leaveMessage = Message.builder()
         .chat(chat)
-        .sender(alice)
+        .sender(new CustomUserDetails(alice).getUser())
         .type(MessageType.LEAVE)
         .content("Alice left the chat")
         .build();
@@ -280,6 +312,7 @@ class EventServiceImplTest {
       chat.setCountry(new Country("Country1", "co"));
 
       when(chatRepository.findById(ARUBA_CHAT_ID)).thenReturn(Optional.of(chat));
+      when(chatMembershipService.isMember(ARUBA_CHAT_ID, ALICE_ID)).thenReturn(true);
       when(userChatRepository.findByChatIdAndUserId(ARUBA_CHAT_ID, ALICE_ID))
           .thenReturn(Optional.of(new UserChat()));
       when(userCountryRepository.findByCountryNameAndUserId(chat.getCountry().getName(), ALICE_ID))
@@ -293,10 +326,13 @@ class EventServiceImplTest {
       assertNotNull(result);
 
       verify(chatRepository, times(1)).findById(ARUBA_CHAT_ID);
-      verify(userChatRepository, times(2)).findByChatIdAndUserId(ARUBA_CHAT_ID, ALICE_ID);
+      verify(chatMembershipService, times(1)).isMember(ARUBA_CHAT_ID, ALICE_ID);
+      verify(userChatRepository, times(1)).findByChatIdAndUserId(ARUBA_CHAT_ID, ALICE_ID);
+      verify(chatMembershipService, times(1)).evict(ARUBA_CHAT_ID, ALICE_ID);
       verify(userCountryRepository, times(1))
           .findByCountryNameAndUserId(chat.getCountry().getName(), ALICE_ID);
       verify(userChatRepository, times(1)).delete(any(UserChat.class));
+      verify(chatRepository, times(1)).changeUsersCount(ARUBA_CHAT_ID, -1);
       verify(userCountryRepository, times(1)).delete(any(UserCountry.class));
       verify(messageRepository, times(1)).save(leaveMessage);
       verify(messageMapper, times(1)).toMessageDto(any(Message.class));
@@ -309,16 +345,15 @@ class EventServiceImplTest {
           .chatType(ChatType.PRIVATE)
           .build();
       EventRequest leaveFromPrivateChatRequest = new EventRequest(ALICE_BOB_PRIVATE_CHAT_ID);
-      UserChat aliceUserChat = UserChat.builder().user(alice).build();
 
       when(chatRepository.findById(ALICE_BOB_PRIVATE_CHAT_ID)).thenReturn(Optional.of(privateChatAliceAndBob));
-      when(userChatRepository.findByChatIdAndUserId(ALICE_BOB_PRIVATE_CHAT_ID, ALICE_ID)).thenReturn(
-          Optional.of(aliceUserChat));
+      when(chatMembershipService.isMember(ALICE_BOB_PRIVATE_CHAT_ID, ALICE_ID)).thenReturn(true);
 
       underTest.leaveChat(leaveFromPrivateChatRequest, principal);
 
-      verify(userChatRepository).findByChatIdAndUserId(ALICE_BOB_PRIVATE_CHAT_ID, ALICE_ID);
+      verify(chatMembershipService).isMember(ALICE_BOB_PRIVATE_CHAT_ID, ALICE_ID);
       verify(chatRepository).delete(privateChatAliceAndBob);
+      verify(chatMembershipService).evictChat(ALICE_BOB_PRIVATE_CHAT_ID);
       verifyNoInteractions(messageMapper);
       verifyNoInteractions(messageRepository);
     }
@@ -331,11 +366,11 @@ class EventServiceImplTest {
       EventRequest leaveFromPrivateChatRequest = new EventRequest(ALICE_BOB_PRIVATE_CHAT_ID);
 
       when(chatRepository.findById(ALICE_BOB_PRIVATE_CHAT_ID)).thenReturn(Optional.of(privateChatAliceAndBob));
-      when(userChatRepository.findByChatIdAndUserId(ALICE_BOB_PRIVATE_CHAT_ID, ALICE_ID)).thenReturn(Optional.empty());
+      when(chatMembershipService.isMember(ALICE_BOB_PRIVATE_CHAT_ID, ALICE_ID)).thenReturn(false);
 
       assertThrows(UserNotJoinedTheChatException.class, () -> underTest.leaveChat(leaveFromPrivateChatRequest, principal));
 
-      verify(userChatRepository).findByChatIdAndUserId(ALICE_BOB_PRIVATE_CHAT_ID, ALICE_ID);
+      verify(chatMembershipService).isMember(ALICE_BOB_PRIVATE_CHAT_ID, ALICE_ID);
 
     }
 
@@ -343,6 +378,7 @@ class EventServiceImplTest {
     void leaveChat_shouldThrowUserCountryNotFoundException_whenUserCountryNotFound() {
       chat.setCountry(new Country("Country1", "co"));
       when(chatRepository.findById(ARUBA_CHAT_ID)).thenReturn(Optional.of(chat));
+      when(chatMembershipService.isMember(ARUBA_CHAT_ID, ALICE_ID)).thenReturn(true);
       when(userChatRepository.findByChatIdAndUserId(ARUBA_CHAT_ID, ALICE_ID))
           .thenReturn(Optional.of(new UserChat()));
       when(userCountryRepository.findByCountryNameAndUserId(chat.getCountry().getName(), ALICE_ID))
@@ -0,0 +1,105 @@
+package online.talkandtravel.service.impl.unittest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import online.talkandtravel.exception.file.ImageProcessingException;
+import online.talkandtravel.exception.file.ImageProcessingOverloadedException;
+import online.talkandtravel.exception.file.TooManyImageUploadsException;
+import online.talkandtravel.service.impl.ImageProcessingSchedulerImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class ImageProcessingSchedulerImplTest {
+
+  private static final long TIMEOUT_IN_SEC = 5;
+  private static final Long BLOCKING_USER_ID = 99L;
+
+  private ImageProcessingSchedulerImpl underTest;
+
+  private final CountDownLatch workerBlocked = new CountDownLatch(1);
+  private final CountDownLatch releaseWorker = new CountDownLatch(1);
+
+  @BeforeEach
+  void setUp() {
+    underTest = new ImageProcessingSchedulerImpl();
+    ReflectionTestUtils.setField(underTest, "WORKERS", 1);
+    ReflectionTestUtils.setField(underTest, "QUEUE_CAPACITY", 3);
+    ReflectionTestUtils.setField(underTest, "PER_USER_QUEUE_CAPACITY", 2);
+    ReflectionTestUtils.setField(underTest, "STATS_INTERVAL_IN_MS", 60000L);
+    underTest.start();
+  }
+
+  @AfterEach
+  void tearDown() {
+    releaseWorker.countDown();
+    underTest.stop();
+  }
+
+  @Test
+  void submitAndWait_shouldReturnTaskResult() {
+    String result = underTest.submitAndWait(1L, () -> "thumbnail");
+
+    assertEquals("thumbnail", result);
+  }
+
+  @Test
+  void submitAndWait_shouldRethrowTaskException() {
+    assertThrows(ImageProcessingException.class, () -> underTest.submitAndWait(1L, () -> {
+      throw new ImageProcessingException("invalid");
+    }));
+  }
+
+  @Test
+  void submit_shouldServeUsersInRoundRobinOrder() throws Exception {
+    List<String> executed = new CopyOnWriteArrayList<>();
+    blockWorker();
+
+    underTest.submit(1L, () -> executed.add("first of user 1"));
+    underTest.submit(1L, () -> executed.add("second of user 1"));
+    CompletableFuture<Boolean> last = underTest.submit(2L, () -> executed.add("first of user 2"));
+    releaseWorker.countDown();
+    last.get(TIMEOUT_IN_SEC, TimeUnit.SECONDS);
+    underTest.submit(3L, () -> true).get(TIMEOUT_IN_SEC, TimeUnit.SECONDS);
+
+    assertThat(executed).containsExactly("first of user 1", "first of user 2", "second of user 1");
+  }
+
+  @Test
+  void submit_shouldReject_whenUserQueueIsFull() throws Exception {
+    blockWorker();
+    underTest.submit(1L, () -> true);
+    underTest.submit(1L, () -> true);
+
+    assertThrows(TooManyImageUploadsException.class, () -> underTest.submit(1L, () -> true));
+    assertEquals(2, underTest.getQueuedTasks());
+  }
+
+  @Test
+  void submit_shouldReject_whenQueueIsFull() throws Exception {
+    blockWorker();
+    underTest.submit(1L, () -> true);
+    underTest.submit(2L, () -> true);
+    underTest.submit(3L, () -> true);
+
+    assertThrows(ImageProcessingOverloadedException.class, () -> underTest.submit(4L, () -> true));
+    assertEquals(3, underTest.getQueuedTasks());
+    assertEquals(1, underTest.getActiveTasks());
+  }
+
+  private void blockWorker() throws InterruptedException {
+    underTest.submit(BLOCKING_USER_ID, () -> {
+      workerBlocked.countDown();
+      return releaseWorker.await(TIMEOUT_IN_SEC, TimeUnit.SECONDS);
+    });
+    assertThat(workerBlocked.await(TIMEOUT_IN_SEC, TimeUnit.SECONDS)).isTrue();
+  }
+}
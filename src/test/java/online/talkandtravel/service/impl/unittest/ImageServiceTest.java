@@ -1,28 +1,63 @@
 package online.talkandtravel.service.impl.unittest;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 
+import java.awt.Color;
+import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.CRC32;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
 import lombok.extern.log4j.Log4j2;
+import online.talkandtravel.exception.file.ImageDimensionsExceededException;
 import online.talkandtravel.exception.file.ImageProcessingException;
 import online.talkandtravel.service.impl.ImageServiceImpl;
+import online.talkandtravel.util.ImageHeader;
 import online.talkandtravel.util.constants.FileFormat;
+import online.talkandtravel.util.constants.ResizeMode;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 @ExtendWith(MockitoExtension.class)
@@ -43,6 +78,9 @@ public class ImageServiceTest {
   void setUp() {
     imageBytes = new byte[] {61,45,5,52,54,55,65};
     underTest = spy(new ImageServiceImpl());
+    ReflectionTestUtils.setField(underTest, "RESIZE_MODE", ResizeMode.BALANCED);
+    ReflectionTestUtils.setField(underTest, "MAX_PIXELS", 50_000_000L);
+    ReflectionTestUtils.setField(underTest, "MAX_ANIMATION_PIXELS", 200_000_000L);
     expectedBytes = new byte[]{5, 5, 5};
     width = 64;
     mockBufferedImage = new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB);
@@ -133,4 +171,280 @@ public class ImageServiceTest {
     verify(underTest).isAnimatedWebPImage(imageBytes);
   }
 
+  @Test
+  void generateThumbnails_shouldResizeGifToEveryWidth(@TempDir Path tempDir) throws IOException {
+    Path gif = tempDir.resolve("image.gif");
+    ImageIO.write(new BufferedImage(512, 512, BufferedImage.TYPE_INT_RGB), "gif", gif.toFile());
+
+    Map<Integer, byte[]> actual = underTest.generateThumbnails(gif, "image/gif", List.of(50, 256));
+
+    assertThat(actual).containsOnlyKeys(50, 256);
+    for (int thumbnailWidth : List.of(50, 256)) {
+      BufferedImage thumbnail = ImageIO.read(new ByteArrayInputStream(actual.get(thumbnailWidth)));
+      assertEquals(thumbnailWidth, thumbnail.getWidth());
+      assertEquals(thumbnailWidth, thumbnail.getHeight());
+    }
+    verify(underTest, never()).resizeGif(any(), anyInt());
+  }
+
+  @Test
+  void generateThumbnails_shouldDecodeOnce_andResizeFromLargestToSmallest(@TempDir Path tempDir)
+      throws IOException {
+    Path png = tempDir.resolve("image.png");
+    ImageIO.write(gradient(1024, 768), "png", png.toFile());
+
+    Map<Integer, byte[]> actual = underTest.generateThumbnails(png, "image/png", List.of(50, 256));
+
+    assertThat(actual).containsOnlyKeys(50, 256);
+    verify(underTest).resizeImage(any(BufferedImage.class), eq(256));
+    verify(underTest).resizeImage(argThat((BufferedImage source) -> source.getWidth() == 256),
+        eq(50));
+  }
+
+  @Test
+  void generateThumbnails_shouldThrowExceptionWhenAnimatedWebp(@TempDir Path tempDir)
+      throws IOException {
+    Path webp = tempDir.resolve("image.webp");
+    Files.write(webp, "RIFF\0\0\0\0WEBPVP8X\0\0\0\0ANIM".getBytes(StandardCharsets.UTF_8));
+
+    assertThrows(ImageProcessingException.class,
+        () -> underTest.generateThumbnails(webp, "image/webp", List.of(50, 256)));
+
+    verify(underTest, never()).resizeImage(any(BufferedImage.class), anyInt());
+  }
+
+  @ParameterizedTest
+  @EnumSource(ResizeMode.class)
+  void resizeImage_shouldCropToTargetSquare(ResizeMode mode) {
+    ReflectionTestUtils.setField(underTest, "RESIZE_MODE", mode);
+
+    BufferedImage actual = underTest.resizeImage(gradient(1600, 900), 256);
+
+    assertEquals(256, actual.getWidth());
+    assertEquals(256, actual.getHeight());
+    assertEquals(0xFF, actual.getRGB(0, 0) >>> 24);
+    assertEquals(0xFF, actual.getRGB(255, 255) >>> 24);
+  }
+
+  @Test
+  void resizeImage_shouldStayCloseToSmoothOutput_whenBalanced() {
+    BufferedImage source = gradient(2000, 1500);
+    ReflectionTestUtils.setField(underTest, "RESIZE_MODE", ResizeMode.SMOOTH);
+    BufferedImage smooth = underTest.resizeImage(source, 50);
+    ReflectionTestUtils.setField(underTest, "RESIZE_MODE", ResizeMode.BALANCED);
+    BufferedImage balanced = underTest.resizeImage(source, 50);
+
+    long totalDifference = 0;
+    for (int x = 0; x < 50; x++) {
+      for (int y = 0; y < 50; y++) {
+        totalDifference += Math.abs((smooth.getRGB(x, y) & 0xFF) - (balanced.getRGB(x, y) & 0xFF));
+      }
+    }
+    assertThat(totalDifference / (50 * 50)).isLessThanOrEqualTo(3);
+  }
+
+  @Test
+  void resizeGif_shouldKeepEveryFrameAndDelay() throws IOException {
+    byte[] gif = animatedGif(List.of(
+        new GifFrame(filled(64, 64, Color.RED), 0, 0, 10, "none"),
+        new GifFrame(filled(64, 64, Color.GREEN), 0, 0, 20, "none"),
+        new GifFrame(filled(64, 64, Color.BLUE), 0, 0, 30, "none")));
+
+    byte[] actual = underTest.resizeGif(gif, 32);
+
+    ImageReader reader = gifReader(actual);
+    assertEquals(3, reader.getNumImages(true));
+    assertEquals(32, reader.read(0).getWidth());
+    assertEquals(32, reader.read(0).getHeight());
+    assertEquals(List.of(20, 40, 60), delays(reader));
+  }
+
+  @Test
+  void resizeGif_shouldDropFramesAndKeepDuration_whenOverMaxFrames() throws IOException {
+    ReflectionTestUtils.setField(underTest, "GIF_MAX_FRAMES", 2);
+    List<GifFrame> frames = new ArrayList<>();
+    for (int i = 0; i < 6; i++) {
+      frames.add(new GifFrame(filled(64, 64, i < 3 ? Color.RED : Color.BLUE), 0, 0, 10, "none"));
+    }
+
+    byte[] actual = underTest.resizeGif(animatedGif(frames), 32);
+
+    ImageReader reader = gifReader(actual);
+    assertEquals(2, reader.getNumImages(true));
+    assertEquals(List.of(60, 60), delays(reader));
+    assertColor(Color.RED, reader.read(0).getRGB(16, 16));
+    assertColor(Color.BLUE, reader.read(1).getRGB(16, 16));
+  }
+
+  @Test
+  void resizeGif_shouldComposePartialFramesOntoCanvas() throws IOException {
+    byte[] gif = animatedGif(List.of(
+        new GifFrame(filled(64, 64, Color.RED), 0, 0, 10, "none"),
+        new GifFrame(filled(32, 32, Color.BLUE), 32, 32, 10, "restoreToPrevious"),
+        new GifFrame(filled(32, 32, Color.GREEN), 0, 0, 10, "none")));
+
+    byte[] actual = underTest.resizeGif(gif, 32);
+
+    ImageReader reader = gifReader(actual);
+    BufferedImage second = reader.read(1);
+    assertColor(Color.RED, second.getRGB(4, 4));
+    assertColor(Color.BLUE, second.getRGB(28, 28));
+    BufferedImage third = reader.read(2);
+    assertColor(Color.GREEN, third.getRGB(4, 4));
+    assertColor(Color.RED, third.getRGB(28, 28));
+  }
+
+  @Test
+  void probeImage_shouldReadDimensionsAndFramesOfGif() throws IOException {
+    byte[] gif = animatedGif(List.of(
+        new GifFrame(filled(64, 48, Color.RED), 0, 0, 10, "none"),
+        new GifFrame(filled(64, 48, Color.BLUE), 0, 0, 10, "none")));
+
+    Optional<ImageHeader> actual = underTest.probeImage(
+        new MockMultipartFile("file", "image.gif", "image/gif", gif));
+
+    assertThat(actual).contains(new ImageHeader("gif", 64, 48, 2, true));
+  }
+
+  @Test
+  void probeImage_shouldReadWebPHeader() throws IOException {
+    byte[] webp = underTest.convertImageToWebpFormat(filled(120, 80, Color.RED));
+
+    Optional<ImageHeader> actual = underTest.probeImage(
+        new MockMultipartFile("file", "image.webp", "image/webp", webp));
+
+    assertThat(actual).contains(new ImageHeader("webp", 120, 80, 1, false));
+  }
+
+  @Test
+  void probeImage_shouldCountFramesOfAnimatedWebP() {
+    ByteBuffer webp = ByteBuffer.allocate(46).order(ByteOrder.LITTLE_ENDIAN);
+    webp.put("RIFF".getBytes(StandardCharsets.US_ASCII)).putInt(38)
+        .put("WEBP".getBytes(StandardCharsets.US_ASCII))
+        .put("VP8X".getBytes(StandardCharsets.US_ASCII)).putInt(10)
+        .put((byte) 0x02).put(new byte[3])
+        .put(new byte[] {(byte) 199, 0, 0}).put(new byte[] {99, 0, 0})
+        .put("ANMF".getBytes(StandardCharsets.US_ASCII)).putInt(0)
+        .put("ANMF".getBytes(StandardCharsets.US_ASCII)).putInt(0);
+
+    Optional<ImageHeader> actual = underTest.probeImage(
+        new MockMultipartFile("file", "image.webp", "image/webp", webp.array()));
+
+    assertThat(actual).contains(new ImageHeader("webp", 200, 100, 2, true));
+  }
+
+  @Test
+  void probeImage_shouldRejectHugeImageFromItsHeader() {
+    ByteBuffer ihdr = ByteBuffer.allocate(17);
+    ihdr.put("IHDR".getBytes(StandardCharsets.US_ASCII)).putInt(20_000).putInt(20_000)
+        .put(new byte[] {8, 6, 0, 0, 0});
+    CRC32 crc = new CRC32();
+    crc.update(ihdr.array());
+    ByteBuffer png = ByteBuffer.allocate(33);
+    png.put(new byte[] {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'})
+        .putInt(13).put(ihdr.array()).putInt((int) crc.getValue());
+
+    MockMultipartFile file = new MockMultipartFile("file", "image.png", "image/png", png.array());
+
+    assertThrows(ImageDimensionsExceededException.class, () -> underTest.probeImage(file));
+  }
+
+  @Test
+  void probeImage_shouldSkipSvg() {
+    Optional<ImageHeader> actual = underTest.probeImage(
+        new MockMultipartFile("file", "image.svg", "image/svg+xml", imageBytes));
+
+    assertThat(actual).isEmpty();
+  }
+
+  @Test
+  void resizeGif_shouldRejectAnimationOverPixelBudget_beforeDecoding() throws IOException {
+    ReflectionTestUtils.setField(underTest, "MAX_ANIMATION_PIXELS", 64L * 64 * 2);
+    byte[] gif = animatedGif(List.of(
+        new GifFrame(filled(64, 64, Color.RED), 0, 0, 10, "none"),
+        new GifFrame(filled(64, 64, Color.GREEN), 0, 0, 10, "none"),
+        new GifFrame(filled(64, 64, Color.BLUE), 0, 0, 10, "none")));
+
+    assertThrows(ImageDimensionsExceededException.class, () -> underTest.resizeGif(gif, 32));
+  }
+
+  private record GifFrame(BufferedImage image, int left, int top, int delay, String disposal) {
+  }
+
+  private byte[] animatedGif(List<GifFrame> frames) throws IOException {
+    ImageWriter writer = ImageIO.getImageWritersByFormatName("gif").next();
+    ByteArrayOutputStream gif = new ByteArrayOutputStream();
+    try (ImageOutputStream output = ImageIO.createImageOutputStream(gif)) {
+      writer.setOutput(output);
+      writer.prepareWriteSequence(null);
+      for (GifFrame frame : frames) {
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        IIOMetadata metadata = writer.getDefaultImageMetadata(
+            ImageTypeSpecifier.createFromRenderedImage(frame.image()), param);
+        String format = metadata.getNativeMetadataFormatName();
+        IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(format);
+        IIOMetadataNode descriptor = (IIOMetadataNode) root.getElementsByTagName("ImageDescriptor")
+            .item(0);
+        descriptor.setAttribute("imageLeftPosition", String.valueOf(frame.left()));
+        descriptor.setAttribute("imageTopPosition", String.valueOf(frame.top()));
+        IIOMetadataNode control = (IIOMetadataNode) root
+            .getElementsByTagName("GraphicControlExtension").item(0);
+        control.setAttribute("delayTime", String.valueOf(frame.delay()));
+        control.setAttribute("disposalMethod", frame.disposal());
+        metadata.setFromTree(format, root);
+        writer.writeToSequence(new IIOImage(frame.image(), null, metadata), param);
+      }
+      writer.endWriteSequence();
+    } finally {
+      writer.dispose();
+    }
+    return gif.toByteArray();
+  }
+
+  private ImageReader gifReader(byte[] gif) throws IOException {
+    ImageReader reader = ImageIO.getImageReadersByFormatName("gif").next();
+    reader.setInput(ImageIO.createImageInputStream(new ByteArrayInputStream(gif)));
+    return reader;
+  }
+
+  private List<Integer> delays(ImageReader reader) throws IOException {
+    List<Integer> delays = new ArrayList<>();
+    for (int i = 0; i < reader.getNumImages(true); i++) {
+      IIOMetadataNode root = (IIOMetadataNode) reader.getImageMetadata(i)
+          .getAsTree("javax_imageio_gif_image_1.0");
+      IIOMetadataNode control = (IIOMetadataNode) root
+          .getElementsByTagName("GraphicControlExtension").item(0);
+      delays.add(Integer.parseInt(control.getAttribute("delayTime")));
+    }
+    return delays;
+  }
+
+  /** GIF palettes are quantized, so channels may be off by a few levels */
+  private void assertColor(Color expected, int actual) {
+    Color actualColor = new Color(actual);
+    assertThat(actualColor.getRed()).isCloseTo(expected.getRed(), within(4));
+    assertThat(actualColor.getGreen()).isCloseTo(expected.getGreen(), within(4));
+    assertThat(actualColor.getBlue()).isCloseTo(expected.getBlue(), within(4));
+  }
+
+  private BufferedImage filled(int imageWidth, int imageHeight, Color color) {
+    BufferedImage image = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_RGB);
+    Graphics2D g2d = image.createGraphics();
+    g2d.setColor(color);
+    g2d.fillRect(0, 0, imageWidth, imageHeight);
+    g2d.dispose();
+    return image;
+  }
+
+  private BufferedImage gradient(int imageWidth, int imageHeight) {
+    BufferedImage image = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_RGB);
+    for (int x = 0; x < imageWidth; x++) {
+      int blue = x * 255 / imageWidth;
+      for (int y = 0; y < imageHeight; y++) {
+        image.setRGB(x, y, blue);
+      }
+    }
+    return image;
+  }
 }
+
@@ -3,8 +3,11 @@ package online.talkandtravel.service.impl.unittest;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import java.security.Principal;
@@ -22,11 +25,11 @@ import online.talkandtravel.model.entity.Message;
 import online.talkandtravel.model.entity.MessageType;
 import online.talkandtravel.model.entity.Role;
 import online.talkandtravel.model.entity.User;
-import online.talkandtravel.model.entity.UserChat;
 import online.talkandtravel.repository.ChatRepository;
 import online.talkandtravel.repository.MessageRepository;
 import online.talkandtravel.repository.UserChatRepository;
 import online.talkandtravel.security.CustomUserDetails;
+import online.talkandtravel.service.ChatMembershipService;
 import online.talkandtravel.service.impl.MessageServiceImpl;
 import online.talkandtravel.util.mapper.MessageMapper;
 import org.junit.jupiter.api.BeforeEach;
@@ -50,6 +53,8 @@ public class MessageServiceImplTest {
 
   @Mock private UserChatRepository userChatRepository;
 
+  @Mock private ChatMembershipService chatMembershipService;
+
   @Mock private MessageMapper messageMapper;
 
   private final Long chatId = 1L;
@@ -94,20 +99,22 @@ public class MessageServiceImplTest {
               null
           );
 
-      when(userChatRepository.findByChatIdAndUserId(chatId, userId))
-          .thenReturn(Optional.of(new UserChat()));
+      when(chatMembershipService.isMember(chatId, userId)).thenReturn(true);
       when(chatRepository.findById(chatId)).thenReturn(Optional.of(chat));
       when(messageRepository.findById(repliedMessageId)).thenReturn(Optional.of(repliedMessage));
-      when(chatRepository.save(any(Chat.class))).thenReturn(chat);
+      when(messageRepository.save(any(Message.class))).thenAnswer(invocation -> invocation.getArgument(0));
       when(messageMapper.toMessageDto(any(Message.class))).thenReturn(messageDto);
 
       MessageDto result = underTest.saveMessage(request, principal);
 
       assertEquals(messageDto, result);
-      verify(userChatRepository, times(1)).findByChatIdAndUserId(chatId, userId);
+      verify(chatMembershipService, times(1)).isMember(chatId, userId);
       verify(chatRepository, times(1)).findById(chatId);
       verify(messageRepository, times(1)).findById(repliedMessageId);
-      verify(chatRepository, times(1)).save(chat);
+      verify(messageRepository, times(1)).save(any(Message.class));
+      verify(chatRepository, never()).save(any(Chat.class));
+      verify(chatRepository, times(1)).incrementMessagesCount(eq(chatId), eq(1L), any());
+      verify(userChatRepository, times(1)).incrementUnreadMessagesCount(chatId, 1);
       verify(messageMapper, times(1)).toMessageDto(any(Message.class));
     }
 
@@ -115,7 +122,7 @@ public class MessageServiceImplTest {
     void shouldThrowUserNotJoinedTheChatException_whenUserNotInChat() {
       SendMessageRequest request = new SendMessageRequest("Hello", chatId, null);
 
-      when(userChatRepository.findByChatIdAndUserId(chatId, userId)).thenReturn(Optional.empty());
+      when(chatMembershipService.isMember(chatId, userId)).thenReturn(false);
 
       assertThrows(UserNotJoinedTheChatException.class, () -> underTest.saveMessage(request, principal));
     }
@@ -124,8 +131,7 @@ public class MessageServiceImplTest {
     void shouldThrowChatNotFoundException_whenChatNotFound() {
       SendMessageRequest request = new SendMessageRequest("Hello", chatId, null);
 
-      when(userChatRepository.findByChatIdAndUserId(chatId, userId))
-          .thenReturn(Optional.of(new UserChat()));
+      when(chatMembershipService.isMember(chatId, userId)).thenReturn(true);
       when(chatRepository.findById(chatId)).thenReturn(Optional.empty());
 
       assertThrows(WebSocketException.class, () -> underTest.saveMessage(request, principal));
@@ -137,8 +143,7 @@ public class MessageServiceImplTest {
       SendMessageRequest request = new SendMessageRequest("Hello", chatId, repliedMessageId);
       Chat chat = new Chat();
 
-      when(userChatRepository.findByChatIdAndUserId(chatId, userId))
-          .thenReturn(Optional.of(new UserChat()));
+      when(chatMembershipService.isMember(chatId, userId)).thenReturn(true);
       when(chatRepository.findById(chatId)).thenReturn(Optional.of(chat));
       when(messageRepository.findById(repliedMessageId)).thenReturn(Optional.empty());
 
@@ -146,4 +151,33 @@ public class MessageServiceImplTest {
     }
   }
 
+  @Nested
+  class CreateTextMessage {
+    @Test
+    void shouldReferenceChatAndRepliedMessageById_withoutQueryingDatabase() {
+      Long repliedMessageId = 2L;
+      SendMessageRequest request = new SendMessageRequest("Hello", chatId, repliedMessageId);
+
+      when(chatMembershipService.isMember(chatId, userId)).thenReturn(true);
+
+      Message result = underTest.createTextMessage(request, principal);
+
+      assertEquals("Hello", result.getContent());
+      assertEquals(userId, result.getSender().getId());
+      assertEquals(chatId, result.getChat().getId());
+      assertEquals(repliedMessageId, result.getRepliedMessage().getId());
+      verifyNoInteractions(chatRepository, messageRepository, userChatRepository);
+    }
+
+    @Test
+    void shouldThrowUserNotJoinedTheChatException_whenUserNotInChat() {
+      SendMessageRequest request = new SendMessageRequest("Hello", chatId, null);
+
+      when(chatMembershipService.isMember(chatId, userId)).thenReturn(false);
+
+      assertThrows(UserNotJoinedTheChatException.class,
+          () -> underTest.createTextMessage(request, principal));
+    }
+  }
+
 }
@@ -0,0 +1,203 @@
+package online.talkandtravel.service.impl.unittest;
+
+import static online.talkandtravel.util.constants.ApiPathConstants.MESSAGES_SUBSCRIBE_PATH;
+import static online.talkandtravel.util.constants.ApiPathConstants.USER_WEBSOCKET_ERRORS_PATH;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import online.talkandtravel.exception.message.MessagePipelineOverloadedException;
+import online.talkandtravel.exception.model.ExceptionResponse;
+import online.talkandtravel.model.dto.message.MessageDto;
+import online.talkandtravel.model.entity.Chat;
+import online.talkandtravel.model.entity.Message;
+import online.talkandtravel.model.entity.MessageType;
+import online.talkandtravel.model.entity.User;
+import online.talkandtravel.repository.ChatRepository;
+import online.talkandtravel.repository.MessageRepository;
+import online.talkandtravel.repository.UserChatRepository;
+import online.talkandtravel.service.BroadcastService;
+import online.talkandtravel.service.impl.MessageWritePipelineImpl;
+import online.talkandtravel.util.mapper.MessageMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@ExtendWith(MockitoExtension.class)
+public class MessageWritePipelineImplTest {
+
+  private static final long VERIFY_TIMEOUT_IN_MS = 1000;
+
+  @InjectMocks private MessageWritePipelineImpl underTest;
+
+  @Mock private MessageRepository messageRepository;
+
+  @Mock private ChatRepository chatRepository;
+
+  @Mock private UserChatRepository userChatRepository;
+
+  @Mock private MessageMapper messageMapper;
+
+  @Mock private SimpMessagingTemplate messagingTemplate;
+
+  @Mock private BroadcastService broadcastService;
+
+  @Mock private TransactionTemplate transactionTemplate;
+
+  private final Long chatId = 1L;
+  private final Long userId = 1L;
+  private Chat chat;
+  private User sender;
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(underTest, "BATCH_SIZE", 10);
+    ReflectionTestUtils.setField(underTest, "FLUSH_INTERVAL_IN_MS", 20L);
+    ReflectionTestUtils.setField(underTest, "QUEUE_CAPACITY", 10);
+    chat = Chat.builder().id(chatId).build();
+    sender = User.builder().id(userId).build();
+    lenient().when(transactionTemplate.execute(any()))
+        .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+  }
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    underTest.stop();
+  }
+
+  @Test
+  void submit_shouldInsertAndBroadcastMessagesInSendOrder() {
+    underTest.start();
+    Message first = createMessage("first");
+    Message second = createMessage("second");
+    MessageDto firstDto = createMessageDto("first");
+    MessageDto secondDto = createMessageDto("second");
+    when(messageRepository.insertAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+    when(messageMapper.toMessageDto(first)).thenReturn(firstDto);
+    when(messageMapper.toMessageDto(second)).thenReturn(secondDto);
+
+    underTest.submit(first);
+    underTest.submit(second);
+
+    InOrder inOrder = inOrder(broadcastService);
+    inOrder.verify(broadcastService, timeout(VERIFY_TIMEOUT_IN_MS))
+        .broadcast(MESSAGES_SUBSCRIBE_PATH.formatted(chatId), firstDto);
+    inOrder.verify(broadcastService, timeout(VERIFY_TIMEOUT_IN_MS))
+        .broadcast(MESSAGES_SUBSCRIBE_PATH.formatted(chatId), secondDto);
+    assertThat(second.getCreationDate()).isAfter(first.getCreationDate());
+    verify(userChatRepository, timeout(VERIFY_TIMEOUT_IN_MS).atLeastOnce())
+        .incrementUnreadMessagesCount(eq(chatId), anyLong());
+    verify(chatRepository, timeout(VERIFY_TIMEOUT_IN_MS).atLeastOnce())
+        .incrementMessagesCount(eq(chatId), anyLong(), any());
+  }
+
+  @Test
+  void submit_shouldNotifySender_whenMessageCanNotBeSaved() {
+    underTest.start();
+    Message message = createMessage("hello");
+    when(messageRepository.insertAll(anyList())).thenThrow(new IllegalStateException("db is down"));
+
+    underTest.submit(message);
+
+    verify(messagingTemplate, timeout(VERIFY_TIMEOUT_IN_MS))
+        .convertAndSend(eq(USER_WEBSOCKET_ERRORS_PATH.formatted(userId)),
+            argThat((ExceptionResponse response) -> response != null));
+    verify(broadcastService, never())
+        .broadcast(eq(MESSAGES_SUBSCRIBE_PATH.formatted(chatId)), any(MessageDto.class));
+  }
+
+  @Test
+  void submit_shouldRejectReplyToMessageFromAnotherChat_andInsertOthers() {
+    underTest.start();
+    Long repliedId = 10L;
+    Message repliedMessage = Message.builder().id(repliedId).chat(Chat.builder().id(2L).build()).build();
+    Message reply = createMessage("reply");
+    reply.setRepliedMessage(Message.builder().id(repliedId).build());
+    Message other = createMessage("other");
+    MessageDto otherDto = createMessageDto("other");
+    when(messageRepository.findAllById(List.of(repliedId))).thenReturn(List.of(repliedMessage));
+    when(messageRepository.insertAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+    when(messageMapper.toMessageDto(other)).thenReturn(otherDto);
+
+    underTest.submit(reply);
+    underTest.submit(other);
+
+    verify(broadcastService, timeout(VERIFY_TIMEOUT_IN_MS))
+        .broadcast(MESSAGES_SUBSCRIBE_PATH.formatted(chatId), otherDto);
+    verify(messagingTemplate, timeout(VERIFY_TIMEOUT_IN_MS))
+        .convertAndSend(eq(USER_WEBSOCKET_ERRORS_PATH.formatted(userId)),
+            argThat((ExceptionResponse response) -> response.httpStatus() == HttpStatus.BAD_REQUEST));
+    verify(messageRepository, never()).insertAll(argThat(messages -> messages.contains(reply)));
+  }
+
+  @Test
+  void submit_shouldAttachRepliedMessageLoadedInBatchTransaction() {
+    underTest.start();
+    Long repliedId = 10L;
+    Message repliedMessage = Message.builder().id(repliedId).chat(chat).build();
+    Message reply = createMessage("reply");
+    reply.setRepliedMessage(Message.builder().id(repliedId).build());
+    MessageDto replyDto = createMessageDto("reply");
+    when(messageRepository.findAllById(List.of(repliedId))).thenReturn(List.of(repliedMessage));
+    when(messageRepository.insertAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+    when(messageMapper.toMessageDto(reply)).thenReturn(replyDto);
+
+    underTest.submit(reply);
+
+    verify(broadcastService, timeout(VERIFY_TIMEOUT_IN_MS))
+        .broadcast(MESSAGES_SUBSCRIBE_PATH.formatted(chatId), replyDto);
+    assertThat(reply.getRepliedMessage()).isSameAs(repliedMessage);
+  }
+
+  @Test
+  void submit_shouldThrow_whenQueueIsFull() {
+    ReflectionTestUtils.setField(underTest, "QUEUE_CAPACITY", 1);
+    ReflectionTestUtils.setField(underTest, "BATCH_SIZE", 1);
+    underTest.start();
+    when(messageRepository.insertAll(anyList())).thenAnswer(invocation -> {
+      Thread.sleep(500);
+      return invocation.getArgument(0);
+    });
+
+    underTest.submit(createMessage("first"));
+    verify(messageRepository, timeout(VERIFY_TIMEOUT_IN_MS)).insertAll(anyList());
+    underTest.submit(createMessage("second"));
+
+    assertThrows(MessagePipelineOverloadedException.class,
+        () -> underTest.submit(createMessage("third")));
+  }
+
+  private Message createMessage(String content) {
+    return Message.builder()
+        .type(MessageType.TEXT)
+        .content(content)
+        .sender(sender)
+        .chat(chat)
+        .build();
+  }
+
+  private MessageDto createMessageDto(String content) {
+    return new MessageDto(null, MessageType.TEXT, content, null, null, chatId, null, null);
+  }
+}
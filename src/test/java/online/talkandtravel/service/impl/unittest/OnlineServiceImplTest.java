@@ -1,55 +1,84 @@
 package online.talkandtravel.service.impl.unittest;
 
-import static online.talkandtravel.testdata.UserTestData.ALISE_LAST_SEEN_ON_REDIS_KEY;
-import static online.talkandtravel.testdata.UserTestData.ALISE_ONLINE_STATUS_REDIS_KEY;
-import static online.talkandtravel.testdata.UserTestData.BOB_LAST_SEEN_ON_REDIS_KEY;
-import static online.talkandtravel.testdata.UserTestData.BOB_ONLINE_STATUS_REDIS_KEY;
 import static online.talkandtravel.testdata.UserTestData.getAlice;
 import static online.talkandtravel.testdata.UserTestData.getBob;
+import static online.talkandtravel.util.constants.RedisConstants.USERS_CONNECTIONS_KEY;
+import static online.talkandtravel.util.constants.RedisConstants.USERS_LAST_SEEN_KEY;
+import static online.talkandtravel.util.constants.RedisConstants.USERS_OFFLINE_ON_KEY;
+import static online.talkandtravel.util.constants.RedisConstants.USERS_ONLINE_KEY;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.doNothing;
-import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
-import java.time.Duration;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import lombok.extern.log4j.Log4j2;
 import online.talkandtravel.model.dto.user.OnlineStatusDto;
 import online.talkandtravel.model.dto.user.OnlineStatusResponse;
 import online.talkandtravel.model.entity.User;
 import online.talkandtravel.repository.UserRepository;
+import online.talkandtravel.service.PresenceBroadcastService;
 import online.talkandtravel.service.impl.OnlineServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisZSetCommands;
+import org.springframework.data.redis.connection.RedisZSetCommands.ZAddArgs;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
 
 @ExtendWith(MockitoExtension.class)
 @Log4j2
 public class OnlineServiceImplTest {
 
+    private static final List<String> FLUSH_KEYS = List.of(USERS_ONLINE_KEY, USERS_OFFLINE_ON_KEY);
+
     @Mock
     private RedisTemplate<String, String> redisTemplate;
     @Mock
     private UserRepository userRepository;
+    @Mock
+    private PresenceBroadcastService presenceBroadcastService;
 
-    private ValueOperations<String, String> valueOperations;
+    @Mock
+    private RedisOperations<String, String> operations;
+    @Mock
+    private ZSetOperations<String, String> zSetOperations;
+    @Mock
+    private HashOperations<String, Object, Object> hashOperations;
+    @Mock
+    private RedisConnection connection;
+    @Mock
+    private RedisZSetCommands zSetCommands;
 
     @InjectMocks
     private OnlineServiceImpl underTest;
@@ -59,79 +88,201 @@ public class OnlineServiceImplTest {
     @BeforeEach
     void setUp() {
         underTest.KEY_EXPIRATION_DURATION_IN_SEC = 3L;
-        valueOperations = Mockito.mock(ValueOperations.class);
         alise = getAlice();
         bob = getBob();
     }
 
     @Test
     void testUpdateUserOnlineStatus_SetOnline() {
-        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
-        doNothing().when(valueOperations).set(eq(ALISE_ONLINE_STATUS_REDIS_KEY), eq("true"), any(Duration.class));
+        long sentAfter = System.currentTimeMillis();
+        flushedHeartbeatsAdd(alise.getId().toString());
 
         OnlineStatusDto result = underTest.updateUserOnlineStatus(alise.getId(), true);
 
-        verify(redisTemplate.opsForValue()).set(eq(ALISE_ONLINE_STATUS_REDIS_KEY), eq("true"), any(Duration.class));
         assertTrue(result.isOnline());
         assertEquals(alise.getId(), result.userId());
+        verifyNoInteractions(redisTemplate, presenceBroadcastService);
+
+        ReflectionTestUtils.invokeMethod(underTest, "flushHeartbeats");
+
+        ArgumentCaptor<String> sentAt = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<String> expiresAt = ArgumentCaptor.forClass(String.class);
+        verify(redisTemplate).execute(any(RedisScript.class), eq(FLUSH_KEYS),
+            eq(alise.getId().toString()), sentAt.capture(), expiresAt.capture());
+        assertThat(Long.parseLong(sentAt.getValue())).isGreaterThanOrEqualTo(sentAfter);
+        assertEquals(Long.parseLong(sentAt.getValue()) + 3000, Long.parseLong(expiresAt.getValue()));
+        verify(presenceBroadcastService).publish(new OnlineStatusDto(alise.getId(), true));
+    }
 
+    @Test
+    void testUpdateUserOnlineStatus_shouldNotPublish_whenUserIsAlreadyOnline() {
+        flushedHeartbeatsAdd();
+
+        underTest.updateUserOnlineStatus(alise.getId(), true);
+        ReflectionTestUtils.invokeMethod(underTest, "flushHeartbeats");
+
+        verifyNoInteractions(presenceBroadcastService);
     }
 
     @Test
     void testUpdateUserOnlineStatus_SetOffline() {
-        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
-        doNothing().when(valueOperations).set(eq(ALISE_LAST_SEEN_ON_REDIS_KEY), anyString());
+        when(operations.opsForZSet()).thenReturn(zSetOperations);
+        when(operations.opsForHash()).thenReturn(hashOperations);
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenReturn(List.of(1L, true));
 
         OnlineStatusDto result = underTest.updateUserOnlineStatus(alise.getId(), false);
 
         assertFalse(result.isOnline());
         assertEquals(alise.getId(), result.userId());
+        assertNotNull(result.lastSeenOn());
+        verify(presenceBroadcastService).publish(result);
+
+        executePipelinedCallback();
+        verify(hashOperations).put(eq(USERS_LAST_SEEN_KEY), eq(alise.getId().toString()), anyString());
+        verify(hashOperations).put(eq(USERS_OFFLINE_ON_KEY), eq(alise.getId().toString()), anyString());
+        verify(zSetOperations).remove(USERS_ONLINE_KEY, alise.getId().toString());
+    }
+
+    @Test
+    void testUpdateUserOnlineStatus_shouldNotPublish_whenUserIsAlreadyOffline() {
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenReturn(List.of(0L, true));
+
+        underTest.updateUserOnlineStatus(alise.getId(), false);
+
+        verifyNoInteractions(presenceBroadcastService);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSweepExpired_shouldPublishOffline_forUsersRemovedBySweep() {
+        when(redisTemplate.execute(any(RedisScript.class), eq(List.of(USERS_ONLINE_KEY, USERS_LAST_SEEN_KEY, USERS_CONNECTIONS_KEY)),
+            anyString(), anyString())).thenReturn(List.of(alise.getId().toString()));
+
+        underTest.sweepExpired();
+
+        ArgumentCaptor<OnlineStatusDto> statusCaptor = ArgumentCaptor.forClass(OnlineStatusDto.class);
+        verify(presenceBroadcastService).publish(statusCaptor.capture());
+        assertEquals(alise.getId(), statusCaptor.getValue().userId());
+        assertFalse(statusCaptor.getValue().isOnline());
+        assertNotNull(statusCaptor.getValue().lastSeenOn());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSweepExpired_shouldPublishNothing_whenNoHeartbeatExpired() {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyString(), anyString()))
+            .thenReturn(List.of());
+
+        underTest.sweepExpired();
+
+        verifyNoMoreInteractions(redisTemplate);
+        verifyNoInteractions(presenceBroadcastService);
+    }
+
+    @Test
+    void testUserConnected_shouldCountConnectionAndQueueHeartbeat() {
+        when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+        flushedHeartbeatsAdd(alise.getId().toString());
+
+        underTest.userConnected(alise.getId());
+        ReflectionTestUtils.invokeMethod(underTest, "flushHeartbeats");
+
+        verify(hashOperations).increment(USERS_CONNECTIONS_KEY, alise.getId().toString(), 1);
+        verify(presenceBroadcastService).publish(new OnlineStatusDto(alise.getId(), true));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testUserDisconnected_shouldKeepUserOnline_whenConnectedToAnotherInstance() {
+        when(redisTemplate.execute(any(RedisScript.class), eq(List.of(USERS_CONNECTIONS_KEY)),
+            eq(alise.getId().toString()))).thenReturn(1L);
+
+        underTest.userDisconnected(alise.getId());
+
+        verifyNoMoreInteractions(redisTemplate);
+        verifyNoInteractions(presenceBroadcastService);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testUserDisconnected_shouldSetOffline_whenLastConnectionClosed() {
+        when(redisTemplate.execute(any(RedisScript.class), eq(List.of(USERS_CONNECTIONS_KEY)),
+            eq(alise.getId().toString()))).thenReturn(0L);
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenReturn(List.of(1L, true));
+
+        underTest.userDisconnected(alise.getId());
+
+        ArgumentCaptor<OnlineStatusDto> statusCaptor = ArgumentCaptor.forClass(OnlineStatusDto.class);
+        verify(presenceBroadcastService).publish(statusCaptor.capture());
+        assertFalse(statusCaptor.getValue().isOnline());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRefreshOnlineStatuses_shouldExtendExistingMembersOnly() {
+        when(connection.zSetCommands()).thenReturn(zSetCommands);
+
+        underTest.refreshOnlineStatuses(List.of(alise.getId(), bob.getId()));
+
+        ArgumentCaptor<RedisCallback<Object>> callbackCaptor = ArgumentCaptor.forClass(RedisCallback.class);
+        verify(redisTemplate).executePipelined(callbackCaptor.capture());
+        callbackCaptor.getValue().doInRedis(connection);
+        verify(zSetCommands).zAdd(eq(USERS_ONLINE_KEY.getBytes()), anyDouble(),
+            eq(alise.getId().toString().getBytes()), eq(ZAddArgs.ifExists()));
+        verify(zSetCommands).zAdd(eq(USERS_ONLINE_KEY.getBytes()), anyDouble(),
+            eq(bob.getId().toString().getBytes()), eq(ZAddArgs.ifExists()));
+    }
+
+    @Test
+    void testRefreshOnlineStatuses_shouldSkipRedis_whenNobodyIsConnected() {
+        underTest.refreshOnlineStatuses(List.of());
+
+        verifyNoInteractions(redisTemplate);
+    }
 
-        verify(valueOperations).set(eq(ALISE_LAST_SEEN_ON_REDIS_KEY), anyString());
-        verify(redisTemplate).delete(ALISE_ONLINE_STATUS_REDIS_KEY);
+    @Test
+    void testUpdateUserOnlineStatus_shouldNotFlushHeartbeat_whenUserWentOffline() {
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenReturn(List.of(1L, true));
+        underTest.updateUserOnlineStatus(alise.getId(), true);
+        underTest.updateUserOnlineStatus(alise.getId(), false);
+
+        ReflectionTestUtils.invokeMethod(underTest, "flushHeartbeats");
+
+        verify(redisTemplate).executePipelined(any(SessionCallback.class));
+        verify(redisTemplate, never()).execute(any(RedisScript.class), anyList(), any(), any(), any());
     }
 
     @Test
-    void testGetAllUsersOnlineStatuses() {
-        List<String> onlineStatusKey = List.of(ALISE_ONLINE_STATUS_REDIS_KEY);
-        List<String> lastSeenKey = List.of(ALISE_LAST_SEEN_ON_REDIS_KEY);
-        List<User> users = List.of(getAlice());
-        ZonedDateTime time = ZonedDateTime.now(ZoneOffset.UTC);
+    void testGetAllUsersOnlineStatuses_shouldReturnOnlineUsersOnly() {
+        ZonedDateTime time = ZonedDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.MILLIS);
 
-        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
-        when(valueOperations.multiGet(onlineStatusKey)).thenReturn(List.of("true"));
-        when(valueOperations.multiGet(lastSeenKey)).thenReturn(List.of(time.toString()));
-        when(userRepository.findAll()).thenReturn(users);
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+        when(zSetOperations.rangeByScore(eq(USERS_ONLINE_KEY), anyDouble(), eq(Double.POSITIVE_INFINITY)))
+            .thenReturn(Set.of(alise.getId().toString()));
+        when(hashOperations.multiGet(USERS_LAST_SEEN_KEY, List.of(alise.getId().toString())))
+            .thenReturn(List.of(toMillis(time)));
 
         Map<Long, OnlineStatusResponse> result = underTest.getAllUsersOnlineStatuses(List.of());
 
+        assertThat(result).hasSize(1);
         OnlineStatusResponse response = result.get(alise.getId());
-        assertNotNull(response);
         assertTrue(response.isOnline());
-        assertEquals(time, response.lastSeenOn()) ;
-
-        verify(redisTemplate, times(2)).opsForValue();
-        verify(valueOperations).multiGet(onlineStatusKey);
-        verify(valueOperations).multiGet(lastSeenKey);
-        verify(userRepository).findAll();
+        assertEquals(time, response.lastSeenOn());
+        verifyNoInteractions(userRepository);
     }
 
     @Test
     void testGetAllUsersOnlineStatusesForUsersList() {
         List<Long> userIds = List.of(alise.getId(), bob.getId());
-        List<String> onlineStatusKeys = List.of(ALISE_ONLINE_STATUS_REDIS_KEY, BOB_ONLINE_STATUS_REDIS_KEY);
-        List<String> lastSeenOnKeys = List.of(ALISE_LAST_SEEN_ON_REDIS_KEY, BOB_LAST_SEEN_ON_REDIS_KEY);
-        ZonedDateTime aliseLastSeenOnTime =  ZonedDateTime.now(ZoneOffset.UTC);
-        ZonedDateTime bobLastSeenOnTime =  ZonedDateTime.now(ZoneOffset.UTC).minusDays(12);
-        boolean aliseOnlineStatus = true;
-        boolean bobOnlineStatus = false;
-
-        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
-        when(userRepository.findAllById(userIds)).thenReturn(List.of(alise, bob));
-        when(valueOperations.multiGet(onlineStatusKeys)).thenReturn(List.of(Boolean.toString(aliseOnlineStatus),
-            Boolean.toString(bobOnlineStatus)));
-       when(valueOperations.multiGet(lastSeenOnKeys)).thenReturn(List.of(aliseLastSeenOnTime.toString(),
-            bobLastSeenOnTime.toString()));
+        ZonedDateTime aliseLastSeenOnTime = ZonedDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.MILLIS);
+        ZonedDateTime bobLastSeenOnTime = aliseLastSeenOnTime.minusDays(12);
+        double aliseExpiresAt = System.currentTimeMillis() + 60_000;
+
+        when(userRepository.findAllIdsByIdIn(Set.copyOf(userIds))).thenReturn(userIds);
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenReturn(List.of(
+            Arrays.asList(aliseExpiresAt, null),
+            List.of(toMillis(aliseLastSeenOnTime), toMillis(bobLastSeenOnTime))));
 
         Map<Long, OnlineStatusResponse> result = underTest.getAllUsersOnlineStatusesForUsersList(userIds);
 
@@ -144,4 +295,48 @@ public class OnlineServiceImplTest {
         assertEquals(aliseLastSeenOnTime, aliseOnlineStatusResponse.lastSeenOn());
         assertEquals(bobLastSeenOnTime, bobOnlineStatusResponse.lastSeenOn());
     }
+
+    @Test
+    void testGetAllUsersOnlineStatusesForUsersList_shouldTreatExpiredHeartbeatAsOffline() {
+        List<Long> userIds = List.of(alise.getId());
+        double expiredAt = System.currentTimeMillis() - 1;
+
+        when(userRepository.findAllIdsByIdIn(Set.copyOf(userIds))).thenReturn(userIds);
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenReturn(List.of(
+            List.of(expiredAt), Arrays.asList((Object) null)));
+
+        Map<Long, OnlineStatusResponse> result = underTest.getAllUsersOnlineStatusesForUsersList(userIds);
+
+        assertFalse(result.get(alise.getId()).isOnline());
+        assertNull(result.get(alise.getId()).lastSeenOn());
+    }
+
+    @Test
+    void testGetAllUsersOnlineStatusesForUsersList_shouldSkipRedis_whenNoUserExists() {
+        List<Long> userIds = List.of(777L);
+        when(userRepository.findAllIdsByIdIn(Set.copyOf(userIds))).thenReturn(List.of());
+
+        Map<Long, OnlineStatusResponse> result = underTest.getAllUsersOnlineStatusesForUsersList(userIds);
+
+        assertThat(result).isEmpty();
+        verify(redisTemplate, never()).executePipelined(any(SessionCallback.class));
+    }
+
+    /** The flush script returns the given users as added to the sorted set */
+    @SuppressWarnings("unchecked")
+    private void flushedHeartbeatsAdd(String... userIds) {
+        when(redisTemplate.execute(any(RedisScript.class), eq(FLUSH_KEYS), anyString(), anyString(),
+            anyString())).thenReturn(List.of(userIds));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void executePipelinedCallback() {
+        ArgumentCaptor<SessionCallback<Object>> callbackCaptor = ArgumentCaptor.forClass(SessionCallback.class);
+        verify(redisTemplate).executePipelined(callbackCaptor.capture());
+        callbackCaptor.getValue().execute((RedisOperations) operations);
+    }
+
+    private static String toMillis(ZonedDateTime time) {
+        return Long.toString(time.toInstant().toEpochMilli());
+    }
 }
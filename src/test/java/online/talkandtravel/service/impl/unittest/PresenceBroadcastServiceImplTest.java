@@ -0,0 +1,103 @@
+package online.talkandtravel.service.impl.unittest;
+
+import static online.talkandtravel.util.constants.ApiPathConstants.USERS_ONLINE_STATUSES_ENDPOINT;
+import static online.talkandtravel.util.constants.ApiPathConstants.USERS_ONLINE_STATUS_ENDPOINT;
+import static online.talkandtravel.util.constants.ApiPathConstants.USER_ONLINE_STATUSES_QUEUE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Set;
+import online.talkandtravel.model.dto.chat.ChatCompanion;
+import online.talkandtravel.model.dto.user.OnlineStatusDto;
+import online.talkandtravel.repository.UserChatRepository;
+import online.talkandtravel.service.BroadcastService;
+import online.talkandtravel.service.impl.PresenceBroadcastServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+class PresenceBroadcastServiceImplTest {
+
+  @Mock
+  private BroadcastService broadcastService;
+  @Mock
+  private UserChatRepository userChatRepository;
+
+  @InjectMocks
+  private PresenceBroadcastServiceImpl underTest;
+
+  private final OnlineStatusDto aliceOnline = new OnlineStatusDto(1L, true);
+  private final OnlineStatusDto aliceOffline =
+      new OnlineStatusDto(1L, false, ZonedDateTime.now(ZoneOffset.UTC));
+  private final OnlineStatusDto bobOnline = new OnlineStatusDto(2L, true);
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void broadcastPending_shouldSendLatestStatusOfEachUserInOneFrame() {
+    underTest.publish(aliceOnline);
+    underTest.publish(bobOnline);
+    underTest.publish(aliceOffline);
+
+    underTest.broadcastPending();
+    underTest.broadcastPending();
+
+    ArgumentCaptor<List<OnlineStatusDto>> captor = ArgumentCaptor.forClass(List.class);
+    verify(broadcastService).broadcast(eq(USERS_ONLINE_STATUSES_ENDPOINT), captor.capture());
+    assertThat(captor.getValue()).containsExactlyInAnyOrder(aliceOffline, bobOnline);
+    verifyNoMoreInteractions(broadcastService);
+    verifyNoInteractions(userChatRepository);
+  }
+
+  @Test
+  void broadcastPending_shouldSendNothing_whenNoStatusChanged() {
+    underTest.broadcastPending();
+
+    verifyNoInteractions(broadcastService, userChatRepository);
+  }
+
+  @Test
+  void broadcastPending_shouldSendChangesToPrivateChatCompanionQueues_whenScopedToCompanions() {
+    ReflectionTestUtils.setField(underTest, "BROADCAST_TO_PRIVATE_CHAT_COMPANIONS_ONLY", true);
+    when(userChatRepository.findAllPrivateChatCompanionsByUserIdIn(Set.of(1L, 2L))).thenReturn(
+        List.of(new ChatCompanion(1L, 2L, "bob@mail.com"), new ChatCompanion(1L, 3L, "carol@mail.com"),
+            new ChatCompanion(2L, 3L, "carol@mail.com")));
+
+    underTest.publish(aliceOnline);
+    underTest.publish(bobOnline);
+    underTest.broadcastPending();
+
+    verify(broadcastService).broadcastToUser("bob@mail.com", USER_ONLINE_STATUSES_QUEUE,
+        List.of(aliceOnline));
+    verify(broadcastService).broadcastToUser("carol@mail.com", USER_ONLINE_STATUSES_QUEUE,
+        List.of(aliceOnline, bobOnline));
+    verifyNoMoreInteractions(broadcastService);
+  }
+
+  @Test
+  @SuppressWarnings("deprecation")
+  void broadcastPending_shouldAlsoSendEachChangeToLegacyTopic_whenLegacyTopicEnabled() {
+    ReflectionTestUtils.setField(underTest, "LEGACY_ONLINE_STATUS_TOPIC", true);
+
+    underTest.publish(aliceOnline);
+    underTest.publish(bobOnline);
+    underTest.broadcastPending();
+
+    verify(broadcastService).broadcast(eq(USERS_ONLINE_STATUSES_ENDPOINT), any());
+    verify(broadcastService).broadcast(USERS_ONLINE_STATUS_ENDPOINT, aliceOnline);
+    verify(broadcastService).broadcast(USERS_ONLINE_STATUS_ENDPOINT, bobOnline);
+    verifyNoMoreInteractions(broadcastService);
+  }
+}
@@ -0,0 +1,294 @@
+package online.talkandtravel.service.impl.unittest;
+
+import static online.talkandtravel.service.impl.RenditionServiceImpl.ANONYMOUS_QUEUE_ID;
+import static online.talkandtravel.util.FilesUtils.contentHash;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import online.talkandtravel.exception.file.RenditionNotFoundException;
+import online.talkandtravel.exception.file.TooManyRenditionRequestsException;
+import online.talkandtravel.exception.file.UnsupportedRenditionWidthException;
+import online.talkandtravel.model.dto.attachment.RenditionDto;
+import online.talkandtravel.model.entity.User;
+import online.talkandtravel.repository.AvatarRepository;
+import online.talkandtravel.repository.MessageRepository;
+import online.talkandtravel.service.AuthenticationService;
+import online.talkandtravel.service.ImageProcessingScheduler;
+import online.talkandtravel.service.ImageService;
+import online.talkandtravel.service.S3StorageService;
+import online.talkandtravel.service.ThumbnailCacheService;
+import online.talkandtravel.service.impl.RenditionServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+@ExtendWith(MockitoExtension.class)
+class RenditionServiceImplTest {
+
+  private static final Long CHAT_ID = 1L;
+  private static final Long SENDER_ID = 7L;
+  private static final Long REQUESTER_ID = 9L;
+  private static final String IMAGE_KEY = "image-key";
+  private static final String CONTENT_TYPE = "image/png";
+  private static final int WIDTH = 256;
+  private static final String RENDITION_KEY = "attachments/chat_1/thumbnails/256x256/image-key";
+  private static final String SMALLER_RENDITION_KEY =
+      "attachments/chat_1/thumbnails/50x50/image-key";
+  private static final String ORIGINAL_KEY = "attachments/chat_1/originals/image-key";
+  private static final long TIMEOUT_IN_SEC = 5;
+
+  @Mock private S3StorageService s3StorageService;
+
+  @Mock private ImageService imageService;
+
+  @Mock private ImageProcessingScheduler imageProcessingScheduler;
+
+  @Mock private ThumbnailCacheService thumbnailCacheService;
+
+  @Mock private MessageRepository messageRepository;
+
+  @Mock private AvatarRepository avatarRepository;
+
+  @Mock private AuthenticationService authenticationService;
+
+  @InjectMocks private RenditionServiceImpl underTest;
+
+  private Path downloadedTo;
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(underTest, "AWS_S3_ATTACHMENTS_FOLDER_NAME", "attachments");
+    ReflectionTestUtils.setField(underTest, "AWS_S3_AVATARS_FOLDER_NAME", "user-avatars");
+    ReflectionTestUtils.setField(underTest, "BASE_URL", "https://api.example.com");
+    ReflectionTestUtils.setField(underTest, "WIDTHS", List.of(50, 256));
+    ReflectionTestUtils.setField(underTest, "ATTACHMENT_MAX_AGE_IN_SEC", 600L);
+    ReflectionTestUtils.setField(underTest, "AVATAR_MAX_AGE_IN_SEC", 60L);
+    ReflectionTestUtils.setField(underTest, "ANONYMOUS_MISSES_PER_MINUTE", 60);
+  }
+
+  @Test
+  void getAttachmentRendition_shouldServeStoredRendition_withoutGenerating() {
+    byte[] stored = new byte[] {1, 2, 3};
+    when(s3StorageService.getObject(RENDITION_KEY)).thenReturn(found(stored, CONTENT_TYPE));
+
+    RenditionDto rendition = underTest.getAttachmentRendition(CHAT_ID, IMAGE_KEY, WIDTH);
+
+    assertThat(rendition.content()).isEqualTo(stored);
+    assertEquals(CONTENT_TYPE, rendition.contentType());
+    assertEquals("\"" + contentHash(stored) + "\"", rendition.eTag());
+    assertEquals(Duration.ofSeconds(600), rendition.maxAge());
+    verify(imageService, never()).generateThumbnails(any(Path.class), anyString(), any());
+  }
+
+  @Test
+  void getAttachmentRendition_shouldGenerateEveryWidthOnRequesterQueue_andStoreThem_whenNotStored() {
+    byte[] original = new byte[] {4, 5, 6};
+    byte[] generated = new byte[] {7};
+    byte[] smaller = new byte[] {6};
+    givenOriginalOfMissingRendition(original);
+    when(authenticationService.findAuthenticatedUser())
+        .thenReturn(Optional.of(User.builder().id(REQUESTER_ID).build()));
+    runSubmittedTasksInPlace(REQUESTER_ID);
+    generateThumbnailsOnCacheMiss(original);
+    when(imageService.generateThumbnails(any(Path.class), eq(CONTENT_TYPE), eq(List.of(50, 256))))
+        .thenReturn(Map.of(50, smaller, WIDTH, generated));
+
+    RenditionDto rendition = underTest.getAttachmentRendition(CHAT_ID, IMAGE_KEY, WIDTH);
+
+    assertThat(rendition.content()).isEqualTo(generated);
+    verify(s3StorageService).putObject(RENDITION_KEY, CONTENT_TYPE, generated);
+    verify(s3StorageService).putObject(SMALLER_RENDITION_KEY, CONTENT_TYPE, smaller);
+    assertThat(downloadedTo).doesNotExist();
+  }
+
+  @Test
+  void getAttachmentRendition_shouldGenerateOnAnonymousQueue_whenRequestIsAnonymous() {
+    byte[] original = new byte[] {4, 5, 6};
+    givenOriginalOfMissingRendition(original);
+    when(authenticationService.findAuthenticatedUser()).thenReturn(Optional.empty());
+    runSubmittedTasksInPlace(ANONYMOUS_QUEUE_ID);
+    generateThumbnailsOnCacheMiss(original);
+    when(imageService.generateThumbnails(any(Path.class), eq(CONTENT_TYPE), eq(List.of(50, 256))))
+        .thenReturn(Map.of(50, new byte[] {6}, WIDTH, new byte[] {7}));
+
+    underTest.getAttachmentRendition(CHAT_ID, IMAGE_KEY, WIDTH);
+
+    verify(imageProcessingScheduler, never()).submitAndWait(eq(SENDER_ID), any());
+  }
+
+  @Test
+  void getAttachmentRendition_shouldNotSubmit_whenThumbnailIsCached() {
+    byte[] original = new byte[] {4, 5, 6};
+    byte[] cached = new byte[] {8};
+    givenOriginalOfMissingRendition(original);
+    when(authenticationService.findAuthenticatedUser()).thenReturn(Optional.empty());
+    when(thumbnailCacheService.getOrGenerate(eq(contentHash(original)), eq(WIDTH), any()))
+        .thenReturn(cached);
+
+    RenditionDto rendition = underTest.getAttachmentRendition(CHAT_ID, IMAGE_KEY, WIDTH);
+
+    assertThat(rendition.content()).isEqualTo(cached);
+    verify(imageProcessingScheduler, never()).submitAndWait(any(), any());
+  }
+
+  @Test
+  void getAttachmentRendition_shouldRejectAnonymousMisses_aboveLimitPerMinute() {
+    ReflectionTestUtils.setField(underTest, "ANONYMOUS_MISSES_PER_MINUTE", 1);
+    byte[] original = new byte[] {4, 5, 6};
+    givenOriginalOfMissingRendition(original);
+    when(authenticationService.findAuthenticatedUser()).thenReturn(Optional.empty());
+    runSubmittedTasksInPlace(ANONYMOUS_QUEUE_ID);
+    generateThumbnailsOnCacheMiss(original);
+    when(imageService.generateThumbnails(any(Path.class), eq(CONTENT_TYPE), eq(List.of(50, 256))))
+        .thenReturn(Map.of(50, new byte[] {6}, WIDTH, new byte[] {7}));
+
+    underTest.getAttachmentRendition(CHAT_ID, IMAGE_KEY, WIDTH);
+
+    assertThrows(TooManyRenditionRequestsException.class,
+        () -> underTest.getAttachmentRendition(CHAT_ID, IMAGE_KEY, WIDTH));
+    verify(imageService).generateThumbnails(any(Path.class), eq(CONTENT_TYPE), eq(List.of(50, 256)));
+  }
+
+  @Test
+  void getAttachmentRendition_shouldThrowNotFound_whenImageIsNotAttachedToChat() {
+    when(s3StorageService.getObject(RENDITION_KEY)).thenReturn(notFound());
+    when(messageRepository.findSenderIdByChatIdAndAttachmentId(CHAT_ID, IMAGE_KEY))
+        .thenReturn(Optional.empty());
+
+    assertThrows(RenditionNotFoundException.class,
+        () -> underTest.getAttachmentRendition(CHAT_ID, IMAGE_KEY, WIDTH));
+    verify(s3StorageService, never()).getObject(eq(ORIGINAL_KEY), any(Path.class));
+  }
+
+  @Test
+  void getAttachmentRendition_shouldReject_whenWidthIsNotSupported() {
+    assertThrows(UnsupportedRenditionWidthException.class,
+        () -> underTest.getAttachmentRendition(CHAT_ID, IMAGE_KEY, 4096));
+    verify(s3StorageService, never()).getObject(anyString());
+  }
+
+  @Test
+  void getAttachmentRendition_shouldLoadOnce_whenRequestedConcurrently() throws Exception {
+    byte[] stored = new byte[] {1, 2, 3};
+    CompletableFuture<Optional<ResponseBytes<GetObjectResponse>>> download =
+        new CompletableFuture<>();
+    CountDownLatch downloadStarted = new CountDownLatch(1);
+    when(s3StorageService.getObject(RENDITION_KEY)).thenAnswer(invocation -> {
+      downloadStarted.countDown();
+      return download;
+    });
+    FutureTask<RenditionDto> first = new FutureTask<>(
+        () -> underTest.getAttachmentRendition(CHAT_ID, IMAGE_KEY, WIDTH));
+    FutureTask<RenditionDto> second = new FutureTask<>(
+        () -> underTest.getAttachmentRendition(CHAT_ID, IMAGE_KEY, WIDTH));
+
+    new Thread(first).start();
+    assertThat(downloadStarted.await(TIMEOUT_IN_SEC, TimeUnit.SECONDS)).isTrue();
+    Thread secondThread = new Thread(second);
+    secondThread.start();
+    awaitWaiting(secondThread);
+    download.complete(Optional.of(ResponseBytes.fromByteArray(
+        GetObjectResponse.builder().contentType(CONTENT_TYPE).build(), stored)));
+
+    assertSame(first.get(TIMEOUT_IN_SEC, TimeUnit.SECONDS),
+        second.get(TIMEOUT_IN_SEC, TimeUnit.SECONDS));
+    verify(s3StorageService).getObject(RENDITION_KEY);
+  }
+
+  @Test
+  void getAvatarRendition_shouldServeLegacyRendition_withFullContentType() {
+    UUID avatarKey = UUID.randomUUID();
+    when(s3StorageService.getObject("user-avatars/50x50/" + avatarKey))
+        .thenReturn(found(new byte[] {1}, "png"));
+
+    RenditionDto rendition = underTest.getAvatarRendition(avatarKey, 50);
+
+    assertEquals(CONTENT_TYPE, rendition.contentType());
+    assertEquals(Duration.ofSeconds(60), rendition.maxAge());
+  }
+
+  @Test
+  void generateAttachmentRenditionUrl_shouldPointToRenditionEndpoint() {
+    assertEquals("https://api.example.com/api/images/chats/1/attachments/image-key?width=256",
+        underTest.generateAttachmentRenditionUrl(CHAT_ID, IMAGE_KEY, WIDTH));
+  }
+
+  @Test
+  void deleteAvatarRenditions_shouldDeleteEveryWidth() {
+    UUID avatarKey = UUID.randomUUID();
+    when(s3StorageService.deleteObject(anyString()))
+        .thenReturn(CompletableFuture.completedFuture(null));
+
+    underTest.deleteAvatarRenditions(avatarKey);
+
+    verify(s3StorageService).deleteObject("user-avatars/50x50/" + avatarKey);
+    verify(s3StorageService).deleteObject("user-avatars/256x256/" + avatarKey);
+  }
+
+  private void awaitWaiting(Thread thread) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_IN_SEC);
+    while (thread.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+  }
+
+  /** Writes the original into the temp file the service downloads to and remembers the file */
+  private void givenOriginalOfMissingRendition(byte[] original) {
+    when(s3StorageService.getObject(RENDITION_KEY)).thenReturn(notFound());
+    when(s3StorageService.getObject(eq(ORIGINAL_KEY), any(Path.class))).thenAnswer(invocation -> {
+      downloadedTo = invocation.getArgument(1);
+      Files.write(downloadedTo, original);
+      return CompletableFuture.completedFuture(
+          Optional.of(GetObjectResponse.builder().contentType(CONTENT_TYPE).build()));
+    });
+    when(messageRepository.findSenderIdByChatIdAndAttachmentId(CHAT_ID, IMAGE_KEY))
+        .thenReturn(Optional.of(SENDER_ID));
+  }
+
+  private void runSubmittedTasksInPlace(Long queueId) {
+    when(imageProcessingScheduler.submitAndWait(eq(queueId), any()))
+        .thenAnswer(invocation -> invocation.<Callable<?>>getArgument(1).call());
+  }
+
+  private void generateThumbnailsOnCacheMiss(byte[] original) {
+    when(thumbnailCacheService.getOrGenerate(eq(contentHash(original)), eq(WIDTH), any()))
+        .thenAnswer(invocation -> invocation.<Supplier<byte[]>>getArgument(2).get());
+  }
+
+  private CompletableFuture<Optional<ResponseBytes<GetObjectResponse>>> found(byte[] content,
+      String contentType) {
+    return CompletableFuture.completedFuture(Optional.of(ResponseBytes.fromByteArray(
+        GetObjectResponse.builder().contentType(contentType).build(), content)));
+  }
+
+  private CompletableFuture<Optional<ResponseBytes<GetObjectResponse>>> notFound() {
+    return CompletableFuture.completedFuture(Optional.empty());
+  }
+}
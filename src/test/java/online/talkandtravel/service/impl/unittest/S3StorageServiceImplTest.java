@@ -0,0 +1,308 @@
+package online.talkandtravel.service.impl.unittest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import online.talkandtravel.config.AmazonS3Config;
+import online.talkandtravel.service.impl.S3StorageServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.test.util.ReflectionTestUtils;
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+/**
+ * Runs the {@link S3StorageServiceImpl} against an in-process S3 stand-in, so requests go through
+ * the real client and transport.
+ */
+@Timeout(30)
+class S3StorageServiceImplTest {
+
+  private static final String BUCKET_NAME = "t2-chat";
+  private static final String CONTENT_TYPE = "image/png";
+  private static final String DENIED_KEY = "denied";
+  private static final long TIMEOUT_IN_SEC = 5;
+  private static final String COPY_OBJECT_RESPONSE =
+      "<CopyObjectResult><ETag>\"etag\"</ETag></CopyObjectResult>";
+  private static final String NO_SUCH_KEY_RESPONSE =
+      "<Error><Code>NoSuchKey</Code><Message>The specified key does not exist.</Message></Error>";
+  private static final String ACCESS_DENIED_RESPONSE =
+      "<Error><Code>AccessDenied</Code><Message>Access Denied</Message></Error>";
+
+  private final Map<String, byte[]> storedObjects = new ConcurrentHashMap<>();
+  private final Map<String, String> contentTypes = new ConcurrentHashMap<>();
+
+  /** Counted down by every put, the stand-in holds puts back until the latch reaches zero */
+  private volatile CountDownLatch concurrentPuts = new CountDownLatch(0);
+
+  /** Whether each put saw the latch reach zero, i.e. all expected puts were in flight at once */
+  private final List<Boolean> putsOverlapped = new CopyOnWriteArrayList<>();
+
+  private HttpServer s3StandIn;
+  private ExecutorService s3StandInExecutor;
+  private S3AsyncClient s3AsyncClient;
+  private S3StorageServiceImpl underTest;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    s3StandInExecutor = Executors.newCachedThreadPool();
+    s3StandIn = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    s3StandIn.createContext("/", this::handle);
+    s3StandIn.setExecutor(s3StandInExecutor);
+    s3StandIn.start();
+
+    AmazonS3Config config = new AmazonS3Config();
+    ReflectionTestUtils.setField(config, "AWS_ACCESS_KEY_ID", "AWS_ACCESS_KEY_ID");
+    ReflectionTestUtils.setField(config, "AWS_ACCESS_KEY", "AWS_SECRET_KEY");
+    ReflectionTestUtils.setField(config, "AWS_REGION", "eu-north-1");
+    ReflectionTestUtils.setField(config, "AWS_S3_ENDPOINT",
+        "http://localhost:" + s3StandIn.getAddress().getPort());
+    ReflectionTestUtils.setField(config, "AWS_S3_MAX_CONCURRENCY", 8);
+    ReflectionTestUtils.setField(config, "AWS_S3_MULTIPART_THRESHOLD_IN_MB", 16L);
+    ReflectionTestUtils.setField(config, "AWS_S3_MULTIPART_PART_SIZE_IN_MB", 8L);
+    s3AsyncClient = config.s3AsyncClient();
+
+    underTest = new S3StorageServiceImpl(s3AsyncClient);
+    ReflectionTestUtils.setField(underTest, "AWS_S3_BUCKET_NAME", BUCKET_NAME);
+  }
+
+  @AfterEach
+  void tearDown() {
+    s3AsyncClient.close();
+    s3StandIn.stop(0);
+    s3StandInExecutor.shutdownNow();
+  }
+
+  @Test
+  void putObject_shouldUploadAllObjectsConcurrently() throws IOException {
+    byte[] thumbnail = new byte[] {1, 2, 3};
+    Path original = Files.createTempFile("upload-", ".tmp");
+    Files.write(original, new byte[] {4, 5, 6, 7});
+    concurrentPuts = new CountDownLatch(2);
+
+    try {
+      underTest.awaitAll(
+          underTest.putObject("attachments/thumbnail/key", CONTENT_TYPE, thumbnail),
+          underTest.putObject("attachments/original/key", CONTENT_TYPE, original));
+    } finally {
+      Files.deleteIfExists(original);
+    }
+
+    assertThat(storedObjects.get("attachments/thumbnail/key")).isEqualTo(thumbnail);
+    assertThat(storedObjects.get("attachments/original/key")).isEqualTo(new byte[] {4, 5, 6, 7});
+    assertThat(contentTypes.get("attachments/original/key")).isEqualTo(CONTENT_TYPE);
+    assertThat(putsOverlapped).containsExactly(true, true);
+  }
+
+  @Test
+  void copyObject_shouldCopyInsideBucket() {
+    storedObjects.put("attachments/original/first", new byte[] {1});
+
+    underTest.awaitAll(underTest.copyObject("attachments/original/first",
+        "attachments/original/second"));
+
+    assertThat(storedObjects.get("attachments/original/second")).isEqualTo(new byte[] {1});
+  }
+
+  @Test
+  void getObject_shouldReturnContentAndContentType() {
+    storedObjects.put("attachments/thumbnail/key", new byte[] {1, 2});
+    contentTypes.put("attachments/thumbnail/key", CONTENT_TYPE);
+
+    Optional<ResponseBytes<GetObjectResponse>> object =
+        underTest.getObject("attachments/thumbnail/key").join();
+
+    assertThat(object).isPresent();
+    assertThat(object.get().asByteArray()).isEqualTo(new byte[] {1, 2});
+    assertThat(object.get().response().contentType()).isEqualTo(CONTENT_TYPE);
+  }
+
+  @Test
+  void getObject_shouldReturnEmpty_whenObjectDoesNotExist() {
+    assertThat(underTest.getObject("attachments/thumbnail/missing").join()).isEmpty();
+  }
+
+  @Test
+  void getObject_shouldReplaceFileContent_withObject() throws IOException {
+    storedObjects.put("attachments/original/key", new byte[] {1, 2, 3});
+    contentTypes.put("attachments/original/key", CONTENT_TYPE);
+    Path destination = Files.createTempFile("download-", ".tmp");
+    Files.write(destination, new byte[] {9, 9, 9, 9, 9});
+
+    try {
+      Optional<GetObjectResponse> object =
+          underTest.getObject("attachments/original/key", destination).join();
+
+      assertThat(object).isPresent();
+      assertThat(object.get().contentType()).isEqualTo(CONTENT_TYPE);
+      assertThat(Files.readAllBytes(destination)).isEqualTo(new byte[] {1, 2, 3});
+    } finally {
+      Files.deleteIfExists(destination);
+    }
+  }
+
+  @Test
+  void getObjectToFile_shouldReturnEmpty_whenObjectDoesNotExist() throws IOException {
+    Path destination = Files.createTempFile("download-", ".tmp");
+
+    try {
+      assertThat(underTest.getObject("attachments/original/missing", destination).join())
+          .isEmpty();
+    } finally {
+      Files.deleteIfExists(destination);
+    }
+  }
+
+  @Test
+  void deleteObject_shouldRemoveObject() {
+    storedObjects.put("user-avatars/50x50/key", new byte[] {1});
+
+    underTest.awaitAll(underTest.deleteObject("user-avatars/50x50/key"));
+
+    assertThat(storedObjects).doesNotContainKey("user-avatars/50x50/key");
+  }
+
+  @Test
+  void awaitAll_shouldRethrowS3Exception_whenAnyUploadFails() {
+    CompletableFuture<Void> upload = underTest.putObject("key", CONTENT_TYPE, new byte[] {1});
+    CompletableFuture<Void> deniedUpload = underTest.putObject(DENIED_KEY, CONTENT_TYPE,
+        new byte[] {2});
+
+    assertThrows(S3Exception.class, () -> underTest.awaitAll(upload, deniedUpload));
+    assertThat(storedObjects).containsKey("key");
+  }
+
+  /**
+   * Minimal S3 API: path-style put, copy, head, get and delete. Puts are sent in the aws-chunked encoding, the
+   * stand-in keeps only the decoded payload.
+   */
+  private void handle(HttpExchange exchange) throws IOException {
+    String key = toKey(exchange.getRequestURI().getPath());
+    if (key.equals(DENIED_KEY)) {
+      exchange.getRequestBody().readAllBytes();
+      respond(exchange, 403, ACCESS_DENIED_RESPONSE);
+      return;
+    }
+
+    switch (exchange.getRequestMethod()) {
+      case "HEAD" -> {
+        byte[] object = storedObjects.get(key);
+        if (object == null) {
+          respond(exchange, 404, null);
+          return;
+        }
+        exchange.getResponseHeaders().add("Content-Length", String.valueOf(object.length));
+        respond(exchange, 200, null);
+      }
+      case "PUT" -> {
+        String copySource = exchange.getRequestHeaders().getFirst("x-amz-copy-source");
+        if (copySource != null) {
+          storedObjects.put(key, storedObjects.get(toKey(copySource)));
+          respond(exchange, 200, COPY_OBJECT_RESPONSE);
+          return;
+        }
+        byte[] content = decodeAwsChunked(exchange.getRequestBody().readAllBytes());
+        concurrentPuts.countDown();
+        putsOverlapped.add(await(concurrentPuts));
+        storedObjects.put(key, content);
+        contentTypes.put(key, exchange.getRequestHeaders().getFirst("Content-Type"));
+        respond(exchange, 200, null);
+      }
+      case "GET" -> {
+        byte[] object = storedObjects.get(key);
+        if (object == null) {
+          respond(exchange, 404, NO_SUCH_KEY_RESPONSE);
+          return;
+        }
+        exchange.getResponseHeaders().add("Content-Type", contentTypes.get(key));
+        exchange.sendResponseHeaders(200, object.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+          outputStream.write(object);
+        }
+      }
+      case "DELETE" -> {
+        storedObjects.remove(key);
+        respond(exchange, 204, null);
+      }
+      default -> respond(exchange, 405, null);
+    }
+  }
+
+  private String toKey(String path) {
+    String bucketPrefix = BUCKET_NAME + "/";
+    String key = path.startsWith("/") ? path.substring(1) : path;
+    return key.startsWith(bucketPrefix) ? key.substring(bucketPrefix.length()) : key;
+  }
+
+  private boolean await(CountDownLatch latch) {
+    try {
+      return latch.await(TIMEOUT_IN_SEC, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  /** Decodes {@code <hex size>\r\n<chunk>\r\n ... 0\r\n<trailers>} */
+  private byte[] decodeAwsChunked(byte[] body) {
+    ByteArrayOutputStream content = new ByteArrayOutputStream();
+    int position = 0;
+    while (true) {
+      int lineEnd = indexOfLineEnd(body, position);
+      String sizeLine = new String(body, position, lineEnd - position, StandardCharsets.US_ASCII);
+      int size = Integer.parseInt(sizeLine.split(";")[0], 16);
+      if (size == 0) {
+        return content.toByteArray();
+      }
+      position = lineEnd + 2;
+      content.write(body, position, size);
+      position += size + 2;
+    }
+  }
+
+  private int indexOfLineEnd(byte[] body, int from) {
+    for (int i = from; i < body.length - 1; i++) {
+      if (body[i] == '\r' && body[i + 1] == '\n') {
+        return i;
+      }
+    }
+    throw new IllegalArgumentException("Malformed aws-chunked body");
+  }
+
+  private void respond(HttpExchange exchange, int status, String body) throws IOException {
+    if (body == null) {
+      exchange.sendResponseHeaders(status, -1);
+      exchange.close();
+      return;
+    }
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().add("Content-Type", "application/xml");
+    exchange.sendResponseHeaders(status, bytes.length);
+    try (OutputStream outputStream = exchange.getResponseBody()) {
+      outputStream.write(bytes);
+    }
+  }
+}
@@ -0,0 +1,126 @@
+package online.talkandtravel.service.impl.unittest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import online.talkandtravel.service.impl.ThumbnailCacheServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+class ThumbnailCacheServiceImplTest {
+
+  private static final String CONTENT_HASH = "hash";
+  private static final byte[] X50_KEY = "thumbnails:hash:50".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] X256_KEY = "thumbnails:hash:256".getBytes(StandardCharsets.UTF_8);
+
+  @Mock private RedisTemplate<String, String> redisTemplate;
+
+  @Mock private RedisConnection connection;
+
+  @Mock private RedisStringCommands stringCommands;
+
+  @InjectMocks private ThumbnailCacheServiceImpl underTest;
+
+  private final List<List<Integer>> generatorCalls = new ArrayList<>();
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(underTest, "LOCAL_MAX_SIZE_IN_MB", 1L);
+    ReflectionTestUtils.setField(underTest, "SHARED_MAX_ENTRY_SIZE_IN_KB", 1L);
+    ReflectionTestUtils.setField(underTest, "SHARED_TTL_IN_HOURS", 24L);
+    when(connection.stringCommands()).thenReturn(stringCommands);
+    when(redisTemplate.execute(any(RedisCallback.class))).thenAnswer(
+        invocation -> invocation.getArgument(0, RedisCallback.class).doInRedis(connection));
+  }
+
+  @Test
+  void getOrGenerate_shouldGenerateMissingWidthsOnce_andStoreThemInBothTiers() {
+    mockRedisWrites();
+    when(stringCommands.mGet(any(byte[][].class))).thenReturn(Arrays.asList(null, null));
+
+    Map<Integer, byte[]> actual = underTest.getOrGenerate(CONTENT_HASH, List.of(256, 50),
+        this::generate);
+
+    assertThat(actual).containsOnlyKeys(256, 50);
+    assertThat(generatorCalls).containsExactly(List.of(256, 50));
+    verify(stringCommands).set(eq(X256_KEY), eq(new byte[] {1}), any(Expiration.class),
+        eq(SetOption.upsert()));
+    verify(stringCommands).set(eq(X50_KEY), eq(new byte[] {1}), any(Expiration.class),
+        eq(SetOption.upsert()));
+
+    underTest.getOrGenerate(CONTENT_HASH, List.of(256, 50), this::generate);
+
+    assertThat(generatorCalls).hasSize(1);
+    verify(stringCommands, times(1)).mGet(any(byte[][].class));
+  }
+
+  @Test
+  void getOrGenerate_shouldUseSharedTier_andGenerateOnlyWidthsMissingThere() {
+    mockRedisWrites();
+    byte[] sharedThumbnail = new byte[] {9};
+    when(stringCommands.mGet(any(byte[][].class))).thenReturn(Arrays.asList(sharedThumbnail, null));
+
+    Map<Integer, byte[]> actual = underTest.getOrGenerate(CONTENT_HASH, List.of(256, 50),
+        this::generate);
+
+    assertArrayEquals(sharedThumbnail, actual.get(256));
+    assertThat(generatorCalls).containsExactly(List.of(50));
+  }
+
+  @Test
+  void getOrGenerate_shouldGenerate_whenRedisFails() {
+    when(stringCommands.mGet(any(byte[][].class))).thenThrow(new IllegalStateException("down"));
+    when(redisTemplate.executePipelined(any(RedisCallback.class)))
+        .thenThrow(new IllegalStateException("down"));
+
+    byte[] actual = underTest.getOrGenerate(CONTENT_HASH, 50, () -> new byte[] {5});
+
+    assertArrayEquals(new byte[] {5}, actual);
+  }
+
+  @Test
+  void getOrGenerate_shouldNotShareThumbnailsAboveMaxEntrySize() {
+    mockRedisWrites();
+    when(stringCommands.mGet(any(byte[][].class))).thenReturn(Arrays.asList((byte[]) null));
+
+    underTest.getOrGenerate(CONTENT_HASH, 256, () -> new byte[2048]);
+
+    verify(stringCommands, never()).set(any(), any(), any(Expiration.class), any(SetOption.class));
+  }
+
+  private Map<Integer, byte[]> generate(List<Integer> widths) {
+    generatorCalls.add(List.copyOf(widths));
+    return widths.stream().collect(Collectors.toMap(w -> w, w -> new byte[] {1}));
+  }
+
+  private void mockRedisWrites() {
+    when(redisTemplate.executePipelined(any(RedisCallback.class))).thenAnswer(invocation -> {
+      invocation.getArgument(0, RedisCallback.class).doInRedis(connection);
+      return List.of();
+    });
+  }
+}
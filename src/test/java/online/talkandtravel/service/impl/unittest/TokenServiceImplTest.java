@@ -0,0 +1,164 @@
+package online.talkandtravel.service.impl.unittest;
+
+import static online.talkandtravel.util.constants.RedisConstants.TOKEN_REVOCATION_CHANNEL;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import online.talkandtravel.exception.token.InvalidTokenException;
+import online.talkandtravel.model.entity.Token;
+import online.talkandtravel.repository.TokenRepository;
+import online.talkandtravel.service.impl.TokenServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+public class TokenServiceImplTest {
+
+  private static final String SECRET_KEY = "dGFsay1hbmQtdHJhdmVsLXRlc3Qtc2VjcmV0LWtleS0yNTYtYml0cw==";
+
+  @InjectMocks private TokenServiceImpl underTest;
+
+  @Mock private TokenRepository tokenRepository;
+
+  @Mock private RedisTemplate<String, String> redisTemplate;
+
+  private final Long userId = 1L;
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(underTest, "secretKey", SECRET_KEY);
+    ReflectionTestUtils.setField(underTest, "CACHE_SIZE", 1024);
+    ReflectionTestUtils.setField(underTest, "USER_TOKEN_EXPIRING_TIME_IN_HOURS", 1);
+    underTest.init();
+  }
+
+  @Test
+  void validateTokenAndGetUserId_shouldQueryDatabaseOnce_whenTokenIsValid() {
+    String jwt = underTest.generateToken(userId);
+    when(tokenRepository.findAllByUserId(userId)).thenReturn(List.of(storedToken(jwt)));
+
+    assertEquals(userId, underTest.validateTokenAndGetUserId(jwt));
+    assertEquals(userId, underTest.validateTokenAndGetUserId(jwt));
+
+    verify(tokenRepository, times(1)).findAllByUserId(userId);
+  }
+
+  @Test
+  void validateTokenAndGetUserId_shouldThrow_whenTokenIsNotStored() {
+    String jwt = underTest.generateToken(userId);
+    when(tokenRepository.findAllByUserId(userId)).thenReturn(List.of());
+
+    assertThrows(InvalidTokenException.class, () -> underTest.validateTokenAndGetUserId(jwt));
+  }
+
+  @Test
+  void validateTokenAndGetUserId_shouldThrow_whenTokenIsMalformed() {
+    assertThrows(InvalidTokenException.class,
+        () -> underTest.validateTokenAndGetUserId("not.a.token"));
+  }
+
+  @Test
+  void revokeToken_shouldRejectCachedTokenAndPublishRevocation() {
+    String jwt = underTest.generateToken(userId);
+    Token token = storedToken(jwt);
+    when(tokenRepository.findAllByUserId(userId)).thenReturn(List.of(token));
+    when(tokenRepository.findByToken(jwt)).thenReturn(Optional.of(token));
+    underTest.validateTokenAndGetUserId(jwt);
+
+    underTest.revokeToken(jwt);
+
+    assertTrue(token.isExpired());
+    assertTrue(token.isRevoked());
+    verify(tokenRepository).save(token);
+    verify(redisTemplate).convertAndSend(eq(TOKEN_REVOCATION_CHANNEL), anyString());
+    assertThrows(InvalidTokenException.class, () -> underTest.validateTokenAndGetUserId(jwt));
+  }
+
+  @Test
+  void revokeLocally_shouldRejectTokenRevokedOnAnotherInstance() {
+    String jwt = underTest.generateToken(userId);
+    Token token = storedToken(jwt);
+    when(tokenRepository.findAllByUserId(userId)).thenReturn(List.of(token));
+    when(tokenRepository.findByToken(jwt)).thenReturn(Optional.empty());
+    underTest.revokeToken(jwt);
+    ArgumentCaptor<String> payloadCaptor = ArgumentCaptor.forClass(String.class);
+    verify(redisTemplate).convertAndSend(eq(TOKEN_REVOCATION_CHANNEL), payloadCaptor.capture());
+
+    TokenServiceImpl anotherInstance = anotherInstance();
+    assertEquals(userId, anotherInstance.validateTokenAndGetUserId(jwt));
+
+    revokeLocally(anotherInstance, payloadCaptor.getValue());
+
+    assertThrows(InvalidTokenException.class,
+        () -> anotherInstance.validateTokenAndGetUserId(jwt));
+  }
+
+  @Test
+  void revokeToken_shouldRejectOtherCachedTokensOfUser() {
+    String jwt = underTest.generateToken(Map.of("device", "phone"), userId);
+    String otherJwt = underTest.generateToken(Map.of("device", "laptop"), userId);
+    Token token = storedToken(jwt);
+    when(tokenRepository.findAllByUserId(userId)).thenReturn(List.of(token));
+    when(tokenRepository.findByToken(jwt)).thenReturn(Optional.of(token));
+    underTest.validateTokenAndGetUserId(jwt);
+    underTest.validateTokenAndGetUserId(otherJwt);
+
+    underTest.revokeToken(jwt);
+
+    assertThrows(InvalidTokenException.class, () -> underTest.validateTokenAndGetUserId(otherJwt));
+  }
+
+  @Test
+  void revokeLocally_shouldRejectOtherCachedTokensOfUserOnAnotherInstance() {
+    String jwt = underTest.generateToken(Map.of("device", "phone"), userId);
+    String otherJwt = underTest.generateToken(Map.of("device", "laptop"), userId);
+    Token token = storedToken(jwt);
+    when(tokenRepository.findAllByUserId(userId)).thenReturn(List.of(token));
+    TokenServiceImpl anotherInstance = anotherInstance();
+    assertEquals(userId, anotherInstance.validateTokenAndGetUserId(otherJwt));
+
+    when(tokenRepository.findByToken(jwt)).thenReturn(Optional.of(token));
+    underTest.revokeToken(jwt);
+    ArgumentCaptor<String> payloadCaptor = ArgumentCaptor.forClass(String.class);
+    verify(redisTemplate).convertAndSend(eq(TOKEN_REVOCATION_CHANNEL), payloadCaptor.capture());
+    revokeLocally(anotherInstance, payloadCaptor.getValue());
+
+    assertThrows(InvalidTokenException.class,
+        () -> anotherInstance.validateTokenAndGetUserId(otherJwt));
+  }
+
+  private TokenServiceImpl anotherInstance() {
+    TokenServiceImpl anotherInstance = new TokenServiceImpl(tokenRepository, redisTemplate);
+    ReflectionTestUtils.setField(anotherInstance, "secretKey", SECRET_KEY);
+    ReflectionTestUtils.setField(anotherInstance, "CACHE_SIZE", 1024);
+    ReflectionTestUtils.setField(anotherInstance, "USER_TOKEN_EXPIRING_TIME_IN_HOURS", 1);
+    anotherInstance.init();
+    return anotherInstance;
+  }
+
+  /** Applies a published {@code userId|digest|expiresAt} payload */
+  private void revokeLocally(TokenServiceImpl instance, String payload) {
+    String[] parts = payload.split("\\|");
+    instance.revokeLocally(Long.valueOf(parts[0]), parts[1], Long.parseLong(parts[2]));
+  }
+
+  private Token storedToken(String jwt) {
+    return Token.builder().id(1L).token(jwt).build();
+  }
+}
@@ -0,0 +1,83 @@
+package online.talkandtravel.service.impl.unittest;
+
+import static online.talkandtravel.util.constants.ApiPathConstants.MESSAGES_SUBSCRIBE_PATH;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import online.talkandtravel.model.dto.avatar.AvatarDto;
+import online.talkandtravel.model.dto.event.EventResponse;
+import online.talkandtravel.model.dto.user.UserNameDto;
+import online.talkandtravel.model.entity.MessageType;
+import online.talkandtravel.service.BroadcastService;
+import online.talkandtravel.service.impl.TypingServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+public class TypingServiceImplTest {
+
+  @InjectMocks private TypingServiceImpl underTest;
+
+  @Mock private BroadcastService broadcastService;
+
+  private final Long chatId = 1L;
+  private final UserNameDto user = new UserNameDto(2L, "alice", new AvatarDto("url", "url"));
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(underTest, "START_INTERVAL_IN_MS", 60_000L);
+    ReflectionTestUtils.setField(underTest, "TIMEOUT_IN_MS", 60_000L);
+  }
+
+  @Test
+  void startTyping_shouldBroadcastOnlyFirstEvent_withinInterval() {
+    assertTrue(underTest.startTyping(chatId, user));
+    assertFalse(underTest.startTyping(chatId, user));
+    assertTrue(underTest.startTyping(3L, user));
+  }
+
+  @Test
+  void stopTyping_shouldBroadcastOnlyWhenUserWasTyping() {
+    underTest.startTyping(chatId, user);
+
+    assertTrue(underTest.stopTyping(chatId, user.id()));
+    assertFalse(underTest.stopTyping(chatId, user.id()));
+    assertTrue(underTest.startTyping(chatId, user));
+  }
+
+  @Test
+  void stopExpired_shouldNotifySubscribers_whenTypingTimedOut() {
+    ReflectionTestUtils.setField(underTest, "TIMEOUT_IN_MS", 0L);
+    underTest.startTyping(chatId, user);
+
+    underTest.stopExpired();
+
+    ArgumentCaptor<EventResponse> captor = ArgumentCaptor.forClass(EventResponse.class);
+    verify(broadcastService).broadcast(eq(MESSAGES_SUBSCRIBE_PATH.formatted(chatId)), captor.capture());
+    assertEquals(MessageType.STOP_TYPING, captor.getValue().type());
+    assertEquals(user, captor.getValue().user());
+    assertFalse(underTest.stopTyping(chatId, user.id()));
+  }
+
+  @Test
+  void stopExpired_shouldKeepActiveTyping() {
+    underTest.startTyping(chatId, user);
+
+    underTest.stopExpired();
+
+    verify(broadcastService, never()).broadcast(anyString(), any(Object.class));
+    assertTrue(underTest.stopTyping(chatId, user.id()));
+  }
+}
@@ -0,0 +1,87 @@
+package online.talkandtravel.service.impl.unittest;
+
+import static online.talkandtravel.testdata.UserTestData.getAlice;
+import static online.talkandtravel.util.constants.RedisConstants.USER_DETAILS_INVALIDATION_CHANNEL;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+import online.talkandtravel.exception.user.UserNotFoundException;
+import online.talkandtravel.model.entity.User;
+import online.talkandtravel.repository.UserRepository;
+import online.talkandtravel.security.CustomUserDetails;
+import online.talkandtravel.service.impl.UserDetailsCacheServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+public class UserDetailsCacheServiceImplTest {
+
+  @InjectMocks private UserDetailsCacheServiceImpl underTest;
+
+  @Mock private UserRepository userRepository;
+
+  @Mock private RedisTemplate<String, String> redisTemplate;
+
+  private final User alice = getAlice();
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(underTest, "CACHE_SIZE", 1024);
+    ReflectionTestUtils.setField(underTest, "CACHE_TTL_IN_SECONDS", 60L);
+    ReflectionTestUtils.setField(underTest, "SHARE_THROUGH_REDIS", true);
+  }
+
+  @Test
+  void getUserDetails_shouldQueryDatabaseOnce_whenUserExists() {
+    when(userRepository.findById(alice.getId())).thenReturn(Optional.of(alice));
+
+    CustomUserDetails first = (CustomUserDetails) underTest.getUserDetails(alice.getId());
+    CustomUserDetails second = (CustomUserDetails) underTest.getUserDetails(alice.getId());
+
+    assertEquals(alice.getId(), first.getId());
+    assertEquals(alice.getUserEmail(), first.getUsername());
+    assertEquals(first, second);
+    verify(userRepository, times(1)).findById(alice.getId());
+  }
+
+  @Test
+  void getUserDetails_shouldThrow_whenUserNotFound() {
+    when(userRepository.findById(alice.getId())).thenReturn(Optional.empty());
+
+    assertThrows(UserNotFoundException.class, () -> underTest.getUserDetails(alice.getId()));
+  }
+
+  @Test
+  void getUserDetails_shouldReloadUser_whenExpired() {
+    ReflectionTestUtils.setField(underTest, "CACHE_TTL_IN_SECONDS", 0L);
+    when(userRepository.findById(alice.getId())).thenReturn(Optional.of(alice));
+
+    underTest.getUserDetails(alice.getId());
+    underTest.getUserDetails(alice.getId());
+
+    verify(userRepository, times(2)).findById(alice.getId());
+  }
+
+  @Test
+  void evict_shouldReloadUserAndPublishInvalidation() {
+    when(userRepository.findById(alice.getId())).thenReturn(Optional.of(alice));
+    underTest.getUserDetails(alice.getId());
+
+    underTest.evict(alice.getId());
+    underTest.getUserDetails(alice.getId());
+
+    verify(userRepository, times(2)).findById(alice.getId());
+    verify(redisTemplate).convertAndSend(USER_DETAILS_INVALIDATION_CHANNEL,
+        alice.getId().toString());
+  }
+}
@@ -16,6 +16,7 @@ import static org.mockito.Mockito.when;
 import java.time.Duration;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.util.List;
 import java.util.Optional;
 import lombok.extern.log4j.Log4j2;
 import online.talkandtravel.exception.auth.UserRegistrationDataNotFound;
@@ -27,8 +28,12 @@ import online.talkandtravel.model.dto.user.UpdateUserRequest;
 import online.talkandtravel.model.dto.user.UpdateUserResponse;
 import online.talkandtravel.model.dto.user.UserDtoBasic;
 import online.talkandtravel.model.entity.User;
+import online.talkandtravel.repository.ChatRepository;
+import online.talkandtravel.repository.UserChatRepository;
 import online.talkandtravel.repository.UserRepository;
 import online.talkandtravel.service.AuthenticationService;
+import online.talkandtravel.service.ChatMembershipService;
+import online.talkandtravel.service.UserDetailsCacheService;
 import online.talkandtravel.service.impl.UserServiceImpl;
 import online.talkandtravel.util.mapper.UserMapper;
 import org.junit.jupiter.api.BeforeEach;
@@ -53,6 +58,10 @@ class UserServiceTest {
   @Mock private UserMapper userMapper;
   @Mock private RedisTemplate<String, RegisterRequest> redisTemplate;
   @Mock private ValueOperations<String, RegisterRequest> valueOperations;
+  @Mock private UserDetailsCacheService userDetailsCacheService;
+  @Mock private UserChatRepository userChatRepository;
+  @Mock private ChatRepository chatRepository;
+  @Mock private ChatMembershipService chatMembershipService;
 
   @InjectMocks private UserServiceImpl underTest;
 
@@ -70,6 +79,22 @@ class UserServiceTest {
   private static final String USER_REGISTER_DATA_REDIS_KEY_PATTERN = "register-user-data:%s";
 
 
+  @Test
+  void deleteUser_shouldDecrementUsersCountAndEvictMembership_ofEveryCountryChat() {
+    when(userChatRepository.findAllCountryChatIdsByUserId(alice.getId()))
+        .thenReturn(List.of(1L, 2L));
+
+    underTest.deleteUser(alice);
+
+    verify(userRepository).save(alice);
+    assertTrue(alice.getCountries().isEmpty());
+    for (Long chatId : List.of(1L, 2L)) {
+      verify(chatRepository).changeUsersCount(chatId, -1);
+      verify(chatMembershipService).evict(chatId, alice.getId());
+    }
+    verify(userDetailsCacheService).evict(alice.getId());
+  }
+
   @Test
   void testUpdateLastLoggedOnToNow() {
     User user = new User();
@@ -150,6 +175,7 @@ class UserServiceTest {
 
       verify(passwordEncoder).encode(rawPassword);
       verify(userRepository).save(user);
+      verify(userDetailsCacheService).evict(1L);
     }
   }
 
@@ -245,6 +271,7 @@ class UserServiceTest {
       UpdateUserResponse expectedResult = new UpdateUserResponse(newName, alice.getUserEmail(), newAbout);
 
       when(authenticationService.getAuthenticatedUser()).thenReturn(alice);
+      when(userRepository.findById(alice.getId())).thenReturn(Optional.of(alice));
       doNothing().when(userMapper).updateUser(request, alice);
       alice.setUserName(newName);
       alice.setAbout(newAbout);
@@ -259,6 +286,7 @@ class UserServiceTest {
       verify(userMapper).updateUser(request, alice);
       verify(userMapper).toUpdateUserResponse(alice);
       verify(userRepository).save(alice);
+      verify(userDetailsCacheService).evict(alice.getId());
     }
   }
 
@@ -11,3 +11,10 @@ VALUES (1001,
         2, -- Alice
         1, -- Aruba
         'TEXT');
+
+-- keep the denormalized chat statistics in line with the rows inserted above
+update public.chats c
+set users_count     = (select count(*) from public.user_chats uc where uc.chat_id = c.id),
+    messages_count  = (select count(*) from public.messages m where m.chat_id = c.id),
+    last_message_id = (select m.id from public.messages m where m.chat_id = c.id
+                       order by m.creation_date desc, m.id desc limit 1);
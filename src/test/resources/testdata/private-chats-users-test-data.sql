@@ -19,3 +19,10 @@ insert into public.messages(id, content, creation_date, sender_id, chat_id, type
 VALUES (101, 'content1', '2021-08-24 10:13:28.757878', 2, 10001, 'TEXT'),
        (102, 'content2', '2023-08-24 10:13:28.757878', 2, 10001, 'TEXT'),
        (103, 'content3', '2024-08-24 10:13:28.757878', 2, 10001, 'TEXT');
+
+-- keep the denormalized chat statistics in line with the rows inserted above
+update public.chats c
+set users_count     = (select count(*) from public.user_chats uc where uc.chat_id = c.id),
+    messages_count  = (select count(*) from public.messages m where m.chat_id = c.id),
+    last_message_id = (select m.id from public.messages m where m.chat_id = c.id
+                       order by m.creation_date desc, m.id desc limit 1);